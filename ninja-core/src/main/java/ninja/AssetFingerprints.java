@@ -0,0 +1,221 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ninja;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import ninja.utils.NinjaConstant;
+import ninja.utils.NinjaProperties;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Maps;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Adds a hash of the content to the file names of assets. The content of
+ * such an url never changes - browsers can cache it forever.
+ *
+ * css/app.css becomes css/app.3f9c1a2b4d5e.css. The hash of an asset is
+ * calculated on first access and kept until the application stops.
+ *
+ * The assets goal of the ninja-maven-plugin calculates the hashes at build
+ * time and writes them to assets/asset-manifest.properties. Hashes found in
+ * that manifest are used as they are (unless the assets are served from
+ * application.static.asset.basedir).
+ *
+ * Used by {@link AssetsController} and the assetsAt method of the templates.
+ */
+@Singleton
+public class AssetFingerprints {
+
+    /** Browsers may cache fingerprinted assets for a year without asking. */
+    public static final String CACHE_CONTROL_IMMUTABLE = "public, max-age=31536000, immutable";
+
+    /** Maps file names (css/app.css) to their fingerprints. */
+    public static final String MANIFEST = AssetsController.ASSETS_DIR + "/asset-manifest.properties";
+
+    static final int FINGERPRINT_LENGTH = 12;
+
+    private static final Logger logger = LoggerFactory.getLogger(AssetFingerprints.class);
+
+    static final int MAXIMUM_SIZE = 10000;
+
+    private static final Pattern FINGERPRINTED_FILE_NAME = Pattern.compile(
+            "^(.*)\\.([0-9a-f]{" + FINGERPRINT_LENGTH + "})(\\.[^./]+)?$");
+
+    private final boolean enabled;
+
+    private final Map<String, String> manifest;
+
+    private final Cache<String, String> fingerprints;
+
+    @Inject
+    public AssetFingerprints(NinjaProperties ninjaProperties) {
+
+        this.enabled = !ninjaProperties.isDev()
+                && ninjaProperties.getBooleanWithDefault(
+                        NinjaConstant.ASSETS_FINGERPRINT_ENABLED,
+                        NinjaConstant.ASSETS_FINGERPRINT_ENABLED_DEFAULT);
+
+        this.manifest = enabled
+                && ninjaProperties.get(NinjaConstant.APPLICATION_STATIC_ASSET_BASEDIR) == null
+                ? loadManifest()
+                : Collections.<String, String>emptyMap();
+
+        this.fingerprints = CacheBuilder.newBuilder()
+                .maximumSize(MAXIMUM_SIZE)
+                .build();
+
+    }
+
+    /**
+     * @return true if ninja.assets.fingerprint.enabled is set (and not in dev mode).
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param fileName The normalized file name of the asset.
+     * @return The fingerprint of the asset or null if not calculated yet.
+     */
+    String getFingerprint(String fileName) {
+
+        String fingerprint = manifest.get(fileName);
+
+        return fingerprint != null ? fingerprint : fingerprints.getIfPresent(fileName);
+
+    }
+
+    /**
+     * @param fileName The normalized file name of the asset.
+     * @param url The asset.
+     * @return The fingerprint of the content of the asset.
+     */
+    String getFingerprint(String fileName, URL url) throws IOException {
+
+        String fingerprint = getFingerprint(fileName);
+
+        if (fingerprint == null) {
+
+            try (InputStream inputStream = url.openStream()) {
+                fingerprint = fingerprint(inputStream);
+            }
+
+            fingerprints.put(fileName, fingerprint);
+
+        }
+
+        return fingerprint;
+
+    }
+
+    /**
+     * Calculates the fingerprint of some content. Also used at build time
+     * by the ninja-maven-plugin.
+     *
+     * @param inputStream The content. Not closed.
+     * @return The fingerprint (12 hex characters).
+     */
+    public static String fingerprint(InputStream inputStream) throws IOException {
+
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+
+        byte [] buffer = new byte[8192];
+        int read;
+
+        while ((read = inputStream.read(buffer)) != -1) {
+            hasher.putBytes(buffer, 0, read);
+        }
+
+        return hasher.hash().toString().substring(0, FINGERPRINT_LENGTH);
+
+    }
+
+    private static Map<String, String> loadManifest() {
+
+        URL url = AssetFingerprints.class.getClassLoader().getResource(MANIFEST);
+
+        if (url == null) {
+            return Collections.emptyMap();
+        }
+
+        Properties properties = new Properties();
+
+        try (InputStream inputStream = url.openStream()) {
+            properties.load(inputStream);
+        } catch (IOException e) {
+            logger.error("Cannot read {}", MANIFEST, e);
+            return Collections.emptyMap();
+        }
+
+        return Maps.fromProperties(properties);
+
+    }
+
+    /**
+     * @param fileName A file name like css/app.css.
+     * @param fingerprint The fingerprint of the content.
+     * @return The file name with the fingerprint before the extension:
+     *         css/app.3f9c1a2b4d5e.css.
+     */
+    static String addFingerprint(String fileName, String fingerprint) {
+
+        int lastDot = fileName.lastIndexOf('.');
+
+        if (lastDot <= fileName.lastIndexOf('/') + 1) {
+            // no extension (or a file like .htaccess)
+            return fileName + "." + fingerprint;
+        }
+
+        return fileName.substring(0, lastDot) + "." + fingerprint + fileName.substring(lastDot);
+
+    }
+
+    /**
+     * @param fileName A file name like css/app.3f9c1a2b4d5e.css.
+     * @return The file name without the fingerprint (css/app.css) or null if
+     *         the file name does not contain a fingerprint.
+     */
+    static String removeFingerprint(String fileName) {
+
+        Matcher matcher = FINGERPRINTED_FILE_NAME.matcher(fileName);
+
+        if (!matcher.matches() || matcher.group(1).isEmpty() || matcher.group(1).endsWith("/")) {
+            return null;
+        }
+
+        return matcher.group(1) + (matcher.group(3) != null ? matcher.group(3) : "");
+
+    }
+
+}
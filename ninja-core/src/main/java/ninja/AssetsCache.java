@@ -0,0 +1,192 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ninja;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.concurrent.TimeUnit;
+
+import ninja.utils.NinjaConstant;
+import ninja.utils.NinjaProperties;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Keeps static assets served by {@link AssetsController} in memory.
+ *
+ * Only used in prod mode where assets do not change. Small assets are
+ * cached with their bytes, content type and an ETag calculated from the
+ * content. Larger ones are only remembered by their url and streamed for
+ * each request. Lookups of missing assets are cached for a short while so
+ * that repeated 404s do not hit the classloader.
+ */
+@Singleton
+public class AssetsCache {
+
+    static final int MISSING_ASSETS_MAXIMUM_SIZE = 10000;
+
+    static final int MISSING_ASSETS_EXPIRY_IN_SECONDS = 60;
+
+    private final boolean enabled;
+
+    private final int maxFileSize;
+
+    private final Cache<String, Asset> assets;
+
+    private final Cache<String, Boolean> missingAssets;
+
+    @Inject
+    AssetsCache(NinjaProperties ninjaProperties) {
+
+        this.enabled = ninjaProperties.isProd()
+                && ninjaProperties.getBooleanWithDefault(
+                        NinjaConstant.ASSETS_CACHE_ENABLED,
+                        NinjaConstant.ASSETS_CACHE_ENABLED_DEFAULT);
+
+        this.maxFileSize = ninjaProperties.getIntegerWithDefault(
+                NinjaConstant.ASSETS_CACHE_MAX_FILE_SIZE_IN_BYTES,
+                NinjaConstant.ASSETS_CACHE_MAX_FILE_SIZE_IN_BYTES_DEFAULT);
+
+        this.assets = CacheBuilder.newBuilder()
+                .maximumWeight(ninjaProperties.getIntegerWithDefault(
+                        NinjaConstant.ASSETS_CACHE_MAX_SIZE_IN_BYTES,
+                        NinjaConstant.ASSETS_CACHE_MAX_SIZE_IN_BYTES_DEFAULT))
+                .weigher(new Weigher<String, Asset>() {
+
+                    @Override
+                    public int weigh(String key, Asset asset) {
+                        return asset.bytes != null ? Math.max(1, asset.bytes.length) : 1;
+                    }
+
+                })
+                .build();
+
+        this.missingAssets = CacheBuilder.newBuilder()
+                .maximumSize(MISSING_ASSETS_MAXIMUM_SIZE)
+                .expireAfterWrite(MISSING_ASSETS_EXPIRY_IN_SECONDS, TimeUnit.SECONDS)
+                .build();
+
+    }
+
+    /**
+     * @return true in prod mode unless disabled by ninja.assets.cache.enabled.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param key The normalized path of the asset.
+     * @return The cached asset or null.
+     */
+    Asset get(String key) {
+        return assets.getIfPresent(key);
+    }
+
+    /**
+     * @param key The normalized path of the asset.
+     * @return true if the asset was not found recently.
+     */
+    boolean isMissing(String key) {
+        return missingAssets.getIfPresent(key) != null;
+    }
+
+    /**
+     * Remembers that an asset does not exist.
+     *
+     * @param key The normalized path of the asset.
+     */
+    void putMissing(String key) {
+        missingAssets.put(key, Boolean.TRUE);
+    }
+
+    /**
+     * Reads an asset and caches it.
+     *
+     * @param key The normalized path of the asset.
+     * @param url The asset.
+     * @param contentType The content type of the asset.
+     * @return The cached asset. Large assets are not held in memory.
+     */
+    Asset load(String key, URL url, String contentType) throws IOException {
+
+        URLConnection urlConnection = url.openConnection();
+
+        long length = urlConnection.getContentLengthLong();
+        long lastModified = urlConnection.getLastModified();
+
+        Asset asset;
+
+        if (length < 0 || length > maxFileSize) {
+
+            asset = new Asset(url, contentType, null, null, lastModified);
+
+        } else {
+
+            byte [] bytes;
+
+            try (InputStream inputStream = urlConnection.getInputStream()) {
+                bytes = ByteStreams.toByteArray(inputStream);
+            }
+
+            String etag = "\"" + Hashing.murmur3_128().hashBytes(bytes).toString() + "\"";
+
+            asset = new Asset(url, contentType, bytes, etag, lastModified);
+
+        }
+
+        assets.put(key, asset);
+
+        return asset;
+
+    }
+
+    static class Asset {
+
+        final URL url;
+
+        final String contentType;
+
+        /** null if the asset is too large to be kept in memory. */
+        final byte [] bytes;
+
+        /** Calculated from the bytes. null if they are not cached. */
+        final String etag;
+
+        /** 0 if unknown. */
+        final long lastModified;
+
+        Asset(URL url, String contentType, byte [] bytes, String etag, long lastModified) {
+            this.url = url;
+            this.contentType = contentType;
+            this.bytes = bytes;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+    }
+
+}
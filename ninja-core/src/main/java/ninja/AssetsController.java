@@ -19,13 +19,14 @@ package ninja;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
 
 import ninja.utils.HttpCacheToolkit;
+import ninja.utils.HttpCacheToolkitImpl;
+import ninja.utils.HttpHeaderConstants;
 import ninja.utils.MimeTypes;
 import ninja.utils.NinjaConstant;
 import ninja.utils.NinjaProperties;
@@ -36,7 +37,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Optional;
-import com.google.common.io.ByteStreams;
 import com.google.common.io.Files;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
@@ -85,14 +85,43 @@ public class AssetsController {
 
     private final NinjaProperties ninjaProperties;
 
-    @Inject
+    private final AssetsCache assetsCache;
+
+    private final AssetFingerprints assetFingerprints;
+
+    private final PrecompressedAssets precompressedAssets;
+
+    /**
+     * Creates a controller with its own (default) cache, fingerprints and
+     * precompressed variants. Use the injected controller to share those.
+     */
     public AssetsController(HttpCacheToolkit httpCacheToolkit,
                             MimeTypes mimeTypes,
                             NinjaProperties ninjaProperties) {
+
+        this(httpCacheToolkit,
+                mimeTypes,
+                ninjaProperties,
+                new AssetsCache(ninjaProperties),
+                new AssetFingerprints(ninjaProperties),
+                new PrecompressedAssets(ninjaProperties));
+
+    }
+
+    @Inject
+    public AssetsController(HttpCacheToolkit httpCacheToolkit,
+                            MimeTypes mimeTypes,
+                            NinjaProperties ninjaProperties,
+                            AssetsCache assetsCache,
+                            AssetFingerprints assetFingerprints,
+                            PrecompressedAssets precompressedAssets) {
         
         this.httpCacheToolkit = httpCacheToolkit;
         this.mimeTypes = mimeTypes;
         this.ninjaProperties = ninjaProperties;
+        this.assetsCache = assetsCache;
+        this.assetFingerprints = assetFingerprints;
+        this.precompressedAssets = precompressedAssets;
         this.assetBaseDir = getNormalizedAssetPath(ninjaProperties);
         this.defaultAssetBaseDir = srcDir + File.separator + ASSETS_DIR + File.separator;
     }
@@ -119,7 +148,7 @@ public class AssetsController {
                     
                 }
 
-                streamOutUrlEntity(url, context, result);
+                streamOutUrlEntity(url, context, result, false);
 
             }
         };
@@ -143,6 +172,9 @@ public class AssetsController {
      * and will return
      * /assets/app/app.css (from your jar).
      * 
+     * Fingerprinted file names (see {@link #fingerprint(String)}) are
+     * served with far-future caching headers.
+     * 
      */
     public Result serveStatic(Context context) {
         Object renderable = new Renderable() {
@@ -151,10 +183,24 @@ public class AssetsController {
             public void render(Context context, Result result) {
 
                 String fileName = getFileNameFromPathOrReturnRequestPath(context);
-                
-                URL url = getStaticFileFromAssetsDir(context, fileName);
 
-                streamOutUrlEntity(url, context, result);
+                String fileNameWithoutFingerprint = removeValidFingerprint(fileName);
+
+                boolean immutable = fileNameWithoutFingerprint != null;
+
+                if (immutable) {
+                    fileName = fileNameWithoutFingerprint;
+                }
+
+                String key = ASSETS_DIR + "/" + normalizePathWithoutTrailingSlash(fileName);
+
+                if (!streamOutCachedAsset(key, context, result, immutable)) {
+
+                    URL url = getStaticFileFromAssetsDir(context, fileName);
+
+                    cacheAndStreamOutUrlEntity(key, url, context, result, immutable);
+
+                }
 
             }
         };
@@ -179,10 +225,16 @@ public class AssetsController {
             public void render(Context context, Result result) {
                     
                 String fileName = getFileNameFromPathOrReturnRequestPath(context);
-   
-                URL url = getStaticFileFromMetaInfResourcesDir(context, fileName);
 
-                streamOutUrlEntity(url, context, result);
+                String key = "META-INF/resources/webjars/" + normalizePathWithoutTrailingSlash(fileName);
+
+                if (!streamOutCachedAsset(key, context, result, false)) {
+
+                    URL url = getStaticFileFromMetaInfResourcesDir(context, fileName);
+
+                    cacheAndStreamOutUrlEntity(key, url, context, result, false);
+
+                }
 
             }
         };
@@ -191,7 +243,265 @@ public class AssetsController {
 
     }
     
-    private void streamOutUrlEntity(URL url, Context context, Result result) {
+    /**
+     * Adds a hash of the content of an asset to its file name if enabled by
+     * ninja.assets.fingerprint.enabled. The hash is calculated once.
+     * 
+     * @param fileName The file name as passed to assetsAt, eg. css/app.css.
+     * @return The file name with the fingerprint, eg. css/app.3f9c1a2b4d5e.css.
+     *         Or fileName itself if fingerprints are disabled or the asset
+     *         does not exist.
+     */
+    public String fingerprint(String fileName) {
+
+        if (!assetFingerprints.isEnabled()) {
+            return fileName;
+        }
+
+        String normalizedFileName = normalizePathWithoutTrailingSlash(fileName);
+
+        String fingerprint = assetFingerprints.getFingerprint(normalizedFileName);
+
+        if (fingerprint == null) {
+
+            // requests for made up fingerprints of missing assets must not
+            // make us search the classpath each time
+            String key = ASSETS_DIR + "/" + normalizedFileName;
+
+            if (assetsCache.isMissing(key)) {
+                return fileName;
+            }
+
+            URL url = getStaticFileFromAssetsDir(null, fileName);
+
+            if (url == null) {
+                assetsCache.putMissing(key);
+                return fileName;
+            }
+
+            try {
+                fingerprint = assetFingerprints.getFingerprint(normalizedFileName, url);
+            } catch (IOException e) {
+                logger.error("error calculating fingerprint of asset", e);
+                return fileName;
+            }
+
+        }
+
+        return AssetFingerprints.addFingerprint(fileName, fingerprint);
+
+    }
+
+    /**
+     * @return The file name without the fingerprint or null if the file name
+     *         has no fingerprint or it does not match the current content.
+     */
+    private String removeValidFingerprint(String fileName) {
+
+        if (!assetFingerprints.isEnabled()) {
+            return null;
+        }
+
+        String fileNameWithoutFingerprint = AssetFingerprints.removeFingerprint(fileName);
+
+        if (fileNameWithoutFingerprint == null
+                || !fingerprint(fileNameWithoutFingerprint).equals(fileName)) {
+            return null;
+        }
+
+        return fileNameWithoutFingerprint;
+
+    }
+
+    /**
+     * Serves an asset from the {@link AssetsCache} (prod mode only).
+     * 
+     * @return false if the asset has to be looked up.
+     */
+    private boolean streamOutCachedAsset(String key, Context context, Result result, boolean immutable) {
+
+        if (!assetsCache.isEnabled()) {
+            return false;
+        }
+
+        if (assetsCache.isMissing(key)) {
+            context.finalizeHeadersWithoutFlashAndSessionCookie(Results.notFound());
+            return true;
+        }
+
+        AssetsCache.Asset asset = assetsCache.get(key);
+
+        if (asset == null) {
+            return false;
+        }
+
+        streamOutAsset(key, asset.url, asset.contentType, context, result, immutable);
+
+        return true;
+
+    }
+
+    private void cacheAndStreamOutUrlEntity(String key, URL url, Context context, Result result, boolean immutable) {
+
+        if (url == null) {
+
+            if (assetsCache.isEnabled()) {
+                assetsCache.putMissing(key);
+            }
+
+            streamOutUrlEntity(url, context, result, immutable);
+
+        } else {
+
+            String mimeType = mimeTypes.getContentType(context, url.getFile());
+
+            if (assetsCache.isEnabled()) {
+
+                try {
+                    // the next request is served by streamOutCachedAsset -
+                    // even if it gets a precompressed variant.
+                    assetsCache.load(key, url, mimeType);
+                } catch (IOException e) {
+                    logger.error("error streaming file", e);
+                    return;
+                }
+
+            }
+
+            streamOutAsset(key, url, mimeType, context, result, immutable);
+
+        }
+
+    }
+
+    /**
+     * Serves an asset - or its precompressed variant if the client accepts
+     * it. From the {@link AssetsCache} if enabled.
+     */
+    private void streamOutAsset(String key,
+                                URL url,
+                                String contentType,
+                                Context context,
+                                Result result,
+                                boolean immutable) {
+
+        String contentEncoding = null;
+
+        if (precompressedAssets.isEnabled() && precompressedAssets.hasVariants(url)) {
+
+            result.addHeader(Result.VARY, "Accept-Encoding");
+
+            PrecompressedAssets.Variant variant
+                    = precompressedAssets.selectVariant(url, context.getAcceptEncoding());
+
+            if (variant != null) {
+                key = key + variant.extension;
+                url = variant.url;
+                contentEncoding = variant.contentEncoding;
+                result.addHeader(Result.CONTENT_ENCODING, contentEncoding);
+            }
+
+        }
+
+        if (!assetsCache.isEnabled()) {
+            streamOutUrlEntity(url, contentType, contentEncoding, context, result, immutable);
+            return;
+        }
+
+        try {
+
+            AssetsCache.Asset asset = assetsCache.get(key);
+
+            if (asset == null) {
+                asset = assetsCache.load(key, url, contentType);
+            }
+
+            streamOutBytes(asset, contentEncoding, context, result, immutable);
+
+        } catch (IOException e) {
+            logger.error("error streaming file", e);
+        }
+
+    }
+
+    private void streamOutBytes(AssetsCache.Asset asset,
+                                String contentEncoding,
+                                Context context,
+                                Result result,
+                                boolean immutable) {
+
+        if (asset.bytes == null) {
+            // too large to be kept in memory
+            streamOutUrlEntity(asset.url, asset.contentType, contentEncoding, context, result, immutable);
+            return;
+        }
+
+        addEtag(context, result, asset.etag,
+                asset.lastModified > 0 ? asset.lastModified : null);
+
+        if (immutable) {
+            result.addHeader(HttpHeaderConstants.CACHE_CONTROL, AssetFingerprints.CACHE_CONTROL_IMMUTABLE);
+        }
+
+        if (result.getStatusCode() == Result.SC_304_NOT_MODIFIED) {
+            context.finalizeHeadersWithoutFlashAndSessionCookie(result);
+            return;
+        }
+
+        result.status(200);
+
+        if (asset.contentType != null && !asset.contentType.isEmpty()) {
+            result.contentType(asset.contentType);
+        }
+
+        result.addHeader(HttpHeaderConstants.CONTENT_LENGTH, String.valueOf(asset.bytes.length));
+
+        ResponseStreams responseStreams = context.finalizeHeadersWithoutFlashAndSessionCookie(result);
+
+        if (!"HEAD".equalsIgnoreCase(context.getMethod())) {
+
+            try (OutputStream outputStream = responseStreams.getOutputStream()) {
+                outputStream.write(asset.bytes);
+            } catch (IOException e) {
+                logger.error("error streaming file", e);
+            }
+
+        }
+
+    }
+
+    /**
+     * Content etags need the default {@link HttpCacheToolkitImpl}. Custom
+     * toolkits get the last modified date as before.
+     */
+    private void addEtag(Context context, Result result, String etag, Long lastModified) {
+
+        if (httpCacheToolkit instanceof HttpCacheToolkitImpl) {
+            ((HttpCacheToolkitImpl) httpCacheToolkit).addEtag(context, result, etag, lastModified);
+        } else {
+            httpCacheToolkit.addEtag(context, result, lastModified != null ? lastModified : 0L);
+        }
+
+    }
+
+    private void streamOutUrlEntity(URL url, Context context, Result result, boolean immutable) {
+
+        String mimeType = url != null ? mimeTypes.getContentType(context, url.getFile()) : null;
+
+        streamOutUrlEntity(url, mimeType, null, context, result, immutable);
+
+    }
+
+    /**
+     * @param mimeType The content type of the asset.
+     * @param contentEncoding The encoding of a precompressed asset or null.
+     */
+    private void streamOutUrlEntity(URL url,
+                                    String mimeType,
+                                    String contentEncoding,
+                                    Context context,
+                                    Result result,
+                                    boolean immutable) {
     
         // check if stream exists. if not print a notfound exception
                 if (url == null) {
@@ -204,7 +514,18 @@ public class AssetsController {
 
                         URLConnection urlConnection = url.openConnection();
                         Long lastModified = urlConnection.getLastModified();
-                        httpCacheToolkit.addEtag(context, result, lastModified);
+
+                        if (contentEncoding == null) {
+                            httpCacheToolkit.addEtag(context, result, lastModified);
+                        } else {
+                            // each encoding needs an etag of its own
+                            addEtag(context, result,
+                                    "\"" + lastModified + "-" + contentEncoding + "\"", lastModified);
+                        }
+
+                        if (immutable) {
+                            result.addHeader(HttpHeaderConstants.CACHE_CONTROL, AssetFingerprints.CACHE_CONTROL_IMMUTABLE);
+                        }
 
                         if (result.getStatusCode() == Result.SC_304_NOT_MODIFIED) {
                             // Do not stream anything out. Simply return 304
@@ -214,26 +535,15 @@ public class AssetsController {
 
                             result.status(200);
 
-                            // Try to set the mimetype:
-                            String mimeType = mimeTypes.getContentType(context,
-                                    url.getFile());
-
                             if (mimeType != null
                                     && !mimeType.isEmpty()) {
                                 result.contentType(mimeType);
                             }
 
-                            // finalize headers:
-                            ResponseStreams responseStreams = context
-                                    .finalizeHeadersWithoutFlashAndSessionCookie(result);
-                            
-                            try (
-                                InputStream inputStream = urlConnection.getInputStream();
-                                OutputStream outputStream = responseStreams.getOutputStream()) {
-
-                                ByteStreams.copy(inputStream, outputStream);
-                            }
-
+                            // Streams the file and answers Range requests
+                            new ResourceRenderable(url)
+                                    .withoutFlashAndSessionCookie()
+                                    .render(context, result);
 
                         } 
 
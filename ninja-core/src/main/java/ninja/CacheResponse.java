@@ -0,0 +1,68 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ninja;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Caches the complete rendered response of a controller method (status,
+ * headers and body) in the {@link ninja.cache.NinjaCache}.
+ * 
+ * <pre>
+ * &#64;CacheResponse(ttl = "5mn", staleWhileRevalidate = "1mn", varyBy = "X-Device")
+ * public Result catalogue(&#64;Param("page") int page) {
+ *     ...
+ * }
+ * </pre>
+ * 
+ * Responses are cached per route, request path, query parameters, negotiated
+ * content type and language - plus the request headers listed in varyBy.
+ * Only GET requests without session and flash data are cached, and only
+ * responses with status 200 and without cookies.
+ * 
+ * Within staleWhileRevalidate after the ttl the cached response is still
+ * served while a fresh one is rendered in the background.
+ * 
+ * Filters of the route run for every request. The cache sits between them
+ * and the controller (see {@link ResponseCacheFilter}).
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.METHOD, ElementType.TYPE })
+public @interface CacheResponse {
+
+    /**
+     * @return How long a response is fresh, eg. "10s", "3mn" or "8h".
+     */
+    String ttl() default "1mn";
+
+    /**
+     * @return How long a response is served after the ttl while it is
+     *         refreshed in the background. "0s" disables that.
+     */
+    String staleWhileRevalidate() default "0s";
+
+    /**
+     * @return Names of request headers whose values become part of the
+     *         cache key.
+     */
+    String [] varyBy() default {};
+
+}
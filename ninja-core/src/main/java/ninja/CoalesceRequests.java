@@ -0,0 +1,62 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ninja;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Identical GET requests that arrive while the first one is still running
+ * wait for its response instead of calling the controller themselves.
+ * 
+ * <pre>
+ * &#64;CoalesceRequests(timeout = "5s")
+ * public Result expensiveReport(&#64;Param("year") int year) {
+ *     ...
+ * }
+ * </pre>
+ * 
+ * Requests are identical if they have the same route, request path, query
+ * parameters, negotiated content type and language - plus the same values
+ * of the request headers listed in varyBy. Requests with session or flash
+ * data are never coalesced.
+ * 
+ * A waiting request that does not get a response within the timeout (or if
+ * the first request fails) calls the controller itself.
+ * 
+ * Filters of the route run for every request (see
+ * {@link RequestCoalescingFilter}).
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.METHOD, ElementType.TYPE })
+public @interface CoalesceRequests {
+
+    /**
+     * @return How long a request waits for the response of an identical
+     *         request, eg. "10s" or "1mn".
+     */
+    String timeout() default "10s";
+
+    /**
+     * @return Names of request headers whose values must match as well.
+     */
+    String [] varyBy() default {};
+
+}
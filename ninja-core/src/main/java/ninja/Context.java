@@ -48,6 +48,11 @@ public interface Context {
      */
     public String CONTENT_TYPE = "Content-Type";
 
+    /**
+     * Content-Encoding: ... of a request body (e.g. gzip).
+     */
+    public String CONTENT_ENCODING = "Content-Encoding";
+
     /**
      * X Forwarded for header, used when behind fire walls and proxies.
      */
@@ -472,6 +477,9 @@ public interface Context {
      * 
      * Must not be used if getReader has been called.
      * 
+     * Bodies sent with Content-Encoding gzip or deflate are decompressed
+     * if ninja.request.decompression.enabled is set.
+     * 
      * @return The input stream
      */
     InputStream getInputStream() throws IOException;
@@ -481,6 +489,9 @@ public interface Context {
      * 
      * Must not be used if getInputStream has been called.
      * 
+     * Bodies sent with Content-Encoding gzip or deflate are decompressed
+     * if ninja.request.decompression.enabled is set.
+     * 
      * @return The reader
      */
     BufferedReader getReader() throws IOException;
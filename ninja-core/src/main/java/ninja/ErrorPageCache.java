@@ -0,0 +1,245 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ninja;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import ninja.i18n.Lang;
+import ninja.utils.Message;
+import ninja.utils.NinjaConstant;
+import ninja.utils.NinjaProperties;
+import ninja.utils.ResponseStreams;
+import ninja.utils.ResultHandler;
+
+import org.apache.commons.io.output.TeeOutputStream;
+
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Renders the error results of {@link NinjaDefault} (404, 500 and so on)
+ * only once and serves the rendered bytes afterwards.
+ *
+ * Rendered pages are cached per status, negotiated content type, language
+ * and template. The message of a result of NinjaDefault is only translated
+ * when the page is rendered - so on a cache miss. Messages created with a
+ * text (e.g. by overridden getXyzResult methods) are part of the key.
+ * Therefore custom error templates and messages are still honoured.
+ *
+ * Only results rendering a {@link Message} are cached - and only for
+ * requests without session and flash data. Those may be used by the
+ * templates. In dev mode nothing is cached so that changes to the templates
+ * show up immediately.
+ */
+@Singleton
+class ErrorPageCache {
+
+    static final int MAXIMUM_SIZE = 256;
+
+    private final ResultHandler resultHandler;
+
+    private final Lang lang;
+
+    private final boolean enabled;
+
+    private final Cache<String, byte []> renderedPages;
+
+    @Inject
+    ErrorPageCache(ResultHandler resultHandler,
+                   Lang lang,
+                   NinjaProperties ninjaProperties) {
+
+        this.resultHandler = resultHandler;
+        this.lang = lang;
+        this.enabled = !ninjaProperties.isDev();
+        this.renderedPages = CacheBuilder.newBuilder()
+                .maximumSize(MAXIMUM_SIZE)
+                .build();
+
+    }
+
+    /**
+     * Renders an error result - from the cache if possible.
+     *
+     * @param result The error result.
+     * @param context The context of the failed request.
+     */
+    void handleResult(Result result, Context context) {
+
+        String key = getKey(result, context);
+
+        if (key == null) {
+            resultHandler.handleResult(result, context);
+            return;
+        }
+
+        byte [] renderedPage = renderedPages.getIfPresent(key);
+
+        if (renderedPage != null) {
+
+            // Renderables bypass the default caching headers of the
+            // ResultHandler. So we set them here.
+            if (!result.getHeaders().containsKey(Result.CACHE_CONTROL)) {
+                result.doNotCacheContent();
+            }
+
+            result.render(new FrozenResult.PreRenderedBody(renderedPage));
+
+            resultHandler.handleResult(result, context);
+
+        } else {
+
+            BodyCapturingContext bodyCapturingContext = new BodyCapturingContext(context);
+
+            resultHandler.handleResult(result, bodyCapturingContext);
+
+            if (bodyCapturingContext.isComplete()) {
+                renderedPages.put(key, bodyCapturingContext.getBody());
+            }
+
+        }
+
+    }
+
+    private String getKey(Result result, Context context) {
+
+        if (!enabled
+                || !(result.getRenderable() instanceof Message)
+                || !result.getCookies().isEmpty()
+                || context.isAsync()
+                || context.getSession() == null
+                || !context.getSession().isEmpty()
+                || context.getFlashScope() == null
+                || !context.getFlashScope().getCurrentFlashCookieData().isEmpty()) {
+            return null;
+        }
+
+        // the same content negotiation the ResultHandler does
+        String contentType = result.getContentType();
+
+        if (contentType == null) {
+
+            if (result.supportedContentTypes().contains(context.getAcceptContentType())) {
+                contentType = context.getAcceptContentType();
+            } else if (result.fallbackContentType().isPresent()) {
+                contentType = result.fallbackContentType().get();
+            } else {
+                return null;
+            }
+
+            result.contentType(contentType);
+
+        }
+
+        Optional<String> language = lang.getLanguage(context, Optional.of(result));
+
+        // The (translated) text of the messages of NinjaDefault follows from
+        // status and language. It is only resolved when the page is rendered.
+        // Messages created with a text may differ for each request.
+        Message message = (Message) result.getRenderable();
+
+        String text = message.hasLazyText() ? null : message.getText();
+
+        return result.getStatusCode()
+                + "|" + contentType
+                + "|" + language.or("")
+                + "|" + result.getTemplate()
+                + (text != null ? "|" + text : "");
+
+    }
+
+    /**
+     * Passes everything through to the real context but keeps a copy of the
+     * body that is written.
+     */
+    private static class BodyCapturingContext extends WrappedContext {
+
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        private int finalizeHeadersCalls;
+
+        private boolean closed;
+
+        BodyCapturingContext(Context context) {
+            super(context);
+        }
+
+        @Override
+        public ResponseStreams finalizeHeaders(Result result) {
+            return capture(super.finalizeHeaders(result), result);
+        }
+
+        @Override
+        public ResponseStreams finalizeHeadersWithoutFlashAndSessionCookie(Result result) {
+            return capture(super.finalizeHeadersWithoutFlashAndSessionCookie(result), result);
+        }
+
+        boolean isComplete() {
+            return finalizeHeadersCalls == 1 && closed;
+        }
+
+        byte [] getBody() {
+            return body.toByteArray();
+        }
+
+        private ResponseStreams capture(final ResponseStreams responseStreams,
+                                        final Result result) {
+
+            finalizeHeadersCalls++;
+
+            return new ResponseStreams() {
+
+                @Override
+                public OutputStream getOutputStream() throws IOException {
+
+                    return new TeeOutputStream(responseStreams.getOutputStream(), body) {
+
+                        @Override
+                        public void close() throws IOException {
+                            super.close();
+                            closed = true;
+                        }
+
+                    };
+
+                }
+
+                @Override
+                public Writer getWriter() throws IOException {
+
+                    String charset = result.getCharset() != null
+                            ? result.getCharset()
+                            : NinjaConstant.UTF_8;
+
+                    return new OutputStreamWriter(getOutputStream(), charset);
+
+                }
+
+            };
+
+        }
+
+    }
+
+}
@@ -28,10 +28,10 @@ import com.google.inject.Provider;
 class FilterChainEnd implements FilterChain {
     private Provider<?> controllerProvider;
     private ControllerMethodInvoker controllerMethodInvoker;
-    private Result result;
+    private FrozenResult frozenResult;
 
-    FilterChainEnd(Result result) {
-        this.result = result;
+    FilterChainEnd(FrozenResult frozenResult) {
+        this.frozenResult = frozenResult;
     }
 
     FilterChainEnd(Provider<?> controllerProvider,
@@ -42,8 +42,9 @@ class FilterChainEnd implements FilterChain {
 
     @Override
     public Result next(Context context) {
-        if(result != null) {
-            return result;
+        if(frozenResult != null) {
+            // every request gets its own copy of the static result
+            return frozenResult.newResult();
         }
 
         Result controllerResult = (Result) controllerMethodInvoker.invoke(
@@ -0,0 +1,259 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ninja;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+
+import ninja.exceptions.InternalServerErrorException;
+import ninja.template.TemplateEngine;
+import ninja.template.TemplateEngineCsv;
+import ninja.template.TemplateEngineJson;
+import ninja.template.TemplateEngineManager;
+import ninja.template.TemplateEngineText;
+import ninja.template.TemplateEngineXml;
+import ninja.utils.NoHttpBody;
+import ninja.utils.ResponseStreams;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * An immutable snapshot of a Result declared in the routes via
+ * router.GET().route("/ping").with(Results.ok()...).
+ *
+ * Every request gets its own fresh copy of the Result. Otherwise all requests
+ * would share (and mutate) the very same Result object.
+ *
+ * If the Result renders a constant object with a template engine that does
+ * not depend on the request (json, xml, text and csv) the body is rendered once
+ * when the route is built. Each request then only copies the bytes.
+ */
+class FrozenResult {
+
+    private static final Logger logger = LoggerFactory.getLogger(FrozenResult.class);
+
+    private final int statusCode;
+    private final Object renderable;
+    private final String contentType;
+    private final String charset;
+    private final String template;
+    private final Class<?> jsonView;
+    private final Optional<String> fallbackContentType;
+    private final List<String> supportedContentTypes;
+    private final Map<String, String> headers;
+    private final List<Cookie> cookies;
+
+    // null if the body could not be rendered in advance
+    private final byte[] preRenderedBody;
+
+    FrozenResult(Result result, TemplateEngineManager templateEngineManager) {
+
+        this.statusCode = result.getStatusCode();
+        this.renderable = result.getRenderable();
+        this.contentType = result.getContentType();
+        this.charset = result.getCharset();
+        this.template = result.getTemplate();
+        this.jsonView = result.getJsonView();
+        this.fallbackContentType = result.fallbackContentType();
+        this.supportedContentTypes = ImmutableList.copyOf(result.supportedContentTypes());
+        this.headers = ImmutableMap.copyOf(result.getHeaders());
+        this.cookies = ImmutableList.copyOf(result.getCookies());
+
+        this.preRenderedBody = preRender(templateEngineManager);
+
+    }
+
+    /**
+     * @return A new mutable Result for exactly one request.
+     */
+    Result newResult() {
+
+        Result result = new Result(statusCode)
+                .charset(charset)
+                .contentType(contentType)
+                .template(template)
+                .jsonView(jsonView);
+
+        if (fallbackContentType.isPresent()) {
+            result.fallbackContentType(fallbackContentType.get());
+        }
+
+        for (String supportedContentType : supportedContentTypes) {
+            result.supportedContentType(supportedContentType);
+        }
+
+        result.getHeaders().putAll(headers);
+
+        for (Cookie cookie : cookies) {
+            result.addCookie(cookie);
+        }
+
+        if (preRenderedBody != null) {
+
+            // Renderables bypass the default caching headers of the
+            // ResultHandler. So we set them here.
+            if (!headers.containsKey(Result.CACHE_CONTROL)) {
+                result.doNotCacheContent();
+            }
+
+            result.render(new PreRenderedBody(preRenderedBody));
+
+        } else if (renderable != null) {
+            result.render(renderable);
+        }
+
+        return result;
+
+    }
+
+    /**
+     * @return true if the body was rendered when the route was built.
+     */
+    boolean isPreRendered() {
+        return preRenderedBody != null;
+    }
+
+    private byte[] preRender(TemplateEngineManager templateEngineManager) {
+
+        if (templateEngineManager == null
+                || contentType == null
+                || renderable == null
+                || renderable instanceof Renderable
+                || renderable instanceof NoHttpBody) {
+            return null;
+        }
+
+        TemplateEngine templateEngine
+                = templateEngineManager.getTemplateEngineForContentType(contentType);
+
+        // only those engines produce the same output for every request
+        if (!((templateEngine instanceof TemplateEngineJson
+                    && !((TemplateEngineJson) templateEngine).isSparseFieldsetsEnabled())
+                || templateEngine instanceof TemplateEngineXml
+                || templateEngine instanceof TemplateEngineText
+                || templateEngine instanceof TemplateEngineCsv)) {
+            return null;
+        }
+
+        BodyCapturingContext bodyCapturingContext = new BodyCapturingContext();
+
+        try {
+
+            templateEngine.invoke(bodyCapturingContext, newResult());
+
+            return bodyCapturingContext.getBody();
+
+        } catch (Exception e) {
+
+            logger.debug("Cannot render body of static result in advance. "
+                    + "Rendering it for each request instead.", e);
+
+            return null;
+
+        }
+
+    }
+
+    /**
+     * Writes bytes rendered in advance with a single write.
+     */
+    static class PreRenderedBody implements Renderable {
+
+        private final byte[] body;
+
+        PreRenderedBody(byte[] body) {
+            this.body = body;
+        }
+
+        @Override
+        public void render(Context context, Result result) {
+
+            ResponseStreams responseStreams = context.finalizeHeaders(result);
+
+            try (OutputStream outputStream = responseStreams.getOutputStream()) {
+                outputStream.write(body);
+            } catch (IOException e) {
+                throw new InternalServerErrorException(e);
+            }
+
+        }
+
+    }
+
+    /**
+     * A context that only supports finalizeHeaders(...) and captures
+     * everything written to the response. Everything else fails - and
+     * means the body depends on the request.
+     */
+    private static class BodyCapturingContext extends WrappedContext {
+
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        private Writer writer;
+
+        BodyCapturingContext() {
+            super(null);
+        }
+
+        @Override
+        public ResponseStreams finalizeHeaders(final Result result) {
+
+            return new ResponseStreams() {
+
+                @Override
+                public OutputStream getOutputStream() {
+                    return body;
+                }
+
+                @Override
+                public Writer getWriter() throws IOException {
+                    writer = new OutputStreamWriter(body, result.getCharset());
+                    return writer;
+                }
+
+            };
+
+        }
+
+        @Override
+        public ResponseStreams finalizeHeadersWithoutFlashAndSessionCookie(Result result) {
+            return finalizeHeaders(result);
+        }
+
+        byte[] getBody() throws IOException {
+
+            if (writer != null) {
+                writer.flush();
+            }
+
+            return body.toByteArray();
+
+        }
+
+    }
+
+}
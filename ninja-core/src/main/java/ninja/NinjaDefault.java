@@ -32,6 +32,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Optional;
+import com.google.common.base.Supplier;
 import com.google.inject.Inject;
 
 
@@ -64,6 +65,9 @@ public class NinjaDefault implements Ninja {
     @Inject
     Messages messages;
 
+    @Inject
+    ErrorPageCache errorPageCache;
+
 
     @Override
     public void onRouteRequest(Context.Impl context) {
@@ -108,7 +112,7 @@ public class NinjaDefault implements Ninja {
             if (context.isAsync()) {
                 context.returnResultAsync(result);
             } else {
-                resultHandler.handleResult(result, context);
+                errorPageCache.handleResult(result, context);
             }
         } catch (Exception exceptionCausingRenderError) {
             logger.error("Unable to handle result. "
@@ -162,14 +166,10 @@ public class NinjaDefault implements Ninja {
                 context.getRoute().getControllerMethod(), 
                 exception);
         
-        String messageI18n 
-                = messages.getWithDefault(
-                        NinjaConstant.I18N_NINJA_SYSTEM_INTERNAL_SERVER_ERROR_TEXT_KEY,
-                        NinjaConstant.I18N_NINJA_SYSTEM_INTERNAL_SERVER_ERROR_TEXT_DEFAULT,
-                        context,
-                        Optional.<Result>absent());
-        
-        Message message = new Message(messageI18n);
+        Message message = newMessage(
+                NinjaConstant.I18N_NINJA_SYSTEM_INTERNAL_SERVER_ERROR_TEXT_KEY,
+                NinjaConstant.I18N_NINJA_SYSTEM_INTERNAL_SERVER_ERROR_TEXT_DEFAULT,
+                context);
 
         Result result = Results
                 .internalServerError()
@@ -185,14 +185,10 @@ public class NinjaDefault implements Ninja {
     @Override
     public Result getNotFoundResult(Context context) {
             
-        String messageI18n
-                = messages.getWithDefault(
-                        NinjaConstant.I18N_NINJA_SYSTEM_NOT_FOUND_TEXT_KEY,
-                        NinjaConstant.I18N_NINJA_SYSTEM_NOT_FOUND_TEXT_DEFAULT,
-                        context,
-                        Optional.<Result>absent());
-        
-        Message message = new Message(messageI18n); 
+        Message message = newMessage(
+                NinjaConstant.I18N_NINJA_SYSTEM_NOT_FOUND_TEXT_KEY,
+                NinjaConstant.I18N_NINJA_SYSTEM_NOT_FOUND_TEXT_DEFAULT,
+                context);
         
         Result result = Results
                         .notFound()
@@ -208,14 +204,10 @@ public class NinjaDefault implements Ninja {
     @Override
     public Result getBadRequestResult(Context context, Exception exception) {
         
-        String messageI18n 
-                = messages.getWithDefault(
-                        NinjaConstant.I18N_NINJA_SYSTEM_BAD_REQUEST_TEXT_KEY,
-                        NinjaConstant.I18N_NINJA_SYSTEM_BAD_REQUEST_TEXT_DEFAULT,
-                        context,
-                        Optional.<Result>absent());
-        
-        Message message = new Message(messageI18n); 
+        Message message = newMessage(
+                NinjaConstant.I18N_NINJA_SYSTEM_BAD_REQUEST_TEXT_KEY,
+                NinjaConstant.I18N_NINJA_SYSTEM_BAD_REQUEST_TEXT_DEFAULT,
+                context);
            
         Result result = Results
                         .badRequest()
@@ -231,14 +223,10 @@ public class NinjaDefault implements Ninja {
     @Override
     public Result getUnauthorizedResult(Context context) {
 
-        String messageI18n
-                = messages.getWithDefault(
-                        NinjaConstant.I18N_NINJA_SYSTEM_UNAUTHORIZED_REQUEST_TEXT_KEY,
-                        NinjaConstant.I18N_NINJA_SYSTEM_UNAUTHORIZED_REQUEST_TEXT_DEFAULT,
-                        context,
-                        Optional.<Result>absent());
-
-        Message message = new Message(messageI18n);
+        Message message = newMessage(
+                NinjaConstant.I18N_NINJA_SYSTEM_UNAUTHORIZED_REQUEST_TEXT_KEY,
+                NinjaConstant.I18N_NINJA_SYSTEM_UNAUTHORIZED_REQUEST_TEXT_DEFAULT,
+                context);
 
         // WWW-Authenticate must be included per the spec
         // http://www.ietf.org/rfc/rfc2617.txt 3.2.1 The WWW-Authenticate Response Header
@@ -257,14 +245,10 @@ public class NinjaDefault implements Ninja {
     @Override
     public Result getForbiddenResult(Context context) {
         
-        String messageI18n 
-                = messages.getWithDefault(
-                        NinjaConstant.I18N_NINJA_SYSTEM_FORBIDDEN_REQUEST_TEXT_KEY,
-                        NinjaConstant.I18N_NINJA_SYSTEM_FORBIDDEN_REQUEST_TEXT_DEFAULT,
-                        context,
-                        Optional.<Result>absent());
-        
-        Message message = new Message(messageI18n); 
+        Message message = newMessage(
+                NinjaConstant.I18N_NINJA_SYSTEM_FORBIDDEN_REQUEST_TEXT_KEY,
+                NinjaConstant.I18N_NINJA_SYSTEM_FORBIDDEN_REQUEST_TEXT_DEFAULT,
+                context);
            
         Result result = Results
                         .forbidden()
@@ -277,6 +261,29 @@ public class NinjaDefault implements Ninja {
 
     }
     
+    /**
+     * The text is only translated when the message is rendered. Error pages
+     * served from the {@link ErrorPageCache} never read it.
+     */
+    private Message newMessage(final String key,
+                               final String defaultMessage,
+                               final Context context) {
+
+        return new Message(new Supplier<String>() {
+
+            @Override
+            public String get() {
+                return messages.getWithDefault(
+                        key,
+                        defaultMessage,
+                        context,
+                        Optional.<Result>absent());
+            }
+
+        });
+
+    }
+
     /**
      * Simply reads a property resource file that contains the version of this
      * Ninja build. Helps to identify the Ninja version currently running.
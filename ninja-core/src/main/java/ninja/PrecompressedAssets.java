@@ -0,0 +1,184 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ninja;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import ninja.utils.NinjaConstant;
+import ninja.utils.NinjaProperties;
+import ninja.utils.ResponseCompression;
+
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Finds precompressed variants of assets: app.css.br and app.css.gz next to
+ * app.css - in the assets directory, the classpath or a webjar.
+ *
+ * Except in dev mode the result of a lookup is cached. Checking for the
+ * variants costs nothing after the first request.
+ */
+@Singleton
+public class PrecompressedAssets {
+
+    static final int MAXIMUM_SIZE = 10000;
+
+    /** Content encodings in order of preference and their file extensions. */
+    private static final String [][] ENCODINGS = {
+        {ResponseCompression.BROTLI, ".br"},
+        {ResponseCompression.GZIP, ".gz"}
+    };
+
+    private final boolean enabled;
+
+    private final Cache<String, Optional<URL>> variants;
+
+    @Inject
+    public PrecompressedAssets(NinjaProperties ninjaProperties) {
+
+        this.enabled = ninjaProperties.getBooleanWithDefault(
+                NinjaConstant.ASSETS_PRECOMPRESSED_ENABLED,
+                NinjaConstant.ASSETS_PRECOMPRESSED_ENABLED_DEFAULT);
+
+        this.variants = CacheBuilder.newBuilder()
+                .maximumSize(ninjaProperties.isDev() ? 0 : MAXIMUM_SIZE)
+                .build();
+
+    }
+
+    /**
+     * @return true unless disabled by ninja.assets.precompressed.enabled.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param url An asset.
+     * @return true if a precompressed variant of the asset exists.
+     *         Responses for the asset have to vary on Accept-Encoding then.
+     */
+    boolean hasVariants(URL url) {
+
+        for (String [] encoding : ENCODINGS) {
+            if (getVariant(url, encoding[1]) != null) {
+                return true;
+            }
+        }
+
+        return false;
+
+    }
+
+    /**
+     * @param url An asset.
+     * @param acceptEncoding The Accept-Encoding header of the request.
+     * @return The best precompressed variant the client accepts or null.
+     */
+    Variant selectVariant(URL url, String acceptEncoding) {
+
+        Variant best = null;
+        double bestQuality = 0;
+
+        for (String [] encoding : ENCODINGS) {
+
+            double quality = ResponseCompression.getQuality(acceptEncoding, encoding[0]);
+
+            if (quality > bestQuality) {
+
+                URL variant = getVariant(url, encoding[1]);
+
+                if (variant != null) {
+                    best = new Variant(encoding[0], encoding[1], variant);
+                    bestQuality = quality;
+                }
+
+            }
+
+        }
+
+        return best;
+
+    }
+
+    private URL getVariant(URL url, String extension) {
+
+        String key = url.toExternalForm() + extension;
+
+        Optional<URL> variant = variants.getIfPresent(key);
+
+        if (variant == null) {
+            variant = Optional.fromNullable(lookup(url, extension));
+            variants.put(key, variant);
+        }
+
+        return variant.orNull();
+
+    }
+
+    private static URL lookup(URL url, String extension) {
+
+        try {
+
+            URL variant = new URL(url.toExternalForm() + extension);
+
+            if ("file".equals(variant.getProtocol())) {
+                return Files.isRegularFile(Paths.get(variant.toURI())) ? variant : null;
+            }
+
+            // eg. jar urls: fails if the entry does not exist
+            try (InputStream inputStream = variant.openStream()) {
+                return variant;
+            }
+
+        } catch (IOException | URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+
+    }
+
+    /**
+     * A precompressed variant of an asset.
+     */
+    static class Variant {
+
+        /** "br" or "gzip". */
+        final String contentEncoding;
+
+        /** ".br" or ".gz". */
+        final String extension;
+
+        final URL url;
+
+        Variant(String contentEncoding, String extension, URL url) {
+            this.contentEncoding = contentEncoding;
+            this.extension = extension;
+            this.url = url;
+        }
+
+    }
+
+}
@@ -0,0 +1,328 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ninja;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Serializable;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+import ninja.i18n.Lang;
+import ninja.utils.DateUtil;
+import ninja.utils.HttpHeaderConstants;
+import ninja.utils.NinjaConstant;
+import ninja.utils.ResponseStreams;
+import ninja.utils.ResultHandler;
+
+import com.google.common.base.Optional;
+
+/**
+ * A response rendered into bytes once that can be sent to many clients:
+ * status, content type, headers and body.
+ *
+ * Used by {@link ResponseCacheFilter} and {@link RequestCoalescingFilter}.
+ */
+class RenderedResponse implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    final int statusCode;
+
+    final String contentType;
+
+    final String charset;
+
+    final LinkedHashMap<String, String> headers;
+
+    final byte [] body;
+
+    // false if the response may only be sent to the client it was rendered for
+    private final boolean shareable;
+
+    private RenderedResponse(Result result, byte [] body, boolean shareable) {
+        this.statusCode = result.getStatusCode();
+        this.contentType = result.getContentType();
+        this.charset = result.getCharset();
+        this.headers = new LinkedHashMap<>(result.getHeaders());
+        this.body = body;
+        this.shareable = shareable;
+    }
+
+    /**
+     * @return true if the response may be sent to other clients as well.
+     */
+    boolean isShareable() {
+        return shareable;
+    }
+
+    /**
+     * @return A new Result sending the rendered bytes.
+     */
+    Result newResult() {
+
+        Result result = new Result(statusCode)
+                .contentType(contentType)
+                .charset(charset);
+
+        result.getHeaders().putAll(headers);
+
+        if (headers.containsKey(Result.DATE)) {
+            result.addHeader(Result.DATE, DateUtil.formatForHttpHeader(System.currentTimeMillis()));
+        }
+
+        return result.render(new RenderedBody(this));
+
+    }
+
+    /**
+     * Renders a result into bytes instead of sending it.
+     *
+     * @param resultHandler Renders the result.
+     * @param result The result of the controller.
+     * @param context The context of the request.
+     * @return The rendered response or null if the result cannot be rendered
+     *         in advance (async results, cookies, session data). In that case
+     *         the result is not touched.
+     */
+    static RenderedResponse render(ResultHandler resultHandler, Result result, Context context) {
+
+        if (result == null
+                || result instanceof AsyncResult
+                || context.isAsync()
+                || !result.getCookies().isEmpty()
+                || hasSessionOrFlashData(context)) {
+            return null;
+        }
+
+        if (result.getRenderable() instanceof RenderedBody) {
+
+            // rendered by an inner filter already (the response cache around
+            // request coalescing) - keep its bytes instead of copying them
+            RenderedResponse renderedResponse
+                    = ((RenderedBody) result.getRenderable()).renderedResponse;
+
+            return new RenderedResponse(result, renderedResponse.body, renderedResponse.shareable);
+
+        }
+
+        RenderingContext renderingContext = new RenderingContext(context);
+
+        resultHandler.handleResult(result, renderingContext);
+
+        Result renderedResult = renderingContext.getRenderedResult();
+
+        if (renderedResult == null) {
+            // nothing was rendered at all
+            return new RenderedResponse(result, new byte [0], false);
+        }
+
+        // the session cookie is not part of the captured result - a template
+        // or renderable writing the session makes the response personal
+        return new RenderedResponse(
+                renderedResult,
+                renderingContext.getBody(),
+                renderingContext.isComplete()
+                        && renderedResult.getCookies().isEmpty()
+                        && !hasSessionOrFlashData(context));
+
+    }
+
+    /**
+     * @return true if the request carries session or flash data. Responses to
+     *         such requests are most likely personal.
+     */
+    static boolean hasSessionOrFlashData(Context context) {
+
+        return (context.getSession() != null && !context.getSession().isEmpty())
+                || (context.getFlashScope() != null
+                    && !context.getFlashScope().getCurrentFlashCookieData().isEmpty());
+
+    }
+
+    /**
+     * @param context The context of the request.
+     * @param lang Resolves the language of the request.
+     * @param varyBy Names of request headers that change the response.
+     * @return A key identifying all requests that get the same response:
+     *         route, path, sorted query parameters, negotiated content type,
+     *         language and the values of the varyBy headers.
+     */
+    static String getRequestKey(Context context, Lang lang, String [] varyBy) {
+
+        Route route = context.getRoute();
+
+        StringBuilder key = new StringBuilder()
+                .append(route.getHttpMethod())
+                .append(' ')
+                .append(route.getUri())
+                .append('|')
+                .append(context.getRequestPath());
+
+        // sorted - ?a=1&b=2 and ?b=2&a=1 are the same
+        Map<String, String[]> parameters = context.getParameters();
+
+        if (parameters != null && !parameters.isEmpty()) {
+
+            char separator = '?';
+
+            for (String name : new TreeSet<>(parameters.keySet())) {
+                key.append(separator)
+                        .append(name)
+                        .append('=')
+                        .append(Arrays.toString(parameters.get(name)));
+                separator = '&';
+            }
+
+        }
+
+        key.append('|').append(context.getAcceptContentType());
+
+        Optional<String> language = lang.getLanguage(context, Optional.<Result>absent());
+
+        key.append('|').append(language.or(""));
+
+        for (String header : varyBy) {
+            key.append('|').append(header).append('=').append(context.getHeaders(header));
+        }
+
+        return key.toString();
+
+    }
+
+    /**
+     * Sends the bytes of a rendered response and remembers where they came
+     * from.
+     */
+    static class RenderedBody extends FrozenResult.PreRenderedBody {
+
+        final RenderedResponse renderedResponse;
+
+        RenderedBody(RenderedResponse renderedResponse) {
+            super(renderedResponse.body);
+            this.renderedResponse = renderedResponse;
+        }
+
+    }
+
+    /**
+     * Renders into a byte array instead of the response. Conditional headers
+     * of the client are hidden - the rendered body must be complete.
+     */
+    private static class RenderingContext extends WrappedContext {
+
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        private Result renderedResult;
+
+        private int finalizeHeadersCalls;
+
+        private boolean closed;
+
+        RenderingContext(Context context) {
+            super(context);
+        }
+
+        @Override
+        public String getHeader(String name) {
+
+            if (HttpHeaderConstants.IF_NONE_MATCH.equalsIgnoreCase(name)
+                    || HttpHeaderConstants.IF_MODIFIED_SINCE.equalsIgnoreCase(name)) {
+                return null;
+            }
+
+            return super.getHeader(name);
+
+        }
+
+        @Override
+        public ResponseStreams finalizeHeaders(Result result) {
+            return capture(result);
+        }
+
+        @Override
+        public ResponseStreams finalizeHeadersWithoutFlashAndSessionCookie(Result result) {
+            return capture(result);
+        }
+
+        boolean isComplete() {
+            return finalizeHeadersCalls == 1 && closed;
+        }
+
+        Result getRenderedResult() {
+            return renderedResult;
+        }
+
+        byte [] getBody() {
+            return body.toByteArray();
+        }
+
+        private ResponseStreams capture(final Result result) {
+
+            finalizeHeadersCalls++;
+            renderedResult = result;
+
+            return new ResponseStreams() {
+
+                @Override
+                public OutputStream getOutputStream() {
+
+                    return new OutputStream() {
+
+                        @Override
+                        public void write(int b) {
+                            body.write(b);
+                        }
+
+                        @Override
+                        public void write(byte[] bytes, int offset, int length) {
+                            body.write(bytes, offset, length);
+                        }
+
+                        @Override
+                        public void close() {
+                            closed = true;
+                        }
+
+                    };
+
+                }
+
+                @Override
+                public Writer getWriter() throws IOException {
+
+                    String charset = result.getCharset() != null
+                            ? result.getCharset()
+                            : NinjaConstant.UTF_8;
+
+                    return new OutputStreamWriter(getOutputStream(), charset);
+
+                }
+
+            };
+
+        }
+
+    }
+
+}
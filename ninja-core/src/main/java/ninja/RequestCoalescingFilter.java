@@ -0,0 +1,250 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ninja;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import ninja.i18n.Lang;
+import ninja.utils.NinjaConstant;
+import ninja.utils.NinjaProperties;
+import ninja.utils.ResultHandler;
+import ninja.utils.TimeUtil;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Lets identical GET requests to routes annotated with
+ * {@link CoalesceRequests} share one call of the controller.
+ *
+ * The first request calls the controller and renders its result into bytes.
+ * Identical requests arriving in the meantime wait for those bytes and send
+ * them as well. The filter is added automatically as the last filter of
+ * those routes.
+ *
+ * Responses setting cookies (or a session) are not shared. Waiting requests
+ * then call the controller themselves - just like after a timeout.
+ */
+@Singleton
+public class RequestCoalescingFilter implements Filter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestCoalescingFilter.class);
+
+    private final ResultHandler resultHandler;
+
+    private final Lang lang;
+
+    private final boolean enabled;
+
+    private final ConcurrentMap<String, InFlightRequest> inFlightRequests
+            = new ConcurrentHashMap<>();
+
+    private final AtomicLong executedCount = new AtomicLong();
+
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    private final AtomicLong fallbackCount = new AtomicLong();
+
+    @Inject
+    public RequestCoalescingFilter(ResultHandler resultHandler,
+                                   Lang lang,
+                                   NinjaProperties ninjaProperties) {
+
+        this.resultHandler = resultHandler;
+        this.lang = lang;
+
+        this.enabled = ninjaProperties.getBooleanWithDefault(
+                NinjaConstant.REQUEST_COALESCING_ENABLED,
+                NinjaConstant.REQUEST_COALESCING_ENABLED_DEFAULT);
+
+    }
+
+    /**
+     * @return true if requests are coalesced.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return Number of requests that called the controller for themselves
+     *         and all identical requests.
+     */
+    public long getExecutedCount() {
+        return executedCount.get();
+    }
+
+    /**
+     * @return Number of requests served with the response of an identical
+     *         request.
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    /**
+     * @return Number of waiting requests that had to call the controller
+     *         themselves (timeout, failure or a response that cannot be
+     *         shared).
+     */
+    public long getFallbackCount() {
+        return fallbackCount.get();
+    }
+
+    /**
+     * @return Number of requests currently calling the controller on behalf
+     *         of identical requests.
+     */
+    public int getInFlightCount() {
+        return inFlightRequests.size();
+    }
+
+    @Override
+    public Result filter(FilterChain chain, Context context) {
+
+        CoalesceRequests coalesceRequests = getCoalesceRequests(context.getRoute());
+
+        if (!enabled
+                || coalesceRequests == null
+                || !"GET".equalsIgnoreCase(context.getMethod())
+                || RenderedResponse.hasSessionOrFlashData(context)) {
+            return chain.next(context);
+        }
+
+        String key = RenderedResponse.getRequestKey(context, lang, coalesceRequests.varyBy());
+
+        InFlightRequest inFlightRequest = new InFlightRequest();
+        InFlightRequest runningRequest = inFlightRequests.putIfAbsent(key, inFlightRequest);
+
+        if (runningRequest == null) {
+            return execute(key, inFlightRequest, chain, context);
+        }
+
+        RenderedResponse renderedResponse = runningRequest.await(
+                TimeUtil.parseDuration(coalesceRequests.timeout()), TimeUnit.SECONDS);
+
+        if (renderedResponse != null) {
+            coalescedCount.incrementAndGet();
+            return renderedResponse.newResult();
+        }
+
+        fallbackCount.incrementAndGet();
+
+        return chain.next(context);
+
+    }
+
+    private Result execute(String key,
+                           InFlightRequest inFlightRequest,
+                           FilterChain chain,
+                           Context context) {
+
+        executedCount.incrementAndGet();
+
+        RenderedResponse renderedResponse = null;
+
+        try {
+
+            Result result = chain.next(context);
+
+            renderedResponse = RenderedResponse.render(resultHandler, result, context);
+
+            if (renderedResponse == null) {
+                return result;
+            }
+
+            return renderedResponse.newResult();
+
+        } finally {
+
+            // later requests call the controller again
+            inFlightRequests.remove(key, inFlightRequest);
+
+            inFlightRequest.complete(
+                    renderedResponse != null && renderedResponse.isShareable()
+                            ? renderedResponse
+                            : null);
+
+        }
+
+    }
+
+    private static CoalesceRequests getCoalesceRequests(Route route) {
+
+        if (route == null || route.getControllerMethod() == null) {
+            return null;
+        }
+
+        CoalesceRequests coalesceRequests
+                = route.getControllerMethod().getAnnotation(CoalesceRequests.class);
+
+        if (coalesceRequests == null) {
+            coalesceRequests = route.getControllerClass().getAnnotation(CoalesceRequests.class);
+        }
+
+        return coalesceRequests;
+
+    }
+
+    /**
+     * The request calling the controller. Waiting requests get its response.
+     */
+    private static class InFlightRequest {
+
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        // null if the response cannot be shared
+        private volatile RenderedResponse renderedResponse;
+
+        void complete(RenderedResponse renderedResponse) {
+            this.renderedResponse = renderedResponse;
+            done.countDown();
+        }
+
+        /**
+         * @return The shared response or null after a timeout or if there is
+         *         no response to share.
+         */
+        RenderedResponse await(long timeout, TimeUnit unit) {
+
+            try {
+
+                if (done.await(timeout, unit)) {
+                    return renderedResponse;
+                }
+
+                logger.debug("Timed out waiting for an identical request.");
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            return null;
+
+        }
+
+    }
+
+}
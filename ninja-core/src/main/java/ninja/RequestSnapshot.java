@@ -0,0 +1,406 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ninja;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import ninja.session.FlashScope;
+import ninja.session.Session;
+import ninja.utils.HttpHeaderConstants;
+import ninja.utils.SwissKnife;
+import ninja.validation.Validation;
+import ninja.validation.ValidationImpl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.reflect.Reflection;
+
+/**
+ * A copy of the request data of a context that stays usable after the
+ * request is complete. Used to render a response again in the background.
+ *
+ * Path, parameters, headers, cookies, route, session and flash scope are
+ * available. Conditional headers (If-None-Match...) are dropped. Everything
+ * else (the body, async handling, sending a response) throws an
+ * IllegalStateException.
+ */
+class RequestSnapshot extends WrappedContext {
+
+    private static final Context UNAVAILABLE = Reflection.newProxy(
+            Context.class,
+            new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) {
+                    throw new IllegalStateException(
+                            "Context." + method.getName()
+                            + "() is not available while a response is rendered in the background.");
+                }
+            });
+
+    private final String requestUri;
+    private final String requestPath;
+    private final String contextPath;
+    private final String hostname;
+    private final String remoteAddr;
+    private final String method;
+    private final String acceptContentType;
+    private final String acceptLanguage;
+    private final Route route;
+    private final Session session;
+    private final FlashScope flashScope;
+    private final Map<String, String[]> parameters;
+    private final Map<String, List<String>> headers;
+    private final List<Cookie> cookies;
+    private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+    private final Validation validation = new ValidationImpl();
+
+    RequestSnapshot(Context context) {
+
+        super(UNAVAILABLE);
+
+        this.requestUri = context.getRequestUri();
+        this.requestPath = context.getRequestPath();
+        this.contextPath = context.getContextPath();
+        this.hostname = context.getHostname();
+        this.remoteAddr = context.getRemoteAddr();
+        this.method = context.getMethod();
+        this.acceptContentType = context.getAcceptContentType();
+        this.acceptLanguage = context.getAcceptLanguage();
+        this.route = context.getRoute();
+        this.session = context.getSession();
+        this.flashScope = context.getFlashScope();
+        this.parameters = context.getParameters() != null
+                ? ImmutableMap.copyOf(context.getParameters())
+                : ImmutableMap.<String, String[]>of();
+        this.cookies = context.getCookies() != null
+                ? ImmutableList.copyOf(context.getCookies())
+                : ImmutableList.<Cookie>of();
+
+        // header names are case insensitive
+        Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        if (context.getHeaders() != null) {
+            headers.putAll(context.getHeaders());
+        }
+        // nobody waits for the response - it must be complete
+        headers.remove(HttpHeaderConstants.IF_NONE_MATCH);
+        headers.remove(HttpHeaderConstants.IF_MODIFIED_SINCE);
+        this.headers = Collections.unmodifiableMap(headers);
+
+    }
+
+    @Override
+    public String getRequestUri() {
+        return requestUri;
+    }
+
+    @Override
+    public String getHostname() {
+        return hostname;
+    }
+
+    @Override
+    public String getRemoteAddr() {
+        return remoteAddr;
+    }
+
+    @Override
+    public String getRequestPath() {
+        return requestPath;
+    }
+
+    @Override
+    public String getContextPath() {
+        return contextPath;
+    }
+
+    @Override
+    public String getMethod() {
+        return method;
+    }
+
+    @Override
+    public Route getRoute() {
+        return route;
+    }
+
+    @Override
+    public FlashScope getFlashScope() {
+        return flashScope;
+    }
+
+    @Override
+    public FlashScope getFlashCookie() {
+        return flashScope;
+    }
+
+    @Override
+    public Session getSession() {
+        return session;
+    }
+
+    @Override
+    public Session getSessionCookie() {
+        return session;
+    }
+
+    @Override
+    public Cookie getCookie(String cookieName) {
+
+        for (Cookie cookie : cookies) {
+            if (cookie.getName().equals(cookieName)) {
+                return cookie;
+            }
+        }
+
+        return null;
+
+    }
+
+    @Override
+    public boolean hasCookie(String cookieName) {
+        return getCookie(cookieName) != null;
+    }
+
+    @Override
+    public List<Cookie> getCookies() {
+        return cookies;
+    }
+
+    @Override
+    public String getCookieValue(String name) {
+
+        Cookie cookie = getCookie(name);
+
+        return cookie != null ? cookie.getValue() : null;
+
+    }
+
+    @Override
+    public String getParameter(String name) {
+
+        String [] values = parameters.get(name);
+
+        return values != null && values.length > 0 ? values[0] : null;
+
+    }
+
+    @Override
+    public List<String> getParameterValues(String name) {
+
+        String [] values = parameters.get(name);
+
+        return values != null ? Arrays.asList(values) : Collections.<String>emptyList();
+
+    }
+
+    @Override
+    public String getParameter(String name, String defaultValue) {
+
+        String value = getParameter(name);
+
+        return value != null ? value : defaultValue;
+
+    }
+
+    @Override
+    public Integer getParameterAsInteger(String name) {
+        return parseInteger(getParameter(name));
+    }
+
+    @Override
+    public Integer getParameterAsInteger(String name, Integer defaultValue) {
+
+        Integer value = getParameterAsInteger(name);
+
+        return value != null ? value : defaultValue;
+
+    }
+
+    @Override
+    public <T> T getParameterAs(String name, Class<T> clazz) {
+        return getParameterAs(name, clazz, null);
+    }
+
+    @Override
+    public <T> T getParameterAs(String name, Class<T> clazz, T defaultValue) {
+
+        T value;
+
+        try {
+            value = SwissKnife.convert(getParameter(name), clazz);
+        } catch (Exception e) {
+            value = null;
+        }
+
+        return value != null ? value : defaultValue;
+
+    }
+
+    @Override
+    public Map<String, String[]> getParameters() {
+        return parameters;
+    }
+
+    @Override
+    public String getPathParameter(String name) {
+
+        String encodedParameter = getPathParameterEncoded(name);
+
+        return encodedParameter != null ? URI.create(encodedParameter).getPath() : null;
+
+    }
+
+    @Override
+    public String getPathParameterEncoded(String name) {
+        return route.getPathParametersEncoded(requestPath).get(name);
+    }
+
+    @Override
+    public Integer getPathParameterAsInteger(String key) {
+        return parseInteger(getPathParameter(key));
+    }
+
+    @Override
+    public String getHeader(String name) {
+
+        List<String> values = headers.get(name);
+
+        return values != null && !values.isEmpty() ? values.get(0) : null;
+
+    }
+
+    @Override
+    public List<String> getHeaders(String name) {
+
+        List<String> values = headers.get(name);
+
+        return values != null ? values : Collections.<String>emptyList();
+
+    }
+
+    @Override
+    public Map<String, List<String>> getHeaders() {
+        return headers;
+    }
+
+    @Override
+    public String getRequestContentType() {
+        return getHeader(CONTENT_TYPE);
+    }
+
+    @Override
+    public boolean isRequestJson() {
+
+        String contentType = getRequestContentType();
+
+        return contentType != null && contentType.startsWith(ContentTypes.APPLICATION_JSON);
+
+    }
+
+    @Override
+    public boolean isRequestXml() {
+
+        String contentType = getRequestContentType();
+
+        return contentType != null && contentType.startsWith(ContentTypes.APPLICATION_XML);
+
+    }
+
+    @Override
+    public boolean isMultipart() {
+
+        // like ServletFileUpload.isMultipartContent
+        String contentType = getRequestContentType();
+
+        return "POST".equalsIgnoreCase(method)
+                && contentType != null
+                && contentType.toLowerCase(Locale.ENGLISH).startsWith("multipart/");
+
+    }
+
+    @Override
+    public String getAcceptContentType() {
+        return acceptContentType;
+    }
+
+    @Override
+    public String getAcceptEncoding() {
+        return getHeader(HttpHeaderConstants.ACCEPT_ENCODING);
+    }
+
+    @Override
+    public String getAcceptLanguage() {
+        return acceptLanguage;
+    }
+
+    @Override
+    public String getAcceptCharset() {
+        return getHeader(HttpHeaderConstants.ACCEPT_CHARSET);
+    }
+
+    @Override
+    public boolean isAsync() {
+        return false;
+    }
+
+    @Override
+    public Validation getValidation() {
+        return validation;
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return attributes.get(name);
+    }
+
+    @Override
+    public <T> T getAttribute(String name, Class<T> clazz) {
+        return clazz.cast(getAttribute(name));
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+
+        if (value == null) {
+            attributes.remove(name);
+        } else {
+            attributes.put(name, value);
+        }
+
+    }
+
+    private static Integer parseInteger(String value) {
+
+        try {
+            return value != null ? Integer.valueOf(value) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+
+    }
+
+}
@@ -0,0 +1,383 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ninja;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.UUID;
+
+import ninja.utils.ByteRanges;
+import ninja.utils.ByteRanges.ByteRange;
+import ninja.utils.DateUtil;
+import ninja.utils.HttpHeaderConstants;
+import ninja.utils.ResponseStreams;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ * Streams a file or a resource to the client.
+ *
+ * Supports requests for parts of the body: a single range is answered with
+ * 206 Partial Content, several ranges with a multipart/byteranges body.
+ * Ranges are only honoured if an If-Range header of the request matches the
+ * ETag or Last-Modified header of the result. Unsatisfiable ranges result
+ * in 416 Requested Range Not Satisfiable.
+ *
+ * Files (and file: urls) are sent with {@link FileChannel#transferTo}. If
+ * the output stream of the container is a channel itself the kernel copies
+ * the file without passing it through the heap.
+ *
+ * Use {@link Results#file(Path)} or {@link Results#resource(URL)}.
+ */
+public class ResourceRenderable implements Renderable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResourceRenderable.class);
+
+    private static final String CRLF = "\r\n";
+
+    private final Path path;
+
+    private final URL url;
+
+    private boolean withoutFlashAndSessionCookie;
+
+    public ResourceRenderable(Path path) {
+        this.path = path;
+        this.url = null;
+    }
+
+    public ResourceRenderable(URL url) {
+        this.path = toPath(url);
+        this.url = this.path == null ? url : null;
+    }
+
+    /**
+     * Static assets must not set cookies. Used by {@link AssetsController}.
+     */
+    ResourceRenderable withoutFlashAndSessionCookie() {
+        this.withoutFlashAndSessionCookie = true;
+        return this;
+    }
+
+    @Override
+    public void render(Context context, Result result) {
+
+        try {
+
+            long length;
+            long lastModified;
+            URLConnection urlConnection = null;
+
+            if (path != null) {
+                length = Files.size(path);
+                lastModified = Files.getLastModifiedTime(path).toMillis();
+            } else {
+                urlConnection = url.openConnection();
+                length = urlConnection.getContentLengthLong();
+                lastModified = urlConnection.getLastModified();
+            }
+
+            render(context, result, urlConnection, length, lastModified);
+
+        } catch (NoSuchFileException | FileNotFoundException e) {
+
+            result.status(Result.SC_404_NOT_FOUND);
+            finalizeHeaders(context, result);
+
+        } catch (IOException e) {
+
+            logger.error("Error streaming {}", path != null ? path : url, e);
+
+        }
+
+    }
+
+    private void render(Context context,
+                        Result result,
+                        URLConnection urlConnection,
+                        long length,
+                        long lastModified) throws IOException {
+
+        if (result.getContentType() == null) {
+            result.contentType(Result.APPLICATION_OCTET_STREAM);
+        }
+
+        if (lastModified > 0 && !result.getHeaders().containsKey(HttpHeaderConstants.LAST_MODIFIED)) {
+            result.addHeader(HttpHeaderConstants.LAST_MODIFIED, DateUtil.formatForHttpHeader(lastModified));
+        }
+
+        List<ByteRange> byteRanges = null;
+
+        if (length >= 0) {
+            result.addHeader(HttpHeaderConstants.ACCEPT_RANGES, "bytes");
+            byteRanges = getRequestedByteRanges(context, result, length, lastModified);
+        }
+
+        boolean head = "HEAD".equalsIgnoreCase(context.getMethod());
+
+        if (byteRanges == null) {
+
+            if (length >= 0) {
+                result.addHeader(HttpHeaderConstants.CONTENT_LENGTH, String.valueOf(length));
+            }
+
+            ResponseStreams responseStreams = finalizeHeaders(context, result);
+
+            if (!head) {
+                write(responseStreams, urlConnection, length < 0
+                        ? null
+                        : new ByteRange[] {new ByteRange(0, length - 1)}, null);
+            }
+
+        } else if (byteRanges.isEmpty()) {
+
+            result.status(Result.SC_416_REQUESTED_RANGE_NOT_SATISFIABLE);
+            result.addHeader(HttpHeaderConstants.CONTENT_RANGE, "bytes */" + length);
+            result.addHeader(HttpHeaderConstants.CONTENT_LENGTH, "0");
+
+            finalizeHeaders(context, result);
+
+        } else if (byteRanges.size() == 1) {
+
+            ByteRange byteRange = byteRanges.get(0);
+
+            result.status(Result.SC_206_PARTIAL_CONTENT);
+            result.addHeader(HttpHeaderConstants.CONTENT_RANGE, byteRange.toContentRange(length));
+            result.addHeader(HttpHeaderConstants.CONTENT_LENGTH, String.valueOf(byteRange.length()));
+
+            ResponseStreams responseStreams = finalizeHeaders(context, result);
+
+            write(responseStreams, urlConnection, new ByteRange[] {byteRange}, null);
+
+        } else {
+
+            String boundary = UUID.randomUUID().toString().replace("-", "");
+            String contentType = result.getContentType();
+            if (result.getCharset() != null && contentType.startsWith("text/")) {
+                contentType += "; charset=" + result.getCharset();
+            }
+
+            byte [][] partHeaders = new byte[byteRanges.size()][];
+            long contentLength = 0;
+
+            for (int i = 0; i < byteRanges.size(); i++) {
+
+                ByteRange byteRange = byteRanges.get(i);
+
+                partHeaders[i] = (CRLF + "--" + boundary + CRLF
+                        + "Content-Type: " + contentType + CRLF
+                        + HttpHeaderConstants.CONTENT_RANGE + ": " + byteRange.toContentRange(length) + CRLF
+                        + CRLF).getBytes(StandardCharsets.US_ASCII);
+
+                contentLength += partHeaders[i].length + byteRange.length();
+
+            }
+
+            byte [] end = (CRLF + "--" + boundary + "--" + CRLF).getBytes(StandardCharsets.US_ASCII);
+            contentLength += end.length;
+
+            result.status(Result.SC_206_PARTIAL_CONTENT);
+            result.contentType("multipart/byteranges; boundary=" + boundary);
+            result.charset(null);
+            result.addHeader(HttpHeaderConstants.CONTENT_LENGTH, String.valueOf(contentLength));
+
+            ResponseStreams responseStreams = finalizeHeaders(context, result);
+
+            write(responseStreams,
+                    urlConnection,
+                    byteRanges.toArray(new ByteRange[byteRanges.size()]),
+                    new PartHeaders(partHeaders, end));
+
+        }
+
+    }
+
+    /**
+     * @return The ranges to send or null if the complete body is sent.
+     */
+    private List<ByteRange> getRequestedByteRanges(Context context,
+                                                   Result result,
+                                                   long length,
+                                                   long lastModified) {
+
+        if (!"GET".equalsIgnoreCase(context.getMethod())
+                || result.getStatusCode() != Result.SC_200_OK) {
+            return null;
+        }
+
+        String range = context.getHeader(HttpHeaderConstants.RANGE);
+
+        if (range == null
+                || !ByteRanges.ifRangeMatches(
+                        context.getHeader(HttpHeaderConstants.IF_RANGE),
+                        result.getHeaders().get(HttpHeaderConstants.ETAG),
+                        lastModified)) {
+            return null;
+        }
+
+        return ByteRanges.parse(range, length);
+
+    }
+
+    /**
+     * Writes the ranges (sorted by their start) of the file or resource.
+     *
+     * @param byteRanges The ranges or null to write everything.
+     * @param partHeaders The headers of the parts of a multipart body or null.
+     */
+    private void write(ResponseStreams responseStreams,
+                       URLConnection urlConnection,
+                       ByteRange [] byteRanges,
+                       PartHeaders partHeaders) throws IOException {
+
+        try (OutputStream outputStream = responseStreams.getOutputStream()) {
+
+            if (path != null) {
+
+                try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+
+                    WritableByteChannel target = outputStream instanceof WritableByteChannel
+                            ? (WritableByteChannel) outputStream
+                            : Channels.newChannel(outputStream);
+
+                    for (int i = 0; i < byteRanges.length; i++) {
+
+                        if (partHeaders != null) {
+                            outputStream.write(partHeaders.parts[i]);
+                        }
+
+                        transfer(fileChannel, byteRanges[i], target);
+
+                    }
+
+                }
+
+            } else {
+
+                try (InputStream inputStream = urlConnection.getInputStream()) {
+
+                    if (byteRanges == null) {
+
+                        ByteStreams.copy(inputStream, outputStream);
+
+                    } else {
+
+                        long position = 0;
+
+                        for (int i = 0; i < byteRanges.length; i++) {
+
+                            if (partHeaders != null) {
+                                outputStream.write(partHeaders.parts[i]);
+                            }
+
+                            ByteStreams.skipFully(inputStream, byteRanges[i].start - position);
+                            ByteStreams.copy(ByteStreams.limit(inputStream, byteRanges[i].length()), outputStream);
+                            position = byteRanges[i].end + 1;
+
+                        }
+
+                    }
+
+                }
+
+            }
+
+            if (partHeaders != null) {
+                outputStream.write(partHeaders.end);
+            }
+
+        }
+
+    }
+
+    private ResponseStreams finalizeHeaders(Context context, Result result) {
+
+        return withoutFlashAndSessionCookie
+                ? context.finalizeHeadersWithoutFlashAndSessionCookie(result)
+                : context.finalizeHeaders(result);
+
+    }
+
+    private static void transfer(FileChannel fileChannel,
+                                 ByteRange byteRange,
+                                 WritableByteChannel target) throws IOException {
+
+        long position = byteRange.start;
+        long remaining = byteRange.length();
+
+        while (remaining > 0) {
+
+            long transferred = fileChannel.transferTo(position, remaining, target);
+
+            if (transferred <= 0) {
+                throw new IOException("File was truncated while it was sent");
+            }
+
+            position += transferred;
+            remaining -= transferred;
+
+        }
+
+    }
+
+    private static Path toPath(URL url) {
+
+        if (!"file".equals(url.getProtocol())) {
+            return null;
+        }
+
+        try {
+            return Paths.get(url.toURI());
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+
+    }
+
+    private static class PartHeaders {
+
+        final byte [][] parts;
+
+        final byte [] end;
+
+        PartHeaders(byte [][] parts, byte [] end) {
+            this.parts = parts;
+            this.end = end;
+        }
+
+    }
+
+}
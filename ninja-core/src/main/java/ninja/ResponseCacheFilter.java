@@ -0,0 +1,352 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ninja;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import ninja.cache.NinjaCache;
+import ninja.i18n.Lang;
+import ninja.lifecycle.Dispose;
+import ninja.utils.NinjaConstant;
+import ninja.utils.NinjaProperties;
+import ninja.utils.ResultHandler;
+import ninja.utils.TimeUtil;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.Singleton;
+
+/**
+ * Serves the responses of routes annotated with {@link CacheResponse} from
+ * the {@link NinjaCache}.
+ *
+ * The filter is added automatically as the last filter of those routes. On a
+ * miss the controller is called and its result is rendered into bytes.
+ * Status, content type, headers and body are stored. Stale responses are
+ * served while one background thread per key renders them again from a
+ * {@link RequestSnapshot} of the request.
+ *
+ * In dev mode (or if ninja.response_cache.enabled is false) the controller is
+ * always called.
+ */
+@Singleton
+public class ResponseCacheFilter implements Filter {
+
+    static final String KEY_PREFIX = "ninja.response_cache.";
+
+    static final int REFRESH_QUEUE_SIZE = 256;
+
+    private static final Logger logger = LoggerFactory.getLogger(ResponseCacheFilter.class);
+
+    private final Injector injector;
+
+    private final ResultHandler resultHandler;
+
+    private final Lang lang;
+
+    private final boolean enabled;
+
+    private final ThreadPoolExecutor refreshExecutor;
+
+    // keys currently refreshed in the background
+    private final Set<String> refreshing
+            = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    private final AtomicLong refreshCount = new AtomicLong();
+
+    // Fetched on the first cache lookup. In dev mode or with the response
+    // cache switched off the filter never starts the Cache implementation.
+    private volatile NinjaCache ninjaCache;
+
+    @Inject
+    public ResponseCacheFilter(Injector injector,
+                               ResultHandler resultHandler,
+                               Lang lang,
+                               NinjaProperties ninjaProperties) {
+
+        this.injector = injector;
+        this.resultHandler = resultHandler;
+        this.lang = lang;
+
+        this.enabled = ninjaProperties.getBooleanWithDefault(
+                NinjaConstant.RESPONSE_CACHE_ENABLED,
+                !ninjaProperties.isDev());
+
+        int threads = Math.max(1, ninjaProperties.getIntegerWithDefault(
+                NinjaConstant.RESPONSE_CACHE_REFRESH_THREADS,
+                NinjaConstant.RESPONSE_CACHE_REFRESH_THREADS_DEFAULT));
+
+        this.refreshExecutor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                60L,
+                TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(REFRESH_QUEUE_SIZE),
+                new ThreadFactoryBuilder()
+                        .setNameFormat("ninja-response-cache-%d")
+                        .setDaemon(true)
+                        .build());
+
+        // refreshes only happen when entries turn stale - no need to keep
+        // the refresh threads around in between
+        this.refreshExecutor.allowCoreThreadTimeOut(true);
+
+    }
+
+    /**
+     * @return true if responses are cached.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return Number of responses served from the cache (fresh or stale).
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return Number of responses that had to be rendered for the client.
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * @return Number of stale responses rendered again in the background.
+     */
+    public long getRefreshCount() {
+        return refreshCount.get();
+    }
+
+    @Dispose(order = 90)
+    public void dispose() {
+        refreshExecutor.shutdownNow();
+    }
+
+    @Override
+    public Result filter(FilterChain chain, Context context) {
+
+        CacheResponse cacheResponse = getCacheResponse(context.getRoute());
+
+        if (!enabled
+                || cacheResponse == null
+                || !"GET".equalsIgnoreCase(context.getMethod())
+                || RenderedResponse.hasSessionOrFlashData(context)) {
+            return chain.next(context);
+        }
+
+        String key = KEY_PREFIX + RenderedResponse.getRequestKey(context, lang, cacheResponse.varyBy());
+
+        Object cached = getNinjaCache().get(key);
+
+        if (cached instanceof CachedResponse) {
+
+            CachedResponse cachedResponse = (CachedResponse) cached;
+
+            hitCount.incrementAndGet();
+
+            if (cachedResponse.isStale() && refreshing.add(key)) {
+                refreshInBackground(key, cacheResponse, chain, new RequestSnapshot(context));
+            }
+
+            return cachedResponse.newResult();
+
+        }
+
+        missCount.incrementAndGet();
+
+        Result result = chain.next(context);
+
+        CachedResponse cachedResponse = render(result, context, cacheResponse);
+
+        if (cachedResponse == null) {
+            return result;
+        }
+
+        store(key, cachedResponse, cacheResponse);
+
+        return cachedResponse.newResult();
+
+    }
+
+    private void refreshInBackground(final String key,
+                                     final CacheResponse cacheResponse,
+                                     final FilterChain chain,
+                                     final RequestSnapshot requestSnapshot) {
+
+        try {
+
+            refreshExecutor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+
+                    try {
+
+                        Result result = chain.next(requestSnapshot);
+
+                        CachedResponse cachedResponse
+                                = render(result, requestSnapshot, cacheResponse);
+
+                        if (cachedResponse != null && cachedResponse.isCacheable()) {
+                            store(key, cachedResponse, cacheResponse);
+                            refreshCount.incrementAndGet();
+                        }
+
+                    } catch (Exception e) {
+                        // the stale response is served until it expires
+                        logger.warn("Cannot refresh cached response of {}",
+                                requestSnapshot.getRequestPath(), e);
+                    } finally {
+                        refreshing.remove(key);
+                    }
+
+                }
+
+            });
+
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(key);
+            logger.debug("Too many refreshes queued. Serving stale response.", e);
+        }
+
+    }
+
+    /**
+     * @return The rendered response or null if the result must not be
+     *         rendered here. In that case the result is not touched.
+     */
+    private CachedResponse render(Result result,
+                                  Context context,
+                                  CacheResponse cacheResponse) {
+
+        if (result == null || result.getStatusCode() != Result.SC_200_OK) {
+            return null;
+        }
+
+        RenderedResponse renderedResponse = RenderedResponse.render(resultHandler, result, context);
+
+        if (renderedResponse == null) {
+            return null;
+        }
+
+        if (!renderedResponse.isShareable()
+                || renderedResponse.statusCode != Result.SC_200_OK) {
+            // rendered already - but not cacheable. Send what we have.
+            return new CachedResponse(renderedResponse, CachedResponse.NOT_CACHEABLE);
+        }
+
+        long freshUntil = System.currentTimeMillis()
+                + TimeUtil.parseDuration(cacheResponse.ttl()) * 1000L;
+
+        return new CachedResponse(renderedResponse, freshUntil);
+
+    }
+
+    private void store(String key, CachedResponse cachedResponse, CacheResponse cacheResponse) {
+
+        if (!cachedResponse.isCacheable()) {
+            return;
+        }
+
+        int expiration = TimeUtil.parseDuration(cacheResponse.ttl())
+                + TimeUtil.parseDuration(cacheResponse.staleWhileRevalidate());
+
+        getNinjaCache().set(key, cachedResponse, expiration + "s");
+
+    }
+
+    private NinjaCache getNinjaCache() {
+
+        if (ninjaCache == null) {
+            ninjaCache = injector.getInstance(NinjaCache.class);
+        }
+
+        return ninjaCache;
+
+    }
+
+    private static CacheResponse getCacheResponse(Route route) {
+
+        if (route == null || route.getControllerMethod() == null) {
+            return null;
+        }
+
+        CacheResponse cacheResponse = route.getControllerMethod().getAnnotation(CacheResponse.class);
+
+        if (cacheResponse == null) {
+            cacheResponse = route.getControllerClass().getAnnotation(CacheResponse.class);
+        }
+
+        return cacheResponse;
+
+    }
+
+    /**
+     * A rendered response and how long it is fresh.
+     */
+    static class CachedResponse implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        // rendered for one request only
+        static final long NOT_CACHEABLE = -1L;
+
+        final RenderedResponse renderedResponse;
+
+        final long freshUntil;
+
+        CachedResponse(RenderedResponse renderedResponse, long freshUntil) {
+            this.renderedResponse = renderedResponse;
+            this.freshUntil = freshUntil;
+        }
+
+        boolean isCacheable() {
+            return freshUntil != NOT_CACHEABLE;
+        }
+
+        boolean isStale() {
+            return System.currentTimeMillis() >= freshUntil;
+        }
+
+        Result newResult() {
+            return renderedResponse.newResult();
+        }
+
+    }
+
+}
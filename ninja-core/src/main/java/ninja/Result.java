@@ -49,6 +49,7 @@ public class Result {
     public static final int SC_200_OK = 200;
     public static final int SC_201_CREATED = 201;
     public static final int SC_204_NO_CONTENT = 204;
+    public static final int SC_206_PARTIAL_CONTENT = 206;
 
     // for redirects:
     public static final int SC_300_MULTIPLE_CHOICES = 300;
@@ -62,6 +63,7 @@ public class Result {
     public static final int SC_401_UNAUTHORIZED = 401;
     public static final int SC_403_FORBIDDEN = 403;
     public static final int SC_404_NOT_FOUND = 404;
+    public static final int SC_416_REQUESTED_RANGE_NOT_SATISFIABLE = 416;
 
     public static final int SC_500_INTERNAL_SERVER_ERROR = 500;
     public static final int SC_501_NOT_IMPLEMENTED = 501;
@@ -74,6 +76,11 @@ public class Result {
     public static final String APPLICATON_JSON = "application/json";
     public static final String APPLICATON_JSONP = "application/javascript";
     public static final String APPLICATION_XML = "application/xml";
+    public static final String TEXT_CSV = "text/csv";
+    public static final String APPLICATION_SMILE = "application/x-jackson-smile";
+    public static final String APPLICATION_CBOR = "application/cbor";
+    public static final String APPLICATION_MSGPACK = "application/msgpack";
+    public static final String APPLICATION_PROTOBUF = "application/x-protobuf";
     public static final String APPLICATION_OCTET_STREAM = "application/octet-stream";
 
     // This is a marker. Returning something like
@@ -95,6 +102,9 @@ public class Result {
 
     public static final String WWW_AUTHENTICATE = "WWW-Authenticate";
 
+    public static final String VARY = "Vary";
+    public static final String CONTENT_ENCODING = "Content-Encoding";
+
     private int statusCode;
 
     /* The object that will be rendered. Could be a Java Pojo. Or a map. Or xyz. Will be
@@ -140,6 +150,8 @@ public class Result {
 
     private String template;
 
+    private Class<?> jsonView;
+
     /**
      * A result. Sets utf-8 as charset and status code by default. 
      * Refer to {@link Result#SC_200_OK}, {@link Result#SC_204_NO_CONTENT} and so on
@@ -162,6 +174,18 @@ public class Result {
         return renderable;
     }
 
+    /**
+     * Sets the object to render. Unlike the render(...) methods this
+     * replaces a former renderable - nothing is merged into a map.
+     * 
+     * @param renderable The object to render.
+     * @return Result this result for chaining.
+     */
+    public Result renderable(Object renderable) {
+        this.renderable = renderable;
+        return this;
+    }
+
     /**
      * This method handles two principal cases:
      * 1) If the this.renderable of this result is null, the object passed is simply set as renderable 
@@ -618,6 +642,27 @@ public class Result {
         return this;
     }
 
+    /**
+     * @return The Jackson view (see {@link com.fasterxml.jackson.annotation.JsonView})
+     *         used to render json or null.
+     */
+    public Class<?> getJsonView() {
+        return jsonView;
+    }
+
+    /**
+     * Renders json (and jsonp) with a Jackson view. Only properties annotated
+     * with {@link com.fasterxml.jackson.annotation.JsonView} of that view
+     * (or without such an annotation) are rendered.
+     *
+     * @param jsonView The view. Eg. Views.Public.class
+     * @return The result that you executed the method on for chaining.
+     */
+    public Result jsonView(Class<?> jsonView) {
+        this.jsonView = jsonView;
+        return this;
+    }
+
     /**
      * A redirect that uses 303 see other.
      * 
@@ -698,6 +743,16 @@ public class Result {
         contentType = APPLICATION_XML;
         return this;
     }
+
+    /**
+     * Set the content type of this result to {@link Result#TEXT_CSV}.
+     * 
+     * @return the same result where you executed this method on. But the content type is now {@link Result#TEXT_CSV}.
+     */
+    public Result csv() {
+        contentType = TEXT_CSV;
+        return this;
+    }
     
     /**
      * This function sets
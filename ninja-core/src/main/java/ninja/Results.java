@@ -16,6 +16,9 @@
 
 package ninja;
 
+import java.net.URL;
+import java.nio.file.Path;
+
 import ninja.utils.NoHttpBody;
 
 import com.google.common.base.Optional;
@@ -165,6 +168,33 @@ public class Results {
         return result;
     }
 
+    public static Result csv() {
+        Result result = status(Result.SC_200_OK).csv();
+
+        return result;
+    }
+
+    /**
+     * Streams a file. Requests for byte ranges are supported.
+     * Set the content type yourself - it defaults to application/octet-stream.
+     *
+     * @param path The file to send. A missing file results in a 404.
+     */
+    public static Result file(Path path) {
+        return status(Result.SC_200_OK).render(new ResourceRenderable(path));
+    }
+
+    /**
+     * Streams a resource (for instance from the classpath). Requests for
+     * byte ranges are supported if the length of the resource is known.
+     * Set the content type yourself - it defaults to application/octet-stream.
+     *
+     * @param url The resource to send. A missing resource results in a 404.
+     */
+    public static Result resource(URL url) {
+        return status(Result.SC_200_OK).render(new ResourceRenderable(url));
+    }
+
     public static Result TODO() {
         Result result = status(Result.SC_501_NOT_IMPLEMENTED);
         result.contentType(Result.APPLICATON_JSON);
@@ -23,6 +23,8 @@ import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import ninja.utils.NinjaConstant;
+
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Maps;
 
@@ -51,6 +53,12 @@ public class Route {
 
     private final List<String> parameterNames;
     private final Pattern regex;
+    private final boolean renderingSkippedForHead;
+
+    // Something like /views/ApplicationController/index - the template name
+    // of the controller method without suffix of the template engine.
+    // Calculated on first use - most routes never render a template.
+    private volatile String defaultTemplateNameWithoutSuffix;
 
     public Route(String httpMethod,
             String uri,
@@ -65,6 +73,9 @@ public class Route {
 
         parameterNames = ImmutableList.copyOf(doParseParameters(uri));
         regex = Pattern.compile(convertRawUriToRegex(uri));
+        renderingSkippedForHead = controllerMethod != null
+                && (controllerMethod.isAnnotationPresent(SkipRenderingForHead.class)
+                    || controllerClass.isAnnotationPresent(SkipRenderingForHead.class));
     }
 
     public String getUrl() {
@@ -91,6 +102,40 @@ public class Route {
         return controllerMethod;
     }
 
+    /**
+     * @return true if the controller method (or class) is annotated with
+     *         {@link SkipRenderingForHead}.
+     */
+    public boolean isRenderingSkippedForHead() {
+        return renderingSkippedForHead;
+    }
+
+    /**
+     * The template rendered by default for this route. The path of the
+     * controller method is calculated once.
+     *
+     * @param suffix The suffix of the template engine. Eg ".ftl.html"
+     * @return Something like /views/ApplicationController/index.ftl.html or
+     *         null if this route does not have a controller method.
+     */
+    public String getDefaultTemplateName(String suffix) {
+
+        if (controllerMethod == null) {
+            return null;
+        }
+
+        String templateNameWithoutSuffix = defaultTemplateNameWithoutSuffix;
+
+        if (templateNameWithoutSuffix == null) {
+            // racy but harmless - every thread calculates the same name
+            templateNameWithoutSuffix = doCalculateDefaultTemplateName(controllerClass, controllerMethod);
+            defaultTemplateNameWithoutSuffix = templateNameWithoutSuffix;
+        }
+
+        return templateNameWithoutSuffix + suffix;
+
+    }
+
     /**
      * Matches /index to /index or /me/1 to /person/{id}
      *
@@ -159,6 +204,53 @@ public class Route {
         return list;
     }
 
+    /**
+     * Calculates the path of the template of a controller method.
+     *
+     * We always assume the template in the subdir "views"
+     *
+     * 1) If we are in the main project =>
+     * /controllers/ControllerName
+     * to
+     * /views/ControllerName/templateName
+     *
+     * 2) If we are in a plugin / subproject =>
+     * /controllers/some/packages/submoduleName/ControllerName
+     * to
+     * views/some/packages/submoduleName/ControllerName/templateName
+     *
+     * @return The path of the template without suffix.
+     */
+    private static String doCalculateDefaultTemplateName(Class<?> controllerClass,
+                                                         Method controllerMethod) {
+
+        // So let's calculate the parent package of the controller:
+        // This results in something like controllers or
+        // some.package.controllers
+        // (controllers in the default package have no package on Java 7/8)
+        Package controllerPackage = controllerClass.getPackage();
+
+        if (controllerPackage == null || controllerPackage.getName().isEmpty()) {
+            return String.format("/%s/%s",
+                    controllerClass.getSimpleName(), controllerMethod.getName());
+        }
+
+        String controllerPackageName = controllerPackage.getName();
+
+        // Replace controller prefix with views prefix
+        String parentPackageOfController = controllerPackageName
+                .replaceFirst(NinjaConstant.CONTROLLERS_DIR,
+                        NinjaConstant.VIEWS_DIR);
+
+        // And now we rewrite everything from "." notation to directories /
+        String parentControllerPackageAsPath = parentPackageOfController
+                .replaceAll("\\.", "/");
+
+        return String.format("/%s/%s/%s", parentControllerPackageAsPath,
+                controllerClass.getSimpleName(), controllerMethod.getName());
+
+    }
+
     /**
      * Gets a raw uri like "/{name}/id/*" and returns "/([^/]*)/id/*."
      *
@@ -23,6 +23,7 @@ import java.util.LinkedList;
 import java.util.Set;
 
 import ninja.params.ControllerMethodInvoker;
+import ninja.template.TemplateEngineManager;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -186,6 +187,19 @@ class RouteBuilderImpl implements RouteBuilder {
             if (filterWith != null) {
                 filters.addAll(Arrays.asList(filterWith.value()));
             }
+            // innermost - the other filters (security...) run for cached
+            // and coalesced responses as well
+            if ((controllerMethod.isAnnotationPresent(CacheResponse.class)
+                    || controller.isAnnotationPresent(CacheResponse.class))
+                    && !filters.contains(ResponseCacheFilter.class)) {
+                filters.add(ResponseCacheFilter.class);
+            }
+            // behind the cache - only misses have to be coalesced
+            if ((controllerMethod.isAnnotationPresent(CoalesceRequests.class)
+                    || controller.isAnnotationPresent(CoalesceRequests.class))
+                    && !filters.contains(RequestCoalescingFilter.class)) {
+                filters.add(RequestCoalescingFilter.class);
+            }
         }
 
         return new Route(httpMethod, uri, controller, controllerMethod,
@@ -201,7 +215,7 @@ class RouteBuilderImpl implements RouteBuilder {
 
         if (filters.isEmpty()) {
 
-            return result != null ? new FilterChainEnd(result) :
+            return result != null ? new FilterChainEnd(freeze(injector, result)) :
                     new FilterChainEnd(injector.getProvider(controller),
                             ControllerMethodInvoker.build(controllerMethod, injector));
 
@@ -216,6 +230,26 @@ class RouteBuilderImpl implements RouteBuilder {
         }
     }
 
+    /**
+     * Results declared directly in the routes are shared by all requests.
+     * We therefore freeze them into an immutable snapshot - and render the
+     * body in advance when it does not depend on the request.
+     */
+    private FrozenResult freeze(Injector injector, Result result) {
+
+        TemplateEngineManager templateEngineManager
+                = injector.getInstance(TemplateEngineManager.class);
+
+        FrozenResult frozenResult = new FrozenResult(result, templateEngineManager);
+
+        if (frozenResult.isPreRendered()) {
+            log.debug("Rendered body of static result for route {} in advance.", uri);
+        }
+
+        return frozenResult;
+
+    }
+
     private Set<Class<? extends Filter>> calculateFiltersForClass(Class controller) {
         LinkedHashSet<Class<? extends Filter>> filters = new LinkedHashSet<Class<? extends Filter>>();
         // First step up the superclass tree, so that superclass filters come
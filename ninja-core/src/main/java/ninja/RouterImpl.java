@@ -71,6 +71,11 @@ public class RouterImpl implements Router {
             }
         }
 
+        // HEAD is answered by the GET route unless there is a HEAD route
+        if ("HEAD".equalsIgnoreCase(httpMethod)) {
+            return getRouteFor("GET", uri);
+        }
+
         return null;
 
     }
@@ -0,0 +1,89 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ninja.bodyparser;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import ninja.Context;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Base class of body parsers for binary Jackson data formats like Smile,
+ * CBOR or MessagePack. Parses exactly like {@link BodyParserEngineJson} but
+ * uses the ObjectMapper of the data format:
+ *
+ * <pre>
+ * &#064;Singleton
+ * public class BodyParserEngineSmile extends BodyParserEngineJacksonBinary {
+ *
+ *     &#064;Inject
+ *     public BodyParserEngineSmile(ObjectMapperProvider objectMapperProvider) {
+ *         super(objectMapperProvider.get(new SmileFactory()), Result.APPLICATION_SMILE);
+ *     }
+ *
+ * }
+ * </pre>
+ */
+public abstract class BodyParserEngineJacksonBinary implements BodyParserEngine {
+
+    private final Logger logger = LoggerFactory.getLogger(BodyParserEngineJacksonBinary.class);
+
+    private final ObjectMapper objectMapper;
+
+    private final String contentType;
+
+    /**
+     * @param objectMapper The ObjectMapper of the data format. Use
+     *                     ObjectMapperProvider.get(JsonFactory) to configure
+     *                     it like the one for Json.
+     * @param contentType The content type parsed by this engine.
+     */
+    protected BodyParserEngineJacksonBinary(ObjectMapper objectMapper,
+                                            String contentType) {
+
+        this.objectMapper = objectMapper;
+        this.contentType = contentType;
+
+    }
+
+    @Override
+    public <T> T invoke(Context context, Class<T> classOfT) {
+        T t = null;
+
+        try (InputStream inputStream = context.getInputStream()) {
+
+            t = objectMapper.readValue(inputStream, classOfT);
+
+        } catch (IOException e) {
+            logger.error("Error parsing incoming " + contentType, e);
+        }
+
+        return t;
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+}
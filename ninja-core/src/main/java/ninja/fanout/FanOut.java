@@ -0,0 +1,78 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ninja.fanout;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import ninja.Context;
+
+import com.google.inject.ImplementedBy;
+
+/**
+ * Runs independent calls of a controller (DAO queries, cache lookups...) in
+ * parallel on a bounded thread pool managed by Ninja.
+ *
+ * All tasks of a request share one deadline. The deadline is stored in the
+ * attribute {@link FanOut#DEADLINE_ATTRIBUTE} of the context (milliseconds
+ * since the epoch) and defaults to now + ninja.fanout.timeout_in_millis
+ * when the request starts its first fan-out. A filter may set the attribute
+ * earlier to give a route a different budget.
+ *
+ * Usage inside a controller:
+ * <pre>
+ * FanOutTasks tasks = fanOut.newTasks(context);
+ * Future&lt;User&gt; user = tasks.submit(new Callable&lt;User&gt;() {...});
+ * Future&lt;List&lt;Article&gt;&gt; articles = tasks.submit(new Callable&lt;List&lt;Article&gt;&gt;() {...});
+ * tasks.join();
+ *
+ * return Results.html().render("user", user.get()).render("articles", articles.get());
+ * </pre>
+ */
+@ImplementedBy(FanOutImpl.class)
+public interface FanOut {
+
+    /**
+     * Context attribute holding the fan-out deadline of the current request
+     * as Long (milliseconds since the epoch).
+     */
+    String DEADLINE_ATTRIBUTE = "ninja.fanout.deadline";
+
+    /**
+     * Starts a new group of tasks bound to the deadline of this request.
+     *
+     * @param context The context of the current request.
+     * @return A new group of tasks. Submit tasks and call join() afterwards.
+     */
+    FanOutTasks newTasks(Context context);
+
+    /**
+     * Convenience method that submits all tasks, joins them and returns their
+     * results in the order of the tasks.
+     *
+     * If one task fails the remaining tasks are cancelled and the exception
+     * of the failing task is thrown. If the deadline of the request passes
+     * the remaining tasks are cancelled and an
+     * {@link ninja.exceptions.InternalServerErrorException} is thrown.
+     *
+     * @param context The context of the current request.
+     * @param tasks The tasks to run in parallel.
+     * @return The results of the tasks in the order of the tasks.
+     */
+    <T> List<T> invokeAll(Context context, List<? extends Callable<T>> tasks);
+
+}
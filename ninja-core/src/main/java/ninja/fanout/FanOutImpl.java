@@ -0,0 +1,255 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ninja.fanout;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import ninja.Context;
+import ninja.exceptions.InternalServerErrorException;
+import ninja.lifecycle.Dispose;
+import ninja.utils.NinjaConstant;
+import ninja.utils.NinjaProperties;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Default implementation of {@link FanOut}.
+ *
+ * Tasks run on a fixed size pool of daemon threads (ninja.fanout.threads)
+ * in front of a bounded queue (ninja.fanout.queue_size). When both are
+ * exhausted the task runs on the thread of the request itself - the request
+ * gets slower but is never rejected.
+ *
+ * The logging MDC and the context class loader of the request thread are
+ * propagated to the worker threads.
+ */
+@Singleton
+public class FanOutImpl implements FanOut {
+
+    private static final Logger logger = LoggerFactory.getLogger(FanOutImpl.class);
+
+    private final long timeoutInMillis;
+
+    private final ThreadPoolExecutor executor;
+
+    @Inject
+    public FanOutImpl(NinjaProperties ninjaProperties) {
+
+        int threads = ninjaProperties.getIntegerWithDefault(
+                NinjaConstant.FANOUT_THREADS,
+                NinjaConstant.FANOUT_THREADS_DEFAULT);
+
+        int queueSize = ninjaProperties.getIntegerWithDefault(
+                NinjaConstant.FANOUT_QUEUE_SIZE,
+                NinjaConstant.FANOUT_QUEUE_SIZE_DEFAULT);
+
+        this.timeoutInMillis = ninjaProperties.getIntegerWithDefault(
+                NinjaConstant.FANOUT_TIMEOUT_IN_MILLIS,
+                NinjaConstant.FANOUT_TIMEOUT_IN_MILLIS_DEFAULT);
+
+        this.executor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                60L,
+                TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(queueSize),
+                new ThreadFactoryBuilder()
+                        .setNameFormat("ninja-fanout-%d")
+                        .setDaemon(true)
+                        .build(),
+                new RunInRequestThreadPolicy());
+
+        // the pool is sized for bursts of fan-out calls - shrink back to no
+        // threads after 60s without any
+        this.executor.allowCoreThreadTimeOut(true);
+
+        logger.debug("Fan-out pool uses {} threads and a queue of {} tasks.",
+                threads, queueSize);
+
+    }
+
+    @Override
+    public FanOutTasks newTasks(Context context) {
+        return new FanOutTasks(this, getDeadline(context));
+    }
+
+    @Override
+    public <T> List<T> invokeAll(Context context, List<? extends Callable<T>> tasks) {
+
+        FanOutTasks fanOutTasks = newTasks(context);
+
+        List<Future<T>> futures = Lists.newArrayListWithCapacity(tasks.size());
+
+        for (Callable<T> task : tasks) {
+            futures.add(fanOutTasks.submit(task));
+        }
+
+        fanOutTasks.join();
+
+        List<T> results = Lists.newArrayListWithCapacity(futures.size());
+
+        try {
+            for (Future<T> future : futures) {
+                // all futures are done after join()
+                results.add(future.get());
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new InternalServerErrorException(e);
+        }
+
+        return results;
+
+    }
+
+    @Dispose(order = 90)
+    public void dispose() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return The executor running all fan-out tasks. Useful for monitoring.
+     */
+    public ThreadPoolExecutor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Wraps a task before it is handed over to the executor. The default
+     * implementation propagates the logging MDC and the context class loader
+     * of the submitting thread. Subclasses may add more (timing etc).
+     *
+     * @param task The task submitted by the controller.
+     * @return The task that will be executed.
+     */
+    protected <T> Callable<T> decorate(Callable<T> task) {
+        return new RequestContextPropagatingCallable<>(task);
+    }
+
+    /**
+     * Called when pool and queue are exhausted and a task runs on the
+     * thread of the request instead.
+     */
+    protected void onTaskRunInRequestThread() {
+        logger.debug("Fan-out pool exhausted. Running task in request thread.");
+    }
+
+    /**
+     * Called when a group of tasks did not complete before the deadline of
+     * the request.
+     */
+    protected void onDeadlineExceeded() {
+        logger.warn("Fan-out tasks did not complete before the request deadline.");
+    }
+
+    /**
+     * Called when a task failed and the remaining tasks of its group were
+     * cancelled.
+     */
+    protected void onTaskFailed(Throwable cause) {
+        logger.debug("Fan-out task failed. Cancelling remaining tasks.", cause);
+    }
+
+    private long getDeadline(Context context) {
+
+        Object deadline = context.getAttribute(DEADLINE_ATTRIBUTE);
+
+        if (deadline instanceof Long) {
+            return (Long) deadline;
+        }
+
+        // first fan-out of this request => all later ones share the deadline
+        long newDeadline = System.currentTimeMillis() + timeoutInMillis;
+        context.setAttribute(DEADLINE_ATTRIBUTE, newDeadline);
+
+        return newDeadline;
+
+    }
+
+    private class RunInRequestThreadPolicy implements RejectedExecutionHandler {
+
+        @Override
+        public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException("Fan-out pool already shut down.");
+            }
+
+            onTaskRunInRequestThread();
+            runnable.run();
+
+        }
+
+    }
+
+    private static class RequestContextPropagatingCallable<T> implements Callable<T> {
+
+        private final Callable<T> task;
+        private final Map<String, String> mdcContextMap;
+        private final ClassLoader contextClassLoader;
+
+        RequestContextPropagatingCallable(Callable<T> task) {
+            this.task = task;
+            this.mdcContextMap = MDC.getCopyOfContextMap();
+            this.contextClassLoader = Thread.currentThread().getContextClassLoader();
+        }
+
+        @Override
+        public T call() throws Exception {
+
+            Thread thread = Thread.currentThread();
+            Map<String, String> previousMdcContextMap = MDC.getCopyOfContextMap();
+            ClassLoader previousContextClassLoader = thread.getContextClassLoader();
+
+            setMdcContextMap(mdcContextMap);
+            thread.setContextClassLoader(contextClassLoader);
+
+            try {
+                return task.call();
+            } finally {
+                setMdcContextMap(previousMdcContextMap);
+                thread.setContextClassLoader(previousContextClassLoader);
+            }
+
+        }
+
+        private static void setMdcContextMap(Map<String, String> contextMap) {
+            if (contextMap == null) {
+                MDC.clear();
+            } else {
+                MDC.setContextMap(contextMap);
+            }
+        }
+
+    }
+
+}
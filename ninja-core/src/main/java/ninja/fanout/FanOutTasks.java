@@ -0,0 +1,142 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ninja.fanout;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import ninja.exceptions.InternalServerErrorException;
+
+import com.google.common.collect.Lists;
+
+/**
+ * A group of tasks started by one request. Submit all tasks first and
+ * call {@link FanOutTasks#join()} before reading the futures.
+ *
+ * Not thread safe - a group belongs to the thread of its request.
+ */
+public class FanOutTasks {
+
+    private final FanOutImpl fanOut;
+    private final long deadline;
+    private final CompletionService<Object> completionService;
+    private final List<Future<?>> futures;
+
+    private int pending;
+
+    FanOutTasks(FanOutImpl fanOut, long deadline) {
+        this.fanOut = fanOut;
+        this.deadline = deadline;
+        this.completionService = new ExecutorCompletionService<>(fanOut.getExecutor());
+        this.futures = Lists.newArrayList();
+    }
+
+    /**
+     * Submits a task to the fan-out pool.
+     *
+     * @param task The task to run in parallel.
+     * @return The future of the task. Its value is available after join().
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Future<T> submit(Callable<T> task) {
+
+        Future<T> future = (Future<T>) completionService.submit(
+                (Callable<Object>) fanOut.decorate(task));
+
+        futures.add(future);
+        pending++;
+
+        return future;
+
+    }
+
+    /**
+     * Waits until all submitted tasks are done.
+     *
+     * If a task fails the remaining tasks are cancelled and the exception of
+     * the task is rethrown (checked exceptions wrapped in an
+     * {@link InternalServerErrorException}). If the deadline of the request
+     * passes the remaining tasks are cancelled and an
+     * {@link InternalServerErrorException} is thrown.
+     */
+    public void join() {
+
+        try {
+
+            while (pending > 0) {
+
+                long remaining = deadline - System.currentTimeMillis();
+
+                Future<Object> done = remaining > 0
+                        ? completionService.poll(remaining, TimeUnit.MILLISECONDS)
+                        : completionService.poll();
+
+                if (done == null) {
+                    cancelAll();
+                    fanOut.onDeadlineExceeded();
+                    throw new InternalServerErrorException(
+                            "Fan-out tasks did not complete before the request deadline.");
+                }
+
+                pending--;
+
+                // throws if the task failed
+                done.get();
+
+            }
+
+        } catch (ExecutionException e) {
+
+            cancelAll();
+            fanOut.onTaskFailed(e.getCause());
+            throw propagate(e.getCause());
+
+        } catch (InterruptedException e) {
+
+            cancelAll();
+            Thread.currentThread().interrupt();
+            throw new InternalServerErrorException(e);
+
+        }
+
+    }
+
+    private void cancelAll() {
+        for (Future<?> future : futures) {
+            future.cancel(true);
+        }
+        pending = 0;
+    }
+
+    private static RuntimeException propagate(Throwable cause) {
+
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+            throw (Error) cause;
+        } else {
+            return new InternalServerErrorException(cause);
+        }
+
+    }
+
+}
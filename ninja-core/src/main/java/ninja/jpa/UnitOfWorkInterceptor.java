@@ -16,6 +16,11 @@
 
 package ninja.jpa;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import ninja.Result;
+import ninja.utils.StreamingRenderables;
+
 import org.aopalliance.intercept.MethodInterceptor;
 import org.aopalliance.intercept.MethodInvocation;
 
@@ -26,6 +31,12 @@ import com.google.inject.Inject;
  * 
  * This interceptor tracks and opens and closes your database connections.
  * 
+ * If a controller method returns a Result with a lazy renderable (an
+ * Iterator or a cursor - see {@link StreamingRenderables}) the connection
+ * stays open until the renderable has been streamed to the client. If it is
+ * never rendered (or closed on another thread) the unit of work is ended the
+ * next time this thread begins one.
+ * 
  * @author Raphael A. Bauer
  */
 public class UnitOfWorkInterceptor implements MethodInterceptor {
@@ -46,32 +57,99 @@ public class UnitOfWorkInterceptor implements MethodInterceptor {
     // because we only have one unit for this thread.
     final ThreadLocal<Boolean> didWeStartWork = new ThreadLocal<>();
 
+    // The unit of work this thread began for a lazy renderable - until the
+    // renderable is closed on this thread.
+    final ThreadLocal<LazyWork> lazyWork = new ThreadLocal<>();
+
     @Override
     public Object invoke(MethodInvocation invocation) throws Throwable {
         
-        if (null == didWeStartWork.get()) {
-            
-            unitOfWork.begin();
-            didWeStartWork.set(Boolean.TRUE);
-            
-        } else {
+        if (null != didWeStartWork.get()) {
             // If unit of work already started we don't do anything here...
             // another UnitOfWorkInterceptor point point will take care...
             // This happens if you are nesting your calls.
             return invocation.proceed();
         }
 
+        LazyWork unclosedLazyWork = lazyWork.get();
+
+        if (unclosedLazyWork != null) {
+
+            // The lazy renderable of an earlier call was never rendered - or
+            // rendered on another thread. The unit of work is bound to this
+            // thread and has to be ended here before a new one can begin.
+            lazyWork.remove();
+            unclosedLazyWork.closed.set(true);
+            unitOfWork.end();
+
+        }
+
+        unitOfWork.begin();
+        didWeStartWork.set(Boolean.TRUE);
+
+        boolean endWork = true;
+
         try {
 
-            return invocation.proceed();
+            Object returnValue = invocation.proceed();
+
+            if (returnValue instanceof Result
+                    && StreamingRenderables.isLazy(((Result) returnValue).getRenderable())) {
+
+                // A lazy renderable (e.g. a cursor) needs the database
+                // connection until it has been streamed. The ResultHandler
+                // closes it after rendering - and that ends the unit of work.
+                Result result = (Result) returnValue;
+                LazyWork work = new LazyWork();
+
+                result.renderable(StreamingRenderables.closeWith(
+                        result.getRenderable(), work));
+
+                lazyWork.set(work);
+                endWork = false;
+
+            }
+
+            return returnValue;
 
         } finally {
 
-            if (null != didWeStartWork.get()) {
-                
-                didWeStartWork.remove();
+            didWeStartWork.remove();
+
+            if (endWork) {
+                unitOfWork.end();
+            }
+
+        }
+
+    }
+
+    /**
+     * Ends the unit of work of a lazy renderable when it is closed - once.
+     *
+     * The unit of work is bound to the thread that began it. Closing the
+     * renderable on another thread does not end it there - it stays in
+     * {@link #lazyWork} of its thread and is ended by the next invoke there.
+     */
+    private class LazyWork implements AutoCloseable {
+
+        final Thread owner = Thread.currentThread();
+
+        final AtomicBoolean closed = new AtomicBoolean();
+
+        @Override
+        public void close() {
+
+            if (Thread.currentThread() != owner) {
+                return;
+            }
+
+            if (closed.compareAndSet(false, true)) {
+
+                lazyWork.remove();
+
                 unitOfWork.end();
-                
+
             }
 
         }
@@ -0,0 +1,214 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ninja.template;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import ninja.utils.StreamingRenderables;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * Jackson ObjectWriters cached per type and view.
+ *
+ * A writer for a fixed root type resolves its serializer once and keeps it.
+ * ObjectMapper.writeValue looks the serializer up for each call.
+ *
+ * The writers do not flush after each value written to a JsonGenerator.
+ * Streamed elements are flushed in batches instead.
+ *
+ * The caches are bounded and hold their classes weakly. They do not keep
+ * classes of a discarded class loader (e.g. after a reload in dev mode)
+ * alive.
+ */
+class JsonObjectWriters {
+
+    static final int MAXIMUM_SIZE = 1000;
+
+    // key of the writer for a view only
+    private static final Class<?> NO_TYPE = NoType.class;
+
+    private final ObjectMapper objectMapper;
+
+    private final ObjectWriter defaultObjectWriter;
+
+    private final Cache<Class<?>, ObjectWriter> objectWriters = newCache();
+
+    // view => type => writer
+    private final Cache<Class<?>, Cache<Class<?>, ObjectWriter>> objectWritersWithView
+            = newCache();
+
+    JsonObjectWriters(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.defaultObjectWriter = objectMapper.writer()
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * @param type The type of the object to write or null if the type
+     *             should be determined for each value.
+     * @param view The Jackson view or null.
+     * @return A (cached) writer.
+     */
+    ObjectWriter get(final Class<?> type, final Class<?> view) {
+
+        if (view == null) {
+
+            if (type == null) {
+                return defaultObjectWriter;
+            }
+
+            return get(objectWriters, type, new Callable<ObjectWriter>() {
+
+                @Override
+                public ObjectWriter call() {
+                    return objectMapper.writerWithType(type)
+                            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+                }
+
+            });
+
+        }
+
+        Cache<Class<?>, ObjectWriter> writersOfView = get(
+                objectWritersWithView, view,
+                new Callable<Cache<Class<?>, ObjectWriter>>() {
+
+                    @Override
+                    public Cache<Class<?>, ObjectWriter> call() {
+                        return newCache();
+                    }
+
+                });
+
+        return get(writersOfView, type != null ? type : NO_TYPE,
+                new Callable<ObjectWriter>() {
+
+                    @Override
+                    public ObjectWriter call() {
+
+                        ObjectWriter objectWriter = objectMapper.writerWithView(view)
+                                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+                        return type != null
+                                ? objectWriter.withType(type)
+                                : objectWriter;
+
+                    }
+
+                });
+
+    }
+
+    private static <V> Cache<Class<?>, V> newCache() {
+
+        return CacheBuilder.newBuilder()
+                .weakKeys()
+                .maximumSize(MAXIMUM_SIZE)
+                .build();
+
+    }
+
+    private static <V> V get(Cache<Class<?>, V> cache,
+                             Class<?> key,
+                             Callable<V> loader) {
+
+        try {
+            return cache.get(key, loader);
+        } catch (ExecutionException e) {
+            throw new UncheckedExecutionException(e.getCause());
+        }
+
+    }
+
+    private ObjectWriter get(Class<?> type,
+                             Class<?> view,
+                             FilterProvider filterProvider) {
+
+        ObjectWriter objectWriter = get(type, view);
+
+        return filterProvider != null
+                ? objectWriter.with(filterProvider)
+                : objectWriter;
+
+    }
+
+    /**
+     * Writes a renderable with the cached writers. Lazy renderables are
+     * streamed as array - the output is flushed every
+     * {@link StreamingRenderables#FLUSH_INTERVAL} elements.
+     *
+     * @param outputStream The stream to write to.
+     * @param renderable The object to write.
+     * @param view The Jackson view or null.
+     * @param filterProvider The Jackson filters or null.
+     */
+    void writeValue(OutputStream outputStream,
+                    Object renderable,
+                    Class<?> view,
+                    FilterProvider filterProvider) throws IOException {
+
+        if (!StreamingRenderables.isLazy(renderable)) {
+
+            get(renderable != null ? renderable.getClass() : null, view, filterProvider)
+                    .writeValue(outputStream, renderable);
+
+            return;
+
+        }
+
+        try (JsonGenerator jsonGenerator = objectMapper.getFactory()
+                .createGenerator(outputStream, JsonEncoding.UTF8)) {
+
+            jsonGenerator.writeStartArray();
+
+            Iterator<?> elements = StreamingRenderables.iterator(renderable);
+
+            for (int count = 1; elements.hasNext(); count++) {
+
+                Object element = elements.next();
+
+                get(element != null ? element.getClass() : null, view, filterProvider)
+                        .writeValue(jsonGenerator, element);
+
+                if (count % StreamingRenderables.FLUSH_INTERVAL == 0) {
+                    jsonGenerator.flush();
+                }
+
+            }
+
+            jsonGenerator.writeEndArray();
+
+        }
+
+    }
+
+    private static final class NoType {}
+
+}
@@ -0,0 +1,319 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ninja.template;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.databind.AnnotationIntrospector;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.AnnotatedClass;
+import com.fasterxml.jackson.databind.introspect.NopAnnotationIntrospector;
+import com.fasterxml.jackson.databind.ser.BeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.DefaultSerializerProvider;
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.PropertyFilter;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.google.common.base.Splitter;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+/**
+ * Sparse fieldsets: json responses only contain the properties selected by
+ * the client, eg. ?fields=id,title,author.name.
+ *
+ * The properties are skipped by a Jackson filter while the objects are
+ * serialized. Selecting a property selects everything below it. Properties
+ * of arrays are selected by the name of the array, eg.
+ * ?fields=articles.title. Maps are rendered completely.
+ *
+ * Classes with their own &#064;JsonFilter keep it - their filter is looked
+ * up in the FilterProvider of the application's ObjectMapper.
+ *
+ * The parsed selections are cached by the value of the query parameter.
+ */
+class JsonSparseFieldsets {
+
+    static final String FILTER_ID = "ninja.sparseFieldsets";
+
+    static final int MAXIMUM_SIZE = 1000;
+
+    private final JsonObjectWriters jsonObjectWriters;
+
+    // the filters of the application - null if it has none
+    private final FilterProvider applicationFilters;
+
+    private final LoadingCache<String, FilterProvider> filterProviders;
+
+    JsonSparseFieldsets(ObjectMapper objectMapper) {
+
+        this.jsonObjectWriters = new JsonObjectWriters(filteringCopyOf(objectMapper));
+
+        this.applicationFilters = objectMapper.getSerializationConfig().getFilterProvider();
+
+        this.filterProviders = CacheBuilder.newBuilder()
+                .maximumSize(MAXIMUM_SIZE)
+                .build(new CacheLoader<String, FilterProvider>() {
+
+                    @Override
+                    public FilterProvider load(String fields) {
+                        return new SelectionFilterProvider(
+                                new SelectionFilter(parse(fields)), applicationFilters);
+                    }
+
+                });
+
+    }
+
+    /**
+     * @return Writers of an ObjectMapper that applies the filter to all beans.
+     */
+    JsonObjectWriters getJsonObjectWriters() {
+        return jsonObjectWriters;
+    }
+
+    /**
+     * @param fields The value of the query parameter, eg. "id,author.name".
+     * @return The filter selecting those properties.
+     */
+    FilterProvider getFilterProvider(String fields) {
+        return filterProviders.getUnchecked(fields);
+    }
+
+    /**
+     * The shared ObjectMapper stays untouched. Filters declared with
+     * &#064;JsonFilter take precedence over sparse fieldsets.
+     */
+    private static ObjectMapper filteringCopyOf(ObjectMapper objectMapper) {
+
+        ObjectMapper copy = objectMapper.copy();
+
+        // the copy shares the cached serializers with the original. But the
+        // serializers of the copy apply the filter.
+        copy.setSerializerProvider(new DefaultSerializerProvider.Impl());
+
+        copy.setAnnotationIntrospector(AnnotationIntrospector.pair(
+                copy.getSerializationConfig().getAnnotationIntrospector(),
+                new NopAnnotationIntrospector() {
+
+                    @Override
+                    public Object findFilterId(Annotated annotated) {
+                        return annotated instanceof AnnotatedClass ? FILTER_ID : null;
+                    }
+
+                    @Override
+                    @Deprecated
+                    public Object findFilterId(AnnotatedClass annotatedClass) {
+                        return FILTER_ID;
+                    }
+
+                }));
+
+        copy.setFilters(new SimpleFilterProvider()
+                .setDefaultFilter(SimpleBeanPropertyFilter.serializeAllExcept(
+                        Collections.<String>emptySet())));
+
+        return copy;
+
+    }
+
+    static Selection parse(String fields) {
+
+        Selection root = new Selection();
+
+        for (String field : Splitter.on(',').trimResults().omitEmptyStrings().split(fields)) {
+
+            Selection selection = root;
+
+            for (String name : Splitter.on('.').trimResults().split(field)) {
+                selection = selection.child(name);
+            }
+
+            selection.all = true;
+
+        }
+
+        return root;
+
+    }
+
+    /**
+     * The selected properties below one property.
+     */
+    static class Selection {
+
+        static final Selection ALL = new Selection();
+
+        static {
+            ALL.all = true;
+        }
+
+        // the property itself was selected - with everything below it
+        boolean all;
+
+        final Map<String, Selection> children = new HashMap<>();
+
+        Selection child(String name) {
+
+            Selection child = children.get(name);
+
+            if (child == null) {
+                child = new Selection();
+                children.put(name, child);
+            }
+
+            return child;
+
+        }
+
+        boolean includes(String name) {
+            return all || children.containsKey(name);
+        }
+
+    }
+
+    /**
+     * Provides the selection filter and hands all other filter ids to the
+     * filters of the application.
+     */
+    private static class SelectionFilterProvider extends FilterProvider {
+
+        private final SelectionFilter selectionFilter;
+
+        private final FilterProvider applicationFilters;
+
+        SelectionFilterProvider(SelectionFilter selectionFilter,
+                                FilterProvider applicationFilters) {
+            this.selectionFilter = selectionFilter;
+            this.applicationFilters = applicationFilters;
+        }
+
+        @Override
+        @Deprecated
+        public BeanPropertyFilter findFilter(Object filterId) {
+
+            if (FILTER_ID.equals(filterId)) {
+                return selectionFilter;
+            }
+
+            return applicationFilters != null ? applicationFilters.findFilter(filterId) : null;
+
+        }
+
+        @Override
+        public PropertyFilter findPropertyFilter(Object filterId, Object valueToFilter) {
+
+            if (FILTER_ID.equals(filterId)) {
+                return selectionFilter;
+            }
+
+            return applicationFilters != null
+                    ? applicationFilters.findPropertyFilter(filterId, valueToFilter)
+                    : null;
+
+        }
+
+    }
+
+    private static class SelectionFilter extends SimpleBeanPropertyFilter {
+
+        private final Selection root;
+
+        SelectionFilter(Selection root) {
+            this.root = root;
+        }
+
+        @Override
+        public void serializeAsField(Object pojo,
+                                     JsonGenerator jsonGenerator,
+                                     SerializerProvider serializerProvider,
+                                     PropertyWriter propertyWriter) throws Exception {
+
+            Selection selection = selectionOf(jsonGenerator.getOutputContext());
+
+            if (selection != null && selection.includes(propertyWriter.getName())) {
+                propertyWriter.serializeAsField(pojo, jsonGenerator, serializerProvider);
+            }
+
+        }
+
+        /**
+         * @param objectContext The context of the object being written.
+         * @return The selected properties of that object - null if none.
+         */
+        private Selection selectionOf(JsonStreamContext objectContext) {
+
+            JsonStreamContext parent = objectContext.getParent();
+
+            // elements of arrays belong to the property holding the array
+            while (parent != null && parent.inArray()) {
+                parent = parent.getParent();
+            }
+
+            if (parent == null || parent.inRoot()) {
+                return root;
+            }
+
+            // parent is the object holding this object as property
+            Selection parentSelection = selectionOf(parent);
+
+            if (parentSelection == null) {
+                return null;
+            }
+
+            if (parentSelection.all) {
+                return Selection.ALL;
+            }
+
+            return parentSelection.children.get(parent.getCurrentName());
+
+        }
+
+        @Override
+        public void serializeAsField(Object pojo,
+                                     JsonGenerator jsonGenerator,
+                                     SerializerProvider serializerProvider,
+                                     BeanPropertyWriter beanPropertyWriter) throws Exception {
+
+            serializeAsField(pojo, jsonGenerator, serializerProvider,
+                    (PropertyWriter) beanPropertyWriter);
+
+        }
+
+        @Override
+        protected boolean include(BeanPropertyWriter writer) {
+            return true;
+        }
+
+        @Override
+        protected boolean include(PropertyWriter writer) {
+            return true;
+        }
+
+    }
+
+}
@@ -0,0 +1,241 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ninja.template;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import ninja.Context;
+import ninja.Result;
+import ninja.utils.ResponseStreams;
+import ninja.utils.StreamingRenderables;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Renders collections, arrays and lazy renderables as comma separated
+ * values (RFC 4180). Each element becomes a row.
+ *
+ * Elements that are maps or beans (converted by Jackson) become rows with
+ * their values. The keys of the first element are written as header and
+ * determine the columns of all rows. Lists and arrays become rows without
+ * header. Any other element becomes a row with a single value.
+ *
+ * Lazy renderables are streamed element by element - see
+ * {@link StreamingRenderables}.
+ */
+@Singleton
+public class TemplateEngineCsv implements TemplateEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(TemplateEngineCsv.class);
+
+    static final String LINE_SEPARATOR = "\r\n";
+
+    private final ObjectMapper objectMapper;
+
+    @Inject
+    public TemplateEngineCsv(ObjectMapper objectMapper) {
+
+        this.objectMapper = objectMapper;
+
+    }
+
+    @Override
+    public void invoke(Context context, Result result) {
+
+        ResponseStreams responseStreams = context.finalizeHeaders(result);
+
+        try (Writer writer = responseStreams.getWriter()) {
+
+            writeRows(writer, elements(result.getRenderable()));
+
+        } catch (IOException e) {
+
+            logger.error("Error while rendering csv", e);
+        }
+
+    }
+
+    private Iterator<?> elements(Object renderable) {
+
+        if (renderable == null) {
+            return Collections.emptyIterator();
+        } else if (StreamingRenderables.isLazy(renderable)) {
+            return StreamingRenderables.iterator(renderable);
+        } else if (renderable instanceof Collection) {
+            return ((Collection<?>) renderable).iterator();
+        } else if (renderable instanceof Object[]) {
+            return Arrays.asList((Object[]) renderable).iterator();
+        } else {
+            return Collections.singleton(renderable).iterator();
+        }
+
+    }
+
+    private void writeRows(Writer writer, Iterator<?> elements) throws IOException {
+
+        // keys of the first element - null if the rows have no header
+        List<Object> header = null;
+
+        for (int count = 1; elements.hasNext(); count++) {
+
+            Object element = elements.next();
+
+            if (element instanceof Object[]) {
+                element = Arrays.asList((Object[]) element);
+            } else if (element != null
+                    && !isValue(element)
+                    && !(element instanceof Map)
+                    && !(element instanceof Iterable)) {
+                // beans become maps - dates and the like become values
+                element = objectMapper.convertValue(element, Object.class);
+            }
+
+            if (element instanceof Map) {
+
+                Map<?, ?> map = (Map<?, ?>) element;
+
+                if (count == 1) {
+                    header = new ArrayList<Object>(map.keySet());
+                    writeRow(writer, header);
+                }
+
+                List<Object> row = new ArrayList<>();
+
+                if (header != null) {
+                    for (Object key : header) {
+                        row.add(map.get(key));
+                    }
+                } else {
+                    row.addAll(map.values());
+                }
+
+                writeRow(writer, row);
+
+            } else if (element instanceof Iterable) {
+
+                writeRow(writer, (Iterable<?>) element);
+
+            } else {
+
+                writeRow(writer, Collections.singletonList(element));
+
+            }
+
+            if (count % StreamingRenderables.FLUSH_INTERVAL == 0) {
+                writer.flush();
+            }
+
+        }
+
+    }
+
+    private void writeRow(Writer writer, Iterable<?> values) throws IOException {
+
+        boolean first = true;
+
+        for (Object value : values) {
+
+            if (!first) {
+                writer.write(',');
+            }
+
+            writeValue(writer, value);
+
+            first = false;
+
+        }
+
+        writer.write(LINE_SEPARATOR);
+
+    }
+
+    private void writeValue(Writer writer, Object value) throws IOException {
+
+        if (value == null) {
+            return;
+        }
+
+        // nested structures are written as json
+        String string = isValue(value)
+                ? value.toString()
+                : objectMapper.writeValueAsString(value);
+
+        if (needsQuotes(string)) {
+
+            writer.write('"');
+            writer.write(string.replace("\"", "\"\""));
+            writer.write('"');
+
+        } else {
+
+            writer.write(string);
+
+        }
+
+    }
+
+    private static boolean isValue(Object object) {
+
+        return object instanceof CharSequence
+                || object instanceof Number
+                || object instanceof Boolean
+                || object instanceof Character
+                || object instanceof Enum;
+
+    }
+
+    private static boolean needsQuotes(String string) {
+
+        for (int i = 0; i < string.length(); i++) {
+
+            char c = string.charAt(i);
+
+            if (c == ',' || c == '"' || c == '\r' || c == '\n') {
+                return true;
+            }
+
+        }
+
+        return false;
+
+    }
+
+    @Override
+    public String getContentType() {
+        return Result.TEXT_CSV;
+    }
+
+    @Override
+    public String getSuffixOfTemplatingEngine() {
+        // intentionally returns null...
+        return null;
+    }
+}
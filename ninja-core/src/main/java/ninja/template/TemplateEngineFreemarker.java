@@ -19,9 +19,32 @@ package ninja.template;
 import java.io.File;
 import java.io.IOException;
 import java.io.Writer;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
 
 import javax.inject.Singleton;
 
@@ -29,6 +52,7 @@ import ninja.Context;
 import ninja.Result;
 import ninja.i18n.Lang;
 import ninja.i18n.Messages;
+import ninja.lifecycle.Start;
 import ninja.utils.NinjaConstant;
 import ninja.utils.NinjaProperties;
 import ninja.utils.ResponseStreams;
@@ -36,8 +60,12 @@ import ninja.utils.ResponseStreams;
 import org.slf4j.Logger;
 
 import com.google.common.base.CaseFormat;
+import com.google.common.base.Function;
+import com.google.common.base.Functions;
 import com.google.common.base.Optional;
-import com.google.common.collect.Maps;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.inject.Inject;
 
 import freemarker.cache.ClassTemplateLoader;
@@ -50,6 +78,7 @@ import freemarker.template.Configuration;
 import freemarker.template.DefaultObjectWrapper;
 import freemarker.template.DefaultObjectWrapperBuilder;
 import freemarker.template.Template;
+import freemarker.template.TemplateModel;
 import freemarker.template.Version;
 
 @Singleton
@@ -70,6 +99,8 @@ public class TemplateEngineFreemarker implements TemplateEngine {
 
     private final String FILE_SUFFIX = ".ftl.html";
 
+    private static final int MAX_CACHED_LANGUAGES = 100;
+
     private final Configuration cfg;
 
     private final Messages messages;
@@ -82,11 +113,13 @@ public class TemplateEngineFreemarker implements TemplateEngine {
 
     private final TemplateEngineFreemarkerExceptionHandler templateEngineFreemarkerExceptionHandler;
 
-    private final TemplateEngineFreemarkerReverseRouteMethod templateEngineFreemarkerReverseRouteMethod;
-            
-    private final TemplateEngineFreemarkerAssetsAtMethod templateEngineFreemarkerAssetsAtMethod;
-    
-    private final TemplateEngineFreemarkerWebJarsAtMethod templateEngineFreemarkerWebJarsAtMethod;
+    // i18n and prettyTime only depend on the language of the request.
+    // So we keep one instance per language.
+    private final LoadingCache<Optional<String>, TemplateEngineFreemarkerI18nMethod> i18nMethods;
+
+    private final LoadingCache<Locale, TemplateEngineFreemarkerPrettyTimeMethod> prettyTimeMethods;
+
+    private final boolean precompile;
     
     @Inject
     public TemplateEngineFreemarker(Messages messages,
@@ -98,15 +131,35 @@ public class TemplateEngineFreemarker implements TemplateEngine {
                                     TemplateEngineFreemarkerReverseRouteMethod templateEngineFreemarkerReverseRouteMethod,
                                     TemplateEngineFreemarkerAssetsAtMethod templateEngineFreemarkerAssetsAtMethod,
                                     TemplateEngineFreemarkerWebJarsAtMethod templateEngineFreemarkerWebJarsAtMethod,
+                                    TemplateEngineFreemarkerCacheDirective templateEngineFreemarkerCacheDirective,
                                     NinjaProperties ninjaProperties) throws Exception {
         this.messages = messages;
         this.lang = lang;
         this.logger = logger;
         this.templateEngineFreemarkerExceptionHandler = templateEngineFreemarkerExceptionHandler;
         this.templateEngineHelper = templateEngineHelper;
-        this.templateEngineFreemarkerReverseRouteMethod = templateEngineFreemarkerReverseRouteMethod;
-        this.templateEngineFreemarkerAssetsAtMethod = templateEngineFreemarkerAssetsAtMethod;
-        this.templateEngineFreemarkerWebJarsAtMethod = templateEngineFreemarkerWebJarsAtMethod;
+        // Languages come from cookies and headers. We therefore limit the
+        // number of cached instances.
+        this.i18nMethods = CacheBuilder.newBuilder()
+                .maximumSize(MAX_CACHED_LANGUAGES)
+                .build(new CacheLoader<Optional<String>, TemplateEngineFreemarkerI18nMethod>() {
+                    @Override
+                    public TemplateEngineFreemarkerI18nMethod load(Optional<String> language) {
+                        return new TemplateEngineFreemarkerI18nMethod(
+                                TemplateEngineFreemarker.this.messages, language);
+                    }
+                });
+        this.prettyTimeMethods = CacheBuilder.newBuilder()
+                .maximumSize(MAX_CACHED_LANGUAGES)
+                .build(new CacheLoader<Locale, TemplateEngineFreemarkerPrettyTimeMethod>() {
+                    @Override
+                    public TemplateEngineFreemarkerPrettyTimeMethod load(Locale locale) {
+                        return new TemplateEngineFreemarkerPrettyTimeMethod(locale);
+                    }
+                });
+        this.precompile = ninjaProperties.getBooleanWithDefault(
+                NinjaConstant.FREEMARKER_PRECOMPILE,
+                ninjaProperties.isProd());
         
         cfg = new Configuration(INCOMPATIBLE_IMPROVEMENTS_VERSION);
         
@@ -174,9 +227,18 @@ public class TemplateEngineFreemarker implements TemplateEngine {
             // never update the templates in production or while testing...
             cfg.setTemplateUpdateDelay(Integer.MAX_VALUE);
             
-            // Hold 20 templates as strong references as recommended by:
+            // Hold the templates as strong references as recommended by:
             // http://freemarker.sourceforge.net/docs/pgui_config_templateloading.html
-            cfg.setCacheStorage(new freemarker.cache.MruCacheStorage(20, Integer.MAX_VALUE));
+            // Templates only softly referenced are silently dropped under
+            // memory pressure and parsed again. So the default is generous.
+            int strongSize = ninjaProperties.getIntegerWithDefault(
+                    NinjaConstant.FREEMARKER_CACHE_STRONG_SIZE,
+                    NinjaConstant.FREEMARKER_CACHE_STRONG_SIZE_DEFAULT);
+            int softSize = ninjaProperties.getIntegerWithDefault(
+                    NinjaConstant.FREEMARKER_CACHE_SOFT_SIZE,
+                    NinjaConstant.FREEMARKER_CACHE_SOFT_SIZE_DEFAULT);
+
+            cfg.setCacheStorage(new freemarker.cache.MruCacheStorage(strongSize, softSize));
 
         }
         
@@ -195,6 +257,14 @@ public class TemplateEngineFreemarker implements TemplateEngine {
         
 
         cfg.setObjectWrapper(createBeansWrapperWithExposedFields());
+
+        // The helpers are the same for all requests
+        cfg.setSharedVariable("reverseRoute", templateEngineFreemarkerReverseRouteMethod);
+        cfg.setSharedVariable("assetsAt", templateEngineFreemarkerAssetsAtMethod);
+        cfg.setSharedVariable("webJarsAt", templateEngineFreemarkerWebJarsAtMethod);
+
+        // <@cache key="..." ttl="10mn">...</@cache>
+        cfg.setSharedVariable("cache", templateEngineFreemarkerCacheDirective);
         
     }
 
@@ -206,7 +276,7 @@ public class TemplateEngineFreemarker implements TemplateEngine {
         Map map;
         // if the object is null we simply render an empty map...
         if (object == null) {            
-            map = Maps.newHashMap();
+            map = Collections.emptyMap();
             
         } else if (object instanceof Map) {            
             map = (Map) object;
@@ -223,42 +293,24 @@ public class TemplateEngineFreemarker implements TemplateEngine {
             String realClassNameLowerCamelCase = CaseFormat.UPPER_CAMEL.to(
                     CaseFormat.LOWER_CAMEL, object.getClass().getSimpleName());
             
-            map = Maps.newHashMap();
-            map.put(realClassNameLowerCamelCase, object);
+            map = Collections.singletonMap(realClassNameLowerCamelCase, object);
             
         }
         
         // set language from framework. You can access
         // it in the templates as ${lang}
-        Optional<String> language = lang.getLanguage(context, Optional.of(result));
-        if (language.isPresent()) {
-            map.put("lang", language.get());
-        }
+        final Optional<String> language = lang.getLanguage(context, Optional.of(result));
 
         // put all entries of the session cookie to the map.
         // You can access the values by their key in the cookie
+        TemplateModel session = null;
         if (!context.getSession().isEmpty()) {
-            map.put("session", context.getSession().getData());
+            session = new TemplateEngineFreemarkerLazyMapModel(
+                    cfg.getObjectWrapper(),
+                    context.getSession().getData(),
+                    Functions.<String>identity());
         }
         
-        map.put("contextPath", context.getContextPath());
-        
-        
-        //////////////////////////////////////////////////////////////////////
-        // A method that renders i18n messages and can also render messages with 
-        // placeholders directly in your template:
-        // E.g.: ${i18n("mykey", myPlaceholderVariable)}
-        //////////////////////////////////////////////////////////////////////
-        map.put("i18n", new TemplateEngineFreemarkerI18nMethod(messages, context, result));
-
-        Optional<String> requestLang = lang.getLanguage(context, Optional.of(result));
-        Locale locale = lang.getLocaleFromStringOrDefault(requestLang);
-        map.put("prettyTime", new TemplateEngineFreemarkerPrettyTimeMethod(locale));
-
-        map.put("reverseRoute", templateEngineFreemarkerReverseRouteMethod);
-        map.put("assetsAt", templateEngineFreemarkerAssetsAtMethod);
-        map.put("webJarsAt", templateEngineFreemarkerWebJarsAtMethod);
-
         ///////////////////////////////////////////////////////////////////////
         // Convenience method to translate possible flash scope keys.
         // !!! If you want to set messages with placeholders please do that
@@ -267,26 +319,32 @@ public class TemplateEngineFreemarker implements TemplateEngine {
         //     A message like " errorMessage=An error occurred" => use that as errorMessage.  
         //
         // get keys via ${flash.KEYNAME}
+        // Only the keys the template actually reads get translated.
         //////////////////////////////////////////////////////////////////////
-        Map<String, String> translatedFlashCookieMap = Maps.newHashMap();
-        for (Entry<String, String> entry : context.getFlashScope().getCurrentFlashCookieData().entrySet()) {
-            
-            String messageValue = null;
-
-                
-            Optional<String> messageValueOptional = messages.get(entry.getValue(), context, Optional.of(result));
-                
-            if (!messageValueOptional.isPresent()) {
-                messageValue = entry.getValue();
-            } else {
-                messageValue = messageValueOptional.get();
-            }
-            // new way
-            translatedFlashCookieMap.put(entry.getKey(), messageValue);
-        }
-        
-        // now we can retrieve flash cookie messages via ${flash.MESSAGE_KEY}
-        map.put("flash", translatedFlashCookieMap);        
+        TemplateModel flash = new TemplateEngineFreemarkerLazyMapModel(
+                cfg.getObjectWrapper(),
+                context.getFlashScope().getCurrentFlashCookieData(),
+                new Function<String, String>() {
+                    @Override
+                    public String apply(String value) {
+                        return messages.get(value, language).or(value);
+                    }
+                });
+
+        TemplateEngineFreemarkerDataModel dataModel = new TemplateEngineFreemarkerDataModel(
+                cfg.getObjectWrapper(),
+                map,
+                language.orNull(),
+                session,
+                context.getContextPath(),
+                //////////////////////////////////////////////////////////////
+                // A method that renders i18n messages and can also render
+                // messages with placeholders directly in your template:
+                // E.g.: ${i18n("mykey", myPlaceholderVariable)}
+                //////////////////////////////////////////////////////////////
+                i18nMethods.getUnchecked(language),
+                prettyTimeMethods.getUnchecked(lang.getLocaleFromStringOrDefault(language)),
+                flash);
 
         // Specify the data source where the template files come from.
         // Here I set a file directory for it:
@@ -313,7 +371,7 @@ public class TemplateEngineFreemarker implements TemplateEngine {
 
         try (Writer writer = responseStreams.getWriter()) {
             
-            freemarkerTemplate.process(map, writer);
+            freemarkerTemplate.process(dataModel, writer);
 
         } catch (Exception e) {
             
@@ -326,6 +384,169 @@ public class TemplateEngineFreemarker implements TemplateEngine {
 
     }
 
+    /**
+     * Parses all views/**&#47;*.ftl.html templates on the classpath in
+     * parallel and puts them into the template cache. That way the first
+     * request to a template does not pay for parsing it - and templates with
+     * syntax errors fail the start of the application.
+     *
+     * Enabled by ninja.freemarker.precompile (default: true in prod mode).
+     */
+    @Start(order = 80)
+    public void precompileTemplates() throws Exception {
+
+        if (!precompile) {
+            return;
+        }
+
+        long start = System.nanoTime();
+
+        List<String> templateNames = findTemplates(this.getClass().getClassLoader());
+
+        precompileTemplates(templateNames);
+
+        logger.info("Precompiled {} Freemarker templates in {} ms",
+                templateNames.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+    }
+
+    /**
+     * Parses the templates in parallel.
+     *
+     * @param templateNames Names like /views/ApplicationController/index.ftl.html
+     * @throws Exception The first error of all templates that could not be
+     *          parsed (all errors are logged).
+     */
+    void precompileTemplates(Collection<String> templateNames) throws Exception {
+
+        int threads = Math.max(1, Math.min(
+                templateNames.size(), Runtime.getRuntime().availableProcessors()));
+
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+
+        try {
+
+            List<Future<Template>> futures = new ArrayList<>(templateNames.size());
+
+            for (final String templateName : templateNames) {
+
+                futures.add(executorService.submit(new Callable<Template>() {
+                    @Override
+                    public Template call() throws Exception {
+                        return cfg.getTemplate(templateName);
+                    }
+                }));
+
+            }
+
+            Exception firstError = null;
+            int i = 0;
+
+            for (String templateName : templateNames) {
+
+                try {
+                    futures.get(i++).get();
+                } catch (ExecutionException executionException) {
+
+                    logger.error("Error precompiling Freemarker Template {}",
+                            templateName, executionException.getCause());
+
+                    if (firstError == null) {
+                        firstError = executionException.getCause() instanceof Exception
+                                ? (Exception) executionException.getCause()
+                                : executionException;
+                    }
+
+                }
+
+            }
+
+            if (firstError != null) {
+                throw firstError;
+            }
+
+        } finally {
+            executorService.shutdown();
+        }
+
+    }
+
+    /**
+     * Finds all templates below views/ - in directories as well as in jar
+     * files.
+     *
+     * @return Sorted names like /views/ApplicationController/index.ftl.html
+     */
+    List<String> findTemplates(ClassLoader classLoader) throws IOException {
+
+        final Set<String> templateNames = new TreeSet<>();
+
+        Enumeration<URL> urls = classLoader.getResources(NinjaConstant.VIEWS_DIR);
+
+        while (urls.hasMoreElements()) {
+
+            URL url = urls.nextElement();
+
+            if ("file".equals(url.getProtocol())) {
+
+                final Path viewsDir;
+
+                try {
+                    viewsDir = Paths.get(url.toURI());
+                } catch (URISyntaxException uriSyntaxException) {
+                    throw new IOException(uriSyntaxException);
+                }
+
+                Files.walkFileTree(viewsDir, new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+
+                        String relativePath = viewsDir.relativize(file).toString()
+                                .replace(File.separatorChar, '/');
+
+                        if (relativePath.endsWith(FILE_SUFFIX)) {
+                            templateNames.add(
+                                    "/" + NinjaConstant.VIEWS_DIR + "/" + relativePath);
+                        }
+
+                        return FileVisitResult.CONTINUE;
+
+                    }
+                });
+
+            } else if ("jar".equals(url.getProtocol())) {
+
+                JarURLConnection jarURLConnection = (JarURLConnection) url.openConnection();
+                jarURLConnection.setUseCaches(false);
+
+                try (JarFile jarFile = jarURLConnection.getJarFile()) {
+
+                    Enumeration<JarEntry> entries = jarFile.entries();
+
+                    while (entries.hasMoreElements()) {
+
+                        String name = entries.nextElement().getName();
+
+                        if (name.startsWith(NinjaConstant.VIEWS_DIR + "/")
+                                && name.endsWith(FILE_SUFFIX)) {
+                            templateNames.add("/" + name);
+                        }
+
+                    }
+
+                }
+
+            } else {
+                logger.warn("Cannot search {} for Freemarker templates", url);
+            }
+
+        }
+
+        return new ArrayList<>(templateNames);
+
+    }
+
     @Override
     public String getContentType() {
         return "text/html";
@@ -25,6 +25,7 @@ import ninja.Router;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
+import freemarker.template.SimpleScalar;
 import freemarker.template.TemplateMethodModelEx;
 import freemarker.template.TemplateModel;
 import freemarker.template.TemplateModelException;
@@ -35,13 +36,23 @@ public class TemplateEngineFreemarkerAssetsAtMethod implements
 
     final Router router;
     final TemplateEngineFreemarkerReverseRouteHelper templateEngineFreemarkerReverseRouteHelper;
+    // null if file names are not fingerprinted
+    final AssetsController assetsController;
 
-    @Inject
     public TemplateEngineFreemarkerAssetsAtMethod(
             Router router,
             TemplateEngineFreemarkerReverseRouteHelper templateEngineFreemarkerReverseRouteHelper) {
+        this(router, templateEngineFreemarkerReverseRouteHelper, null);
+    }
+
+    @Inject
+    public TemplateEngineFreemarkerAssetsAtMethod(
+            Router router,
+            TemplateEngineFreemarkerReverseRouteHelper templateEngineFreemarkerReverseRouteHelper,
+            AssetsController assetsController) {
         this.router = router;
         this.templateEngineFreemarkerReverseRouteHelper = templateEngineFreemarkerReverseRouteHelper;
+        this.assetsController = assetsController;
 
     }
 
@@ -52,6 +63,14 @@ public class TemplateEngineFreemarkerAssetsAtMethod implements
        argsWithControllerAndMethod.add("serveStatic");
        argsWithControllerAndMethod.add("fileName");
        argsWithControllerAndMethod.addAll(args);
+
+       // eg. css/app.css => css/app.3f9c1a2b4d5e.css (if enabled)
+       if (assetsController != null
+               && !args.isEmpty()
+               && args.get(0) instanceof SimpleScalar) {
+           argsWithControllerAndMethod.set(3, assetsController.fingerprint(
+                   ((SimpleScalar) args.get(0)).getAsString()));
+       }
        
        return templateEngineFreemarkerReverseRouteHelper.computeReverseRoute(
                argsWithControllerAndMethod);
@@ -0,0 +1,212 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ninja.template;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import ninja.cache.NinjaCache;
+import ninja.utils.NinjaConstant;
+import ninja.utils.NinjaProperties;
+
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.Singleton;
+
+import freemarker.core.Environment;
+import freemarker.template.TemplateBooleanModel;
+import freemarker.template.TemplateDirectiveBody;
+import freemarker.template.TemplateDirectiveModel;
+import freemarker.template.TemplateException;
+import freemarker.template.TemplateHashModel;
+import freemarker.template.TemplateModel;
+import freemarker.template.TemplateModelException;
+import freemarker.template.TemplateScalarModel;
+
+/**
+ * Caches rendered fragments of a template in the {@link NinjaCache}.
+ *
+ * <pre>
+ * &lt;@cache key="navigation" ttl="10mn" varyByLanguage=true varyBySession="username"&gt;
+ *     ... expensive navigation ...
+ * &lt;/@cache&gt;
+ * </pre>
+ *
+ * <ul>
+ * <li>key: Required. Identifies the fragment.</li>
+ * <li>ttl: Time to live like "10s", "3mn" or "8h". Default is one hour.</li>
+ * <li>varyByLanguage: Caches the fragment per language of the request.</li>
+ * <li>varyBySession: Caches the fragment per value of that session key.</li>
+ * </ul>
+ *
+ * In dev mode (or if ninja.freemarker.fragment_cache.enabled is false)
+ * fragments are always rendered.
+ */
+@Singleton
+public class TemplateEngineFreemarkerCacheDirective implements TemplateDirectiveModel {
+
+    static final String KEY_PREFIX = "ninja.freemarker.fragment.";
+
+    static final String DEFAULT_TTL = "1h";
+
+    private final Injector injector;
+
+    private final boolean enabled;
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    // Fetched when a template first uses <@cache>. The directive is shared
+    // with every template, most of which never touch the cache.
+    private volatile NinjaCache ninjaCache;
+
+    @Inject
+    public TemplateEngineFreemarkerCacheDirective(Injector injector,
+                                                  NinjaProperties ninjaProperties) {
+        this.injector = injector;
+        this.enabled = ninjaProperties.getBooleanWithDefault(
+                NinjaConstant.FREEMARKER_FRAGMENT_CACHE_ENABLED,
+                !ninjaProperties.isDev());
+    }
+
+    /**
+     * @return true if fragments are cached.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return Number of fragments served from the cache.
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return Number of fragments that had to be rendered.
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    @Override
+    public void execute(Environment env,
+                        Map params,
+                        TemplateModel[] loopVars,
+                        TemplateDirectiveBody body) throws TemplateException, IOException {
+
+        if (body == null) {
+            return;
+        }
+
+        if (!enabled) {
+            body.render(env.getOut());
+            return;
+        }
+
+        String key = getCacheKey(env, params);
+
+        Object cachedFragment = getNinjaCache().get(key);
+
+        if (cachedFragment instanceof String) {
+
+            hitCount.incrementAndGet();
+            env.getOut().write((String) cachedFragment);
+
+        } else {
+
+            missCount.incrementAndGet();
+
+            StringWriter stringWriter = new StringWriter();
+            body.render(stringWriter);
+            String fragment = stringWriter.toString();
+
+            String ttl = getString(params, "ttl");
+            getNinjaCache().set(key, fragment, ttl != null ? ttl : DEFAULT_TTL);
+
+            env.getOut().write(fragment);
+
+        }
+
+    }
+
+    private String getCacheKey(Environment env, Map params) throws TemplateModelException {
+
+        String key = getString(params, "key");
+
+        if (key == null || key.isEmpty()) {
+            throw new TemplateModelException("The cache directive requires a key.");
+        }
+
+        StringBuilder cacheKey = new StringBuilder(KEY_PREFIX).append(key);
+
+        Object varyByLanguage = params.get("varyByLanguage");
+
+        if (varyByLanguage instanceof TemplateBooleanModel
+                && ((TemplateBooleanModel) varyByLanguage).getAsBoolean()) {
+            cacheKey.append("|lang=").append(
+                    getAsString(env.getDataModel().get("lang")));
+        }
+
+        String varyBySession = getString(params, "varyBySession");
+
+        if (varyBySession != null) {
+
+            TemplateModel session = env.getDataModel().get("session");
+            TemplateModel value = session instanceof TemplateHashModel
+                    ? ((TemplateHashModel) session).get(varyBySession)
+                    : null;
+
+            cacheKey.append("|session=").append(getAsString(value));
+
+        }
+
+        return cacheKey.toString();
+
+    }
+
+    private NinjaCache getNinjaCache() {
+
+        if (ninjaCache == null) {
+            ninjaCache = injector.getInstance(NinjaCache.class);
+        }
+
+        return ninjaCache;
+
+    }
+
+    private static String getString(Map params, String name) throws TemplateModelException {
+        return getAsString((TemplateModel) params.get(name));
+    }
+
+    private static String getAsString(TemplateModel templateModel) throws TemplateModelException {
+
+        if (templateModel instanceof TemplateScalarModel) {
+            return ((TemplateScalarModel) templateModel).getAsString();
+        } else if (templateModel != null) {
+            return templateModel.toString();
+        } else {
+            return null;
+        }
+
+    }
+
+}
@@ -0,0 +1,185 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ninja.template;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import freemarker.template.ObjectWrapper;
+import freemarker.template.SimpleCollection;
+import freemarker.template.TemplateCollectionModel;
+import freemarker.template.TemplateHashModelEx;
+import freemarker.template.TemplateModel;
+import freemarker.template.TemplateModelException;
+
+/**
+ * The root data model of a Freemarker template rendered by Ninja.
+ *
+ * Variables of the framework (lang, session, contextPath, i18n, prettyTime,
+ * flash and the helpers) take precedence over the data rendered by the
+ * controller.
+ * Contrary to copying everything into a new map the data of the controller
+ * is only wrapped when a template reads it. The helpers that are the same
+ * for all requests (reverseRoute, assetsAt and webJarsAt) are shared
+ * variables of the Freemarker configuration.
+ *
+ * Listing the model (e.g. .data_model?keys) returns the variables of the
+ * framework first and then the data of the controller.
+ */
+class TemplateEngineFreemarkerDataModel implements TemplateHashModelEx {
+
+    private final ObjectWrapper objectWrapper;
+
+    private final Map<?, ?> data;
+
+    private final String lang;
+
+    private final TemplateModel session;
+
+    private final String contextPath;
+
+    private final TemplateModel i18n;
+
+    private final TemplateModel prettyTime;
+
+    private final TemplateModel flash;
+
+    TemplateEngineFreemarkerDataModel(ObjectWrapper objectWrapper,
+                                      Map<?, ?> data,
+                                      String lang,
+                                      TemplateModel session,
+                                      String contextPath,
+                                      TemplateModel i18n,
+                                      TemplateModel prettyTime,
+                                      TemplateModel flash) {
+        this.objectWrapper = objectWrapper;
+        this.data = data;
+        this.lang = lang;
+        this.session = session;
+        this.contextPath = contextPath;
+        this.i18n = i18n;
+        this.prettyTime = prettyTime;
+        this.flash = flash;
+    }
+
+    @Override
+    public TemplateModel get(String key) throws TemplateModelException {
+
+        switch (key) {
+            case "lang":
+                if (lang != null) {
+                    return objectWrapper.wrap(lang);
+                }
+                break;
+            case "session":
+                if (session != null) {
+                    return session;
+                }
+                break;
+            case "contextPath":
+                return objectWrapper.wrap(contextPath);
+            case "i18n":
+                return i18n;
+            case "prettyTime":
+                return prettyTime;
+            case "flash":
+                return flash;
+            case "reverseRoute":
+            case "assetsAt":
+            case "webJarsAt":
+                // Shared variables of the configuration. Returning null lets
+                // Freemarker use those - even if the controller rendered
+                // something with that name.
+                return null;
+            default:
+                break;
+        }
+
+        Object value = data.get(key);
+
+        return value != null ? objectWrapper.wrap(value) : null;
+
+    }
+
+    @Override
+    public boolean isEmpty() {
+        // contextPath, i18n, prettyTime and flash are always there
+        return false;
+    }
+
+    @Override
+    public int size() throws TemplateModelException {
+        return getKeys().size();
+    }
+
+    @Override
+    public TemplateCollectionModel keys() throws TemplateModelException {
+        return new SimpleCollection(getKeys(), objectWrapper);
+    }
+
+    @Override
+    public TemplateCollectionModel values() throws TemplateModelException {
+
+        // same order as keys()
+        Set<String> keys = getKeys();
+
+        List<TemplateModel> values = new ArrayList<>(keys.size());
+
+        for (String key : keys) {
+            values.add(get(key));
+        }
+
+        return new SimpleCollection(values, objectWrapper);
+
+    }
+
+    /**
+     * @return The keys get(String) returns a value for.
+     */
+    private Set<String> getKeys() throws TemplateModelException {
+
+        Set<String> keys = new LinkedHashSet<>();
+
+        if (lang != null) {
+            keys.add("lang");
+        }
+
+        if (session != null) {
+            keys.add("session");
+        }
+
+        keys.add("contextPath");
+        keys.add("i18n");
+        keys.add("prettyTime");
+        keys.add("flash");
+
+        for (Object key : data.keySet()) {
+
+            if (key instanceof String && get((String) key) != null) {
+                keys.add((String) key);
+            }
+
+        }
+
+        return keys;
+
+    }
+
+}
@@ -43,6 +43,7 @@ public class TemplateEngineFreemarkerI18nMethod implements
     final Messages messages;
     final Context context;
     final Optional<Result> result;
+    final Optional<String> language;
 
     public TemplateEngineFreemarkerI18nMethod(Messages messages,
                                               Context context,
@@ -50,6 +51,23 @@ public class TemplateEngineFreemarkerI18nMethod implements
         this.messages = messages;
         this.context = context;
         this.result = Optional.of(result);
+        this.language = null;
+
+    }
+
+    /**
+     * Translates into a fixed language. Such an instance does not depend on
+     * the request and can be shared by all requests with that language.
+     *
+     * @param messages The messages.
+     * @param language The language as determined by {@link ninja.i18n.Lang}.
+     */
+    public TemplateEngineFreemarkerI18nMethod(Messages messages,
+                                              Optional<String> language) {
+        this.messages = messages;
+        this.context = null;
+        this.result = Optional.absent();
+        this.language = language;
 
     }
 
@@ -59,9 +77,7 @@ public class TemplateEngineFreemarkerI18nMethod implements
             
             String messageKey = ((SimpleScalar) args.get(0)).getAsString();
 
-            String messageValue = messages
-                    .get(messageKey, context, result)
-                    .or(messageKey);
+            String messageValue = getMessage(messageKey).or(messageKey);
             
             logIfMessageKeyIsMissing(messageKey, messageValue);
             
@@ -86,10 +102,8 @@ public class TemplateEngineFreemarkerI18nMethod implements
             String messageKey = strings.get(0);
 
             String messageValue 
-                    = messages.get(
+                    = getMessage(
                             messageKey,
-                            context, 
-                            result, 
                             strings.subList(1, strings.size()).toArray())
                     .or(messageKey);
             
@@ -104,6 +118,16 @@ public class TemplateEngineFreemarkerI18nMethod implements
 
     }
     
+    private Optional<String> getMessage(String messageKey, Object... parameter) {
+
+        if (language != null) {
+            return messages.get(messageKey, language, parameter);
+        } else {
+            return messages.get(messageKey, context, result, parameter);
+        }
+
+    }
+
     public void logIfMessageKeyIsMissing(
             String messageKey,
             String messageValue) {
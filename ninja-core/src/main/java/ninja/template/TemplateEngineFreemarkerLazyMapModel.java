@@ -0,0 +1,110 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ninja.template;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Function;
+
+import freemarker.template.ObjectWrapper;
+import freemarker.template.SimpleCollection;
+import freemarker.template.SimpleScalar;
+import freemarker.template.TemplateCollectionModel;
+import freemarker.template.TemplateHashModelEx;
+import freemarker.template.TemplateModel;
+
+/**
+ * Exposes a map of strings (the flash scope or the session) to Freemarker.
+ *
+ * The values are converted by the given function only when a template
+ * actually reads them - and only once per key. That way flash messages are
+ * only translated if they are displayed.
+ */
+class TemplateEngineFreemarkerLazyMapModel implements TemplateHashModelEx {
+
+    private final ObjectWrapper objectWrapper;
+
+    private final Map<String, String> data;
+
+    private final Function<String, String> valueFunction;
+
+    private Map<String, TemplateModel> convertedValues;
+
+    TemplateEngineFreemarkerLazyMapModel(ObjectWrapper objectWrapper,
+                                         Map<String, String> data,
+                                         Function<String, String> valueFunction) {
+        this.objectWrapper = objectWrapper;
+        this.data = data;
+        this.valueFunction = valueFunction;
+    }
+
+    @Override
+    public TemplateModel get(String key) {
+
+        if (convertedValues != null && convertedValues.containsKey(key)) {
+            return convertedValues.get(key);
+        }
+
+        String value = data.get(key);
+
+        TemplateModel convertedValue = value != null
+                ? new SimpleScalar(valueFunction.apply(value))
+                : null;
+
+        if (convertedValues == null) {
+            convertedValues = new HashMap<>();
+        }
+
+        convertedValues.put(key, convertedValue);
+
+        return convertedValue;
+
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return data.isEmpty();
+    }
+
+    @Override
+    public int size() {
+        return data.size();
+    }
+
+    @Override
+    public TemplateCollectionModel keys() {
+        return new SimpleCollection(data.keySet(), objectWrapper);
+    }
+
+    @Override
+    public TemplateCollectionModel values() {
+
+        // same order as keys()
+        List<TemplateModel> values = new ArrayList<>(data.size());
+
+        for (String key : data.keySet()) {
+            values.add(get(key));
+        }
+
+        return new SimpleCollection(values, objectWrapper);
+
+    }
+
+}
@@ -55,7 +55,12 @@ public class TemplateEngineFreemarkerPrettyTimeMethod implements
 
         Date date = getFormattableObject(args.get(0));
 
-        String result = prettyTime.format(date);
+        String result;
+
+        // Instances are cached per locale and shared by all requests
+        synchronized (prettyTime) {
+            result = prettyTime.format(date);
+        }
 
         return new SimpleScalar(result);
 
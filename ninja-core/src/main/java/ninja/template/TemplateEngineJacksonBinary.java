@@ -0,0 +1,106 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ninja.template;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import ninja.Context;
+import ninja.Result;
+import ninja.utils.ResponseStreams;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Base class of template engines for binary Jackson data formats like Smile,
+ * CBOR or MessagePack. Those are more compact and faster to parse than Json.
+ *
+ * Renders exactly like {@link TemplateEngineJson} - including json views and
+ * streaming of lazy renderables - but uses the ObjectMapper of the data
+ * format. A Smile engine only needs jackson-dataformat-smile and a binding
+ * in conf.Module:
+ *
+ * <pre>
+ * &#064;Singleton
+ * public class TemplateEngineSmile extends TemplateEngineJacksonBinary {
+ *
+ *     &#064;Inject
+ *     public TemplateEngineSmile(ObjectMapperProvider objectMapperProvider) {
+ *         super(objectMapperProvider.get(new SmileFactory()), Result.APPLICATION_SMILE);
+ *     }
+ *
+ * }
+ * </pre>
+ */
+public abstract class TemplateEngineJacksonBinary implements TemplateEngine {
+
+    private final Logger logger = LoggerFactory.getLogger(TemplateEngineJacksonBinary.class);
+
+    private final JsonObjectWriters jsonObjectWriters;
+
+    private final String contentType;
+
+    /**
+     * @param objectMapper The ObjectMapper of the data format. Use
+     *                     ObjectMapperProvider.get(JsonFactory) to configure
+     *                     it like the one for Json.
+     * @param contentType The content type rendered by this engine.
+     */
+    protected TemplateEngineJacksonBinary(ObjectMapper objectMapper,
+                                          String contentType) {
+
+        this.jsonObjectWriters = new JsonObjectWriters(objectMapper);
+        this.contentType = contentType;
+
+    }
+
+    @Override
+    public void invoke(Context context, Result result) {
+
+        // binary content has no charset
+        result.charset(null);
+
+        ResponseStreams responseStreams = context.finalizeHeaders(result);
+
+        try (OutputStream outputStream = responseStreams.getOutputStream()) {
+
+            jsonObjectWriters.writeValue(
+                    outputStream, result.getRenderable(), result.getJsonView(), null);
+
+        } catch (IOException e) {
+
+            logger.error("Error while rendering " + contentType, e);
+        }
+
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public String getSuffixOfTemplatingEngine() {
+        // intentionally returns null...
+        return null;
+    }
+
+}
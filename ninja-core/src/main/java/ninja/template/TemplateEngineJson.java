@@ -21,6 +21,8 @@ import java.io.OutputStream;
 
 import ninja.Context;
 import ninja.Result;
+import ninja.utils.NinjaConstant;
+import ninja.utils.NinjaProperties;
 import ninja.utils.ResponseStreams;
 
 import org.slf4j.Logger;
@@ -35,15 +37,50 @@ public class TemplateEngineJson implements TemplateEngine {
 
     private final Logger logger = LoggerFactory.getLogger(TemplateEngineJson.class);
 
-    private final ObjectMapper objectMapper;
+    private final JsonObjectWriters jsonObjectWriters;
 
-    @Inject
+    // null if sparse fieldsets are disabled
+    private final JsonSparseFieldsets jsonSparseFieldsets;
+
+    private final String sparseFieldsetsParameter;
+
+    /**
+     * Creates an engine with sparse fieldsets disabled.
+     */
     public TemplateEngineJson(ObjectMapper objectMapper) {
+
+        this.jsonObjectWriters = new JsonObjectWriters(objectMapper);
+        this.jsonSparseFieldsets = null;
+        this.sparseFieldsetsParameter = NinjaConstant.JSON_SPARSE_FIELDSETS_PARAMETER_DEFAULT;
+
+    }
+
+    @Inject
+    public TemplateEngineJson(ObjectMapper objectMapper,
+                              NinjaProperties ninjaProperties) {
         
-        this.objectMapper = objectMapper;
+        this.jsonObjectWriters = new JsonObjectWriters(objectMapper);
+
+        this.jsonSparseFieldsets = ninjaProperties.getBooleanWithDefault(
+                NinjaConstant.JSON_SPARSE_FIELDSETS_ENABLED,
+                NinjaConstant.JSON_SPARSE_FIELDSETS_ENABLED_DEFAULT)
+                ? new JsonSparseFieldsets(objectMapper)
+                : null;
+
+        this.sparseFieldsetsParameter = ninjaProperties.getWithDefault(
+                NinjaConstant.JSON_SPARSE_FIELDSETS_PARAMETER,
+                NinjaConstant.JSON_SPARSE_FIELDSETS_PARAMETER_DEFAULT);
         
     }
 
+    /**
+     * @return true if clients can select the rendered properties via query
+     *         parameter. The output then depends on the request.
+     */
+    public boolean isSparseFieldsetsEnabled() {
+        return jsonSparseFieldsets != null;
+    }
+
     @Override
     public void invoke(Context context, Result result) {
 
@@ -51,7 +88,24 @@ public class TemplateEngineJson implements TemplateEngine {
         
         try (OutputStream outputStream  = responseStreams.getOutputStream()) {
             
-            objectMapper.writeValue(outputStream, result.getRenderable());
+            String fields = jsonSparseFieldsets != null
+                    ? context.getParameter(sparseFieldsetsParameter)
+                    : null;
+
+            if (fields == null || fields.trim().isEmpty()) {
+
+                jsonObjectWriters.writeValue(
+                        outputStream, result.getRenderable(), result.getJsonView(), null);
+
+            } else {
+
+                jsonSparseFieldsets.getJsonObjectWriters().writeValue(
+                        outputStream,
+                        result.getRenderable(),
+                        result.getJsonView(),
+                        jsonSparseFieldsets.getFilterProvider(fields));
+
+            }
             
         } catch (IOException e) {
 
@@ -58,14 +58,14 @@ public class TemplateEngineJsonP implements TemplateEngine {
     static final Pattern CALLBACK_SECURITY_VALIDATION_REGEXP
             = Pattern.compile("^([a-zA-Z$_]{1}[a-zA-Z0-9$_.]*[a-zA-Z0-9$_]{1}){1,}$");
 
-    private final ObjectMapper objectMapper;
+    private final JsonObjectWriters jsonObjectWriters;
 
     private final String callbackParameterName;
 
     @Inject
     public TemplateEngineJsonP(ObjectMapper objectMapper, NinjaProperties properties) {
 
-        this.objectMapper = objectMapper;
+        this.jsonObjectWriters = new JsonObjectWriters(objectMapper);
         this.callbackParameterName = properties.getWithDefault(
                 NinjaConstant.NINJA_JSONP_CALLBACK_PARAMETER,
                 DEFAULT_CALLBACK_PARAMETER_NAME);
@@ -76,7 +76,10 @@ public class TemplateEngineJsonP implements TemplateEngine {
         ResponseStreams responseStreams = context.finalizeHeaders(result);
         String callback = getCallbackName(context);
         try (OutputStream outputStream = responseStreams.getOutputStream()) {
-            objectMapper.writeValue(outputStream, new JSONPObject(callback, result.getRenderable()));
+            // the renderable is wrapped - so the writer is cached per view only
+            jsonObjectWriters
+                    .get(null, result.getJsonView())
+                    .writeValue(outputStream, new JSONPObject(callback, result.getRenderable()));
         } catch (IOException e) {
             logger.error("Error while rendering jsonp.", e);
         }
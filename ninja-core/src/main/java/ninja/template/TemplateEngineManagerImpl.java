@@ -34,6 +34,7 @@ import com.google.inject.Inject;
 import com.google.inject.Injector;
 import com.google.inject.Key;
 import com.google.inject.Provider;
+import com.google.inject.Scopes;
 import com.google.inject.Singleton;
 
 @Singleton
@@ -46,12 +47,17 @@ public class TemplateEngineManagerImpl implements TemplateEngineManager {
     // to be singleton if they don't want
     private final Map<String, Provider<? extends TemplateEngine>> contentTypeToTemplateEngineMap;
 
+    // Singleton template engines are resolved once - so that rendering does
+    // not have to go through the providers for each request.
+    private final Map<String, TemplateEngine> contentTypeToSingletonTemplateEngineMap;
+
     @Inject
     public TemplateEngineManagerImpl(Provider<TemplateEngineFreemarker> templateEngineFreemarker,
                                      Provider<TemplateEngineJson> templateEngineJson,
                                      Provider<TemplateEngineJsonP> templateEngineJsonP,
                                      Provider<TemplateEngineXml> templateEngineXmlProvider,
                                      Provider<TemplateEngineText> templateEngineTextProvider,
+                                     Provider<TemplateEngineCsv> templateEngineCsvProvider,
                                      Injector injector) {
 
         Map<String, Provider<? extends TemplateEngine>> map = new HashMap<String, Provider<? extends TemplateEngine>>();
@@ -68,6 +74,8 @@ public class TemplateEngineManagerImpl implements TemplateEngineManager {
                 templateEngineXmlProvider);
         map.put(templateEngineTextProvider.get().getContentType(),
                 templateEngineTextProvider);
+        map.put(templateEngineCsvProvider.get().getContentType(),
+                templateEngineCsvProvider);
 
         // Now lookup all explicit bindings, and find the ones that implement
         // TemplateEngine
@@ -83,6 +91,20 @@ public class TemplateEngineManagerImpl implements TemplateEngineManager {
 
         this.contentTypeToTemplateEngineMap = ImmutableMap.copyOf(map);
 
+        Map<String, TemplateEngine> singletons = new HashMap<String, TemplateEngine>();
+
+        for (Map.Entry<String, Provider<? extends TemplateEngine>> entry : map.entrySet()) {
+
+            TemplateEngine templateEngine = entry.getValue().get();
+
+            if (isSingleton(templateEngine.getClass(), injector)) {
+                singletons.put(entry.getKey(), templateEngine);
+            }
+
+        }
+
+        this.contentTypeToSingletonTemplateEngineMap = ImmutableMap.copyOf(singletons);
+
         logTemplateEngines();
     }
 
@@ -93,6 +115,13 @@ public class TemplateEngineManagerImpl implements TemplateEngineManager {
 
     @Override
     public TemplateEngine getTemplateEngineForContentType(String contentType) {
+        TemplateEngine templateEngine = contentTypeToSingletonTemplateEngineMap
+                .get(contentType);
+
+        if (templateEngine != null) {
+            return templateEngine;
+        }
+
         Provider<? extends TemplateEngine> provider = contentTypeToTemplateEngineMap
                 .get(contentType);
 
@@ -103,6 +132,15 @@ public class TemplateEngineManagerImpl implements TemplateEngineManager {
         }
     }
 
+    private boolean isSingleton(Class<? extends TemplateEngine> templateEngineClass,
+                                Injector injector) {
+
+        Binding<?> binding = injector.getExistingBinding(Key.get(templateEngineClass));
+
+        return binding != null && Scopes.isSingleton(binding);
+
+    }
+
     protected void logTemplateEngines() {
         List<String> outputTypes = Lists.newArrayList(getContentTypes());
         Collections.sort(outputTypes);
@@ -18,17 +18,23 @@ package ninja.template;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Iterator;
 
 import javax.inject.Singleton;
+import javax.xml.namespace.QName;
 
 import ninja.Context;
 import ninja.Result;
 import ninja.utils.ResponseStreams;
+import ninja.utils.StreamingRenderables;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import com.fasterxml.jackson.dataformat.xml.ser.ToXmlGenerator;
 import com.google.inject.Inject;
 
 @Singleton
@@ -36,12 +42,22 @@ public class TemplateEngineXml implements TemplateEngine {
 
     private static final Logger logger = LoggerFactory.getLogger(TemplateEngineXml.class);
     
+    // root element of streamed elements. Each element is an <item>
+    // like Jackson does for collections.
+    static final QName ROOT_ELEMENT_NAME = new QName("List");
+
+    static final String ELEMENT_NAME = "item";
+
     private final XmlMapper xmlMapper;
 
+    private final ObjectWriter elementWriter;
+
     @Inject
     public TemplateEngineXml(XmlMapper xmlMapper) {
 
         this.xmlMapper = xmlMapper;
+        this.elementWriter = xmlMapper.writer()
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
     }
 
     @Override
@@ -52,7 +68,13 @@ public class TemplateEngineXml implements TemplateEngine {
         
         try (OutputStream outputStream = responseStreams.getOutputStream()) {
             
-                xmlMapper.writeValue(outputStream, result.getRenderable());
+                Object renderable = result.getRenderable();
+
+                if (StreamingRenderables.isLazy(renderable)) {
+                    writeElements(outputStream, renderable);
+                } else {
+                    xmlMapper.writeValue(outputStream, renderable);
+                }
             
         } catch (IOException e) {
 
@@ -62,6 +84,38 @@ public class TemplateEngineXml implements TemplateEngine {
 
     }
 
+    /**
+     * Streams the elements of a lazy renderable. The response is flushed
+     * every {@link StreamingRenderables#FLUSH_INTERVAL} elements.
+     */
+    private void writeElements(OutputStream outputStream,
+                               Object renderable) throws IOException {
+
+        try (ToXmlGenerator xmlGenerator = (ToXmlGenerator) xmlMapper.getFactory()
+                .createGenerator(outputStream)) {
+
+            xmlGenerator.setNextName(ROOT_ELEMENT_NAME);
+            xmlGenerator.writeStartObject();
+
+            Iterator<?> elements = StreamingRenderables.iterator(renderable);
+
+            for (int count = 1; elements.hasNext(); count++) {
+
+                xmlGenerator.writeFieldName(ELEMENT_NAME);
+                elementWriter.writeValue(xmlGenerator, elements.next());
+
+                if (count % StreamingRenderables.FLUSH_INTERVAL == 0) {
+                    xmlGenerator.flush();
+                }
+
+            }
+
+            xmlGenerator.writeEndObject();
+
+        }
+
+    }
+
     @Override
     public String getContentType() {
         return Result.APPLICATION_XML;
@@ -0,0 +1,134 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ninja.utils;
+
+import ninja.Result;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Settings and helpers for ETags that are calculated from the rendered body
+ * of a response.
+ *
+ * The body is hashed while it is rendered. The hash becomes the ETag of the
+ * response. If the client sent a matching If-None-Match header a
+ * 304 Not Modified is sent instead of the body.
+ *
+ * Results that already carry an ETag (set by the controller) do not get an
+ * automatic one.
+ */
+@Singleton
+public class AutomaticETags {
+
+    private final HashFunction hashFunction = Hashing.murmur3_128();
+
+    private final boolean enabled;
+
+    private final boolean weak;
+
+    private final int maxSize;
+
+    @Inject
+    public AutomaticETags(NinjaProperties ninjaProperties) {
+
+        this.enabled = ninjaProperties.getBooleanWithDefault(
+                NinjaConstant.RESPONSE_ETAG_ENABLED,
+                NinjaConstant.RESPONSE_ETAG_ENABLED_DEFAULT);
+
+        this.weak = ninjaProperties.getBooleanWithDefault(
+                NinjaConstant.RESPONSE_ETAG_WEAK,
+                NinjaConstant.RESPONSE_ETAG_WEAK_DEFAULT);
+
+        this.maxSize = ninjaProperties.getIntegerWithDefault(
+                NinjaConstant.RESPONSE_ETAG_MAX_SIZE_IN_BYTES,
+                NinjaConstant.RESPONSE_ETAG_MAX_SIZE_IN_BYTES_DEFAULT);
+
+    }
+
+    /**
+     * @return true if automatic ETags are enabled.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return Bodies larger than this are streamed without an ETag.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @param httpMethod The method of the request.
+     * @param result The result about to be rendered.
+     * @return true if the rendered body of that result should get an ETag.
+     */
+    public boolean appliesTo(String httpMethod, Result result) {
+
+        return enabled
+                && ("GET".equalsIgnoreCase(httpMethod)
+                    || "HEAD".equalsIgnoreCase(httpMethod))
+                && result.getStatusCode() == Result.SC_200_OK
+                && !result.getHeaders().containsKey(HttpHeaderConstants.ETAG);
+
+    }
+
+    /**
+     * @return A hasher to feed the rendered body into.
+     */
+    public Hasher newHasher() {
+        return hashFunction.newHasher();
+    }
+
+    /**
+     * @param hashCode The hash of the rendered body.
+     * @return The ETag including quotes (and the weak indicator).
+     */
+    public String toETag(HashCode hashCode) {
+        return toETag(hashCode, null);
+    }
+
+    /**
+     * A strong ETag identifies the exact bytes sent. The compressed and the
+     * uncompressed body therefore get different strong ETags (RFC 7232).
+     * Weak ETags stay the same for all encodings.
+     *
+     * @param hashCode The hash of the rendered (uncompressed) body.
+     * @param contentEncoding The content encoding of the response or null.
+     * @return The ETag including quotes (and the weak indicator).
+     */
+    public String toETag(HashCode hashCode, String contentEncoding) {
+
+        if (weak) {
+            return "W/\"" + hashCode.toString() + "\"";
+        }
+
+        if (contentEncoding != null) {
+            return "\"" + hashCode.toString() + "-" + contentEncoding + "\"";
+        }
+
+        return "\"" + hashCode.toString() + "\"";
+
+    }
+
+}
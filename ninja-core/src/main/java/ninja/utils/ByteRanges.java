@@ -0,0 +1,221 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ninja.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Parses the Range and If-Range headers of requests for parts of a
+ * response (RFC 7233). Only byte ranges are supported.
+ */
+public final class ByteRanges {
+
+    /**
+     * Requests for more ranges are answered with the complete body.
+     * Protects against requests for thousands of tiny ranges.
+     */
+    public static final int MAX_RANGES = 16;
+
+    private static final String BYTES_UNIT = "bytes=";
+
+    private ByteRanges() {
+    }
+
+    /**
+     * A range of bytes. Start and end are inclusive.
+     */
+    public static class ByteRange {
+
+        public final long start;
+
+        public final long end;
+
+        public ByteRange(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        public long length() {
+            return end - start + 1;
+        }
+
+        /**
+         * @param totalLength The length of the complete body.
+         * @return The value of the Content-Range header for this range.
+         */
+        public String toContentRange(long totalLength) {
+            return "bytes " + start + "-" + end + "/" + totalLength;
+        }
+
+    }
+
+    /**
+     * Parses a Range header. Overlapping and adjacent ranges are merged and
+     * the ranges are sorted by their start.
+     *
+     * @param range The Range header of the request. May be null.
+     * @param length The length of the complete body.
+     * @return null if the header is absent, malformed or requests too many
+     *         ranges - the complete body should be sent. An empty list if
+     *         none of the ranges is satisfiable (416).
+     */
+    public static List<ByteRange> parse(String range, long length) {
+
+        if (range == null
+                || !range.trim().toLowerCase(Locale.ENGLISH).startsWith(BYTES_UNIT)) {
+            return null;
+        }
+
+        String [] specs = range.trim().substring(BYTES_UNIT.length()).split(",");
+
+        if (specs.length > MAX_RANGES) {
+            return null;
+        }
+
+        List<ByteRange> byteRanges = new ArrayList<>();
+
+        for (String spec : specs) {
+
+            spec = spec.trim();
+
+            int dash = spec.indexOf('-');
+
+            if (dash < 0) {
+                return null;
+            }
+
+            long first;
+            long last;
+
+            try {
+
+                first = dash > 0 ? Long.parseLong(spec.substring(0, dash)) : -1;
+                last = dash < spec.length() - 1 ? Long.parseLong(spec.substring(dash + 1)) : -1;
+
+            } catch (NumberFormatException e) {
+                return null;
+            }
+
+            if (first < 0 && last < 0 || first >= 0 && last >= 0 && last < first) {
+                return null;
+            }
+
+            if (first < 0) {
+
+                // suffix range: the last n bytes
+                if (last > 0 && length > 0) {
+                    byteRanges.add(new ByteRange(Math.max(0, length - last), length - 1));
+                }
+
+            } else if (first < length) {
+
+                byteRanges.add(new ByteRange(
+                        first,
+                        last < 0 ? length - 1 : Math.min(last, length - 1)));
+
+            }
+
+        }
+
+        return merge(byteRanges);
+
+    }
+
+    /**
+     * @param ifRange The If-Range header of the request. May be null.
+     * @param etag The ETag of the response. May be null.
+     * @param lastModified The last modification of the response in
+     *                     milliseconds. 0 if unknown.
+     * @return true if the requested ranges may be sent. Otherwise the
+     *         complete body has to be sent as the client has an outdated
+     *         version.
+     */
+    public static boolean ifRangeMatches(String ifRange, String etag, long lastModified) {
+
+        if (ifRange == null) {
+            return true;
+        }
+
+        ifRange = ifRange.trim();
+
+        if (ifRange.startsWith("W/")) {
+            // weak ETags never match
+            return false;
+        }
+
+        if (ifRange.startsWith("\"")) {
+            return etag != null && !etag.startsWith("W/") && etag.equals(ifRange);
+        }
+
+        if (lastModified <= 0) {
+            return false;
+        }
+
+        try {
+
+            // http dates have a precision of one second
+            return DateUtil.parseHttpDateFormat(ifRange).getTime()
+                    == lastModified / 1000 * 1000;
+
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+
+    }
+
+    private static List<ByteRange> merge(List<ByteRange> byteRanges) {
+
+        if (byteRanges.size() < 2) {
+            return byteRanges;
+        }
+
+        Collections.sort(byteRanges, new Comparator<ByteRange>() {
+
+            @Override
+            public int compare(ByteRange a, ByteRange b) {
+                return Long.compare(a.start, b.start);
+            }
+
+        });
+
+        List<ByteRange> merged = new ArrayList<>();
+
+        ByteRange current = byteRanges.get(0);
+
+        for (ByteRange next : byteRanges.subList(1, byteRanges.size())) {
+
+            if (next.start <= current.end + 1) {
+                current = new ByteRange(current.start, Math.max(current.end, next.end));
+            } else {
+                merged.add(current);
+                current = next;
+            }
+
+        }
+
+        merged.add(current);
+
+        return merged;
+
+    }
+
+}
@@ -19,6 +19,7 @@ package ninja.utils;
 import java.text.ParseException;
 import java.util.Date;
 import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
@@ -33,6 +34,20 @@ public class DateUtil {
             .withLocale(Locale.US)
             .withZone(DateTimeZone.UTC);
     
+    private static final String [] MONTHS = {
+        "Jan", "Feb", "Mar", "Apr", "May", "Jun",
+        "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"};
+    
+    private static final int [] DAYS_IN_MONTH = {
+        31, 29, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+    
+    // Formatted dates per second. The Date header of every response and the
+    // Last-Modified headers of assets hit the same few seconds over and over.
+    private static final int FORMATTED_DATES_SIZE = 64;
+    
+    private static final AtomicReferenceArray<FormattedDate> formattedDates
+            = new AtomicReferenceArray<>(FORMATTED_DATES_SIZE);
+    
     /**
      * Can be used to format a date into http header compatible 
      * strings.
@@ -61,7 +76,24 @@ public class DateUtil {
      */
     public static String formatForHttpHeader(Long unixTime) {
         
-        return RFC1123_DATE_FORMAT.print(new DateTime(unixTime));
+        if (unixTime == null || unixTime < 0) {
+            return RFC1123_DATE_FORMAT.print(new DateTime(unixTime));
+        }
+        
+        // http dates have a precision of one second
+        long second = unixTime / 1000;
+        int slot = (int) (second % FORMATTED_DATES_SIZE);
+        
+        FormattedDate formattedDate = formattedDates.get(slot);
+        
+        if (formattedDate == null || formattedDate.second != second) {
+            formattedDate = new FormattedDate(
+                    second, RFC1123_DATE_FORMAT.print(new DateTime(second * 1000)));
+            formattedDates.set(slot, formattedDate);
+        }
+        
+        return formattedDate.value;
+        
     }
     
     
@@ -94,5 +126,116 @@ public class DateUtil {
         return RFC1123_DATE_FORMAT.parseDateTime(httpDateFormat);
 
     }
+    
+    /**
+     * Parses http times like {@link #parseHttpDateFormat(String)} but without
+     * creating any objects for the usual "Tue, 26 Mar 2013 13:47:13 GMT".
+     * Used for conditional request headers like If-Modified-Since.
+     * 
+     * @param httpDateFormat in http format: Tue, 26 Mar 2013 13:47:13 GMT
+     * @return The milliseconds since the epoch.
+     * @throws IllegalArgumentException If the date cannot be parsed.
+     */
+    public static long parseHttpDateFormatToMillis(String httpDateFormat) throws IllegalArgumentException {
+        
+        long millis = parseRfc1123(httpDateFormat);
+        
+        if (millis == Long.MIN_VALUE) {
+            // unusual spelling - let Joda decide
+            return parseHttpDateFormatToDateTime(httpDateFormat).getMillis();
+        }
+        
+        return millis;
+        
+    }
+    
+    /**
+     * @return The milliseconds or Long.MIN_VALUE if httpDate is not exactly
+     *         in the format "EEE, dd MMM yyyy HH:mm:ss GMT".
+     */
+    private static long parseRfc1123(String httpDate) {
+        
+        if (httpDate.length() != 29
+                || httpDate.charAt(3) != ','
+                || httpDate.charAt(4) != ' '
+                || httpDate.charAt(7) != ' '
+                || httpDate.charAt(11) != ' '
+                || httpDate.charAt(16) != ' '
+                || httpDate.charAt(19) != ':'
+                || httpDate.charAt(22) != ':'
+                || !httpDate.endsWith(" GMT")) {
+            return Long.MIN_VALUE;
+        }
+        
+        int day = parseDigits(httpDate, 5, 2);
+        int year = parseDigits(httpDate, 12, 4);
+        int hour = parseDigits(httpDate, 17, 2);
+        int minute = parseDigits(httpDate, 20, 2);
+        int second = parseDigits(httpDate, 23, 2);
+        
+        int month = -1;
+        
+        for (int i = 0; i < MONTHS.length; i++) {
+            if (httpDate.regionMatches(8, MONTHS[i], 0, 3)) {
+                month = i + 1;
+                break;
+            }
+        }
+        
+        if (day < 1 || year < 0 || hour < 0 || minute < 0 || second < 0 || month < 0
+                || day > DAYS_IN_MONTH[month - 1]
+                || (month == 2 && day == 29 && !isLeapYear(year))
+                || hour > 23 || minute > 59 || second > 59) {
+            return Long.MIN_VALUE;
+        }
+        
+        // days since the epoch of the proleptic gregorian calendar
+        int y = month <= 2 ? year - 1 : year;
+        int era = y / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        long days = era * 146097L + dayOfEra - 719468;
+        
+        return ((days * 24 + hour) * 60 + minute) * 60000L + second * 1000L;
+        
+    }
+    
+    private static int parseDigits(String s, int start, int length) {
+        
+        int value = 0;
+        
+        for (int i = start; i < start + length; i++) {
+            
+            char c = s.charAt(i);
+            
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            
+            value = value * 10 + (c - '0');
+            
+        }
+        
+        return value;
+        
+    }
+    
+    private static boolean isLeapYear(int year) {
+        return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+    }
+    
+    private static final class FormattedDate {
+        
+        final long second;
+        
+        final String value;
+        
+        FormattedDate(long second, String value) {
+            this.second = second;
+            this.value = value;
+        }
+        
+    }
 
 }
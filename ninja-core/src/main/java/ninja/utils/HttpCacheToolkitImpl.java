@@ -21,8 +21,6 @@ import static ninja.utils.NinjaConstant.HTTP_CACHE_CONTROL_DEFAULT;
 import static ninja.utils.NinjaConstant.HTTP_USE_ETAG;
 import static ninja.utils.NinjaConstant.HTTP_USE_ETAG_DEFAULT;
 
-import java.util.Date;
-
 import ninja.Context;
 import ninja.Result;
 
@@ -31,16 +29,41 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Optional;
 import com.google.inject.Inject;
+import com.google.inject.Singleton;
 
+/**
+ * Cache-Control, ETag and Last-Modified headers for responses that may be
+ * answered with 304 Not Modified.
+ * 
+ * The settings are read once. If-None-Match may contain a list of ETags
+ * that are compared weakly. If-None-Match takes precedence over
+ * If-Modified-Since.
+ */
+@Singleton
 public class HttpCacheToolkitImpl implements HttpCacheToolkit {
     
     private static final Logger logger = LoggerFactory.getLogger(HttpCacheToolkitImpl.class);
     
-    private final NinjaProperties ninjaProperties;
+    private final boolean useEtag;
+    
+    private final String cacheControl;
     
     @Inject
     public HttpCacheToolkitImpl(NinjaProperties ninjaProperties) {
-        this.ninjaProperties = ninjaProperties;
+        
+        this.useEtag = ninjaProperties.getBooleanWithDefault(
+                HTTP_USE_ETAG,
+                HTTP_USE_ETAG_DEFAULT);
+        
+        String maxAge = ninjaProperties.getWithDefault(
+                HTTP_CACHE_CONTROL,
+                HTTP_CACHE_CONTROL_DEFAULT);
+        
+        if (!ninjaProperties.isProd() || maxAge == null || maxAge.equals("0")) {
+            this.cacheControl = "no-cache";
+        } else {
+            this.cacheControl = "max-age=" + maxAge;
+        }
         
     }
 
@@ -49,11 +72,7 @@ public class HttpCacheToolkitImpl implements HttpCacheToolkit {
         final String browserEtag = context.getHeader(HttpHeaderConstants.IF_NONE_MATCH);
 
         if (browserEtag != null && etag.isPresent()) {
-            if (browserEtag.equals(etag.get())) {
-                return false;
-            } else {
-                return true;
-            }
+            return !HttpHeaderUtils.ifNoneMatchMatches(browserEtag, etag.get());
         }
 
         final String ifModifiedSince = context.getHeader(HttpHeaderConstants.IF_MODIFIED_SINCE);
@@ -62,9 +81,8 @@ public class HttpCacheToolkitImpl implements HttpCacheToolkit {
 
             if (!ifModifiedSince.isEmpty()) {
                 try {
-                    Date browserDate = DateUtil
-                            .parseHttpDateFormat(ifModifiedSince);
-                    if (browserDate.getTime() >= lastModified.get()) {
+                    long browserDate = DateUtil.parseHttpDateFormatToMillis(ifModifiedSince);
+                    if (browserDate >= lastModified.get()) {
                         return false;
                     }
                 } catch (IllegalArgumentException ex) {
@@ -78,47 +96,45 @@ public class HttpCacheToolkitImpl implements HttpCacheToolkit {
 
     public void addEtag(Context context, Result result, Long lastModified) {
 
-        if (!ninjaProperties.isProd()) {
-            result.addHeader(HttpHeaderConstants.CACHE_CONTROL, "no-cache");
-        } else {
-            String maxAge = ninjaProperties.getWithDefault(HTTP_CACHE_CONTROL,
-                    HTTP_CACHE_CONTROL_DEFAULT);
+        // ETag right now is only lastModified long.
+        addEtag(context, result, "\"" + lastModified.toString() + "\"", lastModified);
 
-            if (maxAge.equals("0")) {
-                result.addHeader(HttpHeaderConstants.CACHE_CONTROL, "no-cache");
-            } else {
-                result.addHeader(HttpHeaderConstants.CACHE_CONTROL, "max-age=" + maxAge);
-            }
-        }
+    }
+
+    /**
+     * Adds the given etag (if etags are enabled) and the caching headers to
+     * the result. Sets the status to 304 Not Modified if the client already
+     * has that version.
+     *
+     * Not part of {@link HttpCacheToolkit} - custom toolkits keep compiling.
+     *
+     * @param context The context
+     * @param result The result to populate with etag
+     * @param etag The etag including quotes. Eg. calculated from the content.
+     * @param lastModified Last modified. May be null if unknown.
+     */
+    public void addEtag(Context context, Result result, String etag, Long lastModified) {
+
+        result.addHeader(HttpHeaderConstants.CACHE_CONTROL, cacheControl);
         
         // Use etag on demand:
-        String etag = null; 
-        boolean useEtag = ninjaProperties.getBooleanWithDefault(HTTP_USE_ETAG,
-                HTTP_USE_ETAG_DEFAULT);
-        
         if (useEtag) {
-            // ETag right now is only lastModified long.
-            // maybe we change that in the future.
-            etag = "\""
-                    + lastModified.toString() + "\"";
             result.addHeader(HttpHeaderConstants.ETAG, etag);
-            
+        } else {
+            etag = null;
         }
 
-
         if (!isModified(Optional.fromNullable(etag), Optional.fromNullable(lastModified), context)) {
 
-            if (context.getMethod().toLowerCase().equals("get")) {
+            if ("GET".equalsIgnoreCase(context.getMethod())) {
                 result.status(Result.SC_304_NOT_MODIFIED);
             }
             
-        } else {
+        } else if (lastModified != null) {
             result.addHeader(HttpHeaderConstants.LAST_MODIFIED,
                     DateUtil.formatForHttpHeader(lastModified));
 
         }       
-        
-
 
     }
 
@@ -32,4 +32,18 @@ public interface HttpHeaderConstants {
 
     String LAST_MODIFIED = "Last-Modified";
 
+    String CONTENT_LENGTH = "Content-Length";
+
+    String RANGE = "Range";
+
+    String IF_RANGE = "If-Range";
+
+    String ACCEPT_RANGES = "Accept-Ranges";
+
+    String CONTENT_RANGE = "Content-Range";
+
+    String ACCEPT_ENCODING = "Accept-Encoding";
+
+    String ACCEPT_CHARSET = "Accept-Charset";
+
 }
@@ -80,4 +80,47 @@ public class HttpHeaderUtils {
   
     }
 
+    /**
+     * Checks an ETag against the If-None-Match header of a request.
+     * 
+     * If-None-Match may contain a list of ETags or "*". ETags are compared
+     * weakly as defined by RFC 7232: W/"1" matches "1".
+     * 
+     * @param ifNoneMatch The If-None-Match header of the request. May be null.
+     * @param etag The ETag of the response. Eg "1" or W/"1"
+     * @return true if the client already has the response with that ETag.
+     */
+    public static boolean ifNoneMatchMatches(String ifNoneMatch, String etag) {
+        
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        
+        String opaqueEtag = stripWeakIndicator(etag.trim());
+        
+        for (String candidate : ifNoneMatch.split(",")) {
+            
+            candidate = candidate.trim();
+            
+            if (candidate.equals("*")
+                    || stripWeakIndicator(candidate).equals(opaqueEtag)) {
+                return true;
+            }
+            
+        }
+        
+        return false;
+        
+    }
+    
+    private static String stripWeakIndicator(String etag) {
+        
+        if (etag.startsWith("W/")) {
+            return etag.substring(2);
+        } else {
+            return etag;
+        }
+        
+    }
+
 }
@@ -16,13 +16,28 @@
 
 package ninja.utils;
 
+import com.google.common.base.Supplier;
+
 /**
  * A pojo to be renderd as Json or Xml.
  * Used for instance to display error messages when a route is not found.
+ *
+ * The text can be resolved lazily (e.g. translated) when it is read via
+ * {@link #getText()} - that is when the message is actually rendered.
  */
 public  class Message {
 
+    /**
+     * @deprecated Read the text via {@link #getText()}. For a message with a
+     *             text supplier the field is only filled when the text is
+     *             first read via getText().
+     */
+    @Deprecated
     public String text;
+
+    private transient Supplier<String> textSupplier;
+
+    private transient boolean lazyText;
     
     // Default constructor needed by Jackson.
     public Message() {}
@@ -31,4 +46,37 @@ public  class Message {
         this.text = text;
     }
 
+    /**
+     * @param textSupplier Provides the text when it is first read.
+     */
+    public Message(Supplier<String> textSupplier) {
+        this.textSupplier = textSupplier;
+        this.lazyText = true;
+    }
+
+    /**
+     * Resolves the text of a supplier on the first call and keeps it in
+     * {@link #text}.
+     *
+     * @return The text of the message.
+     */
+    public String getText() {
+
+        if (text == null && textSupplier != null) {
+            text = textSupplier.get();
+            textSupplier = null;
+        }
+
+        return text;
+
+    }
+
+    /**
+     * @return true if the text is provided by a supplier - e.g. translated
+     *         when the message is rendered.
+     */
+    public boolean hasLazyText() {
+        return lazyText;
+    }
+
 }
\ No newline at end of file
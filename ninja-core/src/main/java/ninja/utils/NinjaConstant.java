@@ -212,7 +212,279 @@ public interface NinjaConstant {
     
     
     String NINJA_JSONP_CALLBACK_PARAMETER = "ninja.jsonp.callbackParameter";
-    
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Fan-out of parallel calls (see ninja.fanout.FanOut)
+    ///////////////////////////////////////////////////////////////////////////
+    /** Number of worker threads used to run fan-out tasks. */
+    String FANOUT_THREADS = "ninja.fanout.threads";
+
+    /** Default number of fan-out worker threads. */
+    int FANOUT_THREADS_DEFAULT = 2 * Runtime.getRuntime().availableProcessors();
+
+    /** Number of tasks that may wait for a free worker thread. */
+    String FANOUT_QUEUE_SIZE = "ninja.fanout.queue_size";
+
+    /** Default size of the fan-out task queue. */
+    int FANOUT_QUEUE_SIZE_DEFAULT = 256;
+
+    /** Time a request may spend waiting for its fan-out tasks in total. */
+    String FANOUT_TIMEOUT_IN_MILLIS = "ninja.fanout.timeout_in_millis";
+
+    /** Default fan-out deadline of a request. */
+    int FANOUT_TIMEOUT_IN_MILLIS_DEFAULT = 10000;
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Buffering of responses (see ninja.utils.ResponseBufferPool)
+    ///////////////////////////////////////////////////////////////////////////
+    /**
+     * Renders responses into pooled buffers first. Responses smaller than the
+     * threshold are sent in one go with a Content-Length header.
+     */
+    String RESPONSE_BUFFER_ENABLED = "ninja.response.buffer.enabled";
+
+    /** Response buffering is disabled by default. */
+    boolean RESPONSE_BUFFER_ENABLED_DEFAULT = false;
+
+    /** Responses larger than this are streamed (chunked) as usual. */
+    String RESPONSE_BUFFER_THRESHOLD_IN_BYTES = "ninja.response.buffer.threshold_in_bytes";
+
+    /** Default size of a response buffer. */
+    int RESPONSE_BUFFER_THRESHOLD_IN_BYTES_DEFAULT = 32 * 1024;
+
+    /** Maximum number of idle buffers kept for reuse. */
+    String RESPONSE_BUFFER_POOL_SIZE = "ninja.response.buffer.pool_size";
+
+    /** Default number of idle buffers kept for reuse. */
+    int RESPONSE_BUFFER_POOL_SIZE_DEFAULT = 128;
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Compression of responses (see ninja.utils.ResponseCompression)
+    ///////////////////////////////////////////////////////////////////////////
+    /** Compresses responses if the client accepts gzip, deflate or brotli. */
+    String RESPONSE_COMPRESSION_ENABLED = "ninja.response.compression.enabled";
+
+    /** Response compression is disabled by default. */
+    boolean RESPONSE_COMPRESSION_ENABLED_DEFAULT = false;
+
+    /** Responses smaller than this are not worth compressing. */
+    String RESPONSE_COMPRESSION_MIN_SIZE_IN_BYTES = "ninja.response.compression.min_size_in_bytes";
+
+    /** Default minimum size of a compressed response. */
+    int RESPONSE_COMPRESSION_MIN_SIZE_IN_BYTES_DEFAULT = 1024;
+
+    /** Comma separated list of content types that are compressed. */
+    String RESPONSE_COMPRESSION_MIME_TYPES = "ninja.response.compression.mime_types";
+
+    /** Default content types that are compressed. */
+    String [] RESPONSE_COMPRESSION_MIME_TYPES_DEFAULT = new String [] {
+        "text/html",
+        "text/plain",
+        "text/css",
+        "text/csv",
+        "text/javascript",
+        "text/xml",
+        "application/javascript",
+        "application/json",
+        "application/xml",
+        "image/svg+xml"};
+
+    /** Deflate compression level from 1 (fastest) to 9 (smallest). */
+    String RESPONSE_COMPRESSION_LEVEL = "ninja.response.compression.level";
+
+    /** Default compression level. Usually a good tradeoff of cpu and bytes. */
+    int RESPONSE_COMPRESSION_LEVEL_DEFAULT = 6;
+
+    /** Maximum number of idle Deflaters kept for reuse (per format). */
+    String RESPONSE_COMPRESSION_POOL_SIZE = "ninja.response.compression.pool_size";
+
+    /** Default number of idle Deflaters kept for reuse. */
+    int RESPONSE_COMPRESSION_POOL_SIZE_DEFAULT = 64;
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Decompression of requests (see ninja.utils.RequestDecompression)
+    ///////////////////////////////////////////////////////////////////////////
+    /** Decompresses request bodies sent with Content-Encoding gzip or deflate. */
+    String REQUEST_DECOMPRESSION_ENABLED = "ninja.request.decompression.enabled";
+
+    /** Request decompression is disabled by default. */
+    boolean REQUEST_DECOMPRESSION_ENABLED_DEFAULT = false;
+
+    /** Maximum size of a decompressed request body. */
+    String REQUEST_DECOMPRESSION_MAX_SIZE_IN_BYTES = "ninja.request.decompression.max_size_in_bytes";
+
+    /** Default maximum size of a decompressed request body. */
+    int REQUEST_DECOMPRESSION_MAX_SIZE_IN_BYTES_DEFAULT = 10 * 1024 * 1024;
+
+    /** Maximum ratio of decompressed to compressed size of a request body. */
+    String REQUEST_DECOMPRESSION_MAX_RATIO = "ninja.request.decompression.max_ratio";
+
+    /** Default maximum compression ratio of a request body. */
+    int REQUEST_DECOMPRESSION_MAX_RATIO_DEFAULT = 100;
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Automatic ETags of responses (see ninja.utils.AutomaticETags)
+    ///////////////////////////////////////////////////////////////////////////
+    /**
+     * Calculates an ETag from the rendered body of GET requests. Requests with
+     * a matching If-None-Match header get a 304 Not Modified instead.
+     */
+    String RESPONSE_ETAG_ENABLED = "ninja.response.etag.enabled";
+
+    /** Automatic ETags are disabled by default. */
+    boolean RESPONSE_ETAG_ENABLED_DEFAULT = false;
+
+    /** Generate weak ETags (W/"...") instead of strong ones. */
+    String RESPONSE_ETAG_WEAK = "ninja.response.etag.weak";
+
+    /**
+     * ETags are weak by default - the same body may be sent with different
+     * content encodings. Strong ETags include the content encoding.
+     */
+    boolean RESPONSE_ETAG_WEAK_DEFAULT = true;
+
+    /** Bodies larger than this are streamed without an ETag. */
+    String RESPONSE_ETAG_MAX_SIZE_IN_BYTES = "ninja.response.etag.max_size_in_bytes";
+
+    /** Default maximum size of a body that gets an automatic ETag. */
+    int RESPONSE_ETAG_MAX_SIZE_IN_BYTES_DEFAULT = 1024 * 1024;
+
+    ///////////////////////////////////////////////////////////////////////////
+    // In-memory cache of static assets (see ninja.AssetsController)
+    ///////////////////////////////////////////////////////////////////////////
+    /**
+     * Keeps the bytes of small assets in memory (prod mode only). Cached
+     * assets get an ETag calculated from their content. Lookups of missing
+     * assets are cached, too.
+     */
+    String ASSETS_CACHE_ENABLED = "ninja.assets.cache.enabled";
+
+    /** The asset cache is enabled by default (in prod mode). */
+    boolean ASSETS_CACHE_ENABLED_DEFAULT = true;
+
+    /** Maximum number of bytes of all cached assets together. */
+    String ASSETS_CACHE_MAX_SIZE_IN_BYTES = "ninja.assets.cache.max_size_in_bytes";
+
+    /** Default maximum size of the asset cache. */
+    int ASSETS_CACHE_MAX_SIZE_IN_BYTES_DEFAULT = 32 * 1024 * 1024;
+
+    /** Larger assets are streamed from disk (or the jar) for each request. */
+    String ASSETS_CACHE_MAX_FILE_SIZE_IN_BYTES = "ninja.assets.cache.max_file_size_in_bytes";
+
+    /** Default maximum size of a single cached asset. */
+    int ASSETS_CACHE_MAX_FILE_SIZE_IN_BYTES_DEFAULT = 256 * 1024;
+
+    /**
+     * Lets assetsAt(...) add a hash of the content to the file name of
+     * assets, eg. /assets/css/app.3f9c1a2b4d5e.css. Such urls are served
+     * with Cache-Control: public, max-age=31536000, immutable. Not used in
+     * dev mode.
+     */
+    String ASSETS_FINGERPRINT_ENABLED = "ninja.assets.fingerprint.enabled";
+
+    /** Fingerprinted asset urls are disabled by default. */
+    boolean ASSETS_FINGERPRINT_ENABLED_DEFAULT = false;
+
+    /**
+     * Serves app.css.br or app.css.gz (next to app.css) instead of app.css
+     * to clients accepting that encoding.
+     */
+    String ASSETS_PRECOMPRESSED_ENABLED = "ninja.assets.precompressed.enabled";
+
+    /** Precompressed assets are served by default (if present). */
+    boolean ASSETS_PRECOMPRESSED_ENABLED_DEFAULT = true;
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Freemarker template cache
+    ///////////////////////////////////////////////////////////////////////////
+    /**
+     * Number of parsed Freemarker templates that are kept as strong
+     * references (prod and test mode). Evicted templates are kept as soft
+     * references and may be collected under memory pressure.
+     */
+    String FREEMARKER_CACHE_STRONG_SIZE = "ninja.freemarker.cache.strong_size";
+
+    /** Default number of strongly referenced templates. */
+    int FREEMARKER_CACHE_STRONG_SIZE_DEFAULT = 500;
+
+    /** Number of parsed Freemarker templates that are kept as soft references. */
+    String FREEMARKER_CACHE_SOFT_SIZE = "ninja.freemarker.cache.soft_size";
+
+    /** Default number of softly referenced templates. */
+    int FREEMARKER_CACHE_SOFT_SIZE_DEFAULT = Integer.MAX_VALUE;
+
+    /**
+     * Parse all views/**&#47;*.ftl.html templates on the classpath when the
+     * application starts. A template with a syntax error fails the start.
+     * Defaults to true in prod mode and false otherwise.
+     */
+    String FREEMARKER_PRECOMPILE = "ninja.freemarker.precompile";
+
+    /**
+     * Enables the &lt;@cache&gt; fragment cache directive of Freemarker.
+     * Defaults to false in dev mode and true otherwise. When disabled the
+     * fragments are rendered for each request.
+     */
+    String FREEMARKER_FRAGMENT_CACHE_ENABLED = "ninja.freemarker.fragment_cache.enabled";
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Jackson
+    ///////////////////////////////////////////////////////////////////////////
+    /**
+     * Registers the Afterburner module of Jackson. It generates bytecode to
+     * access properties instead of using reflection.
+     */
+    String JACKSON_AFTERBURNER = "ninja.jackson.afterburner";
+
+    /** Afterburner is registered by default. */
+    boolean JACKSON_AFTERBURNER_DEFAULT = true;
+
+    /**
+     * Class names of further Jackson modules to register with the
+     * ObjectMapper. Eg. ninja.jackson.modules=com.example.MyModule
+     */
+    String JACKSON_MODULES = "ninja.jackson.modules";
+
+    /**
+     * Lets clients select the properties of json responses they need, eg.
+     * ?fields=id,title,author.name. The properties are filtered while the
+     * response is serialized.
+     */
+    String JSON_SPARSE_FIELDSETS_ENABLED = "ninja.json.sparse_fieldsets.enabled";
+
+    /** Sparse fieldsets are disabled by default. */
+    boolean JSON_SPARSE_FIELDSETS_ENABLED_DEFAULT = false;
+
+    /** Name of the query parameter listing the selected properties. */
+    String JSON_SPARSE_FIELDSETS_PARAMETER = "ninja.json.sparse_fieldsets.parameter";
+
+    /** The properties are selected via ?fields=... by default. */
+    String JSON_SPARSE_FIELDSETS_PARAMETER_DEFAULT = "fields";
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Cache of rendered responses (see ninja.CacheResponse)
+    ///////////////////////////////////////////////////////////////////////////
+    /**
+     * Caches responses of routes annotated with @CacheResponse. Enabled by
+     * default except in dev mode.
+     */
+    String RESPONSE_CACHE_ENABLED = "ninja.response_cache.enabled";
+
+    /** Number of threads refreshing stale responses in the background. */
+    String RESPONSE_CACHE_REFRESH_THREADS = "ninja.response_cache.refresh_threads";
+
+    /** Default number of refresh threads. */
+    int RESPONSE_CACHE_REFRESH_THREADS_DEFAULT = 2;
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Coalescing of identical requests (see ninja.CoalesceRequests)
+    ///////////////////////////////////////////////////////////////////////////
+    /** Lets identical requests to routes annotated with @CoalesceRequests share one response. */
+    String REQUEST_COALESCING_ENABLED = "ninja.request_coalescing.enabled";
+
+    /** Request coalescing is enabled by default (routes still opt in). */
+    boolean REQUEST_COALESCING_ENABLED_DEFAULT = true;
+
     
 
 }
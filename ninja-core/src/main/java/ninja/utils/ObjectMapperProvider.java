@@ -16,8 +16,11 @@
 
 package ninja.utils;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.Module;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import com.google.inject.Inject;
 import com.google.inject.Provider;
 
 /**
@@ -27,19 +30,94 @@ import com.google.inject.Provider;
  * 
  * This provider makes it simple to configure the ObjectMapper in one place
  * for all places where it is used.
+ *
+ * Afterburner (generates bytecode instead of using reflection to access the
+ * properties of your objects) is registered unless
+ * ninja.jackson.afterburner is false. Further Jackson modules can be
+ * registered by class name via ninja.jackson.modules.
  */
 public class ObjectMapperProvider implements Provider<ObjectMapper>{
 
+    private final NinjaProperties ninjaProperties;
+
+    /**
+     * Creates a provider that uses the defaults: Afterburner is registered
+     * and no further Jackson modules are.
+     */
+    public ObjectMapperProvider() {
+        this.ninjaProperties = null;
+    }
+
+    @Inject
+    public ObjectMapperProvider(NinjaProperties ninjaProperties) {
+        this.ninjaProperties = ninjaProperties;
+    }
+
     @Override
     public ObjectMapper get() {
         
-        ObjectMapper objectMapper = new ObjectMapper();
+        return configure(new ObjectMapper());
         
+    }
+
+    /**
+     * Creates an ObjectMapper for another Jackson data format (e.g. Smile or
+     * CBOR) configured like the one for Json.
+     *
+     * @param jsonFactory The factory of the data format,
+     *                    e.g. new SmileFactory().
+     * @return A new ObjectMapper.
+     */
+    public ObjectMapper get(JsonFactory jsonFactory) {
+
+        return configure(new ObjectMapper(jsonFactory));
+
+    }
+
+    private ObjectMapper configure(ObjectMapper objectMapper) {
+
         // Afterburner optimizes performance of Pojo to Json mapper
-        objectMapper.registerModule(new AfterburnerModule());
+        if (ninjaProperties == null
+                ? NinjaConstant.JACKSON_AFTERBURNER_DEFAULT
+                : ninjaProperties.getBooleanWithDefault(
+                        NinjaConstant.JACKSON_AFTERBURNER,
+                        NinjaConstant.JACKSON_AFTERBURNER_DEFAULT)) {
+            objectMapper.registerModule(new AfterburnerModule());
+        }
+
+        String [] moduleClassNames = ninjaProperties == null
+                ? null
+                : ninjaProperties.getStringArray(NinjaConstant.JACKSON_MODULES);
+
+        if (moduleClassNames != null) {
+
+            for (String moduleClassName : moduleClassNames) {
+                objectMapper.registerModule(newModule(moduleClassName.trim()));
+            }
+
+        }
         
         return objectMapper;
         
     }
+
+    private Module newModule(String moduleClassName) {
+
+        try {
+
+            return Class.forName(moduleClassName)
+                    .asSubclass(Module.class)
+                    .newInstance();
+
+        } catch (ClassNotFoundException | ClassCastException
+                | InstantiationException | IllegalAccessException e) {
+
+            throw new RuntimeException(
+                    "Cannot register Jackson module " + moduleClassName
+                    + " configured in " + NinjaConstant.JACKSON_MODULES, e);
+
+        }
+
+    }
     
 }
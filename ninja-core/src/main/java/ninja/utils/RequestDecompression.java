@@ -0,0 +1,189 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ninja.utils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import ninja.exceptions.BadRequestException;
+
+import com.google.common.io.CountingInputStream;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Decompresses request bodies sent with "Content-Encoding: gzip" or
+ * "Content-Encoding: deflate".
+ *
+ * Decompression is streaming. To guard against decompression bombs the
+ * size of the decompressed body (ninja.request.decompression.max_size_in_bytes)
+ * and its ratio to the compressed body (ninja.request.decompression.max_ratio)
+ * are limited. Exceeding a limit results in a {@link BadRequestException}.
+ */
+@Singleton
+public class RequestDecompression {
+
+    // Small bodies may legitimately compress extremely well.
+    // The ratio is only checked for bodies larger than that.
+    static final int RATIO_CHECK_THRESHOLD_IN_BYTES = 64 * 1024;
+
+    private final boolean enabled;
+
+    private final long maxSize;
+
+    private final int maxRatio;
+
+    @Inject
+    public RequestDecompression(NinjaProperties ninjaProperties) {
+
+        this.enabled = ninjaProperties.getBooleanWithDefault(
+                NinjaConstant.REQUEST_DECOMPRESSION_ENABLED,
+                NinjaConstant.REQUEST_DECOMPRESSION_ENABLED_DEFAULT);
+
+        this.maxSize = ninjaProperties.getIntegerWithDefault(
+                NinjaConstant.REQUEST_DECOMPRESSION_MAX_SIZE_IN_BYTES,
+                NinjaConstant.REQUEST_DECOMPRESSION_MAX_SIZE_IN_BYTES_DEFAULT);
+
+        this.maxRatio = ninjaProperties.getIntegerWithDefault(
+                NinjaConstant.REQUEST_DECOMPRESSION_MAX_RATIO,
+                NinjaConstant.REQUEST_DECOMPRESSION_MAX_RATIO_DEFAULT);
+
+    }
+
+    /**
+     * @param contentEncoding The Content-Encoding header of the request.
+     * @return true if a body with that encoding is decompressed.
+     */
+    public boolean isDecompressible(String contentEncoding) {
+
+        if (!enabled || contentEncoding == null) {
+            return false;
+        }
+
+        String encoding = contentEncoding.trim().toLowerCase(Locale.ENGLISH);
+
+        return encoding.equals(ResponseCompression.GZIP)
+                || encoding.equals("x-gzip")
+                || encoding.equals(ResponseCompression.DEFLATE);
+
+    }
+
+    /**
+     * Wraps the body of a request so that it is decompressed while it is
+     * read.
+     *
+     * @param contentEncoding The Content-Encoding header of the request.
+     * @param inputStream The raw body of the request.
+     * @return The decompressed body or inputStream itself if the body is
+     *         not compressed (or decompression is disabled).
+     */
+    public InputStream decompress(String contentEncoding, InputStream inputStream) throws IOException {
+
+        if (!isDecompressible(contentEncoding)) {
+            return inputStream;
+        }
+
+        CountingInputStream countingInputStream = new CountingInputStream(inputStream);
+
+        InputStream decompressingInputStream;
+
+        if (contentEncoding.trim().equalsIgnoreCase(ResponseCompression.DEFLATE)) {
+            decompressingInputStream = new InflaterInputStream(countingInputStream);
+        } else {
+            decompressingInputStream = new GZIPInputStream(countingInputStream);
+        }
+
+        return new LimitedInputStream(decompressingInputStream, countingInputStream);
+
+    }
+
+    /**
+     * Enforces the limits while the body is read.
+     */
+    private class LimitedInputStream extends FilterInputStream {
+
+        private final CountingInputStream compressed;
+
+        private long decompressed;
+
+        LimitedInputStream(InputStream decompressingInputStream,
+                           CountingInputStream compressed) {
+            super(decompressingInputStream);
+            this.compressed = compressed;
+        }
+
+        @Override
+        public int read() throws IOException {
+
+            int b = super.read();
+
+            if (b != -1) {
+                count(1);
+            }
+
+            return b;
+
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+
+            int read = super.read(bytes, offset, length);
+
+            if (read > 0) {
+                count(read);
+            }
+
+            return read;
+
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+
+            long skipped = super.skip(n);
+
+            count(skipped);
+
+            return skipped;
+
+        }
+
+        private void count(long bytes) {
+
+            decompressed += bytes;
+
+            if (decompressed > maxSize) {
+                throw new BadRequestException(
+                        "Decompressed request body exceeds " + maxSize + " bytes.");
+            }
+
+            if (decompressed > RATIO_CHECK_THRESHOLD_IN_BYTES
+                    && decompressed > compressed.getCount() * maxRatio) {
+                throw new BadRequestException(
+                        "Compression ratio of request body exceeds " + maxRatio + ".");
+            }
+
+        }
+
+    }
+
+}
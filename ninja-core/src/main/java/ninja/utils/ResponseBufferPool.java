@@ -0,0 +1,147 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ninja.utils;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * A pool of byte arrays used to buffer responses before they are sent.
+ *
+ * All buffers have the size of the configured threshold
+ * (ninja.response.buffer.threshold_in_bytes). A response that does not fit
+ * into one buffer is streamed instead.
+ *
+ * The pool keeps track of how often a buffer could be reused and how often
+ * responses exceeded the threshold so that the size can be tuned.
+ */
+@Singleton
+public class ResponseBufferPool {
+
+    private final boolean enabled;
+
+    private final int threshold;
+
+    private final BlockingQueue<byte[]> buffers;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong thresholdExceeded = new AtomicLong();
+
+    @Inject
+    public ResponseBufferPool(NinjaProperties ninjaProperties) {
+
+        this.enabled = ninjaProperties.getBooleanWithDefault(
+                NinjaConstant.RESPONSE_BUFFER_ENABLED,
+                NinjaConstant.RESPONSE_BUFFER_ENABLED_DEFAULT);
+
+        this.threshold = ninjaProperties.getIntegerWithDefault(
+                NinjaConstant.RESPONSE_BUFFER_THRESHOLD_IN_BYTES,
+                NinjaConstant.RESPONSE_BUFFER_THRESHOLD_IN_BYTES_DEFAULT);
+
+        int poolSize = ninjaProperties.getIntegerWithDefault(
+                NinjaConstant.RESPONSE_BUFFER_POOL_SIZE,
+                NinjaConstant.RESPONSE_BUFFER_POOL_SIZE_DEFAULT);
+
+        this.buffers = new ArrayBlockingQueue<>(Math.max(1, poolSize));
+
+    }
+
+    /**
+     * @return true if responses should be buffered.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return The size of a buffer. Larger responses are streamed.
+     */
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Takes a buffer from the pool or allocates a new one if the pool is
+     * empty. Hand it back via {@link ResponseBufferPool#release(byte[])}.
+     *
+     * @return A buffer of {@link ResponseBufferPool#getThreshold()} bytes.
+     */
+    public byte[] acquire() {
+
+        byte[] buffer = buffers.poll();
+
+        if (buffer == null) {
+            misses.incrementAndGet();
+            buffer = new byte[threshold];
+        } else {
+            hits.incrementAndGet();
+        }
+
+        return buffer;
+
+    }
+
+    /**
+     * Hands a buffer back to the pool. If the pool is full the buffer is
+     * simply dropped.
+     *
+     * @param buffer A buffer obtained by acquire().
+     */
+    public void release(byte[] buffer) {
+
+        if (buffer != null && buffer.length == threshold) {
+            buffers.offer(buffer);
+        }
+
+    }
+
+    /**
+     * Records that a response did not fit into a buffer and was streamed.
+     */
+    public void markThresholdExceeded() {
+        thresholdExceeded.incrementAndGet();
+    }
+
+    /**
+     * @return Number of buffers that were reused.
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return Number of buffers that had to be allocated.
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return Number of responses that exceeded the threshold.
+     */
+    public long getThresholdExceededCount() {
+        return thresholdExceeded.get();
+    }
+
+}
@@ -0,0 +1,545 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ninja.utils;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.CountingOutputStream;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Compresses responses with gzip, deflate or brotli.
+ *
+ * The encoding is negotiated via the Accept-Encoding header of the request.
+ * Only responses with a content type listed in
+ * ninja.response.compression.mime_types are compressed. Brotli is only
+ * offered if brotli4j is on the classpath.
+ *
+ * Deflaters are pooled as they allocate native memory that is otherwise only
+ * freed by the garbage collector.
+ *
+ * The service also keeps track of the bytes saved and the time spent
+ * compressing. That allows to judge whether compression pays off.
+ */
+@Singleton
+public class ResponseCompression {
+
+    public static final String GZIP = "gzip";
+
+    public static final String DEFLATE = "deflate";
+
+    public static final String BROTLI = "br";
+
+    private static final String BROTLI_LOADER_CLASS
+            = "com.aayushatharva.brotli4j.Brotli4jLoader";
+
+    private static final String BROTLI_OUTPUT_STREAM_CLASS
+            = "com.aayushatharva.brotli4j.encoder.BrotliOutputStream";
+
+    private static final Logger logger = LoggerFactory.getLogger(ResponseCompression.class);
+
+    private final boolean enabled;
+
+    private final int minSize;
+
+    private final int level;
+
+    private final Set<String> mimeTypes;
+
+    // used for gzip (raw deflate data plus our own gzip header and trailer)
+    private final BlockingQueue<Deflater> rawDeflaters;
+
+    // used for deflate (zlib format)
+    private final BlockingQueue<Deflater> zlibDeflaters;
+
+    // null if brotli is not available
+    private final Constructor<? extends OutputStream> brotliOutputStreamConstructor;
+
+    private final AtomicLong compressedResponses = new AtomicLong();
+
+    private final AtomicLong bytesIn = new AtomicLong();
+
+    private final AtomicLong bytesOut = new AtomicLong();
+
+    private final AtomicLong compressionTimeInNanos = new AtomicLong();
+
+    @Inject
+    public ResponseCompression(NinjaProperties ninjaProperties) {
+
+        this.enabled = ninjaProperties.getBooleanWithDefault(
+                NinjaConstant.RESPONSE_COMPRESSION_ENABLED,
+                NinjaConstant.RESPONSE_COMPRESSION_ENABLED_DEFAULT);
+
+        this.minSize = ninjaProperties.getIntegerWithDefault(
+                NinjaConstant.RESPONSE_COMPRESSION_MIN_SIZE_IN_BYTES,
+                NinjaConstant.RESPONSE_COMPRESSION_MIN_SIZE_IN_BYTES_DEFAULT);
+
+        this.level = ninjaProperties.getIntegerWithDefault(
+                NinjaConstant.RESPONSE_COMPRESSION_LEVEL,
+                NinjaConstant.RESPONSE_COMPRESSION_LEVEL_DEFAULT);
+
+        String[] configuredMimeTypes = ninjaProperties.getStringArray(
+                NinjaConstant.RESPONSE_COMPRESSION_MIME_TYPES);
+
+        if (configuredMimeTypes == null) {
+            configuredMimeTypes = NinjaConstant.RESPONSE_COMPRESSION_MIME_TYPES_DEFAULT;
+        }
+
+        ImmutableSet.Builder<String> mimeTypesBuilder = ImmutableSet.builder();
+
+        for (String mimeType : configuredMimeTypes) {
+            mimeTypesBuilder.add(mimeType.trim().toLowerCase(Locale.ENGLISH));
+        }
+
+        this.mimeTypes = mimeTypesBuilder.build();
+
+        int poolSize = Math.max(1, ninjaProperties.getIntegerWithDefault(
+                NinjaConstant.RESPONSE_COMPRESSION_POOL_SIZE,
+                NinjaConstant.RESPONSE_COMPRESSION_POOL_SIZE_DEFAULT));
+
+        this.rawDeflaters = new ArrayBlockingQueue<>(poolSize);
+        this.zlibDeflaters = new ArrayBlockingQueue<>(poolSize);
+
+        this.brotliOutputStreamConstructor = lookupBrotliOutputStreamConstructor();
+
+    }
+
+    /**
+     * @return true if responses should be compressed at all.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return Responses smaller than this are sent uncompressed.
+     */
+    public int getMinSize() {
+        return minSize;
+    }
+
+    /**
+     * @return true if brotli4j is on the classpath and works on this platform.
+     */
+    public boolean isBrotliAvailable() {
+        return brotliOutputStreamConstructor != null;
+    }
+
+    /**
+     * @param contentType The content type of the response. Parameters like
+     *                    "; charset=utf-8" are ignored.
+     * @return true if compression is enabled and the content type is
+     *         in the list of compressible types.
+     */
+    public boolean isCompressible(String contentType) {
+
+        if (!enabled || contentType == null) {
+            return false;
+        }
+
+        int indexOfSemicolon = contentType.indexOf(';');
+
+        if (indexOfSemicolon != -1) {
+            contentType = contentType.substring(0, indexOfSemicolon);
+        }
+
+        return mimeTypes.contains(contentType.trim().toLowerCase(Locale.ENGLISH));
+
+    }
+
+    /**
+     * Selects the encoding for a response.
+     *
+     * The encoding with the highest quality value in the Accept-Encoding
+     * header wins. On a tie brotli is preferred over gzip over deflate.
+     *
+     * @param acceptEncoding The Accept-Encoding header of the request.
+     * @param contentType The content type of the response.
+     * @return "br", "gzip", "deflate" or null if the response should not be
+     *         compressed.
+     */
+    public String selectEncoding(String acceptEncoding, String contentType) {
+
+        if (acceptEncoding == null || !isCompressible(contentType)) {
+            return null;
+        }
+
+        double brotli = getQuality(acceptEncoding, BROTLI);
+        double gzip = getQuality(acceptEncoding, GZIP);
+        double deflate = getQuality(acceptEncoding, DEFLATE);
+
+        if (!isBrotliAvailable()) {
+            brotli = -1;
+        }
+
+        String encoding = null;
+        double best = 0;
+
+        if (brotli > best) {
+            encoding = BROTLI;
+            best = brotli;
+        }
+        if (gzip > best) {
+            encoding = GZIP;
+            best = gzip;
+        }
+        if (deflate > best) {
+            encoding = DEFLATE;
+        }
+
+        return encoding;
+
+    }
+
+    /**
+     * @param acceptEncoding The Accept-Encoding header of a request.
+     * @param coding "br", "gzip" or "deflate".
+     * @return The quality (q value) the client gave that coding. "*" matches
+     *         all codings not mentioned explicitly. -1 if the coding is not
+     *         mentioned at all. 0 means the client does not accept it.
+     */
+    public static double getQuality(String acceptEncoding, String coding) {
+
+        if (acceptEncoding == null) {
+            return -1;
+        }
+
+        double explicit = -1;
+        double wildcard = -1;
+
+        for (String token : acceptEncoding.split(",")) {
+
+            String [] parts = token.split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ENGLISH);
+            double quality = 1;
+
+            for (int i = 1; i < parts.length; i++) {
+
+                String parameter = parts[i].trim();
+
+                if (parameter.startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2));
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+
+            }
+
+            if (name.equals(coding) || coding.equals(GZIP) && name.equals("x-gzip")) {
+                explicit = quality;
+            } else if (name.equals("*")) {
+                wildcard = quality;
+            }
+
+        }
+
+        return explicit >= 0 ? explicit : wildcard;
+
+    }
+
+    /**
+     * Wraps an OutputStream so that everything written to it is compressed.
+     *
+     * The returned stream has to be closed. Otherwise the compressed data is
+     * incomplete and the pooled Deflater is lost.
+     *
+     * @param encoding One of "br", "gzip" or "deflate".
+     * @param outputStream The stream that receives the compressed bytes. It is
+     *                     closed when the returned stream is closed.
+     * @return A stream that compresses and writes to outputStream.
+     */
+    public OutputStream compress(String encoding, OutputStream outputStream) throws IOException {
+
+        CountingOutputStream countingOutputStream = new CountingOutputStream(outputStream);
+
+        if (GZIP.equals(encoding)) {
+
+            Deflater deflater = acquire(rawDeflaters, true);
+
+            return new StatisticsOutputStream(
+                    new GzipOutputStream(countingOutputStream, deflater),
+                    countingOutputStream,
+                    rawDeflaters,
+                    deflater);
+
+        } else if (DEFLATE.equals(encoding)) {
+
+            Deflater deflater = acquire(zlibDeflaters, false);
+
+            return new StatisticsOutputStream(
+                    new DeflaterOutputStream(countingOutputStream, deflater),
+                    countingOutputStream,
+                    zlibDeflaters,
+                    deflater);
+
+        } else if (BROTLI.equals(encoding) && isBrotliAvailable()) {
+
+            try {
+
+                return new StatisticsOutputStream(
+                        brotliOutputStreamConstructor.newInstance(countingOutputStream),
+                        countingOutputStream,
+                        null,
+                        null);
+
+            } catch (ReflectiveOperationException e) {
+                throw new IOException("Cannot create brotli output stream", e);
+            }
+
+        }
+
+        throw new IllegalArgumentException("Unsupported content encoding: " + encoding);
+
+    }
+
+    /**
+     * @return Number of responses that have been compressed.
+     */
+    public long getCompressedResponseCount() {
+        return compressedResponses.get();
+    }
+
+    /**
+     * @return Number of bytes before compression.
+     */
+    public long getBytesIn() {
+        return bytesIn.get();
+    }
+
+    /**
+     * @return Number of bytes after compression.
+     */
+    public long getBytesOut() {
+        return bytesOut.get();
+    }
+
+    /**
+     * @return Time spent in compressing responses (and writing them).
+     */
+    public long getCompressionTimeInNanos() {
+        return compressionTimeInNanos.get();
+    }
+
+    private Deflater acquire(BlockingQueue<Deflater> deflaters, boolean nowrap) {
+
+        Deflater deflater = deflaters.poll();
+
+        if (deflater == null) {
+            deflater = new Deflater(level, nowrap);
+        }
+
+        return deflater;
+
+    }
+
+    private void release(BlockingQueue<Deflater> deflaters, Deflater deflater) {
+
+        deflater.reset();
+
+        if (!deflaters.offer(deflater)) {
+            deflater.end();
+        }
+
+    }
+
+    @SuppressWarnings("unchecked")
+    private Constructor<? extends OutputStream> lookupBrotliOutputStreamConstructor() {
+
+        try {
+
+            Class<?> loaderClass = Class.forName(BROTLI_LOADER_CLASS);
+            Method isAvailable = loaderClass.getMethod("isAvailable");
+
+            if (!(Boolean) isAvailable.invoke(null)) {
+                logger.info("Brotli is on the classpath but not available on this platform.");
+                return null;
+            }
+
+            Class<? extends OutputStream> outputStreamClass
+                    = (Class<? extends OutputStream>) Class.forName(BROTLI_OUTPUT_STREAM_CLASS);
+
+            return outputStreamClass.getConstructor(OutputStream.class);
+
+        } catch (ClassNotFoundException e) {
+            // brotli4j is optional
+            return null;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            logger.warn("Cannot enable brotli compression.", e);
+            return null;
+        }
+
+    }
+
+    /**
+     * Records the statistics and hands the Deflater back to the pool when
+     * the stream is closed.
+     */
+    private class StatisticsOutputStream extends FilterOutputStream {
+
+        private final CountingOutputStream countingOutputStream;
+
+        private final BlockingQueue<Deflater> deflaters;
+
+        private Deflater deflater;
+
+        private long written;
+
+        private long nanos;
+
+        private boolean closed;
+
+        StatisticsOutputStream(OutputStream compressingOutputStream,
+                               CountingOutputStream countingOutputStream,
+                               BlockingQueue<Deflater> deflaters,
+                               Deflater deflater) {
+            super(compressingOutputStream);
+            this.countingOutputStream = countingOutputStream;
+            this.deflaters = deflaters;
+            this.deflater = deflater;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+
+            long start = System.nanoTime();
+            out.write(b);
+            nanos += System.nanoTime() - start;
+            written++;
+
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+
+            long start = System.nanoTime();
+            out.write(bytes, offset, length);
+            nanos += System.nanoTime() - start;
+            written += length;
+
+        }
+
+        @Override
+        public void close() throws IOException {
+
+            if (closed) {
+                return;
+            }
+
+            closed = true;
+
+            long start = System.nanoTime();
+
+            try {
+
+                out.close();
+
+            } finally {
+
+                nanos += System.nanoTime() - start;
+
+                if (deflater != null) {
+                    release(deflaters, deflater);
+                    deflater = null;
+                }
+
+                compressedResponses.incrementAndGet();
+                bytesIn.addAndGet(written);
+                bytesOut.addAndGet(countingOutputStream.getCount());
+                compressionTimeInNanos.addAndGet(nanos);
+
+            }
+
+        }
+
+    }
+
+    /**
+     * GZIPOutputStream always creates its own Deflater. This one uses a
+     * pooled one and writes the gzip header and trailer itself.
+     */
+    private static class GzipOutputStream extends DeflaterOutputStream {
+
+        private static final byte [] HEADER = new byte [] {
+            (byte) 0x1f, (byte) 0x8b, // magic number
+            Deflater.DEFLATED,        // compression method
+            0,                        // flags
+            0, 0, 0, 0,               // modification time
+            0,                        // extra flags
+            (byte) 0xff               // operating system: unknown
+        };
+
+        private final CRC32 crc = new CRC32();
+
+        private boolean finished;
+
+        GzipOutputStream(OutputStream outputStream, Deflater deflater) throws IOException {
+            super(outputStream, deflater, 8192);
+            outputStream.write(HEADER);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            super.write(bytes, offset, length);
+            crc.update(bytes, offset, length);
+        }
+
+        @Override
+        public void finish() throws IOException {
+
+            if (finished) {
+                return;
+            }
+
+            finished = true;
+
+            super.finish();
+
+            writeInt((int) crc.getValue());
+            writeInt((int) def.getBytesRead());
+
+        }
+
+        private void writeInt(int value) throws IOException {
+            // little endian as defined by RFC 1952
+            out.write(value & 0xff);
+            out.write((value >> 8) & 0xff);
+            out.write((value >> 16) & 0xff);
+            out.write((value >> 24) & 0xff);
+        }
+
+    }
+
+}
@@ -22,6 +22,7 @@ import ninja.AsyncResult;
 import ninja.Context;
 import ninja.Renderable;
 import ninja.Result;
+import ninja.Route;
 import ninja.exceptions.BadRequestException;
 import ninja.exceptions.NinjaException;
 import ninja.template.TemplateEngine;
@@ -53,7 +54,46 @@ public class ResultHandler {
         
         Object objectToBeRendered = result.getRenderable();
 
-        if (objectToBeRendered instanceof Renderable) {
+        try {
+
+            handleResult(result, objectToBeRendered, context);
+
+        } finally {
+            // e.g. a database cursor. Closed even if nothing was rendered.
+            StreamingRenderables.closeQuietly(objectToBeRendered);
+        }
+
+    }
+
+    private void handleResult(Result result,
+                              Object objectToBeRendered,
+                              Context context) {
+
+        if (isNotModified(context, result)) {
+            // The controller provided an ETag and the client already has
+            // that version. No need to render anything.
+            if (!result.getHeaders().containsKey(Result.CACHE_CONTROL)) {
+                result.doNotCacheContent();
+            }
+
+            result.status(Result.SC_304_NOT_MODIFIED);
+            context.finalizeHeaders(result);
+
+        } else if (isRenderingSkippedForHead(context)) {
+            // HEAD request to a route that does not want to render
+            // anything just to calculate the Content-Length.
+            if (!result.getHeaders().containsKey(Result.CACHE_CONTROL)) {
+                result.doNotCacheContent();
+            }
+
+            if (!(objectToBeRendered instanceof Renderable
+                    || objectToBeRendered instanceof NoHttpBody)) {
+                setContentTypeIfNotSet(context, result);
+            }
+
+            context.finalizeHeaders(result);
+
+        } else if (objectToBeRendered instanceof Renderable) {
             // if the object is a renderable it should do everything itself...:
             // make sure to call context.finalizeHeaders(result) with the
             // results you want to set...
@@ -88,25 +128,33 @@ public class ResultHandler {
 
     }
 
+    private boolean isNotModified(Context context, Result result) {
+
+        String etag = result.getHeaders().get(HttpHeaderConstants.ETAG);
+
+        return etag != null
+                && result.getStatusCode() == Result.SC_200_OK
+                && ("GET".equalsIgnoreCase(context.getMethod())
+                    || "HEAD".equalsIgnoreCase(context.getMethod()))
+                && HttpHeaderUtils.ifNoneMatchMatches(
+                        context.getHeader(HttpHeaderConstants.IF_NONE_MATCH), etag);
+
+    }
+
+    private boolean isRenderingSkippedForHead(Context context) {
+
+        Route route = context.getRoute();
+
+        return route != null
+                && route.isRenderingSkippedForHead()
+                && "HEAD".equalsIgnoreCase(context.getMethod());
+
+    }
+
     private void renderWithTemplateEngineOrRaw(Context context, Result result) {
-        
 
-        // if content type is not yet set in result we copy it over from the
-        // request accept header
-        if (result.getContentType() == null) {
-            
-            if (result.supportedContentTypes().contains(context.getAcceptContentType())) {
-                result.contentType(context.getAcceptContentType());
-            } else if (result.fallbackContentType().isPresent()) {
-                result.contentType(result.fallbackContentType().get());
-            } else {
-                throw new BadRequestException(
-                    "No idea how to handle incoming request with Accept:" + context.getAcceptContentType()
-                    + " at route " + context.getRequestPath());
-            }
-        }
-            
-            
+        setContentTypeIfNotSet(context, result);
+
         // try to get a suitable rendering engine...
         TemplateEngine templateEngine = templateEngineManager
                 .getTemplateEngineForContentType(result.getContentType());
@@ -123,4 +171,26 @@ public class ResultHandler {
         }
     }
 
+    private void setContentTypeIfNotSet(Context context, Result result) {
+
+        // if content type is not yet set in result we copy it over from the
+        // request accept header
+        if (result.getContentType() == null) {
+
+            // parsing the Accept header is not free - so we do it only once
+            String acceptContentType = context.getAcceptContentType();
+            
+            if (result.supportedContentTypes().contains(acceptContentType)) {
+                result.contentType(acceptContentType);
+            } else if (result.fallbackContentType().isPresent()) {
+                result.contentType(result.fallbackContentType().get());
+            } else {
+                throw new BadRequestException(
+                    "No idea how to handle incoming request with Accept:" + acceptContentType
+                    + " at route " + context.getRequestPath());
+            }
+        }
+
+    }
+
 }
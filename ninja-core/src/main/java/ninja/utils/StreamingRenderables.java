@@ -0,0 +1,184 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ninja.utils;
+
+import java.util.Collection;
+import java.util.Iterator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Helpers for lazy renderables. Those are {@link Iterator}s and
+ * {@link Iterable}s that are no {@link Collection} - database cursors and the
+ * like.
+ *
+ * The JSON, XML and CSV engines stream lazy renderables element by element
+ * and flush the response every {@link #FLUSH_INTERVAL} elements. Therefore
+ * memory usage does not grow with the number of elements.
+ *
+ * Lazy renderables that implement {@link AutoCloseable} are closed by the
+ * {@link ResultHandler} after the response has been rendered.
+ */
+public final class StreamingRenderables {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamingRenderables.class);
+
+    /**
+     * Number of elements after which the response is flushed.
+     */
+    public static final int FLUSH_INTERVAL = 100;
+
+    private StreamingRenderables() {
+    }
+
+    /**
+     * @param renderable The renderable of a result.
+     * @return true if the renderable is lazy and should be streamed.
+     */
+    public static boolean isLazy(Object renderable) {
+
+        return renderable instanceof Iterator
+                || (renderable instanceof Iterable
+                    && !(renderable instanceof Collection));
+
+    }
+
+    /**
+     * @param renderable A lazy renderable.
+     * @return The elements of the renderable.
+     */
+    public static Iterator<?> iterator(Object renderable) {
+
+        if (renderable instanceof Iterator) {
+            return (Iterator<?>) renderable;
+        }
+
+        return ((Iterable<?>) renderable).iterator();
+
+    }
+
+    /**
+     * Wraps a lazy renderable so that the given resource is closed together
+     * with it. Useful to keep a database session open until the elements
+     * have been streamed.
+     *
+     * @param renderable A lazy renderable.
+     * @param closeable Closed after the renderable (which is closed too if
+     *                  it is closeable).
+     * @return A lazy renderable returning the same elements.
+     */
+    public static Object closeWith(Object renderable, AutoCloseable closeable) {
+
+        if (renderable instanceof Iterator) {
+            return new ClosingIterator((Iterator<?>) renderable, closeable);
+        }
+
+        return new ClosingIterable((Iterable<?>) renderable, closeable);
+
+    }
+
+    /**
+     * Closes a lazy renderable if it is closeable. Errors are logged.
+     *
+     * @param renderable The renderable of a result.
+     */
+    public static void closeQuietly(Object renderable) {
+
+        if (isLazy(renderable) && renderable instanceof AutoCloseable) {
+
+            try {
+                ((AutoCloseable) renderable).close();
+            } catch (Exception e) {
+                logger.error("Error while closing lazy renderable", e);
+            }
+
+        }
+
+    }
+
+    private static void close(Object renderable, AutoCloseable closeable) throws Exception {
+
+        try {
+            if (renderable instanceof AutoCloseable) {
+                ((AutoCloseable) renderable).close();
+            }
+        } finally {
+            closeable.close();
+        }
+
+    }
+
+    private static class ClosingIterator implements Iterator<Object>, AutoCloseable {
+
+        private final Iterator<?> iterator;
+
+        private final AutoCloseable closeable;
+
+        ClosingIterator(Iterator<?> iterator, AutoCloseable closeable) {
+            this.iterator = iterator;
+            this.closeable = closeable;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        @Override
+        public Object next() {
+            return iterator.next();
+        }
+
+        @Override
+        public void remove() {
+            iterator.remove();
+        }
+
+        @Override
+        public void close() throws Exception {
+            StreamingRenderables.close(iterator, closeable);
+        }
+
+    }
+
+    private static class ClosingIterable implements Iterable<Object>, AutoCloseable {
+
+        private final Iterable<?> iterable;
+
+        private final AutoCloseable closeable;
+
+        ClosingIterable(Iterable<?> iterable, AutoCloseable closeable) {
+            this.iterable = iterable;
+            this.closeable = closeable;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Iterator<Object> iterator() {
+            return (Iterator<Object>) iterable.iterator();
+        }
+
+        @Override
+        public void close() throws Exception {
+            StreamingRenderables.close(iterable, closeable);
+        }
+
+    }
+
+}
@@ -0,0 +1,79 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ninja;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.net.URL;
+
+import ninja.utils.NinjaConstant;
+import ninja.utils.NinjaMode;
+import ninja.utils.NinjaPropertiesImpl;
+
+import org.junit.Test;
+
+public class AssetFingerprintsTest {
+
+    @Test
+    public void testAddFingerprint() {
+
+        assertEquals("app.3f9c1a2b4d5e.css", AssetFingerprints.addFingerprint("app.css", "3f9c1a2b4d5e"));
+        assertEquals("css/jquery.min.3f9c1a2b4d5e.js", AssetFingerprints.addFingerprint("css/jquery.min.js", "3f9c1a2b4d5e"));
+        assertEquals("LICENSE.3f9c1a2b4d5e", AssetFingerprints.addFingerprint("LICENSE", "3f9c1a2b4d5e"));
+        assertEquals("v1.0/LICENSE.3f9c1a2b4d5e", AssetFingerprints.addFingerprint("v1.0/LICENSE", "3f9c1a2b4d5e"));
+        assertEquals("dir/.htaccess.3f9c1a2b4d5e", AssetFingerprints.addFingerprint("dir/.htaccess", "3f9c1a2b4d5e"));
+
+    }
+
+    @Test
+    public void testRemoveFingerprint() {
+
+        assertEquals("app.css", AssetFingerprints.removeFingerprint("app.3f9c1a2b4d5e.css"));
+        assertEquals("css/jquery.min.js", AssetFingerprints.removeFingerprint("css/jquery.min.3f9c1a2b4d5e.js"));
+        assertEquals("LICENSE", AssetFingerprints.removeFingerprint("LICENSE.3f9c1a2b4d5e"));
+        assertEquals("dir/.htaccess", AssetFingerprints.removeFingerprint("dir/.htaccess.3f9c1a2b4d5e"));
+
+        assertNull(AssetFingerprints.removeFingerprint("app.css"));
+        assertNull(AssetFingerprints.removeFingerprint("app.3F9C1A2B4D5E.css"));
+        assertNull(AssetFingerprints.removeFingerprint("app.3f9c1a.css"));
+        assertNull(AssetFingerprints.removeFingerprint("css/.3f9c1a2b4d5e.css"));
+
+    }
+
+    @Test
+    public void testFingerprintsAreReadFromTheManifest() throws Exception {
+
+        NinjaPropertiesImpl ninjaProperties = new NinjaPropertiesImpl(NinjaMode.prod);
+        ninjaProperties.setProperty(NinjaConstant.ASSETS_FINGERPRINT_ENABLED, "true");
+
+        AssetFingerprints assetFingerprints = new AssetFingerprints(ninjaProperties);
+
+        assertEquals("0123456789ab", assetFingerprints.getFingerprint("css/manifest-only.css"));
+        assertNull(assetFingerprints.getFingerprint("testasset.txt"));
+
+        URL url = getClass().getClassLoader().getResource("assets/testasset.txt");
+
+        assertEquals(
+                AssetFingerprints.fingerprint(new ByteArrayInputStream("testasset".getBytes("UTF-8"))),
+                assetFingerprints.getFingerprint("testasset.txt", url));
+
+    }
+
+}
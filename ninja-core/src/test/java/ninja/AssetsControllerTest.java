@@ -17,15 +17,25 @@
 package ninja;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.zip.GZIPInputStream;
 
 import ninja.utils.HttpCacheToolkit;
+import ninja.utils.HttpCacheToolkitImpl;
 import ninja.utils.MimeTypes;
+import ninja.utils.NinjaConstant;
+import ninja.utils.NinjaMode;
 import ninja.utils.NinjaProperties;
+import ninja.utils.NinjaPropertiesImpl;
 import ninja.utils.ResponseStreams;
 
 import org.junit.Test;
@@ -36,6 +46,8 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import com.google.common.io.ByteStreams;
+
 @RunWith(MockitoJUnitRunner.class)
 public class AssetsControllerTest {
 
@@ -43,7 +55,7 @@ public class AssetsControllerTest {
     MimeTypes mimeTypes;
 
     @Mock
-    HttpCacheToolkit httpCacheToolkit;
+    HttpCacheToolkitImpl httpCacheToolkit;
 
     @Mock
     Context contextRenerable;
@@ -421,4 +433,313 @@ public class AssetsControllerTest {
         // make sure the content is okay...
         assertEquals("testasset", byteArrayOutputStream.toString());
     }
+
+    @Test
+    public void testServeStaticFromCacheInProdMode() throws Exception {
+
+        AssetsCache assetsCache = new AssetsCache(new NinjaPropertiesImpl(NinjaMode.prod));
+
+        AssetsController assetsController = newAssetsController(ninjaProperties, assetsCache);
+
+        when(contextRenerable.getRequestPath()).thenReturn("/assets/testasset.txt");
+        when(contextRenerable.getMethod()).thenReturn("GET");
+        when(mimeTypes.getContentType(Mockito.eq(contextRenerable),
+                Mockito.anyString())).thenReturn("mimetype");
+        when(contextRenerable.finalizeHeadersWithoutFlashAndSessionCookie(Mockito.any(Result.class)))
+                .thenReturn(responseStreams);
+
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        when(responseStreams.getOutputStream()).thenReturn(byteArrayOutputStream);
+
+        Result result = Results.ok();
+        ((Renderable) assetsController.serveStatic(null).getRenderable()).render(contextRenerable, result);
+
+        Result cachedResult = Results.ok();
+        ((Renderable) assetsController.serveStatic(null).getRenderable()).render(contextRenerable, cachedResult);
+
+        // the content type is only looked up once
+        verify(mimeTypes, times(1)).getContentType(Mockito.eq(contextRenerable), Mockito.anyString());
+
+        // the etag is calculated from the content
+        String etag = assetsCache.get("assets/assets/testasset.txt").etag;
+        verify(httpCacheToolkit).addEtag(Mockito.eq(contextRenerable), Mockito.eq(cachedResult),
+                Mockito.eq(etag), Mockito.anyLong());
+
+        assertEquals("mimetype", cachedResult.getContentType());
+        assertEquals("9", cachedResult.getHeaders().get("Content-Length"));
+        assertEquals("testassettestasset", byteArrayOutputStream.toString());
+
+    }
+
+    @Test
+    public void testCustomHttpCacheToolkitGetsLastModified() throws Exception {
+
+        HttpCacheToolkit customHttpCacheToolkit = Mockito.mock(HttpCacheToolkit.class);
+
+        AssetsController assetsController = new AssetsController(
+                customHttpCacheToolkit,
+                mimeTypes,
+                ninjaProperties,
+                new AssetsCache(new NinjaPropertiesImpl(NinjaMode.prod)),
+                new AssetFingerprints(ninjaProperties),
+                new PrecompressedAssets(ninjaProperties));
+
+        when(contextRenerable.getRequestPath()).thenReturn("/assets/testasset.txt");
+        when(contextRenerable.getMethod()).thenReturn("GET");
+        when(contextRenerable.finalizeHeadersWithoutFlashAndSessionCookie(Mockito.any(Result.class)))
+                .thenReturn(responseStreams);
+        when(responseStreams.getOutputStream()).thenReturn(new ByteArrayOutputStream());
+
+        Result result = Results.ok();
+        ((Renderable) assetsController.serveStatic(null).getRenderable()).render(contextRenerable, result);
+
+        verify(customHttpCacheToolkit).addEtag(Mockito.eq(contextRenerable), Mockito.eq(result),
+                Mockito.anyLong());
+
+    }
+
+    @Test
+    public void testMissingAssetsAreCachedInProdMode() throws Exception {
+
+        AssetsCache assetsCache = new AssetsCache(new NinjaPropertiesImpl(NinjaMode.prod));
+
+        AssetsController assetsController = newAssetsController(ninjaProperties, assetsCache);
+
+        when(contextRenerable.getRequestPath()).thenReturn("/assets/notAvailable");
+
+        ((Renderable) assetsController.serveStatic(null).getRenderable()).render(contextRenerable, Results.ok());
+
+        assertTrue(assetsCache.isMissing("assets/assets/notAvailable"));
+
+        ((Renderable) assetsController.serveStatic(null).getRenderable()).render(contextRenerable, Results.ok());
+
+        verify(contextRenerable, times(2)).finalizeHeadersWithoutFlashAndSessionCookie(resultCaptor.capture());
+        assertEquals(Result.SC_404_NOT_FOUND, resultCaptor.getValue().getStatusCode());
+
+    }
+
+
+    @Test
+    public void testFingerprintedAssetsAreCachedForever() throws Exception {
+
+        NinjaPropertiesImpl prodProperties = new NinjaPropertiesImpl(NinjaMode.prod);
+        prodProperties.setProperty(NinjaConstant.ASSETS_FINGERPRINT_ENABLED, "true");
+
+        AssetsController assetsController = new AssetsController(
+                httpCacheToolkit, mimeTypes, prodProperties);
+
+        String fingerprinted = assetsController.fingerprint("testasset.txt");
+
+        assertTrue(fingerprinted.matches("testasset\\.[0-9a-f]{12}\\.txt"));
+        assertEquals("missing.txt", assetsController.fingerprint("missing.txt"));
+
+        when(contextRenerable.getPathParameter(AssetsController.FILENAME_PATH_PARAM)).thenReturn(fingerprinted);
+        when(contextRenerable.getMethod()).thenReturn("GET");
+        when(contextRenerable.finalizeHeadersWithoutFlashAndSessionCookie(Mockito.any(Result.class)))
+                .thenReturn(responseStreams);
+
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        when(responseStreams.getOutputStream()).thenReturn(byteArrayOutputStream);
+
+        Result result = Results.ok();
+        ((Renderable) assetsController.serveStatic(null).getRenderable()).render(contextRenerable, result);
+
+        assertEquals(Result.SC_200_OK, result.getStatusCode());
+        assertEquals(AssetFingerprints.CACHE_CONTROL_IMMUTABLE, result.getHeaders().get("Cache-Control"));
+        assertEquals("testasset", byteArrayOutputStream.toString());
+
+        // outdated fingerprints are not found
+        when(contextRenerable.getPathParameter(AssetsController.FILENAME_PATH_PARAM))
+                .thenReturn("testasset.000000000000.txt");
+
+        result = Results.ok();
+        ((Renderable) assetsController.serveStatic(null).getRenderable()).render(contextRenerable, result);
+
+        verify(contextRenerable, times(2)).finalizeHeadersWithoutFlashAndSessionCookie(resultCaptor.capture());
+        assertEquals(Result.SC_404_NOT_FOUND, resultCaptor.getValue().getStatusCode());
+
+    }
+
+
+    @Test
+    public void testMissingAssetsOfFingerprintsAreRemembered() throws Exception {
+
+        NinjaPropertiesImpl prodProperties = new NinjaPropertiesImpl(NinjaMode.prod);
+        prodProperties.setProperty(NinjaConstant.ASSETS_FINGERPRINT_ENABLED, "true");
+
+        AssetsCache assetsCache = new AssetsCache(prodProperties);
+
+        AssetsController assetsController = newAssetsController(prodProperties, assetsCache);
+
+        when(contextRenerable.getPathParameter(AssetsController.FILENAME_PATH_PARAM))
+                .thenReturn("unknown.0123456789ab.css");
+
+        ((Renderable) assetsController.serveStatic(null).getRenderable()).render(contextRenerable, Results.ok());
+
+        assertTrue(assetsCache.isMissing(AssetsController.ASSETS_DIR + "/unknown.css"));
+        assertEquals("unknown.css", assetsController.fingerprint("unknown.css"));
+
+        verify(contextRenerable).finalizeHeadersWithoutFlashAndSessionCookie(resultCaptor.capture());
+        assertEquals(Result.SC_404_NOT_FOUND, resultCaptor.getValue().getStatusCode());
+
+    }
+
+
+    @Test
+    public void testPrecompressedAssets() throws Exception {
+
+        NinjaPropertiesImpl testProperties = new NinjaPropertiesImpl(NinjaMode.test);
+
+        AssetsController assetsController = new AssetsController(
+                httpCacheToolkit, mimeTypes, testProperties);
+
+        when(contextRenerable.getPathParameter(AssetsController.FILENAME_PATH_PARAM)).thenReturn("precompressed.css");
+        when(contextRenerable.getMethod()).thenReturn("GET");
+        when(mimeTypes.getContentType(Mockito.eq(contextRenerable), Mockito.anyString())).thenReturn("text/css");
+        when(contextRenerable.finalizeHeadersWithoutFlashAndSessionCookie(Mockito.any(Result.class)))
+                .thenReturn(responseStreams);
+
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        when(responseStreams.getOutputStream()).thenReturn(byteArrayOutputStream);
+
+        // brotli is preferred
+        when(contextRenerable.getAcceptEncoding()).thenReturn("gzip, deflate, br");
+
+        Result result = Results.ok();
+        ((Renderable) assetsController.serveStatic(null).getRenderable()).render(contextRenerable, result);
+
+        assertEquals("body {}", decodeBrotli(byteArrayOutputStream.toByteArray()));
+        assertEquals("br", result.getHeaders().get("Content-Encoding"));
+        assertEquals("Accept-Encoding", result.getHeaders().get("Vary"));
+        assertEquals("text/css", result.getContentType());
+        verify(httpCacheToolkit).addEtag(Mockito.eq(contextRenerable), Mockito.eq(result),
+                Mockito.endsWith("-br\""), Mockito.anyLong());
+
+        when(contextRenerable.getAcceptEncoding()).thenReturn("gzip;q=1.0, br;q=0.5");
+        byteArrayOutputStream.reset();
+
+        result = Results.ok();
+        ((Renderable) assetsController.serveStatic(null).getRenderable()).render(contextRenerable, result);
+
+        assertEquals("body {}", decodeGzip(byteArrayOutputStream.toByteArray()));
+        assertEquals("gzip", result.getHeaders().get("Content-Encoding"));
+
+        // clients that do not accept any encoding get the original
+        when(contextRenerable.getAcceptEncoding()).thenReturn(null);
+        byteArrayOutputStream.reset();
+
+        result = Results.ok();
+        ((Renderable) assetsController.serveStatic(null).getRenderable()).render(contextRenerable, result);
+
+        assertEquals("body {}", byteArrayOutputStream.toString());
+        assertFalse(result.getHeaders().containsKey("Content-Encoding"));
+        assertEquals("Accept-Encoding", result.getHeaders().get("Vary"));
+
+    }
+
+    @Test
+    public void testPrecompressedAssetsAreCachedInProdMode() throws Exception {
+
+        NinjaPropertiesImpl prodProperties = new NinjaPropertiesImpl(NinjaMode.prod);
+
+        AssetsCache assetsCache = new AssetsCache(prodProperties);
+
+        AssetsController assetsController = newAssetsController(prodProperties, assetsCache);
+
+        when(contextRenerable.getPathParameter(AssetsController.FILENAME_PATH_PARAM)).thenReturn("precompressed.css");
+        when(contextRenerable.getMethod()).thenReturn("GET");
+        when(contextRenerable.getAcceptEncoding()).thenReturn("gzip");
+        when(contextRenerable.finalizeHeadersWithoutFlashAndSessionCookie(Mockito.any(Result.class)))
+                .thenReturn(responseStreams);
+
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        when(responseStreams.getOutputStream()).thenReturn(byteArrayOutputStream);
+
+        Result result = Results.ok();
+        ((Renderable) assetsController.serveStatic(null).getRenderable()).render(contextRenerable, result);
+
+        byte [] gzipped = byteArrayOutputStream.toByteArray();
+
+        assertEquals("body {}", decodeGzip(gzipped));
+        assertEquals("gzip", result.getHeaders().get("Content-Encoding"));
+        assertEquals(String.valueOf(gzipped.length), result.getHeaders().get("Content-Length"));
+
+        // the variant is cached next to the original
+        assertEquals(gzipped.length, assetsCache.get("assets/precompressed.css.gz").bytes.length);
+        assertEquals(7, assetsCache.get("assets/precompressed.css").bytes.length);
+        assertFalse(assetsCache.get("assets/precompressed.css").etag.equals(
+                assetsCache.get("assets/precompressed.css.gz").etag));
+
+    }
+
+    private AssetsController newAssetsController(NinjaProperties ninjaProperties,
+                                                 AssetsCache assetsCache) {
+
+        return new AssetsController(
+                httpCacheToolkit,
+                mimeTypes,
+                ninjaProperties,
+                assetsCache,
+                new AssetFingerprints(ninjaProperties),
+                new PrecompressedAssets(ninjaProperties));
+
+    }
+
+    private static String decodeGzip(byte [] gzipped) throws IOException {
+
+        try (GZIPInputStream gzipInputStream
+                = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+            return new String(ByteStreams.toByteArray(gzipInputStream), NinjaConstant.UTF_8);
+        }
+
+    }
+
+    /**
+     * There is no brotli decoder on the test classpath. The fixture
+     * precompressed.css.br consists of uncompressed meta-blocks (RFC 7932,
+     * section 9.2) - which is all this decodes.
+     */
+    private static String decodeBrotli(byte [] brotli) throws IOException {
+
+        BitSet bits = BitSet.valueOf(brotli);
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+
+        // WBITS
+        assertFalse("only the default window is supported", bits.get(0));
+        int position = 1;
+
+        while (true) {
+
+            boolean isLast = bits.get(position++);
+
+            if (isLast) {
+                assertTrue("only an empty last meta-block is supported", bits.get(position));
+                return new String(decoded.toByteArray(), NinjaConstant.UTF_8);
+            }
+
+            int nibbles = 4 + (int) toLong(bits.get(position, position + 2));
+            position += 2;
+
+            int length = 1 + (int) toLong(bits.get(position, position + 4 * nibbles));
+            position += 4 * nibbles;
+
+            assertTrue("only uncompressed meta-blocks are supported", bits.get(position++));
+
+            // the data starts at the next byte
+            int offset = (position + 7) / 8;
+            decoded.write(brotli, offset, length);
+            position = (offset + length) * 8;
+
+        }
+
+    }
+
+    private static long toLong(BitSet bits) {
+
+        long [] words = bits.toLongArray();
+
+        return words.length > 0 ? words[0] : 0;
+
+    }
+
 }
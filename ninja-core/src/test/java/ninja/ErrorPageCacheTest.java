@@ -0,0 +1,249 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ninja;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ninja.i18n.Lang;
+import ninja.session.FlashScope;
+import ninja.session.Session;
+import ninja.template.TemplateEngine;
+import ninja.template.TemplateEngineManager;
+import ninja.utils.Message;
+import ninja.utils.NinjaProperties;
+import ninja.utils.ResponseStreams;
+import ninja.utils.ResultHandler;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+import org.slf4j.Logger;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Supplier;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ErrorPageCacheTest {
+
+    @Mock
+    Context context;
+
+    @Mock
+    Session session;
+
+    @Mock
+    FlashScope flashScope;
+
+    @Mock
+    Lang lang;
+
+    @Mock
+    NinjaProperties ninjaProperties;
+
+    @Mock
+    TemplateEngineManager templateEngineManager;
+
+    @Mock
+    TemplateEngine templateEngine;
+
+    @Mock
+    Logger logger;
+
+    ByteArrayOutputStream sentBytes;
+
+    ErrorPageCache errorPageCache;
+
+    @Before
+    public void setup() throws Exception {
+
+        when(context.getSession()).thenReturn(session);
+        when(session.isEmpty()).thenReturn(true);
+        when(context.getFlashScope()).thenReturn(flashScope);
+        when(flashScope.getCurrentFlashCookieData())
+                .thenReturn(Collections.<String, String>emptyMap());
+        when(context.getAcceptContentType()).thenReturn(Result.TEXT_HTML);
+        when(lang.getLanguage(any(Context.class), any(Optional.class)))
+                .thenReturn(Optional.of("en"));
+
+        when(context.finalizeHeaders(any(Result.class))).thenAnswer(new Answer<ResponseStreams>() {
+            @Override
+            public ResponseStreams answer(InvocationOnMock invocation) {
+                return newResponseStreams();
+            }
+        });
+
+        when(templateEngineManager.getTemplateEngineForContentType(Result.TEXT_HTML))
+                .thenReturn(templateEngine);
+
+        // renders the text of the message
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                Context context = (Context) invocation.getArguments()[0];
+                Result result = (Result) invocation.getArguments()[1];
+                try (Writer writer = context.finalizeHeaders(result).getWriter()) {
+                    writer.write(((Message) result.getRenderable()).getText());
+                }
+                return null;
+            }
+        }).when(templateEngine).invoke(any(Context.class), any(Result.class));
+
+        errorPageCache = new ErrorPageCache(
+                new ResultHandler(logger, templateEngineManager),
+                lang,
+                ninjaProperties);
+
+    }
+
+    @Test
+    public void testErrorPageIsRenderedOnlyOnce() throws Exception {
+
+        errorPageCache.handleResult(newNotFoundResult("not found"), context);
+        assertEquals("not found", sentBytes.toString("utf-8"));
+
+        errorPageCache.handleResult(newNotFoundResult("not found"), context);
+        assertEquals("not found", sentBytes.toString("utf-8"));
+
+        verify(templateEngine, times(1)).invoke(any(Context.class), any(Result.class));
+
+    }
+
+    @Test
+    public void testErrorPagesAreCachedPerLanguageAndMessage() throws Exception {
+
+        errorPageCache.handleResult(newNotFoundResult("not found"), context);
+        errorPageCache.handleResult(newNotFoundResult("nicht gefunden"), context);
+
+        when(lang.getLanguage(any(Context.class), any(Optional.class)))
+                .thenReturn(Optional.of("de"));
+
+        errorPageCache.handleResult(newNotFoundResult("nicht gefunden"), context);
+
+        verify(templateEngine, times(3)).invoke(any(Context.class), any(Result.class));
+
+    }
+
+    @Test
+    public void testLazyMessageIsOnlyResolvedOnCacheMiss() throws Exception {
+
+        final AtomicInteger resolved = new AtomicInteger();
+
+        Supplier<String> translation = new Supplier<String>() {
+            @Override
+            public String get() {
+                resolved.incrementAndGet();
+                return "not found";
+            }
+        };
+
+        errorPageCache.handleResult(newNotFoundResult(new Message(translation)), context);
+        errorPageCache.handleResult(newNotFoundResult(new Message(translation)), context);
+        assertEquals("not found", sentBytes.toString("utf-8"));
+
+        assertEquals(1, resolved.get());
+
+        when(lang.getLanguage(any(Context.class), any(Optional.class)))
+                .thenReturn(Optional.of("de"));
+
+        errorPageCache.handleResult(newNotFoundResult(new Message(translation)), context);
+
+        assertEquals(2, resolved.get());
+        verify(templateEngine, times(2)).invoke(any(Context.class), any(Result.class));
+
+    }
+
+    @Test
+    public void testErrorPageIsNotCachedWithSession() throws Exception {
+
+        when(session.isEmpty()).thenReturn(false);
+
+        errorPageCache.handleResult(newNotFoundResult("not found"), context);
+        errorPageCache.handleResult(newNotFoundResult("not found"), context);
+
+        verify(templateEngine, times(2)).invoke(any(Context.class), any(Result.class));
+
+    }
+
+    @Test
+    public void testErrorPageIsNotCachedInDevMode() throws Exception {
+
+        when(ninjaProperties.isDev()).thenReturn(true);
+
+        errorPageCache = new ErrorPageCache(
+                new ResultHandler(logger, templateEngineManager),
+                lang,
+                ninjaProperties);
+
+        errorPageCache.handleResult(newNotFoundResult("not found"), context);
+        errorPageCache.handleResult(newNotFoundResult("not found"), context);
+
+        verify(templateEngine, times(2)).invoke(any(Context.class), any(Result.class));
+
+    }
+
+    private Result newNotFoundResult(String text) {
+        return newNotFoundResult(new Message(text));
+    }
+
+    private Result newNotFoundResult(Message message) {
+
+        return Results
+                .notFound()
+                .supportedContentTypes(Result.TEXT_HTML, Result.APPLICATON_JSON, Result.APPLICATION_XML)
+                .fallbackContentType(Result.TEXT_HTML)
+                .render(message);
+
+    }
+
+    private ResponseStreams newResponseStreams() {
+
+        sentBytes = new ByteArrayOutputStream();
+
+        return new ResponseStreams() {
+
+            @Override
+            public OutputStream getOutputStream() {
+                return sentBytes;
+            }
+
+            @Override
+            public Writer getWriter() throws IOException {
+                return new OutputStreamWriter(sentBytes, "utf-8");
+            }
+
+        };
+
+    }
+
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ninja;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+
+import ninja.template.TemplateEngineFreemarker;
+import ninja.template.TemplateEngineJson;
+import ninja.template.TemplateEngineManager;
+import ninja.utils.ResponseStreams;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+
+@RunWith(MockitoJUnitRunner.class)
+public class FrozenResultTest {
+
+    @Mock
+    TemplateEngineManager templateEngineManager;
+
+    @Mock
+    TemplateEngineFreemarker templateEngineFreemarker;
+
+    @Mock
+    Context context;
+
+    @Mock
+    ResponseStreams responseStreams;
+
+    ByteArrayOutputStream outputStream;
+
+    @Before
+    public void setup() throws Exception {
+
+        when(templateEngineManager.getTemplateEngineForContentType(Result.APPLICATON_JSON))
+                .thenReturn(new TemplateEngineJson(new ObjectMapper()));
+        when(templateEngineManager.getTemplateEngineForContentType(Result.TEXT_HTML))
+                .thenReturn(templateEngineFreemarker);
+
+        outputStream = new ByteArrayOutputStream();
+        when(context.finalizeHeaders(any(Result.class))).thenReturn(responseStreams);
+        when(responseStreams.getOutputStream()).thenReturn(outputStream);
+
+    }
+
+    @Test
+    public void testJsonBodyIsRenderedInAdvance() throws Exception {
+
+        FrozenResult frozenResult = new FrozenResult(
+                Results.json().render(ImmutableMap.of("status", "ok")),
+                templateEngineManager);
+
+        assertTrue(frozenResult.isPreRendered());
+
+        Result result = frozenResult.newResult();
+
+        assertTrue(result.getRenderable() instanceof Renderable);
+        assertEquals(Result.APPLICATON_JSON, result.getContentType());
+        // Renderables bypass the ResultHandler => caching headers set already
+        assertEquals(Result.CACHE_CONTROL_DEFAULT_NOCACHE_VALUE,
+                result.getHeaders().get(Result.CACHE_CONTROL));
+
+        ((Renderable) result.getRenderable()).render(context, result);
+
+        assertEquals("{\"status\":\"ok\"}", outputStream.toString("utf-8"));
+
+    }
+
+    @Test
+    public void testHtmlBodyIsRenderedForEachRequest() {
+
+        Object renderable = new Object();
+
+        FrozenResult frozenResult = new FrozenResult(
+                Results.html().render(renderable).addHeader("X-Test", "test"),
+                templateEngineManager);
+
+        assertFalse(frozenResult.isPreRendered());
+
+        Result result = frozenResult.newResult();
+
+        assertEquals(renderable, result.getRenderable());
+        assertEquals("test", result.getHeaders().get("X-Test"));
+
+    }
+
+    @Test
+    public void testCookiesAreNotSharedBetweenRequests() {
+
+        FrozenResult frozenResult = new FrozenResult(
+                Results.ok().addCookie(Cookie.builder("static", "value").build()),
+                templateEngineManager);
+
+        Result first = frozenResult.newResult();
+        first.addCookie(Cookie.builder("NINJA_SESSION", "abc").build());
+
+        Result second = frozenResult.newResult();
+
+        assertNotNull(second.getCookie("static"));
+        assertEquals(null, second.getCookie("NINJA_SESSION"));
+
+    }
+
+}
@@ -19,10 +19,12 @@ package ninja;
 import com.google.common.base.Optional;
 import ninja.exceptions.BadRequestException;
 import ninja.exceptions.InternalServerErrorException;
+import ninja.i18n.Lang;
 import ninja.i18n.Messages;
 import ninja.lifecycle.LifecycleService;
 import ninja.utils.Message;
 import ninja.utils.NinjaConstant;
+import ninja.utils.NinjaProperties;
 import ninja.utils.ResultHandler;
 import static org.hamcrest.CoreMatchers.equalTo;
 import org.junit.Test;
@@ -55,6 +57,12 @@ public class NinjaDefaultTest {
     
     @Mock
     Messages messages;
+
+    @Mock
+    Lang lang;
+
+    @Mock
+    NinjaProperties ninjaProperties;
     
     @Mock
     Result result;
@@ -75,6 +83,7 @@ public class NinjaDefaultTest {
         ninjaDefault.resultHandler = resultHandler;
         ninjaDefault.router = router;
         ninjaDefault.messages = messages;
+        ninjaDefault.errorPageCache = new ErrorPageCache(resultHandler, lang, ninjaProperties);
         
         // Just a dummy to make logging work without
         // Null pointer exceptions.
@@ -251,6 +260,12 @@ public class NinjaDefaultTest {
         assertThat(result.getTemplate(), equalTo(NinjaConstant.LOCATION_VIEW_FTL_HTML_INTERNAL_SERVER_ERROR));
         assertTrue(result.getRenderable() instanceof Message);
 
+        // translated when rendered
+        verify(messages, Mockito.never()).getWithDefault(
+            Matchers.anyString(), Matchers.anyString(), any(Context.class), any(Optional.class));
+
+        ((Message) result.getRenderable()).getText();
+
         verify(messages).getWithDefault(
             Matchers.eq(NinjaConstant.I18N_NINJA_SYSTEM_INTERNAL_SERVER_ERROR_TEXT_KEY), 
             Matchers.eq(NinjaConstant.I18N_NINJA_SYSTEM_INTERNAL_SERVER_ERROR_TEXT_DEFAULT), 
@@ -287,6 +302,12 @@ public class NinjaDefaultTest {
         assertThat(result.getTemplate(), equalTo(NinjaConstant.LOCATION_VIEW_FTL_HTML_BAD_REQUEST));
         assertTrue(result.getRenderable() instanceof Message);
 
+        // translated when rendered
+        verify(messages, Mockito.never()).getWithDefault(
+            Matchers.anyString(), Matchers.anyString(), any(Context.class), any(Optional.class));
+
+        ((Message) result.getRenderable()).getText();
+
         verify(messages).getWithDefault(
             Matchers.eq(NinjaConstant.I18N_NINJA_SYSTEM_BAD_REQUEST_TEXT_KEY), 
             Matchers.eq(NinjaConstant.I18N_NINJA_SYSTEM_BAD_REQUEST_TEXT_DEFAULT), 
@@ -319,6 +340,12 @@ public class NinjaDefaultTest {
         assertThat(result.getStatusCode(), equalTo(Result.SC_404_NOT_FOUND));
         assertThat(result.getTemplate(), equalTo(NinjaConstant.LOCATION_VIEW_FTL_HTML_NOT_FOUND));
         assertTrue(result.getRenderable() instanceof Message);
+
+        // translated when rendered
+        verify(messages, Mockito.never()).getWithDefault(
+            Matchers.anyString(), Matchers.anyString(), any(Context.class), any(Optional.class));
+
+        ((Message) result.getRenderable()).getText();
         
         verify(messages).getWithDefault(
             Matchers.eq(NinjaConstant.I18N_NINJA_SYSTEM_NOT_FOUND_TEXT_KEY), 
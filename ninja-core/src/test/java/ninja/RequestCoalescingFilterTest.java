@@ -0,0 +1,354 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ninja;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ninja.i18n.Lang;
+import ninja.session.FlashScope;
+import ninja.session.Session;
+import ninja.template.TemplateEngineManager;
+import ninja.utils.NinjaConstant;
+import ninja.utils.NinjaMode;
+import ninja.utils.NinjaPropertiesImpl;
+import ninja.utils.ResponseStreams;
+import ninja.utils.ResultHandler;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+import org.slf4j.Logger;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RequestCoalescingFilterTest {
+
+    @Mock
+    Lang lang;
+
+    @Mock
+    Context context;
+
+    @Mock
+    Session session;
+
+    @Mock
+    FlashScope flashScope;
+
+    @Mock
+    FilterChain filterChain;
+
+    @Mock
+    Logger logger;
+
+    @Mock
+    TemplateEngineManager templateEngineManager;
+
+    AtomicInteger controllerCalls = new AtomicInteger();
+
+    // the first call of the controller waits for that
+    CountDownLatch releaseFirstCall = new CountDownLatch(1);
+
+    ByteArrayOutputStream sentBytes;
+
+    ExecutorService executorService = Executors.newCachedThreadPool();
+
+    RequestCoalescingFilter requestCoalescingFilter;
+
+    @Before
+    public void setup() throws Exception {
+
+        when(lang.getLanguage(any(Context.class), any(Optional.class)))
+                .thenReturn(Optional.of("en"));
+
+        when(context.getMethod()).thenReturn("GET");
+        when(context.getRequestPath()).thenReturn("/report");
+        when(context.getAcceptContentType()).thenReturn(Result.TEXT_HTML);
+        when(context.getSession()).thenReturn(session);
+        when(session.isEmpty()).thenReturn(true);
+        when(context.getFlashScope()).thenReturn(flashScope);
+        when(flashScope.getCurrentFlashCookieData())
+                .thenReturn(Collections.<String, String>emptyMap());
+        when(context.finalizeHeaders(any(Result.class))).thenAnswer(new Answer<ResponseStreams>() {
+            @Override
+            public ResponseStreams answer(InvocationOnMock invocation) {
+                return newResponseStreams();
+            }
+        });
+
+        useRoute("report");
+
+        // the "controller" renders the number of its calls
+        when(filterChain.next(any(Context.class))).thenAnswer(new Answer<Result>() {
+            @Override
+            public Result answer(InvocationOnMock invocation) throws Exception {
+
+                final int call = controllerCalls.incrementAndGet();
+
+                if (call == 1) {
+                    releaseFirstCall.await(5, TimeUnit.SECONDS);
+                }
+
+                return Results.ok().render(new Renderable() {
+                    @Override
+                    public void render(Context context, Result result) {
+                        try (Writer writer = context.finalizeHeaders(result).getWriter()) {
+                            writer.write("call " + call);
+                        } catch (IOException e) {
+                            throw new RuntimeException(e);
+                        }
+                    }
+                });
+
+            }
+        });
+
+        requestCoalescingFilter = new RequestCoalescingFilter(
+                new ResultHandler(logger, templateEngineManager),
+                lang,
+                new NinjaPropertiesImpl(NinjaMode.test));
+
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void testIdenticalRequestsShareOneResponse() throws Exception {
+
+        Future<Result> first = executorService.submit(newRequest());
+
+        waitUntilFirstRequestIsInFlight();
+
+        List<Future<Result>> waiting = Lists.newArrayList();
+
+        for (int i = 0; i < 5; i++) {
+            waiting.add(executorService.submit(newRequest()));
+        }
+
+        // give the identical requests time to queue up behind the first one
+        Thread.sleep(200);
+        releaseFirstCall.countDown();
+
+        assertEquals("call 1", send(first.get(5, TimeUnit.SECONDS)));
+
+        for (Future<Result> result : waiting) {
+            assertEquals("call 1", send(result.get(5, TimeUnit.SECONDS)));
+        }
+
+        assertEquals(1, controllerCalls.get());
+        assertEquals(1, requestCoalescingFilter.getExecutedCount());
+        assertEquals(5, requestCoalescingFilter.getCoalescedCount());
+        assertEquals(0, requestCoalescingFilter.getInFlightCount());
+
+    }
+
+    @Test
+    public void testWaitingRequestsFallBackAfterTimeout() throws Exception {
+
+        useRoute("reportWithoutTimeout");
+
+        Future<Result> first = executorService.submit(newRequest());
+
+        waitUntilFirstRequestIsInFlight();
+
+        assertEquals("call 2", send(requestCoalescingFilter.filter(filterChain, context)));
+        assertEquals(1, requestCoalescingFilter.getFallbackCount());
+
+        releaseFirstCall.countDown();
+
+        assertEquals("call 1", send(first.get(5, TimeUnit.SECONDS)));
+
+    }
+
+    @Test
+    public void testResponseWritingTheSessionIsNotShared() throws Exception {
+
+        final AtomicBoolean sessionWritten = new AtomicBoolean();
+
+        when(session.isEmpty()).thenAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) {
+                return !sessionWritten.get();
+            }
+        });
+
+        // the first call writes the session while its result is rendered
+        doAnswer(new Answer<Result>() {
+            @Override
+            public Result answer(InvocationOnMock invocation) throws Exception {
+
+                final int call = controllerCalls.incrementAndGet();
+
+                if (call == 1) {
+                    releaseFirstCall.await(5, TimeUnit.SECONDS);
+                }
+
+                return Results.ok().render(new Renderable() {
+                    @Override
+                    public void render(Context context, Result result) {
+
+                        if (call == 1) {
+                            context.getSession().put("user", "first");
+                            sessionWritten.set(true);
+                        }
+
+                        try (Writer writer = context.finalizeHeaders(result).getWriter()) {
+                            writer.write("call " + call);
+                        } catch (IOException e) {
+                            throw new RuntimeException(e);
+                        }
+
+                    }
+                });
+
+            }
+        }).when(filterChain).next(any(Context.class));
+
+        Future<Result> first = executorService.submit(newRequest());
+
+        waitUntilFirstRequestIsInFlight();
+
+        Future<Result> waiting = executorService.submit(newRequest());
+
+        Thread.sleep(200);
+        releaseFirstCall.countDown();
+
+        assertEquals("call 1", send(first.get(5, TimeUnit.SECONDS)));
+        assertEquals("call 2", send(waiting.get(5, TimeUnit.SECONDS)));
+
+        assertEquals(0, requestCoalescingFilter.getCoalescedCount());
+        assertEquals(1, requestCoalescingFilter.getFallbackCount());
+
+    }
+
+    @Test
+    public void testCompletedRequestsAreNotCached() throws Exception {
+
+        releaseFirstCall.countDown();
+
+        assertEquals("call 1", send(requestCoalescingFilter.filter(filterChain, context)));
+        assertEquals("call 2", send(requestCoalescingFilter.filter(filterChain, context)));
+
+        assertEquals(0, requestCoalescingFilter.getCoalescedCount());
+
+    }
+
+    private Callable<Result> newRequest() {
+
+        return new Callable<Result>() {
+            @Override
+            public Result call() {
+                return requestCoalescingFilter.filter(filterChain, context);
+            }
+        };
+
+    }
+
+    private void waitUntilFirstRequestIsInFlight() throws Exception {
+
+        long deadline = System.currentTimeMillis() + 5000;
+
+        while (controllerCalls.get() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+    }
+
+    private void useRoute(String method) throws Exception {
+
+        when(context.getRoute()).thenReturn(new Route(
+                "GET",
+                "/report",
+                ReportController.class,
+                ReportController.class.getMethod(method),
+                filterChain));
+
+    }
+
+    private String send(Result result) throws Exception {
+
+        new ResultHandler(logger, templateEngineManager).handleResult(result, context);
+
+        return sentBytes.toString(NinjaConstant.UTF_8);
+
+    }
+
+    private ResponseStreams newResponseStreams() {
+
+        sentBytes = new ByteArrayOutputStream();
+
+        return new ResponseStreams() {
+
+            @Override
+            public OutputStream getOutputStream() {
+                return sentBytes;
+            }
+
+            @Override
+            public Writer getWriter() throws IOException {
+                return new OutputStreamWriter(sentBytes, NinjaConstant.UTF_8);
+            }
+
+        };
+
+    }
+
+    public static class ReportController {
+
+        @CoalesceRequests
+        public Result report() {
+            return Results.ok();
+        }
+
+        @CoalesceRequests(timeout = "0s")
+        public Result reportWithoutTimeout() {
+            return Results.ok();
+        }
+
+    }
+
+}
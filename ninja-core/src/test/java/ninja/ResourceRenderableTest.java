@@ -0,0 +1,235 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ninja;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import ninja.utils.DateUtil;
+import ninja.utils.ResponseStreams;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ResourceRenderableTest {
+
+    private static final String CONTENT = "0123456789abcdefghijklmnopqrstuvwxyz";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Mock
+    Context context;
+
+    @Mock
+    ResponseStreams responseStreams;
+
+    ByteArrayOutputStream sentBytes;
+
+    Path file;
+
+    @Before
+    public void setup() throws Exception {
+
+        file = temporaryFolder.newFile("test.txt").toPath();
+        Files.write(file, CONTENT.getBytes(StandardCharsets.UTF_8));
+
+        sentBytes = new ByteArrayOutputStream();
+
+        when(context.getMethod()).thenReturn("GET");
+        when(context.finalizeHeaders(any(Result.class))).thenReturn(responseStreams);
+        when(responseStreams.getOutputStream()).thenReturn(sentBytes);
+
+    }
+
+    @Test
+    public void testCompleteFile() throws Exception {
+
+        Result result = render(Results.file(file));
+
+        assertEquals(Result.SC_200_OK, result.getStatusCode());
+        assertEquals(Result.APPLICATION_OCTET_STREAM, result.getContentType());
+        assertEquals("bytes", result.getHeaders().get("Accept-Ranges"));
+        assertEquals(String.valueOf(CONTENT.length()), result.getHeaders().get("Content-Length"));
+        assertEquals(
+                DateUtil.formatForHttpHeader(Files.getLastModifiedTime(file).toMillis()),
+                result.getHeaders().get("Last-Modified"));
+        assertEquals(CONTENT, sentBytes.toString("UTF-8"));
+
+    }
+
+    @Test
+    public void testSingleRange() throws Exception {
+
+        when(context.getHeader("Range")).thenReturn("bytes=10-15");
+
+        Result result = render(Results.file(file).contentType(Result.TEXT_PLAIN));
+
+        assertEquals(Result.SC_206_PARTIAL_CONTENT, result.getStatusCode());
+        assertEquals(Result.TEXT_PLAIN, result.getContentType());
+        assertEquals("bytes 10-15/36", result.getHeaders().get("Content-Range"));
+        assertEquals("6", result.getHeaders().get("Content-Length"));
+        assertEquals("abcdef", sentBytes.toString("UTF-8"));
+
+    }
+
+    @Test
+    public void testMultipleRanges() throws Exception {
+
+        when(context.getHeader("Range")).thenReturn("bytes=-2,0-1");
+
+        Result result = render(Results.file(file).contentType(Result.TEXT_PLAIN));
+
+        assertEquals(Result.SC_206_PARTIAL_CONTENT, result.getStatusCode());
+        assertTrue(result.getContentType().startsWith("multipart/byteranges; boundary="));
+
+        String boundary = result.getContentType().substring(
+                "multipart/byteranges; boundary=".length());
+
+        String expected = "\r\n--" + boundary + "\r\n"
+                + "Content-Type: text/plain; charset=utf-8\r\n"
+                + "Content-Range: bytes 0-1/36\r\n"
+                + "\r\n"
+                + "01"
+                + "\r\n--" + boundary + "\r\n"
+                + "Content-Type: text/plain; charset=utf-8\r\n"
+                + "Content-Range: bytes 34-35/36\r\n"
+                + "\r\n"
+                + "yz"
+                + "\r\n--" + boundary + "--\r\n";
+
+        assertEquals(expected, sentBytes.toString("UTF-8"));
+        assertEquals(String.valueOf(sentBytes.size()), result.getHeaders().get("Content-Length"));
+
+    }
+
+    @Test
+    public void testUnsatisfiableRange() throws Exception {
+
+        when(context.getHeader("Range")).thenReturn("bytes=100-");
+
+        Result result = render(Results.file(file));
+
+        assertEquals(Result.SC_416_REQUESTED_RANGE_NOT_SATISFIABLE, result.getStatusCode());
+        assertEquals("bytes */36", result.getHeaders().get("Content-Range"));
+        verify(responseStreams, never()).getOutputStream();
+
+    }
+
+    @Test
+    public void testOutdatedIfRangeSendsCompleteFile() throws Exception {
+
+        when(context.getHeader("Range")).thenReturn("bytes=0-1");
+        when(context.getHeader("If-Range")).thenReturn("\"outdated\"");
+
+        Result result = render(Results.file(file).addHeader("ETag", "\"current\""));
+
+        assertEquals(Result.SC_200_OK, result.getStatusCode());
+        assertEquals(CONTENT, sentBytes.toString("UTF-8"));
+
+        when(context.getHeader("If-Range")).thenReturn("\"current\"");
+        sentBytes.reset();
+
+        result = render(Results.file(file).addHeader("ETag", "\"current\""));
+
+        assertEquals(Result.SC_206_PARTIAL_CONTENT, result.getStatusCode());
+        assertEquals("01", sentBytes.toString("UTF-8"));
+
+    }
+
+    @Test
+    public void testRangesAreOnlyHonouredForGet() throws Exception {
+
+        when(context.getMethod()).thenReturn("HEAD");
+        when(context.getHeader("Range")).thenReturn("bytes=0-1");
+
+        Result result = render(Results.file(file));
+
+        assertEquals(Result.SC_200_OK, result.getStatusCode());
+        assertEquals(String.valueOf(CONTENT.length()), result.getHeaders().get("Content-Length"));
+        verify(responseStreams, never()).getOutputStream();
+
+    }
+
+    @Test
+    public void testMissingFile() throws Exception {
+
+        Result result = render(Results.file(file.resolveSibling("missing.txt")));
+
+        assertEquals(Result.SC_404_NOT_FOUND, result.getStatusCode());
+        verify(responseStreams, never()).getOutputStream();
+
+    }
+
+    @Test
+    public void testResourceInJar() throws Exception {
+
+        File jar = temporaryFolder.newFile("test.jar");
+
+        try (ZipOutputStream zipOutputStream = new ZipOutputStream(new FileOutputStream(jar))) {
+            zipOutputStream.putNextEntry(new ZipEntry("test.txt"));
+            zipOutputStream.write(CONTENT.getBytes(StandardCharsets.UTF_8));
+        }
+
+        URL url = new URL("jar:" + jar.toURI().toURL() + "!/test.txt");
+
+        Result result = render(Results.resource(url));
+
+        assertEquals(CONTENT, sentBytes.toString("UTF-8"));
+        assertFalse(result.getHeaders().containsKey("Content-Range"));
+
+        when(context.getHeader("Range")).thenReturn("bytes=1-2,30-31");
+        sentBytes.reset();
+
+        render(Results.resource(url));
+
+        assertTrue(sentBytes.toString("UTF-8").contains("\r\n\r\n12\r\n--"));
+        assertTrue(sentBytes.toString("UTF-8").contains("\r\n\r\nuv\r\n--"));
+
+    }
+
+    private Result render(Result result) {
+
+        ((Renderable) result.getRenderable()).render(context, result);
+
+        return result;
+
+    }
+
+}
@@ -0,0 +1,487 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ninja;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import ninja.cache.NinjaCache;
+import ninja.i18n.Lang;
+import ninja.session.FlashScope;
+import ninja.session.Session;
+import ninja.template.TemplateEngineManager;
+import ninja.utils.NinjaConstant;
+import ninja.utils.NinjaMode;
+import ninja.utils.NinjaPropertiesImpl;
+import ninja.utils.ResponseStreams;
+import ninja.utils.ResultHandler;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+import org.slf4j.Logger;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
+import com.google.inject.Injector;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ResponseCacheFilterTest {
+
+    @Mock
+    Injector injector;
+
+    @Mock
+    NinjaCache ninjaCache;
+
+    @Mock
+    Lang lang;
+
+    @Mock
+    Context context;
+
+    @Mock
+    Session session;
+
+    @Mock
+    FlashScope flashScope;
+
+    @Mock
+    FilterChain filterChain;
+
+    @Mock
+    Logger logger;
+
+    @Mock
+    TemplateEngineManager templateEngineManager;
+
+    NinjaPropertiesImpl ninjaProperties;
+
+    Map<String, Object> cache = new ConcurrentHashMap<>();
+
+    AtomicInteger controllerCalls = new AtomicInteger();
+
+    int statusCode = Result.SC_200_OK;
+
+    ByteArrayOutputStream sentBytes;
+
+    ResponseCacheFilter responseCacheFilter;
+
+    @Before
+    public void setup() throws Exception {
+
+        ninjaProperties = new NinjaPropertiesImpl(NinjaMode.test);
+
+        when(injector.getInstance(NinjaCache.class)).thenReturn(ninjaCache);
+
+        when(ninjaCache.get(anyString())).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                return cache.get((String) invocation.getArguments()[0]);
+            }
+        });
+
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                cache.put((String) invocation.getArguments()[0], invocation.getArguments()[1]);
+                return null;
+            }
+        }).when(ninjaCache).set(anyString(), any(), anyString());
+
+        when(lang.getLanguage(any(Context.class), any(Optional.class)))
+                .thenReturn(Optional.of("en"));
+
+        when(context.getMethod()).thenReturn("GET");
+        when(context.getRequestPath()).thenReturn("/catalogue");
+        when(context.getAcceptContentType()).thenReturn(Result.TEXT_HTML);
+        when(context.getSession()).thenReturn(session);
+        when(session.isEmpty()).thenReturn(true);
+        when(context.getFlashScope()).thenReturn(flashScope);
+        when(flashScope.getCurrentFlashCookieData())
+                .thenReturn(Collections.<String, String>emptyMap());
+        when(context.finalizeHeaders(any(Result.class))).thenAnswer(new Answer<ResponseStreams>() {
+            @Override
+            public ResponseStreams answer(InvocationOnMock invocation) {
+                return newResponseStreams();
+            }
+        });
+
+        useRoute("catalogue");
+
+        // the "controller" renders the number of its calls
+        when(filterChain.next(any(Context.class))).thenAnswer(new Answer<Result>() {
+            @Override
+            public Result answer(InvocationOnMock invocation) {
+
+                final int call = controllerCalls.incrementAndGet();
+
+                return Results.status(statusCode).render(new Renderable() {
+                    @Override
+                    public void render(Context context, Result result) {
+                        try (Writer writer = context.finalizeHeaders(result).getWriter()) {
+                            writer.write("call " + call);
+                        } catch (IOException e) {
+                            throw new RuntimeException(e);
+                        }
+                    }
+                });
+
+            }
+        });
+
+        responseCacheFilter = newResponseCacheFilter();
+
+    }
+
+    @After
+    public void tearDown() {
+        responseCacheFilter.dispose();
+    }
+
+    @Test
+    public void testResponseIsCached() throws Exception {
+
+        assertEquals("call 1", send(responseCacheFilter.filter(filterChain, context)));
+        assertEquals("call 1", send(responseCacheFilter.filter(filterChain, context)));
+
+        assertEquals(1, controllerCalls.get());
+        assertEquals(1, responseCacheFilter.getHitCount());
+        assertEquals(1, responseCacheFilter.getMissCount());
+
+    }
+
+    @Test
+    public void testResponsesAreCachedPerQueryParameters() throws Exception {
+
+        when(context.getParameters()).thenReturn(
+                ImmutableMap.of("page", new String [] {"1"}));
+
+        assertEquals("call 1", send(responseCacheFilter.filter(filterChain, context)));
+
+        when(context.getParameters()).thenReturn(
+                ImmutableMap.of("page", new String [] {"2"}));
+
+        assertEquals("call 2", send(responseCacheFilter.filter(filterChain, context)));
+        assertEquals("call 2", send(responseCacheFilter.filter(filterChain, context)));
+
+    }
+
+    @Test
+    public void testRequestsWithSessionAreNotCached() throws Exception {
+
+        when(session.isEmpty()).thenReturn(false);
+
+        send(responseCacheFilter.filter(filterChain, context));
+        send(responseCacheFilter.filter(filterChain, context));
+
+        assertEquals(2, controllerCalls.get());
+        assertTrue(cache.isEmpty());
+
+    }
+
+    @Test
+    public void testResponseWritingTheSessionIsNotCached() throws Exception {
+
+        final AtomicBoolean sessionWritten = new AtomicBoolean();
+
+        when(session.isEmpty()).thenAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) {
+                return !sessionWritten.get();
+            }
+        });
+
+        // the session is only written while the result is rendered
+        doAnswer(new Answer<Result>() {
+            @Override
+            public Result answer(InvocationOnMock invocation) {
+
+                controllerCalls.incrementAndGet();
+
+                return Results.ok().render(new Renderable() {
+                    @Override
+                    public void render(Context context, Result result) {
+
+                        context.getSession().put("visited", "true");
+                        sessionWritten.set(true);
+
+                        try (Writer writer = context.finalizeHeaders(result).getWriter()) {
+                            writer.write("personal");
+                        } catch (IOException e) {
+                            throw new RuntimeException(e);
+                        }
+
+                    }
+                });
+
+            }
+        }).when(filterChain).next(any(Context.class));
+
+        assertEquals("personal", send(responseCacheFilter.filter(filterChain, context)));
+
+        assertTrue(cache.isEmpty());
+
+    }
+
+    @Test
+    public void testResponseRenderedByInnerFilterIsStoredAsIs() throws Exception {
+
+        final AtomicReference<RenderedResponse> innerResponse = new AtomicReference<>();
+
+        // like the request coalescing filter between this filter and the controller
+        doAnswer(new Answer<Result>() {
+            @Override
+            public Result answer(InvocationOnMock invocation) {
+
+                Context context = (Context) invocation.getArguments()[0];
+
+                RenderedResponse renderedResponse = RenderedResponse.render(
+                        new ResultHandler(logger, templateEngineManager),
+                        Results.ok().render(new Renderable() {
+                            @Override
+                            public void render(Context context, Result result) {
+                                try (Writer writer = context.finalizeHeaders(result).getWriter()) {
+                                    writer.write("call " + controllerCalls.incrementAndGet());
+                                } catch (IOException e) {
+                                    throw new RuntimeException(e);
+                                }
+                            }
+                        }),
+                        context);
+
+                innerResponse.set(renderedResponse);
+
+                return renderedResponse.newResult();
+
+            }
+        }).when(filterChain).next(any(Context.class));
+
+        assertEquals("call 1", send(responseCacheFilter.filter(filterChain, context)));
+
+        ResponseCacheFilter.CachedResponse cachedResponse
+                = (ResponseCacheFilter.CachedResponse) cache.values().iterator().next();
+
+        assertSame(innerResponse.get().body, cachedResponse.renderedResponse.body);
+
+    }
+
+    @Test
+    public void testErrorsAreNotCached() throws Exception {
+
+        statusCode = Result.SC_404_NOT_FOUND;
+
+        send(responseCacheFilter.filter(filterChain, context));
+        send(responseCacheFilter.filter(filterChain, context));
+
+        assertEquals(2, controllerCalls.get());
+        assertTrue(cache.isEmpty());
+
+    }
+
+    @Test
+    public void testRoutesWithoutAnnotationAndDevModeAreNotCached() throws Exception {
+
+        useRoute("notCached");
+
+        send(responseCacheFilter.filter(filterChain, context));
+        send(responseCacheFilter.filter(filterChain, context));
+
+        assertEquals(2, controllerCalls.get());
+
+        useRoute("catalogue");
+        ninjaProperties = new NinjaPropertiesImpl(NinjaMode.dev);
+        responseCacheFilter = newResponseCacheFilter();
+
+        send(responseCacheFilter.filter(filterChain, context));
+        send(responseCacheFilter.filter(filterChain, context));
+
+        assertEquals(4, controllerCalls.get());
+
+    }
+
+    @Test
+    public void testStaleResponseIsServedWhileItIsRefreshed() throws Exception {
+
+        useRoute("alwaysStale");
+
+        assertEquals("call 1", send(responseCacheFilter.filter(filterChain, context)));
+
+        // stale - served as is while the refresh runs in the background
+        assertEquals("call 1", send(responseCacheFilter.filter(filterChain, context)));
+
+        long deadline = System.currentTimeMillis() + 5000;
+
+        while (responseCacheFilter.getRefreshCount() == 0
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(1, responseCacheFilter.getRefreshCount());
+        assertEquals("call 2", send(responseCacheFilter.filter(filterChain, context)));
+        assertEquals(1, responseCacheFilter.getMissCount());
+
+    }
+
+    @Test
+    public void testRefreshCanReadParametersAndContentType() throws Exception {
+
+        useRoute("alwaysStale");
+
+        when(context.getParameters()).thenReturn(
+                ImmutableMap.of("page", new String [] {"2"}));
+        when(context.getParameterAs("page", Integer.class)).thenReturn(2);
+        when(context.getParameterAs("size", Integer.class, 20)).thenReturn(20);
+        when(context.getHeaders()).thenReturn(ImmutableMap.of(
+                "Content-Type", Collections.singletonList(ContentTypes.APPLICATION_JSON)));
+        when(context.isRequestJson()).thenReturn(true);
+
+        // renders what it reads from the context - the refresh reads a snapshot
+        doAnswer(new Answer<Result>() {
+            @Override
+            public Result answer(InvocationOnMock invocation) {
+
+                Context context = (Context) invocation.getArguments()[0];
+
+                final String text = "page " + context.getParameterAs("page", Integer.class)
+                        + " size " + context.getParameterAs("size", Integer.class, 20)
+                        + " json " + context.isRequestJson()
+                        + " xml " + context.isRequestXml()
+                        + " multipart " + context.isMultipart()
+                        + " call " + controllerCalls.incrementAndGet();
+
+                return Results.ok().render(new Renderable() {
+                    @Override
+                    public void render(Context context, Result result) {
+                        try (Writer writer = context.finalizeHeaders(result).getWriter()) {
+                            writer.write(text);
+                        } catch (IOException e) {
+                            throw new RuntimeException(e);
+                        }
+                    }
+                });
+
+            }
+        }).when(filterChain).next(any(Context.class));
+
+        send(responseCacheFilter.filter(filterChain, context));
+        send(responseCacheFilter.filter(filterChain, context));
+
+        long deadline = System.currentTimeMillis() + 5000;
+
+        while (responseCacheFilter.getRefreshCount() == 0
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(1, responseCacheFilter.getRefreshCount());
+        assertEquals("page 2 size 20 json true xml false multipart false call 2",
+                send(responseCacheFilter.filter(filterChain, context)));
+
+    }
+
+    private ResponseCacheFilter newResponseCacheFilter() {
+
+        return new ResponseCacheFilter(
+                injector,
+                new ResultHandler(logger, templateEngineManager),
+                lang,
+                ninjaProperties);
+
+    }
+
+    private void useRoute(String method) throws Exception {
+
+        when(context.getRoute()).thenReturn(new Route(
+                "GET",
+                "/catalogue",
+                CatalogueController.class,
+                CatalogueController.class.getMethod(method),
+                filterChain));
+
+    }
+
+    private String send(Result result) throws Exception {
+
+        new ResultHandler(logger, templateEngineManager).handleResult(result, context);
+
+        return sentBytes.toString(NinjaConstant.UTF_8);
+
+    }
+
+    private ResponseStreams newResponseStreams() {
+
+        sentBytes = new ByteArrayOutputStream();
+
+        return new ResponseStreams() {
+
+            @Override
+            public OutputStream getOutputStream() {
+                return sentBytes;
+            }
+
+            @Override
+            public Writer getWriter() throws IOException {
+                return new OutputStreamWriter(sentBytes, NinjaConstant.UTF_8);
+            }
+
+        };
+
+    }
+
+    public static class CatalogueController {
+
+        @CacheResponse(ttl = "10mn")
+        public Result catalogue() {
+            return Results.ok();
+        }
+
+        @CacheResponse(ttl = "0s", staleWhileRevalidate = "1mn")
+        public Result alwaysStale() {
+            return Results.ok();
+        }
+
+        public Result notCached() {
+            return Results.ok();
+        }
+
+    }
+
+}
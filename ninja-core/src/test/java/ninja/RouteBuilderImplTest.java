@@ -345,6 +345,25 @@ public class RouteBuilderImplTest {
         assertEquals(result.getTemplate(), template);
     }
 
+    @Test
+    public void testRouteWithResultReturnsNewResultForEachRequest() {
+        RouteBuilderImpl routeBuilder = new RouteBuilderImpl();
+        routeBuilder.GET().route("/ping").with(Results.ok().render("pong"));
+
+        Route route = routeBuilder.buildRoute(injector);
+
+        Result first = route.getFilterChain().next(null);
+        first.doNotCacheContent();
+        first.contentType(Result.APPLICATON_JSON);
+
+        Result second = route.getFilterChain().next(null);
+
+        assertFalse(first == second);
+        assertTrue(second.getHeaders().isEmpty());
+        assertEquals(null, second.getContentType());
+        assertEquals("pong", second.getRenderable());
+    }
+
     @Test
     public void testFailedControllerRegistration() {
         RouteBuilderImpl routeBuilder = new RouteBuilderImpl();
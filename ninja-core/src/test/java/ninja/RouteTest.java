@@ -48,5 +48,38 @@ public class RouteTest {
                 Route.convertRawUriToRegex("/me/{id: \\d+}"),
                 CoreMatchers.equalTo("/me/(\\d+)"));
     }
-    
+
+    @Test
+    public void getDefaultTemplateName() throws Exception {
+
+        Route route = new Route(
+                "GET",
+                "/",
+                RouteTest.class,
+                RouteTest.class.getMethod("getDefaultTemplateName"),
+                null);
+
+        assertEquals(
+                "/ninja/RouteTest/getDefaultTemplateName.ftl.html",
+                route.getDefaultTemplateName(".ftl.html"));
+
+        assertEquals(
+                "/ninja/RouteTest/getDefaultTemplateName.custom",
+                route.getDefaultTemplateName(".custom"));
+
+        // controllers in the default package
+        Class<?> defaultPackageController = Class.forName("DefaultPackageController");
+
+        assertEquals(
+                "/DefaultPackageController/index.ftl.html",
+                new Route("GET", "/", defaultPackageController,
+                        defaultPackageController.getMethod("index"), null)
+                        .getDefaultTemplateName(".ftl.html"));
+
+        // routes without controller do not have a template
+        assertNull(new Route("GET", "/", null, null, null)
+                .getDefaultTemplateName(".ftl.html"));
+
+    }
+
 }
@@ -125,6 +125,19 @@ public class RouterImplTest {
 
     }
 
+    @Test
+    public void testHeadIsAnsweredByGetRoute() {
+
+        Route route = router.getRouteFor("HEAD", "/testroute");
+
+        assertEquals("GET", route.getHttpMethod());
+        assertEquals("/testroute", route.getUri());
+
+        assertNull(router.getRouteFor("HEAD", "/unknown"));
+        assertNull(router.getRouteFor("POST", "/testroute"));
+
+    }
+
     // Just a dummy TestController for mocking...
     public static class TestController {
 
@@ -17,6 +17,7 @@
 package ninja.bodyparser;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.junit.Assert.assertThat;
 
 import java.util.Collections;
@@ -30,13 +31,16 @@ import ninja.utils.LoggerProvider;
 import ninja.utils.NinjaMode;
 import ninja.utils.NinjaProperties;
 import ninja.utils.NinjaPropertiesImpl;
+import ninja.utils.ObjectMapperProvider;
 
 import org.junit.Test;
 import org.slf4j.Logger;
 
+import com.fasterxml.jackson.core.JsonFactory;
 import com.google.common.collect.Lists;
 import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
+import com.google.inject.Inject;
 import com.google.inject.Injector;
 
 public class BodyParserEngineManagerImplTest {
@@ -49,6 +53,22 @@ public class BodyParserEngineManagerImplTest {
                 equalTo("[application/json, application/x-www-form-urlencoded, application/xml]"));
     }
 
+    @Test
+    public void testJacksonBinaryBodyParserEngineCanBeBound() {
+        assertThat(createBodyParserEngineManager(BodyParserEngineTestFormat.class)
+                .getBodyParserEngineForContentType("application/x-test-format"),
+                instanceOf(BodyParserEngineTestFormat.class));
+    }
+
+    public static class BodyParserEngineTestFormat extends BodyParserEngineJacksonBinary {
+
+        @Inject
+        public BodyParserEngineTestFormat(ObjectMapperProvider objectMapperProvider) {
+            super(objectMapperProvider.get(new JsonFactory()), "application/x-test-format");
+        }
+
+    }
+
     private BodyParserEngineManager createBodyParserEngineManager(final Class<?>... toBind) {
         return createInjector(toBind).getInstance(BodyParserEngineManager.class);
     }
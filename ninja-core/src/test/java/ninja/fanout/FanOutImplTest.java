@@ -0,0 +1,204 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ninja.fanout;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import ninja.Context;
+import ninja.exceptions.BadRequestException;
+import ninja.exceptions.InternalServerErrorException;
+import ninja.utils.NinjaConstant;
+import ninja.utils.NinjaMode;
+import ninja.utils.NinjaPropertiesImpl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.slf4j.MDC;
+
+@RunWith(MockitoJUnitRunner.class)
+public class FanOutImplTest {
+
+    @Mock
+    Context context;
+
+    FanOutImpl fanOut;
+
+    @Before
+    public void setup() {
+
+        NinjaPropertiesImpl ninjaProperties = new NinjaPropertiesImpl(NinjaMode.test);
+        ninjaProperties.setProperty(NinjaConstant.FANOUT_THREADS, "4");
+
+        fanOut = new FanOutImpl(ninjaProperties);
+
+    }
+
+    @After
+    public void tearDown() {
+        fanOut.dispose();
+        MDC.clear();
+    }
+
+    @Test
+    public void testInvokeAllReturnsResultsInOrder() {
+
+        List<String> results = fanOut.invokeAll(
+                context,
+                Arrays.asList(
+                        sleepAndReturn(50, "first"),
+                        sleepAndReturn(0, "second"),
+                        sleepAndReturn(20, "third")));
+
+        assertEquals(Arrays.asList("first", "second", "third"), results);
+
+        // deadline is shared by all fan-outs of the request
+        verify(context).setAttribute(eq(FanOut.DEADLINE_ATTRIBUTE), anyLong());
+
+    }
+
+    @Test
+    public void testFirstFailureCancelsRemainingTasks() throws Exception {
+
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+
+        FanOutTasks tasks = fanOut.newTasks(context);
+
+        Future<String> slow = tasks.submit(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                started.countDown();
+                try {
+                    Thread.sleep(10000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                    throw e;
+                }
+                return "slow";
+            }
+        });
+
+        // otherwise the slow task may be cancelled before it even started
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        tasks.submit(new Callable<String>() {
+            @Override
+            public String call() {
+                throw new BadRequestException("failing task");
+            }
+        });
+
+        try {
+            tasks.join();
+            fail("Exception of failing task expected");
+        } catch (BadRequestException e) {
+            assertEquals("failing task", e.getMessage());
+        }
+
+        assertTrue(slow.isCancelled());
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+
+    }
+
+    @Test
+    public void testCheckedExceptionIsWrapped() {
+
+        FanOutTasks tasks = fanOut.newTasks(context);
+
+        tasks.submit(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                throw new Exception("checked");
+            }
+        });
+
+        try {
+            tasks.join();
+            fail("InternalServerErrorException expected");
+        } catch (InternalServerErrorException e) {
+            assertEquals("checked", e.getCause().getMessage());
+        }
+
+    }
+
+    @Test
+    public void testDeadlineOfRequestIsHonoured() {
+
+        when(context.getAttribute(FanOut.DEADLINE_ATTRIBUTE))
+                .thenReturn(System.currentTimeMillis() + 100);
+
+        FanOutTasks tasks = fanOut.newTasks(context);
+
+        Future<String> slow = tasks.submit(sleepAndReturn(10000, "slow"));
+
+        try {
+            tasks.join();
+            fail("InternalServerErrorException expected");
+        } catch (InternalServerErrorException e) {
+            // expected
+        }
+
+        assertTrue(slow.isCancelled());
+
+    }
+
+    @Test
+    public void testMdcIsPropagated() {
+
+        MDC.put("requestId", "1234");
+
+        List<String> results = fanOut.invokeAll(
+                context,
+                Arrays.asList(new Callable<String>() {
+                    @Override
+                    public String call() {
+                        return MDC.get("requestId");
+                    }
+                }));
+
+        assertEquals("1234", results.get(0));
+
+    }
+
+    private Callable<String> sleepAndReturn(final long millis, final String value) {
+        return new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                Thread.sleep(millis);
+                return value;
+            }
+        };
+    }
+
+}
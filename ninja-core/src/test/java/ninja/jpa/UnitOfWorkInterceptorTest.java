@@ -16,10 +16,17 @@
 
 package ninja.jpa;
 
+import java.util.Arrays;
+
+import ninja.Result;
+import ninja.Results;
+import ninja.utils.StreamingRenderables;
+
 import org.aopalliance.intercept.MethodInvocation;
 import org.junit.Test;
 import static org.junit.Assert.*;
 import org.junit.runner.RunWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
@@ -80,4 +87,95 @@ public class UnitOfWorkInterceptorTest {
         
     }
     
+    @Test
+    public void assertUnitOfWorkStaysOpenUntilLazyRenderableIsClosed() throws Throwable {
+
+        UnitOfWorkInterceptor unitOfWorkInterceptor = new UnitOfWorkInterceptor();
+        unitOfWorkInterceptor.unitOfWork = unitOfWork;
+
+        Mockito.when(methodInvocation.proceed()).thenReturn(
+                Results.json().render(Arrays.asList("a", "b").iterator()));
+
+        Result result = (Result) unitOfWorkInterceptor.invoke(methodInvocation);
+
+        Mockito.verify(unitOfWork).begin();
+        // still open for streaming
+        Mockito.verify(unitOfWork, Mockito.never()).end();
+
+        StreamingRenderables.closeQuietly(result.getRenderable());
+
+        Mockito.verify(unitOfWork).end();
+        assertNull(unitOfWorkInterceptor.didWeStartWork.get());
+
+    }
+
+    @Test
+    public void assertUnitOfWorkOfLazyRenderableThatIsNeverRenderedDoesNotLeak() throws Throwable {
+
+        UnitOfWorkInterceptor unitOfWorkInterceptor = new UnitOfWorkInterceptor();
+        unitOfWorkInterceptor.unitOfWork = unitOfWork;
+
+        Mockito.when(methodInvocation.proceed()).thenReturn(
+                Results.json().render(Arrays.asList("a", "b").iterator()));
+
+        Result neverRendered = (Result) unitOfWorkInterceptor.invoke(methodInvocation);
+
+        // the next call on this thread is not treated as nested
+        assertNull(unitOfWorkInterceptor.didWeStartWork.get());
+
+        Mockito.when(methodInvocation.proceed()).thenReturn(Results.ok());
+
+        unitOfWorkInterceptor.invoke(methodInvocation);
+
+        // the left over unit of work is ended before the next one begins
+        InOrder inOrder = Mockito.inOrder(unitOfWork);
+        inOrder.verify(unitOfWork).begin();
+        inOrder.verify(unitOfWork).end();
+        inOrder.verify(unitOfWork).begin();
+        inOrder.verify(unitOfWork).end();
+        assertNull(unitOfWorkInterceptor.lazyWork.get());
+
+        // closing it late does not end the unit of work of someone else
+        StreamingRenderables.closeQuietly(neverRendered.getRenderable());
+
+        Mockito.verify(unitOfWork, Mockito.times(2)).end();
+
+    }
+
+    @Test
+    public void assertLazyRenderableClosedOnAnotherThreadIsEndedOnItsOwnThread() throws Throwable {
+
+        UnitOfWorkInterceptor unitOfWorkInterceptor = new UnitOfWorkInterceptor();
+        unitOfWorkInterceptor.unitOfWork = unitOfWork;
+
+        Mockito.when(methodInvocation.proceed()).thenReturn(
+                Results.json().render(Arrays.asList("a", "b").iterator()));
+
+        final Result result = (Result) unitOfWorkInterceptor.invoke(methodInvocation);
+
+        Thread renderer = new Thread() {
+            @Override
+            public void run() {
+                StreamingRenderables.closeQuietly(result.getRenderable());
+            }
+        };
+        renderer.start();
+        renderer.join();
+
+        // the unit of work is bound to this thread - not to the renderer
+        Mockito.verify(unitOfWork, Mockito.never()).end();
+
+        Mockito.when(methodInvocation.proceed()).thenReturn(Results.ok());
+
+        unitOfWorkInterceptor.invoke(methodInvocation);
+
+        InOrder inOrder = Mockito.inOrder(unitOfWork);
+        inOrder.verify(unitOfWork).begin();
+        inOrder.verify(unitOfWork).end();
+        inOrder.verify(unitOfWork).begin();
+        inOrder.verify(unitOfWork).end();
+        assertNull(unitOfWorkInterceptor.lazyWork.get());
+
+    }
+
 }
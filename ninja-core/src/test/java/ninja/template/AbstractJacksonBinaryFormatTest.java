@@ -0,0 +1,198 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ninja.template;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+import ninja.Context;
+import ninja.Result;
+import ninja.Results;
+import ninja.Router;
+import ninja.RouterImpl;
+import ninja.bodyparser.BodyParserEngine;
+import ninja.bodyparser.BodyParserEngineManager;
+import ninja.i18n.Lang;
+import ninja.i18n.LangImpl;
+import ninja.template.JacksonBinaryFormatBenchmark.Article;
+import ninja.utils.LoggerProvider;
+import ninja.utils.NinjaMode;
+import ninja.utils.NinjaProperties;
+import ninja.utils.NinjaPropertiesImpl;
+import ninja.utils.ObjectMapperProvider;
+import ninja.utils.ResponseStreams;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Module;
+
+/**
+ * Tests a binary Jackson data format module (Smile, CBOR...). The module
+ * test only passes the module, the data format and its engines:
+ *
+ * <pre>
+ * public class SmileModuleTest extends AbstractJacksonBinaryFormatTest {
+ *
+ *     public SmileModuleTest() {
+ *         super(new SmileModule(), new SmileFactory(), Result.APPLICATION_SMILE,
+ *                 TemplateEngineSmile.class, BodyParserEngineSmile.class);
+ *     }
+ *
+ * }
+ * </pre>
+ *
+ * Throughput is measured by {@link JacksonBinaryFormatBenchmark} - not by
+ * the unit tests.
+ */
+public abstract class AbstractJacksonBinaryFormatTest {
+
+    private final Module module;
+
+    private final JsonFactory jsonFactory;
+
+    private final String contentType;
+
+    private final Class<? extends TemplateEngine> templateEngineClass;
+
+    private final Class<? extends BodyParserEngine> bodyParserEngineClass;
+
+    Injector injector;
+
+    protected AbstractJacksonBinaryFormatTest(
+            Module module,
+            JsonFactory jsonFactory,
+            String contentType,
+            Class<? extends TemplateEngine> templateEngineClass,
+            Class<? extends BodyParserEngine> bodyParserEngineClass) {
+
+        this.module = module;
+        this.jsonFactory = jsonFactory;
+        this.contentType = contentType;
+        this.templateEngineClass = templateEngineClass;
+        this.bodyParserEngineClass = bodyParserEngineClass;
+
+    }
+
+    @Before
+    public void setup() {
+
+        injector = Guice.createInjector(module, new AbstractModule() {
+            @Override
+            protected void configure() {
+
+                bind(Logger.class).toProvider(LoggerProvider.class);
+                bind(Lang.class).to(LangImpl.class);
+                bind(Router.class).to(RouterImpl.class);
+
+                bind(NinjaProperties.class).toInstance(new NinjaPropertiesImpl(NinjaMode.test));
+
+            }
+        });
+
+    }
+
+    @Test
+    public void testEnginesAreRegisteredWithTheManagers() {
+
+        assertTrue(templateEngineClass.isInstance(
+                injector.getInstance(TemplateEngineManager.class)
+                        .getTemplateEngineForContentType(contentType)));
+
+        assertTrue(bodyParserEngineClass.isInstance(
+                injector.getInstance(BodyParserEngineManager.class)
+                        .getBodyParserEngineForContentType(contentType)));
+
+    }
+
+    @Test
+    public void testRenderedBodyCanBeParsed() throws Exception {
+
+        Context context = mock(Context.class);
+        ResponseStreams responseStreams = mock(ResponseStreams.class);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        when(context.finalizeHeaders(any(Result.class))).thenReturn(responseStreams);
+        when(responseStreams.getOutputStream()).thenReturn(outputStream);
+
+        Result result = Results.ok()
+                .contentType(contentType)
+                .render(new User("ninja", 42));
+
+        injector.getInstance(templateEngineClass).invoke(context, result);
+
+        assertNull(result.getCharset());
+
+        when(context.getInputStream()).thenReturn(
+                new ByteArrayInputStream(outputStream.toByteArray()));
+
+        User user = injector.getInstance(bodyParserEngineClass)
+                .invoke(context, User.class);
+
+        assertEquals("ninja", user.name);
+        assertEquals(42, user.age);
+
+    }
+
+    @Test
+    public void testIsSmallerThanJson() throws Exception {
+
+        ObjectMapperProvider objectMapperProvider = new ObjectMapperProvider();
+
+        ObjectMapper jsonMapper = objectMapperProvider.get();
+        ObjectMapper binaryMapper = objectMapperProvider.get(jsonFactory);
+
+        List<Article> articles = JacksonBinaryFormatBenchmark.articles(1000);
+
+        byte[] json = jsonMapper.writeValueAsBytes(articles);
+        byte[] binary = binaryMapper.writeValueAsBytes(articles);
+
+        assertTrue(binary.length < json.length);
+
+    }
+
+    public static class User {
+
+        public String name;
+
+        public int age;
+
+        public User() {}
+
+        public User(String name, int age) {
+            this.name = name;
+            this.age = age;
+        }
+
+    }
+
+}
@@ -0,0 +1,138 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ninja.template;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import ninja.utils.ObjectMapperProvider;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.type.CollectionType;
+
+/**
+ * Compares size and throughput of a binary Jackson data format against Json
+ * for a typical list of entities. Timings on a build machine are too noisy
+ * to assert on - so this is not a unit test. Run it with the data format on
+ * the classpath and the class name of its JsonFactory as argument:
+ *
+ * <pre>
+ * java ninja.template.JacksonBinaryFormatBenchmark \
+ *     com.fasterxml.jackson.dataformat.smile.SmileFactory
+ * </pre>
+ */
+public class JacksonBinaryFormatBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(JacksonBinaryFormatBenchmark.class);
+
+    private static final int ITERATIONS = 200;
+
+    public static void main(String[] args) throws Exception {
+
+        JsonFactory jsonFactory = (JsonFactory) Class.forName(args[0]).newInstance();
+
+        ObjectMapperProvider objectMapperProvider = new ObjectMapperProvider();
+
+        ObjectMapper jsonMapper = objectMapperProvider.get();
+        ObjectMapper binaryMapper = objectMapperProvider.get(jsonFactory);
+
+        List<Article> articles = articles(1000);
+
+        logger.info("Json: {} bytes, {}: {} bytes",
+                jsonMapper.writeValueAsBytes(articles).length,
+                jsonFactory.getFormatName(),
+                binaryMapper.writeValueAsBytes(articles).length);
+
+        // warm up both mappers before measuring
+        roundtrips(jsonMapper, articles);
+        roundtrips(binaryMapper, articles);
+
+        long jsonNanos = roundtrips(jsonMapper, articles);
+        long binaryNanos = roundtrips(binaryMapper, articles);
+
+        logger.info("Json: {} roundtrips/s, {}: {} roundtrips/s",
+                ITERATIONS * 1000000000L / jsonNanos,
+                jsonFactory.getFormatName(),
+                ITERATIONS * 1000000000L / binaryNanos);
+
+    }
+
+    private static long roundtrips(ObjectMapper objectMapper,
+                                   List<Article> articles) throws Exception {
+
+        CollectionType type = objectMapper.getTypeFactory()
+                .constructCollectionType(List.class, Article.class);
+
+        long start = System.nanoTime();
+
+        for (int i = 0; i < ITERATIONS; i++) {
+
+            byte[] bytes = objectMapper.writeValueAsBytes(articles);
+            List<Article> parsed = objectMapper.readValue(bytes, type);
+
+            if (parsed.size() != articles.size()) {
+                throw new IllegalStateException("Roundtrip lost articles.");
+            }
+
+        }
+
+        return System.nanoTime() - start;
+
+    }
+
+    public static List<Article> articles(int count) {
+
+        List<Article> articles = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+
+            Article article = new Article();
+            article.id = i;
+            article.title = "Article number " + i;
+            article.author = "author" + (i % 10) + "@example.com";
+            article.postedAt = 1400000000000L + i * 60000L;
+            article.tags = Arrays.asList("ninja", "framework", "tag" + (i % 5));
+
+            articles.add(article);
+
+        }
+
+        return articles;
+
+    }
+
+    public static class Article {
+
+        public long id;
+
+        public String title;
+
+        public String author;
+
+        public long postedAt;
+
+        public List<String> tags;
+
+    }
+
+}
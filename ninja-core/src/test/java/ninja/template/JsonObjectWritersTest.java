@@ -0,0 +1,57 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ninja.template;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class JsonObjectWritersTest {
+
+    JsonObjectWriters jsonObjectWriters = new JsonObjectWriters(new ObjectMapper());
+
+    @Test
+    public void testWritersAreCachedPerTypeAndView() {
+
+        assertSame(
+                jsonObjectWriters.get(String.class, null),
+                jsonObjectWriters.get(String.class, null));
+
+        assertSame(
+                jsonObjectWriters.get(String.class, View.class),
+                jsonObjectWriters.get(String.class, View.class));
+
+        assertSame(
+                jsonObjectWriters.get(null, View.class),
+                jsonObjectWriters.get(null, View.class));
+
+        assertNotSame(
+                jsonObjectWriters.get(String.class, null),
+                jsonObjectWriters.get(String.class, View.class));
+
+        assertNotSame(
+                jsonObjectWriters.get(null, View.class),
+                jsonObjectWriters.get(String.class, View.class));
+
+    }
+
+    static class View {}
+
+}
@@ -0,0 +1,149 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ninja.template;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import ninja.Context;
+import ninja.Result;
+import ninja.Results;
+import ninja.utils.ResponseStreams;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class TemplateEngineCsvTest {
+
+    Context context;
+
+    ByteArrayOutputStream outputStream;
+
+    TemplateEngineCsv templateEngineCsv;
+
+    @Before
+    public void setup() throws Exception {
+
+        context = mock(Context.class);
+        ResponseStreams responseStreams = mock(ResponseStreams.class);
+
+        when(context.finalizeHeaders(any(Result.class)))
+                .thenReturn(responseStreams);
+        when(responseStreams.getWriter()).thenAnswer(
+                new Answer<Writer>() {
+                    @Override
+                    public Writer answer(InvocationOnMock invocation) throws Exception {
+                        outputStream = new ByteArrayOutputStream();
+                        return new OutputStreamWriter(outputStream, "utf-8");
+                    }
+                });
+
+        templateEngineCsv = new TemplateEngineCsv(new ObjectMapper());
+
+    }
+
+    @Test
+    public void testBeansWithHeader() throws Exception {
+
+        templateEngineCsv.invoke(context, Results.csv().render(
+                Arrays.asList(new User("ninja", 3), new User("Bauer, \"Raphael\"", 4))));
+
+        assertEquals(
+                "name,age\r\n"
+                + "ninja,3\r\n"
+                + "\"Bauer, \"\"Raphael\"\"\",4\r\n",
+                outputStream.toString("utf-8"));
+
+    }
+
+    @Test
+    public void testMapsUseColumnsOfFirstRow() throws Exception {
+
+        Map<String, Object> first = new LinkedHashMap<>();
+        first.put("a", 1);
+        first.put("b", "x\ny");
+
+        Map<String, Object> second = new LinkedHashMap<>();
+        second.put("b", 2);
+        second.put("c", 3);
+
+        templateEngineCsv.invoke(context, Results.csv().render(
+                Arrays.asList(first, second).iterator()));
+
+        assertEquals(
+                "a,b\r\n"
+                + "1,\"x\ny\"\r\n"
+                + ",2\r\n",
+                outputStream.toString("utf-8"));
+
+    }
+
+    @Test
+    public void testRowsWithoutHeader() throws Exception {
+
+        templateEngineCsv.invoke(context, Results.csv().render(
+                new Object [] {
+                        Arrays.asList("a", 1, null),
+                        new Object [] {"b", Arrays.asList(1, 2)},
+                        "c"}));
+
+        assertEquals(
+                "a,1,\r\n"
+                + "b,\"[1,2]\"\r\n"
+                + "c\r\n",
+                outputStream.toString("utf-8"));
+
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+
+        templateEngineCsv.invoke(context, Results.csv().render(Collections.emptyIterator()));
+
+        assertEquals("", outputStream.toString("utf-8"));
+
+    }
+
+    public static class User {
+
+        public String name;
+
+        public int age;
+
+        public User(String name, int age) {
+            this.name = name;
+            this.age = age;
+        }
+
+    }
+
+}
@@ -0,0 +1,173 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ninja.template;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Map;
+
+import ninja.cache.NinjaCache;
+import ninja.utils.NinjaConstant;
+import ninja.utils.NinjaMode;
+import ninja.utils.NinjaPropertiesImpl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.inject.Injector;
+
+import freemarker.template.Configuration;
+import freemarker.template.Template;
+import freemarker.template.Version;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TemplateEngineFreemarkerCacheDirectiveTest {
+
+    @Mock
+    Injector injector;
+
+    @Mock
+    NinjaCache ninjaCache;
+
+    Map<String, Object> cachedValues = Maps.newHashMap();
+
+    NinjaPropertiesImpl ninjaProperties;
+
+    TemplateEngineFreemarkerCacheDirective templateEngineFreemarkerCacheDirective;
+
+    @Before
+    public void setup() {
+
+        when(injector.getInstance(NinjaCache.class)).thenReturn(ninjaCache);
+
+        when(ninjaCache.get(anyString())).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                return cachedValues.get(invocation.getArguments()[0]);
+            }
+        });
+
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                cachedValues.put(
+                        (String) invocation.getArguments()[0],
+                        invocation.getArguments()[1]);
+                return null;
+            }
+        }).when(ninjaCache).set(anyString(), anyString(), anyString());
+
+        ninjaProperties = new NinjaPropertiesImpl(NinjaMode.test);
+
+        templateEngineFreemarkerCacheDirective
+                = new TemplateEngineFreemarkerCacheDirective(injector, ninjaProperties);
+
+    }
+
+    @Test
+    public void testFragmentIsRenderedOnce() throws Exception {
+
+        String template = "<@cache key=\"nav\" ttl=\"10mn\">${name}</@cache>";
+
+        assertEquals("first", render(template, ImmutableMap.of("name", "first")));
+        assertEquals("first", render(template, ImmutableMap.of("name", "second")));
+
+        assertEquals(1, templateEngineFreemarkerCacheDirective.getMissCount());
+        assertEquals(1, templateEngineFreemarkerCacheDirective.getHitCount());
+
+        verify(ninjaCache).set(
+                eq(TemplateEngineFreemarkerCacheDirective.KEY_PREFIX + "nav"),
+                eq("first"),
+                eq("10mn"));
+
+    }
+
+    @Test
+    public void testFragmentVariesByLanguageAndSession() throws Exception {
+
+        String template = "<@cache key=\"nav\" varyByLanguage=true varyBySession=\"username\">"
+                + "${lang} ${session.username}</@cache>";
+
+        assertEquals("en bob", render(template, ImmutableMap.of(
+                "lang", "en",
+                "session", ImmutableMap.of("username", "bob"))));
+
+        assertEquals("de bob", render(template, ImmutableMap.of(
+                "lang", "de",
+                "session", ImmutableMap.of("username", "bob"))));
+
+        assertEquals("de alice", render(template, ImmutableMap.of(
+                "lang", "de",
+                "session", ImmutableMap.of("username", "alice"))));
+
+        assertEquals(3, templateEngineFreemarkerCacheDirective.getMissCount());
+
+        assertEquals("de alice", render(template, ImmutableMap.of(
+                "lang", "de",
+                "session", ImmutableMap.of("username", "alice"))));
+
+        assertEquals(1, templateEngineFreemarkerCacheDirective.getHitCount());
+
+    }
+
+    @Test
+    public void testFragmentIsAlwaysRenderedWhenDisabled() throws Exception {
+
+        ninjaProperties.setProperty(NinjaConstant.FREEMARKER_FRAGMENT_CACHE_ENABLED, "false");
+
+        templateEngineFreemarkerCacheDirective
+                = new TemplateEngineFreemarkerCacheDirective(injector, ninjaProperties);
+
+        String template = "<@cache key=\"nav\">${name}</@cache>";
+
+        assertEquals("first", render(template, ImmutableMap.of("name", "first")));
+        assertEquals("second", render(template, ImmutableMap.of("name", "second")));
+
+        assertEquals(0, templateEngineFreemarkerCacheDirective.getMissCount());
+        assertEquals(0, templateEngineFreemarkerCacheDirective.getHitCount());
+
+    }
+
+    private String render(String template, Map<String, ?> dataModel) throws Exception {
+
+        Configuration configuration = new Configuration(new Version(2, 3, 21));
+        configuration.setSharedVariable("cache", templateEngineFreemarkerCacheDirective);
+
+        StringWriter stringWriter = new StringWriter();
+
+        new Template("test", new StringReader(template), configuration)
+                .process(dataModel, stringWriter);
+
+        return stringWriter.toString();
+
+    }
+
+}
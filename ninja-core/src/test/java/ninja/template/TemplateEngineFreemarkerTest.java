@@ -1,27 +1,99 @@
 /**
  * Copyright (C) 2012-2014 the original author or authors.
  *
- * Licensed under the Apache License, Version 2.0 (the "License"); you may not
- * use this file except in compliance with the License. You may obtain a copy of
- * the License at
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
  *
- * http://www.apache.org/licenses/LICENSE-2.0
+ *     http://www.apache.org/licenses/LICENSE-2.0
  *
  * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
- * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
- * License for the specific language governing permissions and limitations under
- * the License.
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
  */
+
 package ninja.template;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
 import javax.inject.Singleton;
+
+import ninja.Context;
+import ninja.Result;
+import ninja.Results;
+import ninja.i18n.Lang;
+import ninja.i18n.Messages;
+import ninja.session.FlashScope;
+import ninja.session.Session;
+import ninja.utils.NinjaMode;
+import ninja.utils.NinjaPropertiesImpl;
+import ninja.utils.ResponseStreams;
+
 import org.hamcrest.CoreMatchers;
 import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
+
+import freemarker.core.ParseException;
 
 public class TemplateEngineFreemarkerTest {
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    Messages messages = mock(Messages.class);
+
+    Lang lang = mock(Lang.class);
+
+    TemplateEngineFreemarker templateEngineFreemarker;
+
+    @Before
+    public void setup() throws Exception {
+
+        templateEngineFreemarker = new TemplateEngineFreemarker(
+                messages,
+                lang,
+                mock(Logger.class),
+                mock(TemplateEngineFreemarkerExceptionHandler.class),
+                new TemplateEngineHelper(),
+                mock(TemplateEngineManager.class),
+                mock(TemplateEngineFreemarkerReverseRouteMethod.class),
+                mock(TemplateEngineFreemarkerAssetsAtMethod.class),
+                mock(TemplateEngineFreemarkerWebJarsAtMethod.class),
+                mock(TemplateEngineFreemarkerCacheDirective.class),
+                new NinjaPropertiesImpl(NinjaMode.test));
+
+    }
+
     @Test
     public void testThatTemplateEngineFreemarkerHasSingletonAnnotation() {
 
@@ -31,4 +103,139 @@ public class TemplateEngineFreemarkerTest {
 
     }
 
+    @Test
+    public void testFindTemplatesInDirectories() throws Exception {
+
+        List<String> templateNames = templateEngineFreemarker.findTemplates(
+                getClass().getClassLoader());
+
+        assertTrue(templateNames.contains("/views/system/404notFound.ftl.html"));
+        assertTrue(templateNames.contains("/views/system/500internalServerError.ftl.html"));
+
+    }
+
+    @Test
+    public void testFindTemplatesInJars() throws Exception {
+
+        File jar = temporaryFolder.newFile("templates.jar");
+
+        try (JarOutputStream jarOutputStream = new JarOutputStream(new FileOutputStream(jar))) {
+
+            // directory entries like in jars built by Maven
+            for (String name : Arrays.asList(
+                    "views/",
+                    "views/ApplicationController/",
+                    "views/ApplicationController/index.ftl.html",
+                    "views/ApplicationController/readme.txt",
+                    "other/ApplicationController/index.ftl.html")) {
+
+                jarOutputStream.putNextEntry(new JarEntry(name));
+
+                if (!name.endsWith("/")) {
+                    jarOutputStream.write("<h1>Hello</h1>".getBytes("utf-8"));
+                }
+
+                jarOutputStream.closeEntry();
+
+            }
+
+        }
+
+        try (URLClassLoader classLoader
+                = new URLClassLoader(new URL[] {jar.toURI().toURL()}, null)) {
+
+            assertEquals(
+                    Arrays.asList("/views/ApplicationController/index.ftl.html"),
+                    templateEngineFreemarker.findTemplates(classLoader));
+
+        }
+
+    }
+
+    @Test
+    public void testPrecompileTemplates() throws Exception {
+
+        templateEngineFreemarker.precompileTemplates(
+                templateEngineFreemarker.findTemplates(getClass().getClassLoader()));
+
+    }
+
+    @Test(expected = ParseException.class)
+    public void testPrecompileTemplatesFailsOnSyntaxErrors() throws Exception {
+
+        templateEngineFreemarker.precompileTemplates(
+                Collections.singletonList("/ninja/template/broken.ftl.html"));
+
+    }
+
+    @Test
+    public void testDataModel() throws Exception {
+
+        when(messages.get("flash.success", Optional.of("en"))).thenReturn(Optional.of("Saved"));
+        when(messages.get("greeting", Optional.of("en"))).thenReturn(Optional.of("Hello"));
+
+        // an immutable map is fine as the data model is not copied
+        Map<String, String> data = ImmutableMap.of("name", "Ninja");
+
+        assertEquals("en|/context|Ninja|Saved|Hello|",
+                render("/ninja/template/datamodel.ftl.html", data));
+
+        // flash values that are not displayed are not translated
+        verify(messages, never()).get("flash.error", Optional.of("en"));
+
+    }
+
+    @Test
+    public void testDataModelCanBeListed() throws Exception {
+
+        Map<String, String> data = ImmutableMap.of(
+                "name", "Ninja",
+                "lang", "overridden by the framework",
+                "reverseRoute", "shared variable of the configuration");
+
+        assertEquals("lang,contextPath,i18n,prettyTime,flash,name,|6|success,error,",
+                render("/ninja/template/datamodelkeys.ftl.html", data));
+
+        // listing the keys of the flash scope does not translate it
+        verify(messages, never()).get("flash.success", Optional.of("en"));
+
+    }
+
+    private String render(String template, Object data) throws Exception {
+
+        Context context = mock(Context.class);
+        Session session = mock(Session.class);
+        FlashScope flashScope = mock(FlashScope.class);
+        final StringWriter stringWriter = new StringWriter();
+
+        when(context.getSession()).thenReturn(session);
+        when(session.isEmpty()).thenReturn(true);
+        when(context.getFlashScope()).thenReturn(flashScope);
+        when(flashScope.getCurrentFlashCookieData()).thenReturn(ImmutableMap.of(
+                "success", "flash.success",
+                "error", "flash.error"));
+        when(context.getContextPath()).thenReturn("/context");
+        when(context.finalizeHeaders(any(Result.class))).thenReturn(new ResponseStreams() {
+            @Override
+            public OutputStream getOutputStream() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Writer getWriter() {
+                return stringWriter;
+            }
+        });
+
+        when(lang.getLanguage(any(Context.class), any(Optional.class))).thenReturn(Optional.of("en"));
+        when(lang.getLocaleFromStringOrDefault(Optional.of("en"))).thenReturn(Locale.ENGLISH);
+
+        templateEngineFreemarker.invoke(context, Results.html()
+                .template(template)
+                .render(data));
+
+        return stringWriter.toString();
+
+    }
+
 }
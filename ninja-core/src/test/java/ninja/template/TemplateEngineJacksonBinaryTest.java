@@ -0,0 +1,116 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ninja.template;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import ninja.Context;
+import ninja.Result;
+import ninja.Results;
+import ninja.utils.ResponseStreams;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class TemplateEngineJacksonBinaryTest {
+
+    Context context;
+
+    ByteArrayOutputStream outputStream;
+
+    ObjectMapper objectMapper;
+
+    TemplateEngineJacksonBinary templateEngine;
+
+    @Before
+    public void setup() throws Exception {
+
+        context = mock(Context.class);
+        ResponseStreams responseStreams = mock(ResponseStreams.class);
+
+        when(context.finalizeHeaders(any(Result.class)))
+                .thenReturn(responseStreams);
+        when(responseStreams.getOutputStream()).thenAnswer(
+                new Answer<ByteArrayOutputStream>() {
+                    @Override
+                    public ByteArrayOutputStream answer(InvocationOnMock invocation) {
+                        outputStream = new ByteArrayOutputStream();
+                        return outputStream;
+                    }
+                });
+
+        // any Jackson data format works - Json is the only one at hand
+        objectMapper = new ObjectMapper();
+
+        templateEngine = new TemplateEngineJacksonBinary(objectMapper, "application/x-test-format") {};
+
+    }
+
+    @Test
+    public void testRendersWithObjectMapperOfDataFormat() throws Exception {
+
+        Result result = Results.ok()
+                .contentType("application/x-test-format")
+                .render(new User("ninja"));
+
+        templateEngine.invoke(context, result);
+
+        assertArrayEquals(
+                objectMapper.writeValueAsBytes(new User("ninja")),
+                outputStream.toByteArray());
+
+        assertNull(result.getCharset());
+        assertEquals("application/x-test-format", templateEngine.getContentType());
+
+    }
+
+    @Test
+    public void testLazyRenderableIsStreamed() throws Exception {
+
+        templateEngine.invoke(context, Results.ok().render(
+                Arrays.asList(new User("ninja"), new User("samurai")).iterator()));
+
+        assertArrayEquals(
+                objectMapper.writeValueAsBytes(Arrays.asList(new User("ninja"), new User("samurai"))),
+                outputStream.toByteArray());
+
+    }
+
+    public static class User {
+
+        public String name;
+
+        public User(String name) {
+            this.name = name;
+        }
+
+    }
+
+}
@@ -0,0 +1,299 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ninja.template;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import ninja.Context;
+import ninja.Result;
+import ninja.Results;
+import ninja.utils.NinjaConstant;
+import ninja.utils.NinjaMode;
+import ninja.utils.NinjaPropertiesImpl;
+import ninja.utils.ResponseStreams;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.annotation.JsonView;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+
+public class TemplateEngineJsonTest {
+
+    Context context;
+
+    ByteArrayOutputStream outputStream;
+
+    NinjaPropertiesImpl ninjaProperties;
+
+    TemplateEngineJson templateEngineJson;
+
+    @Before
+    public void setup() throws Exception {
+
+        context = mock(Context.class);
+        ResponseStreams responseStreams = mock(ResponseStreams.class);
+
+        when(context.finalizeHeaders(any(Result.class)))
+                .thenReturn(responseStreams);
+        when(responseStreams.getOutputStream()).thenAnswer(
+                new Answer<ByteArrayOutputStream>() {
+                    @Override
+                    public ByteArrayOutputStream answer(InvocationOnMock invocation) {
+                        outputStream = new ByteArrayOutputStream();
+                        return outputStream;
+                    }
+                });
+
+        ninjaProperties = new NinjaPropertiesImpl(NinjaMode.test);
+
+        templateEngineJson = new TemplateEngineJson(new ObjectMapper(), ninjaProperties);
+
+    }
+
+    @Test
+    public void testJson() throws Exception {
+
+        templateEngineJson.invoke(context, Results.json().render(new User("ninja", "secret")));
+        assertEquals("{\"name\":\"ninja\",\"password\":\"secret\"}", outputStream.toString("utf-8"));
+
+        // again with the cached writer
+        templateEngineJson.invoke(context, Results.json().render(new User("ninja", "secret")));
+        assertEquals("{\"name\":\"ninja\",\"password\":\"secret\"}", outputStream.toString("utf-8"));
+
+        templateEngineJson.invoke(context, Results.json().render((Object) null));
+        assertEquals("null", outputStream.toString("utf-8"));
+
+    }
+
+    @Test
+    public void testJsonView() throws Exception {
+
+        templateEngineJson.invoke(context, Results.json()
+                .jsonView(Views.Public.class)
+                .render(new User("ninja", "secret")));
+
+        assertEquals("{\"name\":\"ninja\"}", outputStream.toString("utf-8"));
+
+    }
+
+    @Test
+    public void testLazyRenderableIsStreamed() throws Exception {
+
+        List<User> users = new ArrayList<>();
+
+        for (int i = 0; i < 250; i++) {
+            users.add(new User("user" + i, "secret"));
+        }
+
+        templateEngineJson.invoke(context, Results.json()
+                .jsonView(Views.Public.class)
+                .render(users.iterator()));
+
+        String json = outputStream.toString("utf-8");
+
+        assertTrue(json.startsWith("[{\"name\":\"user0\"},{\"name\":\"user1\"}"));
+        assertTrue(json.endsWith(",{\"name\":\"user249\"}]"));
+
+        templateEngineJson.invoke(context, Results.json()
+                .render(Collections.emptyIterator()));
+
+        assertEquals("[]", outputStream.toString("utf-8"));
+
+    }
+
+    @Test
+    public void testSparseFieldsets() throws Exception {
+
+        ninjaProperties.setProperty(NinjaConstant.JSON_SPARSE_FIELDSETS_ENABLED, "true");
+        templateEngineJson = new TemplateEngineJson(new ObjectMapper(), ninjaProperties);
+
+        Article article = new Article(1, "Ninja", new User("ninja", "secret"));
+        ArticlesDto articlesDto = new ArticlesDto(article, article);
+
+        when(context.getParameter("fields")).thenReturn("id, author.name");
+        templateEngineJson.invoke(context, Results.json().render(article));
+        assertEquals("{\"id\":1,\"author\":{\"name\":\"ninja\"}}", outputStream.toString("utf-8"));
+
+        // properties below a selected property are included
+        when(context.getParameter("fields")).thenReturn("title,author");
+        templateEngineJson.invoke(context, Results.json().render(article));
+        assertEquals(
+                "{\"title\":\"Ninja\",\"author\":{\"name\":\"ninja\",\"password\":\"secret\"}}",
+                outputStream.toString("utf-8"));
+
+        // elements of arrays are selected via the name of the array
+        when(context.getParameter("fields")).thenReturn("articles.title");
+        templateEngineJson.invoke(context, Results.json().render(articlesDto));
+        assertEquals(
+                "{\"articles\":[{\"title\":\"Ninja\"},{\"title\":\"Ninja\"}]}",
+                outputStream.toString("utf-8"));
+
+        // streamed elements are selected like the root object
+        when(context.getParameter("fields")).thenReturn("id");
+        templateEngineJson.invoke(context, Results.json().render(
+                Arrays.asList(article, article).iterator()));
+        assertEquals("[{\"id\":1},{\"id\":1}]", outputStream.toString("utf-8"));
+
+        // without selection everything is rendered - the filtering
+        // serializers must not leak into the shared ObjectMapper
+        when(context.getParameter("fields")).thenReturn(null);
+        templateEngineJson.invoke(context, Results.json().render(article));
+        assertEquals(
+                "{\"id\":1,\"title\":\"Ninja\",\"author\":{\"name\":\"ninja\",\"password\":\"secret\"}}",
+                outputStream.toString("utf-8"));
+
+    }
+
+    @Test
+    public void testSparseFieldsetsKeepFiltersOfClasses() throws Exception {
+
+        ninjaProperties.setProperty(NinjaConstant.JSON_SPARSE_FIELDSETS_ENABLED, "true");
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.setFilters(new SimpleFilterProvider().addFilter(
+                "custom", SimpleBeanPropertyFilter.serializeAllExcept("password")));
+
+        templateEngineJson = new TemplateEngineJson(objectMapper, ninjaProperties);
+
+        Account account = new Account(1, new Credentials("ninja", "secret"));
+
+        when(context.getParameter("fields")).thenReturn("credentials");
+        templateEngineJson.invoke(context, Results.json().render(account));
+        assertEquals("{\"credentials\":{\"name\":\"ninja\"}}", outputStream.toString("utf-8"));
+
+        when(context.getParameter("fields")).thenReturn("name,password");
+        templateEngineJson.invoke(context, Results.json().render(account.credentials));
+        assertEquals("{\"name\":\"ninja\"}", outputStream.toString("utf-8"));
+
+    }
+
+    @Test
+    public void testSparseFieldsetsAreDisabledByDefault() throws Exception {
+
+        when(context.getParameter("fields")).thenReturn("name");
+
+        templateEngineJson.invoke(context, Results.json().render(new User("ninja", "secret")));
+
+        assertEquals("{\"name\":\"ninja\",\"password\":\"secret\"}", outputStream.toString("utf-8"));
+
+    }
+
+    @Test
+    public void testSparseFieldsetsAreDisabledWithoutNinjaProperties() throws Exception {
+
+        templateEngineJson = new TemplateEngineJson(new ObjectMapper());
+
+        when(context.getParameter("fields")).thenReturn("name");
+
+        templateEngineJson.invoke(context, Results.json().render(new User("ninja", "secret")));
+
+        assertFalse(templateEngineJson.isSparseFieldsetsEnabled());
+        assertEquals("{\"name\":\"ninja\",\"password\":\"secret\"}", outputStream.toString("utf-8"));
+
+    }
+
+    public static class Article {
+
+        public int id;
+
+        public String title;
+
+        public User author;
+
+        public Article(int id, String title, User author) {
+            this.id = id;
+            this.title = title;
+            this.author = author;
+        }
+
+    }
+
+    public static class ArticlesDto {
+
+        public List<Article> articles;
+
+        public ArticlesDto(Article... articles) {
+            this.articles = Arrays.asList(articles);
+        }
+
+    }
+
+    public static class Account {
+
+        public int id;
+
+        public Credentials credentials;
+
+        public Account(int id, Credentials credentials) {
+            this.id = id;
+            this.credentials = credentials;
+        }
+
+    }
+
+    @JsonFilter("custom")
+    public static class Credentials {
+
+        public String name;
+
+        public String password;
+
+        public Credentials(String name, String password) {
+            this.name = name;
+            this.password = password;
+        }
+
+    }
+
+    public static class Views {
+        public static class Public {}
+        public static class Internal extends Public {}
+    }
+
+    public static class User {
+
+        @JsonView(Views.Public.class)
+        public String name;
+
+        @JsonView(Views.Internal.class)
+        public String password;
+
+        public User(String name, String password) {
+            this.name = name;
+            this.password = password;
+        }
+
+    }
+
+}
@@ -18,7 +18,9 @@ package ninja.template;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 
 import java.util.Collections;
@@ -87,7 +89,21 @@ public class TemplateEngineManagerImplTest {
         List<String> types = Lists.newArrayList(createTemplateEngineManager().getContentTypes());
         Collections.sort(types);
         assertThat(types.toString(),
-                equalTo("[application/javascript, application/json, application/xml, text/html, text/plain]"));
+                equalTo("[application/javascript, application/json, application/xml, text/csv, text/html, text/plain]"));
+    }
+
+    @Test
+    public void testSingletonTemplateEnginesAreResolvedOnce() {
+        TemplateEngineManager manager = createTemplateEngineManager(CustomTemplateEngine.class);
+
+        assertSame(
+                manager.getTemplateEngineForContentType(ContentTypes.TEXT_HTML),
+                manager.getTemplateEngineForContentType(ContentTypes.TEXT_HTML));
+
+        // CustomTemplateEngine is not a singleton
+        assertNotSame(
+                manager.getTemplateEngineForContentType("custom"),
+                manager.getTemplateEngineForContentType("custom"));
     }
 
 	@Test
@@ -0,0 +1,100 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ninja.template;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import ninja.Context;
+import ninja.Result;
+import ninja.Results;
+import ninja.utils.ResponseStreams;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+
+public class TemplateEngineXmlTest {
+
+    Context context;
+
+    ByteArrayOutputStream outputStream;
+
+    TemplateEngineXml templateEngineXml;
+
+    @Before
+    public void setup() throws Exception {
+
+        context = mock(Context.class);
+        ResponseStreams responseStreams = mock(ResponseStreams.class);
+
+        when(context.finalizeHeaders(any(Result.class)))
+                .thenReturn(responseStreams);
+        when(responseStreams.getOutputStream()).thenAnswer(
+                new Answer<ByteArrayOutputStream>() {
+                    @Override
+                    public ByteArrayOutputStream answer(InvocationOnMock invocation) {
+                        outputStream = new ByteArrayOutputStream();
+                        return outputStream;
+                    }
+                });
+
+        templateEngineXml = new TemplateEngineXml(new XmlMapper());
+
+    }
+
+    @Test
+    public void testXml() throws Exception {
+
+        templateEngineXml.invoke(context, Results.xml().render(new User("ninja")));
+
+        assertEquals("<User xmlns=\"\"><name>ninja</name></User>", outputStream.toString("utf-8"));
+
+    }
+
+    @Test
+    public void testLazyRenderableIsStreamed() throws Exception {
+
+        templateEngineXml.invoke(context, Results.xml().render(
+                Arrays.asList(new User("ninja"), new User("<samurai>")).iterator()));
+
+        assertEquals(
+                "<List xmlns=\"\"><item><name>ninja</name></item><item><name>&lt;samurai&gt;</name></item></List>",
+                outputStream.toString("utf-8"));
+
+    }
+
+    public static class User {
+
+        public String name;
+
+        public User(String name) {
+            this.name = name;
+        }
+
+    }
+
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ninja.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import ninja.utils.ByteRanges.ByteRange;
+
+import org.junit.Test;
+
+public class ByteRangesTest {
+
+    @Test
+    public void testSingleRanges() {
+
+        assertRanges("0-0", ByteRanges.parse("bytes=0-0", 100));
+        assertRanges("10-19", ByteRanges.parse("bytes=10-19", 100));
+        assertRanges("90-99", ByteRanges.parse("bytes=90-", 100));
+        assertRanges("80-99", ByteRanges.parse("bytes=-20", 100));
+        assertRanges("0-99", ByteRanges.parse("bytes=-200", 100));
+        assertRanges("50-99", ByteRanges.parse("bytes=50-1000", 100));
+
+    }
+
+    @Test
+    public void testMultipleRangesAreSortedAndMerged() {
+
+        assertRanges("0-9,20-29", ByteRanges.parse("bytes=20-29, 0-9", 100));
+        assertRanges("0-29", ByteRanges.parse("bytes=0-9,10-19,15-29", 100));
+        assertRanges("0-9,90-99", ByteRanges.parse("bytes=0-9,-10", 100));
+
+    }
+
+    @Test
+    public void testUnsatisfiableRanges() {
+
+        assertTrue(ByteRanges.parse("bytes=100-", 100).isEmpty());
+        assertTrue(ByteRanges.parse("bytes=-0", 100).isEmpty());
+        assertTrue(ByteRanges.parse("bytes=0-10", 0).isEmpty());
+
+        // satisfiable ones are still served
+        assertRanges("0-9", ByteRanges.parse("bytes=200-300,0-9", 100));
+
+    }
+
+    @Test
+    public void testInvalidRangesAreIgnored() {
+
+        assertNull(ByteRanges.parse(null, 100));
+        assertNull(ByteRanges.parse("items=0-9", 100));
+        assertNull(ByteRanges.parse("bytes=9-0", 100));
+        assertNull(ByteRanges.parse("bytes=a-b", 100));
+        assertNull(ByteRanges.parse("bytes=-", 100));
+        assertNull(ByteRanges.parse("bytes=5", 100));
+
+        StringBuilder tooManyRanges = new StringBuilder("bytes=0-0");
+        for (int i = 1; i <= ByteRanges.MAX_RANGES; i++) {
+            tooManyRanges.append(",").append(i * 2).append("-").append(i * 2);
+        }
+
+        assertNull(ByteRanges.parse(tooManyRanges.toString(), 100));
+
+    }
+
+    @Test
+    public void testIfRange() {
+
+        long lastModified = 1412262000123L;
+        String httpDate = DateUtil.formatForHttpHeader(lastModified);
+
+        assertTrue(ByteRanges.ifRangeMatches(null, null, 0));
+
+        assertTrue(ByteRanges.ifRangeMatches("\"abc\"", "\"abc\"", 0));
+        assertFalse(ByteRanges.ifRangeMatches("\"abc\"", "\"def\"", 0));
+        assertFalse(ByteRanges.ifRangeMatches("\"abc\"", "W/\"abc\"", 0));
+        assertFalse(ByteRanges.ifRangeMatches("W/\"abc\"", "W/\"abc\"", 0));
+        assertFalse(ByteRanges.ifRangeMatches("\"abc\"", null, lastModified));
+
+        assertTrue(ByteRanges.ifRangeMatches(httpDate, null, lastModified));
+        assertFalse(ByteRanges.ifRangeMatches(httpDate, null, lastModified + 1000));
+        assertFalse(ByteRanges.ifRangeMatches("yesterday", null, lastModified));
+
+    }
+
+    private void assertRanges(String expected, List<ByteRange> byteRanges) {
+
+        StringBuilder actual = new StringBuilder();
+
+        for (ByteRange byteRange : byteRanges) {
+            if (actual.length() > 0) {
+                actual.append(",");
+            }
+            actual.append(byteRange.start).append("-").append(byteRange.end);
+        }
+
+        assertEquals(expected, actual.toString());
+
+    }
+
+}
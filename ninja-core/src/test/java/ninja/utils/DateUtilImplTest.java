@@ -56,6 +56,31 @@ public class DateUtilImplTest {
         assertEquals(new DateTime(1346839077523L).toDate().toString(), DateUtil.parseHttpDateFormatToDateTime("Wed, 05 Sep 2012 09:57:57 GMT").toDate().toString());
 
     }
-    
-    
+
+    @Test
+    public void testParseHttpDateFormatToMillis() throws Exception {
+
+        assertEquals(0L, DateUtil.parseHttpDateFormatToMillis("Thu, 01 Jan 1970 00:00:00 GMT"));
+        assertEquals(1346839077000L, DateUtil.parseHttpDateFormatToMillis("Wed, 05 Sep 2012 09:57:57 GMT"));
+        assertEquals(951782400000L, DateUtil.parseHttpDateFormatToMillis("Tue, 29 Feb 2000 00:00:00 GMT"));
+        assertEquals(4102444799000L, DateUtil.parseHttpDateFormatToMillis("Thu, 31 Dec 2099 23:59:59 GMT"));
+
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseHttpDateFormatToMillisRejectsInvalidDates() throws Exception {
+
+        DateUtil.parseHttpDateFormatToMillis("Thu, 29 Feb 2001 00:00:00 GMT");
+
+    }
+
+    @Test
+    public void testFormatForHttpHeaderIsCachedPerSecond() {
+
+        assertEquals("Wed, 05 Sep 2012 09:57:57 GMT", DateUtil.formatForHttpHeader(1346839077000L));
+        assertEquals("Wed, 05 Sep 2012 09:57:57 GMT", DateUtil.formatForHttpHeader(1346839077999L));
+        assertEquals("Wed, 05 Sep 2012 09:57:58 GMT", DateUtil.formatForHttpHeader(1346839078000L));
+
+    }
+
 }
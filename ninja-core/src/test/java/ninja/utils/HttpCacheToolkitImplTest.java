@@ -98,6 +98,33 @@ public class HttpCacheToolkitImplTest {
 
     }
 
+    @Test
+    public void testIsModifiedWithListsAndWeakEtags() {
+
+        HttpCacheToolkit httpCacheToolkit = new HttpCacheToolkitImpl(
+                ninjaProperties);
+
+        when(context.getHeader(HttpHeaderConstants.IF_NONE_MATCH)).thenReturn(
+                "\"a\", W/\"b\"");
+
+        assertFalse(httpCacheToolkit.isModified(Optional.of("\"a\""), Optional.<Long>absent(), context));
+        assertFalse(httpCacheToolkit.isModified(Optional.of("\"b\""), Optional.<Long>absent(), context));
+        assertFalse(httpCacheToolkit.isModified(Optional.of("W/\"a\""), Optional.<Long>absent(), context));
+        assertTrue(httpCacheToolkit.isModified(Optional.of("\"c\""), Optional.<Long>absent(), context));
+
+        when(context.getHeader(HttpHeaderConstants.IF_NONE_MATCH)).thenReturn("*");
+
+        assertFalse(httpCacheToolkit.isModified(Optional.of("\"c\""), Optional.<Long>absent(), context));
+
+        // If-None-Match wins over If-Modified-Since
+        when(context.getHeader(HttpHeaderConstants.IF_NONE_MATCH)).thenReturn("\"a\"");
+        when(context.getHeader(HttpHeaderConstants.IF_MODIFIED_SINCE))
+                .thenReturn("Thu, 01 Jan 1971 00:00:00 GMT");
+
+        assertTrue(httpCacheToolkit.isModified(Optional.of("\"c\""), Optional.of(0L), context));
+
+    }
+
     @Test
     public void testAddETag() {
         HttpCacheToolkit httpCacheToolkit = new HttpCacheToolkitImpl(
@@ -114,6 +141,7 @@ public class HttpCacheToolkitImplTest {
 
         // in production => make sure cache header is set accordingly:
         when(ninjaProperties.isProd()).thenReturn(true);
+        httpCacheToolkit = new HttpCacheToolkitImpl(ninjaProperties);
 
         // set regular header with request to http cache control constant:
         reset(result);
@@ -123,6 +151,7 @@ public class HttpCacheToolkitImplTest {
                         NinjaConstant.HTTP_CACHE_CONTROL,
                         NinjaConstant.HTTP_CACHE_CONTROL_DEFAULT)).thenReturn(
                 "1234");
+        httpCacheToolkit = new HttpCacheToolkitImpl(ninjaProperties);
 
         httpCacheToolkit.addEtag(context, result, 0L);
         verify(result).addHeader(HttpHeaderConstants.CACHE_CONTROL,
@@ -136,6 +165,7 @@ public class HttpCacheToolkitImplTest {
                         NinjaConstant.HTTP_CACHE_CONTROL,
                         NinjaConstant.HTTP_CACHE_CONTROL_DEFAULT)).thenReturn(
                 "0");
+        httpCacheToolkit = new HttpCacheToolkitImpl(ninjaProperties);
 
         httpCacheToolkit.addEtag(context, result, 0L);
         verify(result).addHeader(HttpHeaderConstants.CACHE_CONTROL, "no-cache");
@@ -152,6 +182,7 @@ public class HttpCacheToolkitImplTest {
                         NinjaConstant.HTTP_USE_ETAG,
                         NinjaConstant.HTTP_USE_ETAG_DEFAULT)).thenReturn(
                 false);
+        httpCacheToolkit = new HttpCacheToolkitImpl(ninjaProperties);
 
         httpCacheToolkit.addEtag(context, result, 0L);
         // not in prod => no-cache
@@ -167,6 +198,7 @@ public class HttpCacheToolkitImplTest {
                         NinjaConstant.HTTP_USE_ETAG,
                         NinjaConstant.HTTP_USE_ETAG_DEFAULT)).thenReturn(
                 true);
+        httpCacheToolkit = new HttpCacheToolkitImpl(ninjaProperties);
 
         httpCacheToolkit.addEtag(context, result, 1234L);
         // not in prod => no-cache
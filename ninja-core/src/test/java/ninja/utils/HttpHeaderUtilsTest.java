@@ -17,6 +17,8 @@
 package ninja.utils;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 
@@ -49,4 +51,19 @@ public class HttpHeaderUtilsTest {
 
     }
 
+    @Test
+    public void testIfNoneMatchMatches() {
+
+        assertTrue(HttpHeaderUtils.ifNoneMatchMatches("\"1\"", "\"1\""));
+        assertTrue(HttpHeaderUtils.ifNoneMatchMatches("\"0\", \"1\"", "\"1\""));
+        assertTrue(HttpHeaderUtils.ifNoneMatchMatches("W/\"1\"", "\"1\""));
+        assertTrue(HttpHeaderUtils.ifNoneMatchMatches("\"1\"", "W/\"1\""));
+        assertTrue(HttpHeaderUtils.ifNoneMatchMatches("*", "\"1\""));
+
+        assertFalse(HttpHeaderUtils.ifNoneMatchMatches("\"0\", \"2\"", "\"1\""));
+        assertFalse(HttpHeaderUtils.ifNoneMatchMatches(null, "\"1\""));
+        assertFalse(HttpHeaderUtils.ifNoneMatchMatches("\"1\"", null));
+
+    }
+
 }
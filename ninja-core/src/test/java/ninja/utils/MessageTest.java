@@ -0,0 +1,70 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ninja.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.google.common.base.Supplier;
+
+public class MessageTest {
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testTextOfSupplierIsResolvedOnceAndKept() {
+
+        final AtomicInteger calls = new AtomicInteger();
+
+        Message message = new Message(new Supplier<String>() {
+            @Override
+            public String get() {
+                calls.incrementAndGet();
+                return "translated";
+            }
+        });
+
+        assertTrue(message.hasLazyText());
+        assertNull(message.text);
+        assertEquals(0, calls.get());
+
+        assertEquals("translated", message.getText());
+        assertEquals("translated", message.getText());
+
+        // filled on first resolution
+        assertEquals("translated", message.text);
+        assertEquals(1, calls.get());
+
+    }
+
+    @Test
+    public void testTextIsNotLazy() {
+
+        Message message = new Message("not found");
+
+        assertFalse(message.hasLazyText());
+        assertEquals("not found", message.getText());
+
+    }
+
+}
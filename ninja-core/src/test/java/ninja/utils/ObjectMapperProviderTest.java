@@ -0,0 +1,102 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ninja.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanSerializerFactory;
+
+public class ObjectMapperProviderTest {
+
+    NinjaPropertiesImpl ninjaProperties;
+
+    @Before
+    public void setup() {
+        ninjaProperties = new NinjaPropertiesImpl(NinjaMode.test);
+        CountingModule.registrations = 0;
+    }
+
+    @Test
+    public void testModulesCanBeConfigured() {
+
+        ninjaProperties.setProperty(NinjaConstant.JACKSON_AFTERBURNER, "false");
+        ninjaProperties.setProperty(
+                NinjaConstant.JACKSON_MODULES, CountingModule.class.getName());
+
+        new ObjectMapperProvider(ninjaProperties).get();
+
+        assertEquals(1, CountingModule.registrations);
+
+    }
+
+    @Test
+    public void testOtherDataFormatsAreConfiguredLikeJson() {
+
+        ninjaProperties.setProperty(
+                NinjaConstant.JACKSON_MODULES, CountingModule.class.getName());
+
+        JsonFactory jsonFactory = new JsonFactory();
+
+        ObjectMapper objectMapper = new ObjectMapperProvider(ninjaProperties).get(jsonFactory);
+
+        assertSame(jsonFactory, objectMapper.getFactory());
+        assertEquals(1, CountingModule.registrations);
+
+    }
+
+    @Test
+    public void testNoArgConstructorUsesDefaults() {
+
+        ObjectMapper objectMapper = new ObjectMapperProvider().get();
+
+        // Afterburner registers a serializer modifier
+        assertTrue(((BeanSerializerFactory) objectMapper.getSerializerFactory())
+                .getFactoryConfig().hasSerializerModifiers());
+        assertEquals(0, CountingModule.registrations);
+
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testUnknownModuleFails() {
+
+        ninjaProperties.setProperty(NinjaConstant.JACKSON_MODULES, "com.example.UnknownModule");
+
+        new ObjectMapperProvider(ninjaProperties).get();
+
+    }
+
+    public static class CountingModule extends SimpleModule {
+
+        static int registrations;
+
+        @Override
+        public void setupModule(SetupContext context) {
+            registrations++;
+            super.setupModule(context);
+        }
+
+    }
+
+}
@@ -0,0 +1,147 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ninja.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import ninja.exceptions.BadRequestException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.ByteStreams;
+
+public class RequestDecompressionTest {
+
+    NinjaPropertiesImpl ninjaProperties;
+
+    RequestDecompression requestDecompression;
+
+    @Before
+    public void setup() {
+
+        ninjaProperties = new NinjaPropertiesImpl(NinjaMode.test);
+        ninjaProperties.setProperty(NinjaConstant.REQUEST_DECOMPRESSION_ENABLED, "true");
+
+        requestDecompression = new RequestDecompression(ninjaProperties);
+
+    }
+
+    @Test
+    public void testIsDecompressible() {
+
+        assertTrue(requestDecompression.isDecompressible("gzip"));
+        assertTrue(requestDecompression.isDecompressible("Deflate"));
+        assertFalse(requestDecompression.isDecompressible("identity"));
+        assertFalse(requestDecompression.isDecompressible(null));
+
+        ninjaProperties.setProperty(NinjaConstant.REQUEST_DECOMPRESSION_ENABLED, "false");
+        requestDecompression = new RequestDecompression(ninjaProperties);
+
+        assertFalse(requestDecompression.isDecompressible("gzip"));
+
+    }
+
+    @Test
+    public void testUncompressedBodyIsLeftAlone() throws Exception {
+
+        InputStream inputStream = new ByteArrayInputStream(new byte [0]);
+
+        assertSame(inputStream, requestDecompression.decompress(null, inputStream));
+
+    }
+
+    @Test
+    public void testGzip() throws Exception {
+
+        byte [] compressed = gzip("{\"name\": \"ninja\"}".getBytes("utf-8"));
+
+        assertEquals(
+                "{\"name\": \"ninja\"}",
+                read(requestDecompression.decompress("gzip", new ByteArrayInputStream(compressed))));
+
+    }
+
+    @Test
+    public void testDeflate() throws Exception {
+
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+
+        try (OutputStream outputStream = new DeflaterOutputStream(byteArrayOutputStream)) {
+            outputStream.write("ninja".getBytes("utf-8"));
+        }
+
+        assertEquals(
+                "ninja",
+                read(requestDecompression.decompress(
+                        "deflate", new ByteArrayInputStream(byteArrayOutputStream.toByteArray()))));
+
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void testMaxSizeIsEnforced() throws Exception {
+
+        ninjaProperties.setProperty(NinjaConstant.REQUEST_DECOMPRESSION_MAX_SIZE_IN_BYTES, "1000");
+        requestDecompression = new RequestDecompression(ninjaProperties);
+
+        byte [] compressed = gzip(new byte[1001]);
+
+        read(requestDecompression.decompress("gzip", new ByteArrayInputStream(compressed)));
+
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void testMaxRatioIsEnforced() throws Exception {
+
+        // one megabyte of zeros compresses to about one kilobyte
+        byte [] compressed = gzip(new byte[1024 * 1024]);
+
+        read(requestDecompression.decompress("gzip", new ByteArrayInputStream(compressed)));
+
+    }
+
+    private byte [] gzip(byte [] bytes) throws Exception {
+
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+
+        try (OutputStream outputStream = new GZIPOutputStream(byteArrayOutputStream)) {
+            outputStream.write(bytes);
+        }
+
+        return byteArrayOutputStream.toByteArray();
+
+    }
+
+    private String read(InputStream inputStream) throws Exception {
+
+        try (InputStream in = inputStream) {
+            return new String(ByteStreams.toByteArray(in), "utf-8");
+        }
+
+    }
+
+}
@@ -0,0 +1,171 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ninja.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.ByteStreams;
+
+public class ResponseCompressionTest {
+
+    private static final String TEXT
+            = "Ninja - Ninja - Ninja - Ninja - Ninja - Ninja - Ninja - Ninja";
+
+    NinjaPropertiesImpl ninjaProperties;
+
+    ResponseCompression responseCompression;
+
+    @Before
+    public void setup() {
+
+        ninjaProperties = new NinjaPropertiesImpl(NinjaMode.test);
+        ninjaProperties.setProperty(NinjaConstant.RESPONSE_COMPRESSION_ENABLED, "true");
+
+        responseCompression = new ResponseCompression(ninjaProperties);
+
+    }
+
+    @Test
+    public void testIsCompressible() {
+
+        assertTrue(responseCompression.isCompressible("text/html"));
+        assertTrue(responseCompression.isCompressible("application/json; charset=utf-8"));
+        assertFalse(responseCompression.isCompressible("image/png"));
+        assertFalse(responseCompression.isCompressible(null));
+
+        ninjaProperties.setProperty(NinjaConstant.RESPONSE_COMPRESSION_MIME_TYPES, "image/png");
+        responseCompression = new ResponseCompression(ninjaProperties);
+
+        assertTrue(responseCompression.isCompressible("image/png"));
+        assertFalse(responseCompression.isCompressible("text/html"));
+
+    }
+
+    @Test
+    public void testNothingIsCompressibleIfDisabled() {
+
+        ninjaProperties.setProperty(NinjaConstant.RESPONSE_COMPRESSION_ENABLED, "false");
+        responseCompression = new ResponseCompression(ninjaProperties);
+
+        assertFalse(responseCompression.isCompressible("text/html"));
+        assertNull(responseCompression.selectEncoding("gzip", "text/html"));
+
+    }
+
+    @Test
+    public void testSelectEncoding() {
+
+        assertEquals("gzip", responseCompression.selectEncoding("gzip, deflate", "text/html"));
+        assertEquals("gzip", responseCompression.selectEncoding("deflate, gzip", "text/html"));
+        assertEquals("deflate", responseCompression.selectEncoding("gzip;q=0.5, deflate", "text/html"));
+        assertEquals("gzip", responseCompression.selectEncoding("*", "text/html"));
+        assertEquals("deflate", responseCompression.selectEncoding("gzip;q=0, *", "text/html"));
+
+        assertNull(responseCompression.selectEncoding("identity", "text/html"));
+        assertNull(responseCompression.selectEncoding("gzip;q=0", "text/html"));
+        assertNull(responseCompression.selectEncoding(null, "text/html"));
+        assertNull(responseCompression.selectEncoding("gzip", "image/png"));
+
+        // not on the classpath of ninja-core
+        assertFalse(responseCompression.isBrotliAvailable());
+        assertEquals("gzip", responseCompression.selectEncoding("br, gzip", "text/html"));
+
+    }
+
+    @Test
+    public void testGetQuality() {
+
+        assertEquals(1.0, ResponseCompression.getQuality("gzip, br", "br"), 0);
+        assertEquals(0.5, ResponseCompression.getQuality("gzip;q=1.0, br;q=0.5", "br"), 0);
+        assertEquals(0.8, ResponseCompression.getQuality("x-gzip;q=0.8", "gzip"), 0);
+        assertEquals(0.1, ResponseCompression.getQuality("br, *;q=0.1", "gzip"), 0);
+        assertEquals(0.0, ResponseCompression.getQuality("gzip;q=0, *", "gzip"), 0);
+        assertEquals(-1.0, ResponseCompression.getQuality("deflate", "gzip"), 0);
+        assertEquals(-1.0, ResponseCompression.getQuality(null, "gzip"), 0);
+
+    }
+
+    @Test
+    public void testGzip() throws Exception {
+
+        byte [] compressed = compress(ResponseCompression.GZIP);
+
+        assertEquals(TEXT, decompress(new GZIPInputStream(new ByteArrayInputStream(compressed))));
+
+        // second run uses the pooled deflater
+        compressed = compress(ResponseCompression.GZIP);
+
+        assertEquals(TEXT, decompress(new GZIPInputStream(new ByteArrayInputStream(compressed))));
+
+    }
+
+    @Test
+    public void testDeflate() throws Exception {
+
+        byte [] compressed = compress(ResponseCompression.DEFLATE);
+
+        assertEquals(TEXT, decompress(new InflaterInputStream(new ByteArrayInputStream(compressed))));
+
+    }
+
+    @Test
+    public void testStatistics() throws Exception {
+
+        byte [] compressed = compress(ResponseCompression.GZIP);
+
+        assertEquals(1, responseCompression.getCompressedResponseCount());
+        assertEquals(TEXT.length(), responseCompression.getBytesIn());
+        assertEquals(compressed.length, responseCompression.getBytesOut());
+        assertTrue(responseCompression.getBytesOut() < responseCompression.getBytesIn());
+
+    }
+
+    private byte [] compress(String encoding) throws Exception {
+
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+
+        try (OutputStream outputStream
+                = responseCompression.compress(encoding, byteArrayOutputStream)) {
+            outputStream.write(TEXT.getBytes("utf-8"));
+        }
+
+        return byteArrayOutputStream.toByteArray();
+
+    }
+
+    private String decompress(InputStream inputStream) throws Exception {
+
+        try (InputStream in = inputStream) {
+            return new String(ByteStreams.toByteArray(in), "utf-8");
+        }
+
+    }
+
+}
@@ -21,14 +21,18 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.Writer;
+import java.util.Iterator;
 
 import ninja.Context;
 import ninja.Result;
 import ninja.Results;
+import ninja.Route;
 import ninja.template.TemplateEngine;
 import ninja.template.TemplateEngineManager;
 import static org.hamcrest.CoreMatchers.equalTo;
@@ -199,4 +203,62 @@ public class ResultHandlerTest {
         
         assertThat(result.getContentType(), equalTo(Result.TEXT_HTML));
     }
+
+    @Test
+    public void testThatRenderingIsSkippedForHeadIfRouteOptsOut() {
+
+        Route route = mock(Route.class);
+        when(route.isRenderingSkippedForHead()).thenReturn(true);
+        when(context.getRoute()).thenReturn(route);
+        when(context.getMethod()).thenReturn("HEAD");
+
+        Result result = Results.json().render(new Object());
+
+        resultHandler.handleResult(result, context);
+
+        verify(context).finalizeHeaders(result);
+        verify(templateEngine, never()).invoke(context, result);
+
+        // a GET request to the very same route is rendered as usual
+        when(context.getMethod()).thenReturn("GET");
+
+        resultHandler.handleResult(result, context);
+
+        verify(templateEngine).invoke(context, result);
+
+    }
+
+    @Test
+    public void testThatResultWithMatchingETagIsNotRendered() {
+
+        when(context.getMethod()).thenReturn("GET");
+        when(context.getHeader(HttpHeaderConstants.IF_NONE_MATCH)).thenReturn("\"41\", \"42\"");
+
+        Result result = Results.json()
+                .addHeader(HttpHeaderConstants.ETAG, "\"42\"")
+                .render(new Object());
+
+        resultHandler.handleResult(result, context);
+
+        assertEquals(Result.SC_304_NOT_MODIFIED, result.getStatusCode());
+        verify(context).finalizeHeaders(result);
+        verify(templateEngine, never()).invoke(context, result);
+
+    }
+    @Test
+    public void testLazyRenderableIsClosedAfterRendering() throws Exception {
+
+        CloseableIterator iterator = mock(CloseableIterator.class);
+
+        Result result = Results.json().render(iterator);
+
+        resultHandler.handleResult(result, context);
+
+        verify(templateEngine).invoke(context, result);
+        verify(iterator).close();
+
+    }
+
+    interface CloseableIterator extends Iterator<Object>, AutoCloseable {}
+
 }
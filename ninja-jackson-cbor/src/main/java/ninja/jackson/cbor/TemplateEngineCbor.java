@@ -0,0 +1,41 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package ninja.jackson.cbor;
+
+import ninja.Result;
+import ninja.template.TemplateEngineJacksonBinary;
+import ninja.utils.ObjectMapperProvider;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Renders results with content type {@value ninja.Result#APPLICATION_CBOR} as
+ * CBOR (RFC 7049).
+ */
+@Singleton
+public class TemplateEngineCbor extends TemplateEngineJacksonBinary {
+
+    @Inject
+    public TemplateEngineCbor(ObjectMapperProvider objectMapperProvider) {
+        super(objectMapperProvider.get(new CBORFactory()), Result.APPLICATION_CBOR);
+    }
+
+}
@@ -0,0 +1,41 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package ninja.jackson.smile;
+
+import ninja.Result;
+import ninja.bodyparser.BodyParserEngineJacksonBinary;
+import ninja.utils.ObjectMapperProvider;
+
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Parses request bodies with content type {@value ninja.Result#APPLICATION_SMILE}
+ * as Smile, the binary Json format of Jackson.
+ */
+@Singleton
+public class BodyParserEngineSmile extends BodyParserEngineJacksonBinary {
+
+    @Inject
+    public BodyParserEngineSmile(ObjectMapperProvider objectMapperProvider) {
+        super(objectMapperProvider.get(new SmileFactory()), Result.APPLICATION_SMILE);
+    }
+
+}
@@ -0,0 +1,44 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package ninja.jackson.smile;
+
+import com.google.inject.AbstractModule;
+
+/**
+ * Ninja Module for Smile, the binary Json format of Jackson.
+ *
+ * Install it in conf.Module and the template engine and body parser
+ * managers pick up both engines for content type
+ * {@value ninja.Result#APPLICATION_SMILE}:
+ *
+ * <pre>
+ * install(new SmileModule());
+ * </pre>
+ */
+public class SmileModule extends AbstractModule {
+
+    @Override
+    protected void configure() {
+
+        bind(TemplateEngineSmile.class);
+        bind(BodyParserEngineSmile.class);
+
+    }
+
+}
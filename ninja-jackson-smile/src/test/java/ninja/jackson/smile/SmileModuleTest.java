@@ -0,0 +1,32 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ninja.jackson.smile;
+
+import ninja.Result;
+import ninja.template.AbstractJacksonBinaryFormatTest;
+
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+public class SmileModuleTest extends AbstractJacksonBinaryFormatTest {
+
+    public SmileModuleTest() {
+        super(new SmileModule(), new SmileFactory(), Result.APPLICATION_SMILE,
+                TemplateEngineSmile.class, BodyParserEngineSmile.class);
+    }
+
+}
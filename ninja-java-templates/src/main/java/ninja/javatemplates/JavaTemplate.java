@@ -0,0 +1,59 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ninja.javatemplates;
+
+import java.io.IOException;
+
+/**
+ * A view written in plain Java - rendered by {@link TemplateEngineJava}.
+ *
+ * The parameters of the view are ordinary (typed) fields set by the
+ * constructor. As the view is compiled together with the application there
+ * is no parsing and no reflection at runtime:
+ *
+ * <pre>
+ * public class ArticleView extends JavaTemplate {
+ *
+ *     static final byte [] HEADER = JavaTemplateWriter.utf8("&lt;h1&gt;");
+ *     static final byte [] FOOTER = JavaTemplateWriter.utf8("&lt;/h1&gt;");
+ *
+ *     final Article article;
+ *
+ *     public ArticleView(Article article) {
+ *         this.article = article;
+ *     }
+ *
+ *     &#64;Override
+ *     public void render(JavaTemplateWriter out) throws IOException {
+ *         out.raw(HEADER).text(article.title).raw(FOOTER);
+ *     }
+ * }
+ * </pre>
+ *
+ * And in the controller: <code>Results.html().render(new ArticleView(article))</code>
+ */
+public abstract class JavaTemplate {
+
+    /**
+     * Renders the view.
+     *
+     * @param out Writes UTF-8 encoded bytes directly to the response and
+     *            offers the i18n, reverse routing and assets helpers.
+     */
+    public abstract void render(JavaTemplateWriter out) throws IOException;
+
+}
@@ -0,0 +1,283 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ninja.javatemplates;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import ninja.AssetsController;
+import ninja.Context;
+import ninja.Router;
+import ninja.i18n.Messages;
+
+import com.google.common.base.Optional;
+
+/**
+ * Writes a {@link JavaTemplate} to the response.
+ *
+ * Strings are encoded to UTF-8 into an internal buffer - there is no
+ * intermediate Writer. Static markup can be encoded once with
+ * {@link #utf8(String)} and is then copied as is.
+ *
+ * {@link #text(Object)} and {@link #i18n(String, Object...)} escape html
+ * like the Freemarker templates do. {@link #raw(String)} does not.
+ */
+public class JavaTemplateWriter {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final OutputStream outputStream;
+
+    private final Context context;
+
+    private final Messages messages;
+
+    private final Optional<String> language;
+
+    private final Router router;
+
+    private final AssetsController assetsController;
+
+    private final byte [] buffer = new byte[BUFFER_SIZE];
+
+    private int count;
+
+    public JavaTemplateWriter(OutputStream outputStream,
+                              Context context,
+                              Messages messages,
+                              Optional<String> language,
+                              Router router,
+                              AssetsController assetsController) {
+        this.outputStream = outputStream;
+        this.context = context;
+        this.messages = messages;
+        this.language = language;
+        this.router = router;
+        this.assetsController = assetsController;
+    }
+
+    /**
+     * @param markup Static markup of a template.
+     * @return The markup encoded as UTF-8 - to be kept in a constant and
+     *         written with {@link #raw(byte[])}.
+     */
+    public static byte [] utf8(String markup) {
+        return markup.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return The context of the request - eg to access the session or
+     *         the flash scope.
+     */
+    public Context getContext() {
+        return context;
+    }
+
+    /**
+     * @return The language of the request as determined by
+     *         {@link ninja.i18n.Lang}.
+     */
+    public Optional<String> getLanguage() {
+        return language;
+    }
+
+    /**
+     * Writes bytes (encoded by {@link #utf8(String)}) as they are.
+     */
+    public JavaTemplateWriter raw(byte [] bytes) throws IOException {
+
+        if (bytes.length > buffer.length - count) {
+
+            flushBuffer();
+
+            if (bytes.length > buffer.length) {
+                outputStream.write(bytes);
+                return this;
+            }
+
+        }
+
+        System.arraycopy(bytes, 0, buffer, count, bytes.length);
+        count += bytes.length;
+
+        return this;
+
+    }
+
+    /**
+     * Writes a string without escaping.
+     */
+    public JavaTemplateWriter raw(String string) throws IOException {
+
+        if (string != null) {
+            write(string, false);
+        }
+
+        return this;
+
+    }
+
+    /**
+     * Writes the string value of an object with html escaping.
+     * Null is written as empty string.
+     */
+    public JavaTemplateWriter text(Object value) throws IOException {
+
+        if (value != null) {
+            write(value.toString(), true);
+        }
+
+        return this;
+
+    }
+
+    /**
+     * Writes a translated message (html escaped) - like ${i18n(...)} in
+     * Freemarker templates. Missing keys are written as is.
+     */
+    public JavaTemplateWriter i18n(String key, Object... parameter) throws IOException {
+        return text(messages.get(key, language, parameter).or(key));
+    }
+
+    /**
+     * @return The url of a controller method - like ${reverseRoute(...)}
+     *         in Freemarker templates.
+     */
+    public String reverseRoute(Class<?> controllerClass,
+                               String controllerMethodName,
+                               Object... parameterMap) {
+        return router.getReverseRoute(controllerClass, controllerMethodName, parameterMap);
+    }
+
+    /**
+     * @return The url of a static asset - like ${assetsAt(...)} in
+     *         Freemarker templates.
+     */
+    public String assetsAt(String fileName) {
+        return reverseRoute(AssetsController.class, "serveStatic", "fileName",
+                assetsController.fingerprint(fileName));
+    }
+
+    /**
+     * @return The url of a webjars asset - like ${webJarsAt(...)} in
+     *         Freemarker templates.
+     */
+    public String webJarsAt(String fileName) {
+        return reverseRoute(AssetsController.class, "serveWebJars", "fileName", fileName);
+    }
+
+    /**
+     * Writes the buffer to the response.
+     */
+    public void flush() throws IOException {
+        flushBuffer();
+        outputStream.flush();
+    }
+
+    private void flushBuffer() throws IOException {
+
+        if (count > 0) {
+            outputStream.write(buffer, 0, count);
+            count = 0;
+        }
+
+    }
+
+    private void write(String string, boolean escape) throws IOException {
+
+        int length = string.length();
+
+        for (int i = 0; i < length; i++) {
+
+            char c = string.charAt(i);
+
+            // room for the longest escape sequence or encoded character
+            if (buffer.length - count < 6) {
+                flushBuffer();
+            }
+
+            if (escape) {
+
+                switch (c) {
+                    case '<':
+                        writeAscii("&lt;");
+                        continue;
+                    case '>':
+                        writeAscii("&gt;");
+                        continue;
+                    case '&':
+                        writeAscii("&amp;");
+                        continue;
+                    case '"':
+                        writeAscii("&quot;");
+                        continue;
+                    case '\'':
+                        writeAscii("&#39;");
+                        continue;
+                    default:
+                        break;
+                }
+
+            }
+
+            if (c < 0x80) {
+
+                buffer[count++] = (byte) c;
+
+            } else if (c < 0x800) {
+
+                buffer[count++] = (byte) (0xc0 | (c >> 6));
+                buffer[count++] = (byte) (0x80 | (c & 0x3f));
+
+            } else if (Character.isHighSurrogate(c)
+                    && i + 1 < length
+                    && Character.isLowSurrogate(string.charAt(i + 1))) {
+
+                int codePoint = Character.toCodePoint(c, string.charAt(++i));
+
+                buffer[count++] = (byte) (0xf0 | (codePoint >> 18));
+                buffer[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                buffer[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                buffer[count++] = (byte) (0x80 | (codePoint & 0x3f));
+
+            } else if (Character.isSurrogate(c)) {
+
+                // unpaired surrogate - same as String.getBytes
+                buffer[count++] = (byte) '?';
+
+            } else {
+
+                buffer[count++] = (byte) (0xe0 | (c >> 12));
+                buffer[count++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                buffer[count++] = (byte) (0x80 | (c & 0x3f));
+
+            }
+
+        }
+
+    }
+
+    private void writeAscii(String ascii) {
+
+        for (int i = 0; i < ascii.length(); i++) {
+            buffer[count++] = (byte) ascii.charAt(i);
+        }
+
+    }
+
+}
@@ -0,0 +1,41 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ninja.javatemplates;
+
+import com.google.inject.AbstractModule;
+
+/**
+ * Ninja Module for views written in plain Java.
+ *
+ * Install it in conf.Module and {@link TemplateEngineJava} renders all
+ * text/html results of {@link JavaTemplate} views:
+ *
+ * <pre>
+ * install(new JavaTemplatesModule());
+ * </pre>
+ */
+public class JavaTemplatesModule extends AbstractModule {
+
+    @Override
+    protected void configure() {
+
+        bind(TemplateEngineJava.class);
+
+    }
+
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ninja.javatemplates;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import ninja.AssetsController;
+import ninja.Context;
+import ninja.Result;
+import ninja.Router;
+import ninja.i18n.Lang;
+import ninja.i18n.Messages;
+import ninja.template.TemplateEngine;
+import ninja.template.TemplateEngineFreemarker;
+import ninja.utils.NinjaConstant;
+import ninja.utils.ResponseStreams;
+
+import org.slf4j.Logger;
+
+import com.google.common.base.Optional;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Renders views written in plain Java ({@link JavaTemplate}) as text/html.
+ *
+ * This engine is optional. Activate it by installing
+ * {@link JavaTemplatesModule} in your conf.Module:
+ *
+ * <pre>
+ * install(new JavaTemplatesModule());
+ * </pre>
+ *
+ * All other html results (rendering a map or any other object) are still
+ * rendered by {@link TemplateEngineFreemarker}. That way views can be moved
+ * one by one.
+ */
+@Singleton
+public class TemplateEngineJava implements TemplateEngine {
+
+    private final Messages messages;
+
+    private final Lang lang;
+
+    private final Router router;
+
+    private final AssetsController assetsController;
+
+    private final Logger logger;
+
+    private final TemplateEngineFreemarker templateEngineFreemarker;
+
+    @Inject
+    public TemplateEngineJava(Messages messages,
+                              Lang lang,
+                              Router router,
+                              AssetsController assetsController,
+                              Logger logger,
+                              TemplateEngineFreemarker templateEngineFreemarker) {
+        this.messages = messages;
+        this.lang = lang;
+        this.router = router;
+        this.assetsController = assetsController;
+        this.logger = logger;
+        this.templateEngineFreemarker = templateEngineFreemarker;
+    }
+
+    @Override
+    public void invoke(Context context, Result result) {
+
+        Object renderable = result.getRenderable();
+
+        if (!(renderable instanceof JavaTemplate)) {
+            templateEngineFreemarker.invoke(context, result);
+            return;
+        }
+
+        Optional<String> language = lang.getLanguage(context, Optional.of(result));
+
+        // The writer always produces UTF-8
+        result.charset(NinjaConstant.UTF_8);
+
+        ResponseStreams responseStreams = context.finalizeHeaders(result);
+
+        try (OutputStream outputStream = responseStreams.getOutputStream()) {
+
+            JavaTemplateWriter javaTemplateWriter = new JavaTemplateWriter(
+                    outputStream, context, messages, language, router, assetsController);
+
+            ((JavaTemplate) renderable).render(javaTemplateWriter);
+
+            javaTemplateWriter.flush();
+
+        } catch (IOException iOException) {
+
+            logger.error("Error rendering Java template {}",
+                    renderable.getClass().getName(), iOException);
+
+            throw new RuntimeException(iOException);
+
+        }
+
+    }
+
+    @Override
+    public String getContentType() {
+        return "text/html";
+    }
+
+    @Override
+    public String getSuffixOfTemplatingEngine() {
+        // default templates of html results are still Freemarker templates
+        return templateEngineFreemarker.getSuffixOfTemplatingEngine();
+    }
+
+}
@@ -0,0 +1,167 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ninja.javatemplates;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import ninja.AssetsController;
+import ninja.Context;
+import ninja.Result;
+import ninja.Results;
+import ninja.Router;
+import ninja.i18n.Lang;
+import ninja.i18n.Messages;
+import ninja.template.TemplateEngineFreemarker;
+import ninja.utils.ResponseStreams;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.slf4j.Logger;
+
+import com.google.common.base.Optional;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TemplateEngineJavaTest {
+
+    @Mock
+    Context context;
+
+    @Mock
+    ResponseStreams responseStreams;
+
+    @Mock
+    Messages messages;
+
+    @Mock
+    Lang lang;
+
+    @Mock
+    Router router;
+
+    @Mock
+    AssetsController assetsController;
+
+    @Mock
+    Logger logger;
+
+    @Mock
+    TemplateEngineFreemarker templateEngineFreemarker;
+
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+    TemplateEngineJava templateEngineJava;
+
+    @Before
+    public void setup() throws Exception {
+
+        when(context.finalizeHeaders(any(Result.class))).thenReturn(responseStreams);
+        when(responseStreams.getOutputStream()).thenReturn(outputStream);
+        when(lang.getLanguage(any(Context.class), any(Optional.class)))
+                .thenReturn(Optional.of("de"));
+
+        templateEngineJava = new TemplateEngineJava(
+                messages, lang, router, assetsController, logger, templateEngineFreemarker);
+
+    }
+
+    @Test
+    public void testRendering() throws Exception {
+
+        when(messages.get("greeting", Optional.of("de"), "Ninja"))
+                .thenReturn(Optional.of("Grüß dich, Ninja"));
+        when(assetsController.fingerprint("css/app.css")).thenReturn("css/app.css");
+        when(router.getReverseRoute(
+                AssetsController.class, "serveStatic", "fileName", "css/app.css"))
+                .thenReturn("/assets/css/app.css");
+
+        templateEngineJava.invoke(context, Results.html().render(new GreetingView("<b>Ninja</b> 😀")));
+
+        assertEquals(
+                "<link href=\"/assets/css/app.css\">"
+                        + "<h1>Grüß dich, Ninja</h1>"
+                        + "<p>&lt;b&gt;Ninja&lt;/b&gt; 😀</p>",
+                outputStream.toString("utf-8"));
+
+    }
+
+    @Test
+    public void testOtherRenderablesAreRenderedByFreemarker() throws Exception {
+
+        Result result = Results.html().render("name", "Ninja");
+
+        templateEngineJava.invoke(context, result);
+
+        verify(templateEngineFreemarker).invoke(context, result);
+
+    }
+
+    @Test
+    public void testLargeOutputIsFlushed() throws Exception {
+
+        final StringBuilder text = new StringBuilder();
+
+        for (int i = 0; i < 10000; i++) {
+            text.append("äbc<");
+        }
+
+        templateEngineJava.invoke(context, Results.html().render(new JavaTemplate() {
+            @Override
+            public void render(JavaTemplateWriter out) throws IOException {
+                out.raw(text.toString()).raw(JavaTemplateWriter.utf8(text.toString()));
+            }
+        }));
+
+        assertEquals(text.toString() + text.toString(), outputStream.toString("utf-8"));
+
+    }
+
+    public static class GreetingView extends JavaTemplate {
+
+        static final byte [] LINK_START = JavaTemplateWriter.utf8("<link href=\"");
+        static final byte [] LINK_END = JavaTemplateWriter.utf8("\">");
+        static final byte [] H1_START = JavaTemplateWriter.utf8("<h1>");
+        static final byte [] H1_END = JavaTemplateWriter.utf8("</h1>");
+        static final byte [] P_START = JavaTemplateWriter.utf8("<p>");
+        static final byte [] P_END = JavaTemplateWriter.utf8("</p>");
+
+        final String text;
+
+        public GreetingView(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public void render(JavaTemplateWriter out) throws IOException {
+
+            out.raw(LINK_START).text(out.assetsAt("css/app.css")).raw(LINK_END)
+                    .raw(H1_START).i18n("greeting", "Ninja").raw(H1_END)
+                    .raw(P_START).text(text).raw(P_END);
+
+        }
+
+    }
+
+}
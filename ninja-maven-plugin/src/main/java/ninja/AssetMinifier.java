@@ -0,0 +1,348 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ninja;
+
+import java.util.Arrays;
+
+/**
+ * Conservative minification of css and javascript without external
+ * dependencies.
+ *
+ * Comments and redundant whitespace are removed. Strings, template literals
+ * and regular expressions are left alone. Javascript keeps its line breaks,
+ * so automatic semicolon insertion works as before. Comments starting with
+ * /*! (licenses) are kept.
+ */
+class AssetMinifier {
+
+    private AssetMinifier() {
+    }
+
+    static String minifyCss(String css) {
+
+        StringBuilder out = new StringBuilder(css.length());
+
+        boolean pendingSpace = false;
+        int i = 0;
+
+        while (i < css.length()) {
+
+            char c = css.charAt(i);
+
+            if (c == '"' || c == '\'') {
+
+                appendSpaceIfNeeded(out, pendingSpace, c);
+                pendingSpace = false;
+                i = copyString(css, i, out);
+
+            } else if (c == '/' && i + 1 < css.length() && css.charAt(i + 1) == '*') {
+
+                int end = css.indexOf("*/", i + 2);
+                end = end < 0 ? css.length() : end + 2;
+
+                if (i + 2 < css.length() && css.charAt(i + 2) == '!') {
+                    appendSpaceIfNeeded(out, pendingSpace, c);
+                    pendingSpace = false;
+                    out.append(css, i, end).append('\n');
+                }
+
+                i = end;
+
+            } else if (Character.isWhitespace(c)) {
+
+                pendingSpace = true;
+                i++;
+
+            } else {
+
+                appendSpaceIfNeeded(out, pendingSpace, c);
+                pendingSpace = false;
+                out.append(c);
+                i++;
+
+            }
+
+        }
+
+        return out.toString();
+
+    }
+
+    static String minifyJs(String js) {
+
+        StringBuilder out = new StringBuilder(js.length());
+
+        // open template literals: depth of braces of their ${...} expressions
+        int [] templates = new int[64];
+        int templateDepth = 0;
+        int braceDepth = 0;
+
+        boolean pendingSpace = false;
+        boolean pendingNewline = false;
+        int i = 0;
+
+        while (i < js.length()) {
+
+            char c = js.charAt(i);
+            char next = i + 1 < js.length() ? js.charAt(i + 1) : 0;
+
+            if (c == '\n' || c == '\r') {
+
+                pendingNewline = out.length() > 0;
+                pendingSpace = false;
+                i++;
+                continue;
+
+            } else if (Character.isWhitespace(c)) {
+
+                pendingSpace = out.length() > 0;
+                i++;
+                continue;
+
+            } else if (c == '/' && next == '/') {
+
+                while (i < js.length() && js.charAt(i) != '\n' && js.charAt(i) != '\r') {
+                    i++;
+                }
+                continue;
+
+            } else if (c == '/' && next == '*') {
+
+                int end = js.indexOf("*/", i + 2);
+                end = end < 0 ? js.length() : end + 2;
+
+                if (i + 2 < js.length() && js.charAt(i + 2) == '!') {
+                    flushWhitespace(out, pendingNewline, pendingSpace);
+                    out.append(js, i, end);
+                    pendingNewline = true;
+                } else if (js.substring(i, end).indexOf('\n') >= 0) {
+                    pendingNewline = out.length() > 0;
+                } else {
+                    pendingSpace = out.length() > 0;
+                }
+
+                pendingSpace = pendingSpace && !pendingNewline;
+                i = end;
+                continue;
+
+            }
+
+            flushWhitespace(out, pendingNewline, pendingSpace);
+            pendingNewline = false;
+            pendingSpace = false;
+
+            if (c == '"' || c == '\'') {
+
+                i = copyString(js, i, out);
+
+            } else if (c == '`' || c == '}' && templateDepth > 0 && braceDepth == templates[templateDepth - 1]) {
+
+                // start of a template literal or end of a ${...} expression
+                if (c == '}') {
+                    templateDepth--;
+                    braceDepth--;
+                }
+
+                out.append(c);
+                i++;
+
+                while (i < js.length()) {
+
+                    char t = js.charAt(i);
+
+                    if (t == '\\' && i + 1 < js.length()) {
+                        out.append(t).append(js.charAt(i + 1));
+                        i += 2;
+                    } else if (t == '`') {
+                        out.append(t);
+                        i++;
+                        break;
+                    } else if (t == '$' && i + 1 < js.length() && js.charAt(i + 1) == '{') {
+                        out.append("${");
+                        i += 2;
+                        braceDepth++;
+                        if (templateDepth == templates.length) {
+                            templates = Arrays.copyOf(templates, templateDepth * 2);
+                        }
+                        templates[templateDepth++] = braceDepth;
+                        break;
+                    } else {
+                        out.append(t);
+                        i++;
+                    }
+
+                }
+
+            } else if (c == '/' && isRegexAllowed(out)) {
+
+                i = copyRegex(js, i, out);
+
+            } else {
+
+                if (c == '{') {
+                    braceDepth++;
+                } else if (c == '}') {
+                    braceDepth--;
+                }
+
+                out.append(c);
+                i++;
+
+            }
+
+        }
+
+        return out.toString();
+
+    }
+
+    // whitespace around these is never significant
+    private static final String CSS_PUNCTUATION = "{};,>";
+
+    private static void appendSpaceIfNeeded(StringBuilder out, boolean pendingSpace, char next) {
+
+        // "a :hover" differs from "a:hover" but "color: red" equals "color:red"
+        if (pendingSpace
+                && out.length() > 0
+                && (CSS_PUNCTUATION + ":\n").indexOf(out.charAt(out.length() - 1)) < 0
+                && CSS_PUNCTUATION.indexOf(next) < 0) {
+            out.append(' ');
+        }
+
+    }
+
+    private static void flushWhitespace(StringBuilder out, boolean pendingNewline, boolean pendingSpace) {
+
+        if (pendingNewline) {
+            out.append('\n');
+        } else if (pendingSpace) {
+            out.append(' ');
+        }
+
+    }
+
+    /**
+     * A slash starts a regular expression (and not a division) after an
+     * operator, an opening bracket or certain keywords.
+     */
+    private static boolean isRegexAllowed(StringBuilder out) {
+
+        int end = out.length();
+
+        while (end > 0 && Character.isWhitespace(out.charAt(end - 1))) {
+            end--;
+        }
+
+        if (end == 0) {
+            return true;
+        }
+
+        char last = out.charAt(end - 1);
+
+        if ("(,=:[!&|?{};+-*%<>~^".indexOf(last) >= 0) {
+            return true;
+        }
+
+        int start = end;
+
+        while (start > 0 && Character.isJavaIdentifierPart(out.charAt(start - 1))) {
+            start--;
+        }
+
+        String word = out.substring(start, end);
+
+        return word.equals("return")
+                || word.equals("typeof")
+                || word.equals("case")
+                || word.equals("do")
+                || word.equals("else")
+                || word.equals("in")
+                || word.equals("of")
+                || word.equals("new")
+                || word.equals("delete")
+                || word.equals("void")
+                || word.equals("throw");
+
+    }
+
+    /**
+     * @return The index after the string.
+     */
+    private static int copyString(String source, int start, StringBuilder out) {
+
+        char quote = source.charAt(start);
+
+        out.append(quote);
+
+        int i = start + 1;
+
+        while (i < source.length()) {
+
+            char c = source.charAt(i);
+
+            out.append(c);
+            i++;
+
+            if (c == '\\' && i < source.length()) {
+                out.append(source.charAt(i));
+                i++;
+            } else if (c == quote || c == '\n') {
+                break;
+            }
+
+        }
+
+        return i;
+
+    }
+
+    /**
+     * @return The index after the regular expression (before its flags).
+     */
+    private static int copyRegex(String source, int start, StringBuilder out) {
+
+        out.append('/');
+
+        boolean inCharacterClass = false;
+        int i = start + 1;
+
+        while (i < source.length()) {
+
+            char c = source.charAt(i);
+
+            out.append(c);
+            i++;
+
+            if (c == '\\' && i < source.length()) {
+                out.append(source.charAt(i));
+                i++;
+            } else if (c == '[') {
+                inCharacterClass = true;
+            } else if (c == ']') {
+                inCharacterClass = false;
+            } else if (c == '/' && !inCharacterClass || c == '\n') {
+                break;
+            }
+
+        }
+
+        return i;
+
+    }
+
+}
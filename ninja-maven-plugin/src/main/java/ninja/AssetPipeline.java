@@ -0,0 +1,381 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ninja;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.maven.plugin.logging.Log;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+
+/**
+ * Prepares the assets of an application at build time.
+ * 
+ * The steps are:
+ * 1. concatenate the bundles
+ * 2. minify css and javascript (except *.min.js and *.min.css)
+ * 3. write the fingerprints of all assets into the manifest
+ *    ({@link AssetFingerprints#MANIFEST}) read by {@link AssetFingerprints}
+ * 4. write .gz and .br variants served by {@link PrecompressedAssets}
+ * 
+ * Everything happens in place - usually in target/classes/assets.
+ */
+class AssetPipeline {
+
+    static final String MANIFEST_FILE_NAME = "asset-manifest.properties";
+
+    static final Set<String> COMPRESS_EXTENSIONS_DEFAULT = ImmutableSet.of(
+            "js", "css", "html", "htm", "svg", "json", "txt", "xml", "map", "ttf", "eot");
+
+    private static final String BROTLI_LOADER_CLASS
+            = "com.aayushatharva.brotli4j.Brotli4jLoader";
+
+    private static final String BROTLI_OUTPUT_STREAM_CLASS
+            = "com.aayushatharva.brotli4j.encoder.BrotliOutputStream";
+
+    private final Path assetsDirectory;
+
+    private final Log log;
+
+    private Bundle [] bundles = new Bundle[0];
+
+    private boolean minify = true;
+
+    private boolean gzip = true;
+
+    private boolean brotli = true;
+
+    private Set<String> compressExtensions = COMPRESS_EXTENSIONS_DEFAULT;
+
+    AssetPipeline(Path assetsDirectory, Log log) {
+        this.assetsDirectory = assetsDirectory;
+        this.log = log;
+    }
+
+    AssetPipeline bundles(Bundle... bundles) {
+        this.bundles = bundles;
+        return this;
+    }
+
+    AssetPipeline minify(boolean minify) {
+        this.minify = minify;
+        return this;
+    }
+
+    AssetPipeline gzip(boolean gzip) {
+        this.gzip = gzip;
+        return this;
+    }
+
+    AssetPipeline brotli(boolean brotli) {
+        this.brotli = brotli;
+        return this;
+    }
+
+    AssetPipeline compressExtensions(Set<String> compressExtensions) {
+        this.compressExtensions = compressExtensions;
+        return this;
+    }
+
+    void run() throws IOException {
+
+        if (!Files.isDirectory(assetsDirectory)) {
+            log.info("No assets found in " + assetsDirectory);
+            return;
+        }
+
+        for (Bundle bundle : bundles) {
+            bundle(bundle);
+        }
+
+        // .gz and .br files from a previous run are recreated below
+        List<Path> assets = listAssets();
+
+        if (minify) {
+            for (Path asset : assets) {
+                minify(asset);
+            }
+        }
+
+        writeManifest(assets);
+
+        Constructor<? extends OutputStream> brotliOutputStreamConstructor = null;
+
+        if (brotli) {
+            brotliOutputStreamConstructor = lookupBrotliOutputStreamConstructor();
+        }
+
+        for (Path asset : assets) {
+
+            if (!compressExtensions.contains(getExtension(asset))) {
+                continue;
+            }
+
+            byte [] bytes = Files.readAllBytes(asset);
+
+            if (gzip) {
+                writeIfSmaller(asset, ".gz", bytes, gzip(bytes));
+            }
+
+            if (brotliOutputStreamConstructor != null) {
+                writeIfSmaller(asset, ".br", bytes, brotli(brotliOutputStreamConstructor, bytes));
+            }
+
+        }
+
+    }
+
+    private void bundle(Bundle bundle) throws IOException {
+
+        if (bundle.getName() == null || bundle.getFiles() == null) {
+            throw new IOException("A bundle needs a name and files.");
+        }
+
+        // a missing semicolon at the end of a script must not break the next one
+        String separator = bundle.getName().endsWith(".js") ? "\n;\n" : "\n";
+
+        StringBuilder content = new StringBuilder();
+
+        for (String file : bundle.getFiles()) {
+
+            Path path = assetsDirectory.resolve(file);
+
+            if (!Files.isRegularFile(path)) {
+                throw new IOException("File " + file + " of bundle " + bundle.getName() + " not found.");
+            }
+
+            if (content.length() > 0) {
+                content.append(separator);
+            }
+
+            content.append(new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+
+        }
+
+        Path target = assetsDirectory.resolve(bundle.getName());
+
+        Files.createDirectories(target.getParent());
+        Files.write(target, content.toString().getBytes(StandardCharsets.UTF_8));
+
+        log.info("Bundled " + bundle.getFiles().length + " files into " + bundle.getName());
+
+    }
+
+    private void minify(Path asset) throws IOException {
+
+        String fileName = asset.getFileName().toString();
+        String extension = getExtension(asset);
+
+        if (fileName.endsWith(".min." + extension)
+                || !(extension.equals("js") || extension.equals("css"))) {
+            return;
+        }
+
+        String source = new String(Files.readAllBytes(asset), StandardCharsets.UTF_8);
+
+        String minified = extension.equals("js")
+                ? AssetMinifier.minifyJs(source)
+                : AssetMinifier.minifyCss(source);
+
+        Files.write(asset, minified.getBytes(StandardCharsets.UTF_8));
+
+        log.debug("Minified " + relativize(asset) + " from "
+                + source.length() + " to " + minified.length() + " characters");
+
+    }
+
+    private void writeManifest(List<Path> assets) throws IOException {
+
+        // sorted to get reproducible builds
+        Map<String, String> fingerprints = new TreeMap<>();
+
+        for (Path asset : assets) {
+            try (InputStream inputStream = Files.newInputStream(asset)) {
+                fingerprints.put(relativize(asset), AssetFingerprints.fingerprint(inputStream));
+            }
+        }
+
+        StringBuilder manifest = new StringBuilder();
+
+        for (Map.Entry<String, String> fingerprint : fingerprints.entrySet()) {
+            manifest.append(escape(fingerprint.getKey()))
+                    .append('=')
+                    .append(fingerprint.getValue())
+                    .append('\n');
+        }
+
+        Files.write(
+                assetsDirectory.resolve(MANIFEST_FILE_NAME),
+                manifest.toString().getBytes(StandardCharsets.ISO_8859_1));
+
+        log.info("Wrote fingerprints of " + fingerprints.size() + " assets to " + MANIFEST_FILE_NAME);
+
+    }
+
+    private List<Path> listAssets() throws IOException {
+
+        final List<Path> assets = Lists.newArrayList();
+
+        Files.walkFileTree(assetsDirectory, new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+
+                String fileName = file.getFileName().toString();
+
+                if (!fileName.endsWith(".gz")
+                        && !fileName.endsWith(".br")
+                        && !file.equals(assetsDirectory.resolve(MANIFEST_FILE_NAME))) {
+                    assets.add(file);
+                }
+
+                return FileVisitResult.CONTINUE;
+
+            }
+
+        });
+
+        return assets;
+
+    }
+
+    private void writeIfSmaller(Path asset, String suffix, byte [] bytes, byte [] compressed)
+            throws IOException {
+
+        Path variant = asset.resolveSibling(asset.getFileName() + suffix);
+
+        if (compressed.length < bytes.length) {
+            Files.write(variant, compressed);
+        } else {
+            // a stale variant would be served instead of the asset
+            Files.deleteIfExists(variant);
+        }
+
+    }
+
+    private byte [] gzip(byte [] bytes) throws IOException {
+
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+
+        try (OutputStream outputStream = new GZIPOutputStream(byteArrayOutputStream) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            outputStream.write(bytes);
+        }
+
+        return byteArrayOutputStream.toByteArray();
+
+    }
+
+    private byte [] brotli(Constructor<? extends OutputStream> brotliOutputStreamConstructor,
+                           byte [] bytes) throws IOException {
+
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+
+        try (OutputStream outputStream = brotliOutputStreamConstructor.newInstance(byteArrayOutputStream)) {
+            outputStream.write(bytes);
+        } catch (ReflectiveOperationException e) {
+            throw new IOException("Cannot create brotli output stream", e);
+        }
+
+        return byteArrayOutputStream.toByteArray();
+
+    }
+
+    private Constructor<? extends OutputStream> lookupBrotliOutputStreamConstructor() {
+
+        try {
+
+            Class<?> loader = Class.forName(BROTLI_LOADER_CLASS);
+
+            if (!(Boolean) loader.getMethod("isAvailable").invoke(null)) {
+                log.warn("Brotli is on the classpath but not available on this platform.");
+                return null;
+            }
+
+            return Class.forName(BROTLI_OUTPUT_STREAM_CLASS)
+                    .asSubclass(OutputStream.class)
+                    .getConstructor(OutputStream.class);
+
+        } catch (ClassNotFoundException e) {
+
+            log.warn("Add com.aayushatharva.brotli4j:brotli4j to the dependencies"
+                    + " of ninja-maven-plugin to create .br assets.");
+            return null;
+
+        } catch (ReflectiveOperationException | LinkageError e) {
+
+            log.warn("Cannot create .br assets.", e);
+            return null;
+
+        }
+
+    }
+
+    private String relativize(Path asset) {
+        return assetsDirectory.relativize(asset).toString().replace('\\', '/');
+    }
+
+    private static String getExtension(Path asset) {
+
+        String fileName = asset.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+
+        return dot < 0 ? "" : fileName.substring(dot + 1).toLowerCase(Locale.ENGLISH);
+
+    }
+
+    private static String escape(String key) {
+
+        StringBuilder escaped = new StringBuilder(key.length());
+
+        for (char c : key.toCharArray()) {
+            if (c == ' ' || c == '=' || c == ':' || c == '#' || c == '!' || c == '\\') {
+                escaped.append('\\').append(c);
+            } else if (c > 0x7e) {
+                escaped.append(String.format("\\u%04x", (int) c));
+            } else {
+                escaped.append(c);
+            }
+        }
+
+        return escaped.toString();
+
+    }
+
+}
@@ -0,0 +1,64 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ninja;
+
+/**
+ * A bundle of the assets goal. The files (relative to the assets directory)
+ * are concatenated in the given order into a new asset with the given name.
+ * 
+ * <pre>
+ * &lt;bundle&gt;
+ *     &lt;name&gt;js/all.js&lt;/name&gt;
+ *     &lt;files&gt;
+ *         &lt;file&gt;js/jquery.js&lt;/file&gt;
+ *         &lt;file&gt;js/app.js&lt;/file&gt;
+ *     &lt;/files&gt;
+ * &lt;/bundle&gt;
+ * </pre>
+ */
+public class Bundle {
+
+    private String name;
+
+    private String [] files;
+
+    public Bundle() {
+    }
+
+    public Bundle(String name, String... files) {
+        this.name = name;
+        this.files = files;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String [] getFiles() {
+        return files;
+    }
+
+    public void setFiles(String [] files) {
+        this.files = files;
+    }
+
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ninja;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Set;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Bundles, minifies and precompresses the assets of an application and
+ * writes the manifest of their fingerprints. At runtime the assets are then
+ * served without computing anything.
+ * 
+ * @goal assets
+ * @phase prepare-package
+ * @threadSafe
+ */
+public class NinjaAssetsMojo extends AbstractMojo {
+
+    /**
+     * Directory containing the assets. They are processed in place.
+     * 
+     * @parameter default-value="${project.build.outputDirectory}/assets"
+     */
+    private File assetsDirectory;
+
+    /**
+     * Files to concatenate into new assets.
+     * 
+     * @parameter
+     */
+    private Bundle [] bundles;
+
+    /**
+     * Minify css and javascript. Files ending with .min.js or .min.css are
+     * left alone.
+     * 
+     * @parameter default-value="true"
+     */
+    private boolean minify;
+
+    /**
+     * Write .gz variants of the assets.
+     * 
+     * @parameter default-value="true"
+     */
+    private boolean gzip;
+
+    /**
+     * Write .br variants of the assets. Only works if
+     * com.aayushatharva.brotli4j:brotli4j is added to the dependencies of the
+     * plugin.
+     * 
+     * @parameter default-value="true"
+     */
+    private boolean brotli;
+
+    /**
+     * Extensions of the files that get .gz and .br variants.
+     * Defaults to js, css, html, htm, svg, json, txt, xml, map, ttf and eot.
+     * 
+     * @parameter
+     */
+    private String [] compressExtensions;
+
+    /**
+     * @parameter property="ninja.assets.skip" default-value="false"
+     */
+    private boolean skip;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+
+        if (skip) {
+            getLog().info("Skipping assets");
+            return;
+        }
+
+        Set<String> extensions = AssetPipeline.COMPRESS_EXTENSIONS_DEFAULT;
+
+        if (compressExtensions != null) {
+
+            ImmutableSet.Builder<String> builder = ImmutableSet.builder();
+
+            for (String extension : compressExtensions) {
+                builder.add(extension.trim().replaceFirst("^\\.", "").toLowerCase(Locale.ENGLISH));
+            }
+
+            extensions = builder.build();
+
+        }
+
+        try {
+
+            new AssetPipeline(assetsDirectory.toPath(), getLog())
+                    .bundles(bundles != null ? bundles : new Bundle[0])
+                    .minify(minify)
+                    .gzip(gzip)
+                    .brotli(brotli)
+                    .compressExtensions(extensions)
+                    .run();
+
+        } catch (IOException e) {
+            throw new MojoExecutionException("Cannot process assets in " + assetsDirectory, e);
+        }
+
+    }
+
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ninja;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class AssetMinifierTest {
+
+    @Test
+    public void testMinifyCss() {
+
+        assertEquals(
+                "/*! license */\nbody{color:red;margin:0 auto}a>b{content:\"  /* x */  \"}",
+                AssetMinifier.minifyCss(
+                        "/*! license */\n"
+                        + "body {\n"
+                        + "    color: red; /* comment */\n"
+                        + "    margin: 0   auto\n"
+                        + "}\n"
+                        + "a > b { content: \"  /* x */  \" }\n"));
+
+        // spaces in selectors are significant
+        assertEquals("div p:hover{}", AssetMinifier.minifyCss("div   p:hover  { }"));
+        assertEquals("a :hover{}", AssetMinifier.minifyCss("a :hover {}"));
+
+    }
+
+    @Test
+    public void testMinifyJs() {
+
+        assertEquals(
+                "var a = 1\nvar b = \"  // no comment  \"\nfunction f() {\nreturn a + b\n}",
+                AssetMinifier.minifyJs(
+                        "// comment\n"
+                        + "var a = 1\n"
+                        + "\n"
+                        + "var b = \"  // no comment  \" /* comment */\n"
+                        + "function f() {\n"
+                        + "    return a + b\n"
+                        + "}\n"));
+
+    }
+
+    @Test
+    public void testRegexAndTemplateLiteralsAreLeftAlone() {
+
+        assertEquals(
+                "var r = /a\\/\\/b[/]*/g;\nvar t = `x  // ${ {a: 1}.a } /* y */`;",
+                AssetMinifier.minifyJs(
+                        "var r = /a\\/\\/b[/]*/g;\n"
+                        + "var t = `x  // ${ {a: 1}.a } /* y */`;\n"));
+
+        // a division is not a regex
+        assertEquals("var x = a / b / c", AssetMinifier.minifyJs("var x = a / b / c"));
+
+    }
+
+}
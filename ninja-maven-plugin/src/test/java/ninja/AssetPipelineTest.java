@@ -0,0 +1,146 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ninja;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.io.ByteStreams;
+
+public class AssetPipelineTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    Path assets;
+
+    @Before
+    public void setup() throws Exception {
+
+        assets = temporaryFolder.newFolder("assets").toPath();
+
+        Files.createDirectories(assets.resolve("js"));
+        write("js/a.js", "var a = 1 // one");
+        write("js/b.js", "var b = 2");
+        write("js/lib.min.js", "var  untouched");
+        write("css/app.css", repeat("body {\n    color: red;\n}\n", 100));
+        write("img/logo.png", "png");
+
+    }
+
+    @Test
+    public void testAssetsAreBundledMinifiedAndFingerprinted() throws Exception {
+
+        new AssetPipeline(assets, new SystemStreamLog())
+                .bundles(new Bundle("js/all.js", "js/a.js", "js/b.js"))
+                .brotli(false)
+                .run();
+
+        assertEquals("var a = 1\n;\nvar b = 2", read("js/all.js"));
+        assertEquals("var  untouched", read("js/lib.min.js"));
+        assertEquals(repeat("body{color:red;}", 100), read("css/app.css"));
+
+        Properties manifest = new Properties();
+
+        try (InputStream inputStream = new FileInputStream(
+                assets.resolve(AssetPipeline.MANIFEST_FILE_NAME).toFile())) {
+            manifest.load(inputStream);
+        }
+
+        assertEquals(6, manifest.size());
+        assertEquals(
+                AssetFingerprints.fingerprint(new ByteArrayInputStream(
+                        "var a = 1\n;\nvar b = 2".getBytes(StandardCharsets.UTF_8))),
+                manifest.getProperty("js/all.js"));
+        assertTrue(manifest.containsKey("img/logo.png"));
+
+    }
+
+    @Test
+    public void testAssetsArePrecompressedIfThatHelps() throws Exception {
+
+        new AssetPipeline(assets, new SystemStreamLog())
+                .minify(false)
+                .brotli(false)
+                .run();
+
+        File gzipped = assets.resolve("css/app.css.gz").toFile();
+
+        try (InputStream inputStream = new GZIPInputStream(new FileInputStream(gzipped))) {
+            assertEquals(read("css/app.css"),
+                    new String(ByteStreams.toByteArray(inputStream), StandardCharsets.UTF_8));
+        }
+
+        // too small to benefit from compression
+        assertFalse(Files.exists(assets.resolve("js/a.js.gz")));
+        // not a compressible type
+        assertFalse(Files.exists(assets.resolve("img/logo.png.gz")));
+
+        // running again must not compress the variants themselves
+        new AssetPipeline(assets, new SystemStreamLog())
+                .minify(false)
+                .brotli(false)
+                .run();
+
+        assertFalse(Files.exists(assets.resolve("css/app.css.gz.gz")));
+
+    }
+
+    private void write(String file, String content) throws Exception {
+
+        Path path = assets.resolve(file);
+
+        Files.createDirectories(path.getParent());
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+
+    }
+
+    private String read(String file) throws Exception {
+        return new String(Files.readAllBytes(assets.resolve(file)), StandardCharsets.UTF_8);
+    }
+
+    private static String repeat(String s, int times) {
+
+        StringBuilder stringBuilder = new StringBuilder();
+
+        for (int i = 0; i < times; i++) {
+            stringBuilder.append(s);
+        }
+
+        return stringBuilder.toString();
+
+    }
+
+}
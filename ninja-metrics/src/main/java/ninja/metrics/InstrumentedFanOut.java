@@ -0,0 +1,121 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ninja.metrics;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import ninja.fanout.FanOutImpl;
+import ninja.utils.NinjaProperties;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Fan-out service that exports the state of its executor.
+ *
+ * Bind it in your conf.Module:
+ * bind(FanOut.class).to(InstrumentedFanOut.class);
+ */
+@Singleton
+public class InstrumentedFanOut extends FanOutImpl {
+
+    private final Timer taskTimer;
+
+    private final Meter tasksRunInRequestThread;
+
+    private final Meter deadlinesExceeded;
+
+    private final Meter tasksFailed;
+
+    @Inject
+    public InstrumentedFanOut(NinjaProperties ninjaProperties,
+                              MetricsService metricsService) {
+
+        super(ninjaProperties);
+
+        MetricRegistry registry = metricsService.getMetricRegistry();
+
+        taskTimer = registry.timer("ninja.fanout.tasks");
+        tasksRunInRequestThread = registry.meter("ninja.fanout.runInRequestThread");
+        deadlinesExceeded = registry.meter("ninja.fanout.deadlinesExceeded");
+        tasksFailed = registry.meter("ninja.fanout.failed");
+
+        final ThreadPoolExecutor executor = getExecutor();
+
+        registry.register("ninja.fanout.activeThreads", new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return executor.getActiveCount();
+            }
+        });
+
+        registry.register("ninja.fanout.poolSize", new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return executor.getPoolSize();
+            }
+        });
+
+        registry.register("ninja.fanout.queuedTasks", new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return executor.getQueue().size();
+            }
+        });
+
+    }
+
+    @Override
+    protected <T> Callable<T> decorate(final Callable<T> task) {
+
+        final Callable<T> decoratedTask = super.decorate(task);
+
+        return new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                try (Timer.Context ignored = taskTimer.time()) {
+                    return decoratedTask.call();
+                }
+            }
+        };
+
+    }
+
+    @Override
+    protected void onTaskRunInRequestThread() {
+        tasksRunInRequestThread.mark();
+        super.onTaskRunInRequestThread();
+    }
+
+    @Override
+    protected void onDeadlineExceeded() {
+        deadlinesExceeded.mark();
+        super.onDeadlineExceeded();
+    }
+
+    @Override
+    protected void onTaskFailed(Throwable cause) {
+        tasksFailed.mark();
+        super.onTaskFailed(cause);
+    }
+
+}
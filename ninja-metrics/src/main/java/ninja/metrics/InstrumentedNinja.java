@@ -16,15 +16,24 @@
 
 package ninja.metrics;
 
+import java.util.concurrent.TimeUnit;
+
 import ninja.Context;
 import ninja.NinjaDefault;
+import ninja.RequestCoalescingFilter;
+import ninja.ResponseCacheFilter;
 import ninja.Result;
 import ninja.Route;
 import ninja.exceptions.BadRequestException;
+import ninja.template.TemplateEngineFreemarkerCacheDirective;
+import ninja.utils.ResponseBufferPool;
+import ninja.utils.ResponseCompression;
 
 import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
 import com.google.inject.Inject;
 
 /**
@@ -39,6 +48,21 @@ public class InstrumentedNinja extends NinjaDefault {
     @Inject
     protected MetricsService metricsService;
 
+    @Inject
+    protected ResponseBufferPool responseBufferPool;
+
+    @Inject
+    protected ResponseCompression responseCompression;
+
+    @Inject
+    protected TemplateEngineFreemarkerCacheDirective templateEngineFreemarkerCacheDirective;
+
+    @Inject
+    protected ResponseCacheFilter responseCacheFilter;
+
+    @Inject
+    protected RequestCoalescingFilter requestCoalescingFilter;
+
     protected Meter allRequestsMeter;
 
     protected Counter activeRequests;
@@ -60,9 +84,196 @@ public class InstrumentedNinja extends NinjaDefault {
         internalServerErrors = metrics.meter(MetricsService.METER_INTERNAL_SERVER_ERRORS);
         routesNotFound = metrics.meter(MetricsService.METER_ROUTES_NOT_FOUND);
 
+        if (responseBufferPool.isEnabled()) {
+            registerResponseBufferPoolGauges(metrics);
+        }
+
+        if (responseCompression.isEnabled()) {
+            registerResponseCompressionGauges(metrics);
+        }
+
+        if (templateEngineFreemarkerCacheDirective.isEnabled()) {
+            registerFragmentCacheGauges(metrics);
+        }
+
+        if (responseCacheFilter.isEnabled()) {
+            registerResponseCacheGauges(metrics);
+        }
+
+        if (requestCoalescingFilter.isEnabled()) {
+            registerRequestCoalescingGauges(metrics);
+        }
+
         super.onFrameworkStart();
     }
 
+    private void registerResponseBufferPoolGauges(MetricRegistry metrics) {
+
+        metrics.register(MetricsService.GAUGE_RESPONSE_BUFFER_HITS, new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return responseBufferPool.getHitCount();
+            }
+        });
+
+        metrics.register(MetricsService.GAUGE_RESPONSE_BUFFER_MISSES, new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return responseBufferPool.getMissCount();
+            }
+        });
+
+        metrics.register(MetricsService.GAUGE_RESPONSE_BUFFER_HIT_RATE, new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                long hits = responseBufferPool.getHitCount();
+                return Ratio.of(hits, hits + responseBufferPool.getMissCount());
+            }
+        });
+
+        metrics.register(MetricsService.GAUGE_RESPONSE_BUFFER_THRESHOLD_EXCEEDED, new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return responseBufferPool.getThresholdExceededCount();
+            }
+        });
+
+    }
+
+    private void registerFragmentCacheGauges(MetricRegistry metrics) {
+
+        metrics.register(MetricsService.GAUGE_FRAGMENT_CACHE_HITS, new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return templateEngineFreemarkerCacheDirective.getHitCount();
+            }
+        });
+
+        metrics.register(MetricsService.GAUGE_FRAGMENT_CACHE_MISSES, new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return templateEngineFreemarkerCacheDirective.getMissCount();
+            }
+        });
+
+        metrics.register(MetricsService.GAUGE_FRAGMENT_CACHE_HIT_RATE, new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                long hits = templateEngineFreemarkerCacheDirective.getHitCount();
+                return Ratio.of(hits, hits + templateEngineFreemarkerCacheDirective.getMissCount());
+            }
+        });
+
+    }
+
+    private void registerResponseCacheGauges(MetricRegistry metrics) {
+
+        metrics.register(MetricsService.GAUGE_RESPONSE_CACHE_HITS, new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return responseCacheFilter.getHitCount();
+            }
+        });
+
+        metrics.register(MetricsService.GAUGE_RESPONSE_CACHE_MISSES, new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return responseCacheFilter.getMissCount();
+            }
+        });
+
+        metrics.register(MetricsService.GAUGE_RESPONSE_CACHE_REFRESHES, new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return responseCacheFilter.getRefreshCount();
+            }
+        });
+
+        metrics.register(MetricsService.GAUGE_RESPONSE_CACHE_HIT_RATE, new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                long hits = responseCacheFilter.getHitCount();
+                return Ratio.of(hits, hits + responseCacheFilter.getMissCount());
+            }
+        });
+
+    }
+
+    private void registerRequestCoalescingGauges(MetricRegistry metrics) {
+
+        metrics.register(MetricsService.GAUGE_REQUEST_COALESCING_EXECUTED, new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return requestCoalescingFilter.getExecutedCount();
+            }
+        });
+
+        metrics.register(MetricsService.GAUGE_REQUEST_COALESCING_COALESCED, new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return requestCoalescingFilter.getCoalescedCount();
+            }
+        });
+
+        metrics.register(MetricsService.GAUGE_REQUEST_COALESCING_FALLBACKS, new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return requestCoalescingFilter.getFallbackCount();
+            }
+        });
+
+        metrics.register(MetricsService.GAUGE_REQUEST_COALESCING_IN_FLIGHT, new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return requestCoalescingFilter.getInFlightCount();
+            }
+        });
+
+    }
+
+    private void registerResponseCompressionGauges(MetricRegistry metrics) {
+
+        metrics.register(MetricsService.GAUGE_RESPONSE_COMPRESSION_RESPONSES, new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return responseCompression.getCompressedResponseCount();
+            }
+        });
+
+        metrics.register(MetricsService.GAUGE_RESPONSE_COMPRESSION_BYTES_IN, new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return responseCompression.getBytesIn();
+            }
+        });
+
+        metrics.register(MetricsService.GAUGE_RESPONSE_COMPRESSION_BYTES_OUT, new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return responseCompression.getBytesOut();
+            }
+        });
+
+        // compressed size relative to the uncompressed size
+        metrics.register(MetricsService.GAUGE_RESPONSE_COMPRESSION_RATIO, new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                return Ratio.of(
+                        responseCompression.getBytesOut(),
+                        responseCompression.getBytesIn());
+            }
+        });
+
+        metrics.register(MetricsService.GAUGE_RESPONSE_COMPRESSION_TIME, new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return TimeUnit.NANOSECONDS.toMillis(
+                        responseCompression.getCompressionTimeInNanos());
+            }
+        });
+
+    }
+
     @Override
     @Timed
     public void onRouteRequest(Context.Impl context) {
@@ -30,6 +30,26 @@ public interface MetricsService {
     String METER_BAD_REQUESTS = "ninja.requests.badRequests";
     String METER_INTERNAL_SERVER_ERRORS = "ninja.requests.internalServerErrors";
     String METER_ROUTES_NOT_FOUND = "ninja.requests.routesNotFound";
+    String GAUGE_RESPONSE_BUFFER_HITS = "ninja.responseBuffer.hits";
+    String GAUGE_RESPONSE_BUFFER_MISSES = "ninja.responseBuffer.misses";
+    String GAUGE_RESPONSE_BUFFER_HIT_RATE = "ninja.responseBuffer.hitRate";
+    String GAUGE_RESPONSE_BUFFER_THRESHOLD_EXCEEDED = "ninja.responseBuffer.thresholdExceeded";
+    String GAUGE_RESPONSE_COMPRESSION_RESPONSES = "ninja.responseCompression.responses";
+    String GAUGE_RESPONSE_COMPRESSION_BYTES_IN = "ninja.responseCompression.bytesIn";
+    String GAUGE_RESPONSE_COMPRESSION_BYTES_OUT = "ninja.responseCompression.bytesOut";
+    String GAUGE_RESPONSE_COMPRESSION_RATIO = "ninja.responseCompression.ratio";
+    String GAUGE_RESPONSE_COMPRESSION_TIME = "ninja.responseCompression.timeInMillis";
+    String GAUGE_FRAGMENT_CACHE_HITS = "ninja.fragmentCache.hits";
+    String GAUGE_FRAGMENT_CACHE_MISSES = "ninja.fragmentCache.misses";
+    String GAUGE_FRAGMENT_CACHE_HIT_RATE = "ninja.fragmentCache.hitRate";
+    String GAUGE_RESPONSE_CACHE_HITS = "ninja.responseCache.hits";
+    String GAUGE_RESPONSE_CACHE_MISSES = "ninja.responseCache.misses";
+    String GAUGE_RESPONSE_CACHE_REFRESHES = "ninja.responseCache.refreshes";
+    String GAUGE_RESPONSE_CACHE_HIT_RATE = "ninja.responseCache.hitRate";
+    String GAUGE_REQUEST_COALESCING_EXECUTED = "ninja.requestCoalescing.executed";
+    String GAUGE_REQUEST_COALESCING_COALESCED = "ninja.requestCoalescing.coalesced";
+    String GAUGE_REQUEST_COALESCING_FALLBACKS = "ninja.requestCoalescing.fallbacks";
+    String GAUGE_REQUEST_COALESCING_IN_FLIGHT = "ninja.requestCoalescing.inFlight";
 
     /**
      * Start the Ninja Metrics service.
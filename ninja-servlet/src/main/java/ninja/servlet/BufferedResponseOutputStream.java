@@ -0,0 +1,161 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ninja.servlet;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.servlet.http.HttpServletResponse;
+
+import ninja.utils.ResponseBufferPool;
+
+/**
+ * Collects the response in a pooled buffer. When the response is closed
+ * and it fits into the buffer Content-Length is set and the body is written
+ * to the servlet output stream in one go. As soon as the response exceeds
+ * the buffer it is streamed to the servlet output stream as usual.
+ *
+ * flush() does not send anything while buffering - otherwise the response
+ * would be chunked again.
+ */
+class BufferedResponseOutputStream extends OutputStream {
+
+    private final HttpServletResponse httpServletResponse;
+
+    private final ResponseBufferPool responseBufferPool;
+
+    private byte[] buffer;
+
+    private int count;
+
+    // set as soon as we switched to streaming
+    private OutputStream servletOutputStream;
+
+    private boolean closed;
+
+    BufferedResponseOutputStream(HttpServletResponse httpServletResponse,
+                                 ResponseBufferPool responseBufferPool) {
+        this.httpServletResponse = httpServletResponse;
+        this.responseBufferPool = responseBufferPool;
+        this.buffer = responseBufferPool.acquire();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+
+        ensureOpen();
+
+        if (servletOutputStream == null && count < buffer.length) {
+            buffer[count++] = (byte) b;
+        } else {
+            switchToStreaming();
+            servletOutputStream.write(b);
+        }
+
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+
+        ensureOpen();
+
+        if (servletOutputStream == null && length <= buffer.length - count) {
+            System.arraycopy(bytes, offset, buffer, count, length);
+            count += length;
+        } else {
+            switchToStreaming();
+            servletOutputStream.write(bytes, offset, length);
+        }
+
+    }
+
+    @Override
+    public void flush() throws IOException {
+
+        if (servletOutputStream != null) {
+            servletOutputStream.flush();
+        }
+
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+
+        if (servletOutputStream == null) {
+
+            try {
+
+                httpServletResponse.setContentLength(count);
+
+                OutputStream outputStream = httpServletResponse.getOutputStream();
+                outputStream.write(buffer, 0, count);
+                outputStream.close();
+
+            } finally {
+                releaseBuffer();
+            }
+
+        } else {
+            servletOutputStream.close();
+        }
+
+    }
+
+    /**
+     * @return true if the response exceeded the buffer and is streamed.
+     */
+    boolean isStreaming() {
+        return servletOutputStream != null;
+    }
+
+    private void switchToStreaming() throws IOException {
+
+        if (servletOutputStream != null) {
+            return;
+        }
+
+        responseBufferPool.markThresholdExceeded();
+
+        servletOutputStream = httpServletResponse.getOutputStream();
+
+        try {
+            servletOutputStream.write(buffer, 0, count);
+        } finally {
+            releaseBuffer();
+        }
+
+    }
+
+    private void releaseBuffer() {
+        responseBufferPool.release(buffer);
+        buffer = null;
+        count = 0;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Response stream already closed.");
+        }
+    }
+
+}
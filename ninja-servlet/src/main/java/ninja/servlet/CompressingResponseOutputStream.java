@@ -0,0 +1,151 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ninja.servlet;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.servlet.http.HttpServletResponse;
+
+import ninja.Result;
+import ninja.utils.ResponseCompression;
+
+/**
+ * Compresses the response once it exceeds the minimum size of
+ * {@link ResponseCompression}. Smaller responses are sent as they are.
+ *
+ * The first bytes are held back until that decision can be made - the
+ * Content-Encoding header has to be set before anything is sent.
+ */
+class CompressingResponseOutputStream extends OutputStream {
+
+    private final HttpServletResponse httpServletResponse;
+
+    private final OutputStream outputStream;
+
+    private final ResponseCompression responseCompression;
+
+    private final String contentEncoding;
+
+    private final byte[] pending;
+
+    private int count;
+
+    // set as soon as we decided to compress
+    private OutputStream compressingOutputStream;
+
+    private boolean closed;
+
+    /**
+     * @param httpServletResponse The response to set Content-Encoding on.
+     * @param outputStream Receives the (possibly compressed) response.
+     * @param responseCompression Does the actual compression.
+     * @param contentEncoding The negotiated encoding (e.g. "gzip").
+     */
+    CompressingResponseOutputStream(HttpServletResponse httpServletResponse,
+                                    OutputStream outputStream,
+                                    ResponseCompression responseCompression,
+                                    String contentEncoding) {
+        this.httpServletResponse = httpServletResponse;
+        this.outputStream = outputStream;
+        this.responseCompression = responseCompression;
+        this.contentEncoding = contentEncoding;
+        this.pending = new byte[Math.max(0, responseCompression.getMinSize())];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+
+        ensureOpen();
+
+        if (compressingOutputStream == null && count < pending.length) {
+            pending[count++] = (byte) b;
+        } else {
+            startCompression();
+            compressingOutputStream.write(b);
+        }
+
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+
+        ensureOpen();
+
+        if (compressingOutputStream == null && length <= pending.length - count) {
+            System.arraycopy(bytes, offset, pending, count, length);
+            count += length;
+        } else {
+            startCompression();
+            compressingOutputStream.write(bytes, offset, length);
+        }
+
+    }
+
+    @Override
+    public void flush() throws IOException {
+
+        if (compressingOutputStream != null) {
+            compressingOutputStream.flush();
+        }
+
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+
+        if (compressingOutputStream == null) {
+
+            // too small to be worth it
+            outputStream.write(pending, 0, count);
+            outputStream.close();
+
+        } else {
+            compressingOutputStream.close();
+        }
+
+    }
+
+    private void startCompression() throws IOException {
+
+        if (compressingOutputStream != null) {
+            return;
+        }
+
+        httpServletResponse.setHeader(Result.CONTENT_ENCODING, contentEncoding);
+
+        compressingOutputStream
+                = responseCompression.compress(contentEncoding, outputStream);
+
+        compressingOutputStream.write(pending, 0, count);
+        count = 0;
+
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Response stream already closed.");
+        }
+    }
+
+}
@@ -0,0 +1,65 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ninja.servlet;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Used for HEAD requests. Discards everything written to it and only counts
+ * the bytes. On close the count is set as Content-Length of the response.
+ */
+class ContentLengthOutputStream extends OutputStream {
+
+    private final HttpServletResponse httpServletResponse;
+
+    private long count;
+
+    private boolean closed;
+
+    ContentLengthOutputStream(HttpServletResponse httpServletResponse) {
+        this.httpServletResponse = httpServletResponse;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        count++;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        count += length;
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+
+        if (!httpServletResponse.isCommitted()) {
+            httpServletResponse.setHeader("Content-Length", String.valueOf(count));
+        }
+
+    }
+
+}
@@ -18,6 +18,7 @@ package ninja.servlet;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.UnsupportedEncodingException;
 import java.net.InetAddress;
 import java.net.URI;
@@ -28,6 +29,7 @@ import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -46,9 +48,14 @@ import ninja.servlet.async.AsyncStrategy;
 import ninja.servlet.async.AsyncStrategyFactoryHolder;
 import ninja.session.FlashScope;
 import ninja.session.Session;
+import ninja.utils.AutomaticETags;
+import ninja.utils.HttpHeaderConstants;
 import ninja.utils.HttpHeaderUtils;
 import ninja.utils.NinjaConstant;
 import ninja.utils.NinjaProperties;
+import ninja.utils.RequestDecompression;
+import ninja.utils.ResponseBufferPool;
+import ninja.utils.ResponseCompression;
 import ninja.utils.ResponseStreams;
 import ninja.utils.ResultHandler;
 import ninja.utils.SwissKnife;
@@ -76,6 +83,8 @@ public class ContextImpl implements Context.Impl {
     private AsyncStrategy asyncStrategy;
     private final Object asyncLock = new Object();
 
+    private final AutomaticETags automaticETags;
+
     private final BodyParserEngineManager bodyParserEngineManager;
 
     private final FlashScope flashScope;
@@ -83,6 +92,9 @@ public class ContextImpl implements Context.Impl {
     private final NinjaProperties ninjaProperties;
 
     private final Session session;
+    private final RequestDecompression requestDecompression;
+    private final ResponseBufferPool responseBufferPool;
+    private final ResponseCompression responseCompression;
     private final ResultHandler resultHandler;
     private final Validation validation;
 
@@ -90,21 +102,36 @@ public class ContextImpl implements Context.Impl {
     private String requestPath;
     private String contextPath;
 
+    // the streams handed out by the last call to finalizeHeaders
+    private ResponseStreamsServlet responseStreamsServlet;
+
+    // the (possibly decompressing) request body - created once
+    private InputStream inputStream;
+    private BufferedReader reader;
+
     private Logger logger = LoggerFactory.getLogger(ContextImpl.class);
 
     @Inject
     public ContextImpl(
+            AutomaticETags automaticETags,
             BodyParserEngineManager bodyParserEngineManager,
             FlashScope flashCookie,
             NinjaProperties ninjaProperties,
+            RequestDecompression requestDecompression,
+            ResponseBufferPool responseBufferPool,
+            ResponseCompression responseCompression,
             ResultHandler resultHandler,
             Session sessionCookie,
             Validation validation) {
 
+        this.automaticETags = automaticETags;
         this.bodyParserEngineManager = bodyParserEngineManager;
         this.flashScope = flashCookie;
         this.ninjaProperties = ninjaProperties;
         this.session = sessionCookie;
+        this.requestDecompression = requestDecompression;
+        this.responseBufferPool = responseBufferPool;
+        this.responseCompression = responseCompression;
         this.resultHandler = resultHandler;
         this.validation = validation;
     }
@@ -115,6 +142,8 @@ public class ContextImpl implements Context.Impl {
         this.servletContext = servletContext;
         this.httpServletRequest = httpServletRequest;
         this.httpServletResponse = httpServletResponse;
+        this.inputStream = null;
+        this.reader = null;
 
         enforceCorrectEncodingOfRequest();
 
@@ -428,21 +457,43 @@ public class ContextImpl implements Context.Impl {
 
     @Override
     public InputStream getInputStream() throws IOException {
-        return httpServletRequest.getInputStream();
+
+        // like the servlet container every call returns the same stream.
+        // A second decompressing stream would read the rest of the body.
+        if (inputStream == null) {
+            inputStream = requestDecompression.decompress(
+                    getHeader(CONTENT_ENCODING), httpServletRequest.getInputStream());
+        }
+
+        return inputStream;
     }
 
     @Override
     public BufferedReader getReader() throws IOException {
-        return httpServletRequest.getReader();
+
+        if (!requestDecompression.isDecompressible(getHeader(CONTENT_ENCODING))) {
+            return httpServletRequest.getReader();
+        }
+
+        if (reader == null) {
+            // charset has been set by enforceCorrectEncodingOfRequest()
+            reader = new BufferedReader(new InputStreamReader(
+                    getInputStream(), httpServletRequest.getCharacterEncoding()));
+        }
+
+        return reader;
     }
 
     private ResponseStreams finalizeHeaders(Result result, Boolean handleFlashAndSessionCookie) {
 
         httpServletResponse.setStatus(result.getStatusCode());
 
-        // copy headers
+        // copy headers. An explicit Content-Length is set below - unless
+        // the body is compressed.
         for (Entry<String, String> header : result.getHeaders().entrySet()) {
-            httpServletResponse.addHeader(header.getKey(), header.getValue());
+            if (!HttpHeaderConstants.CONTENT_LENGTH.equals(header.getKey())) {
+                httpServletResponse.addHeader(header.getKey(), header.getValue());
+            }
         }
 
         // copy ninja cookies / flash and session
@@ -474,13 +525,89 @@ public class ContextImpl implements Context.Impl {
         }
 
         // possibly
-        ResponseStreamsServlet responseStreamsServlet = new ResponseStreamsServlet();
-        responseStreamsServlet.init(httpServletResponse);
+        responseStreamsServlet = new ResponseStreamsServlet();
+
+        boolean head = "HEAD".equalsIgnoreCase(getMethod());
+
+        if (head) {
+            // nothing is sent anyway
+            responseStreamsServlet.init(httpServletResponse);
+            responseStreamsServlet.discardBody();
+        } else if (responseBufferPool.isEnabled()) {
+            responseStreamsServlet.init(httpServletResponse, responseBufferPool);
+        } else {
+            responseStreamsServlet.init(httpServletResponse);
+        }
+
+        if (automaticETags.appliesTo(getMethod(), result)) {
+            responseStreamsServlet.enableAutomaticETag(
+                    automaticETags,
+                    getHeader(HttpHeaderConstants.IF_NONE_MATCH),
+                    responseBufferPool);
+        }
+
+        boolean compressed = false;
+
+        // parts of a body (206) refer to the uncompressed bytes
+        if (responseCompression.isCompressible(result.getContentType())
+                && mayHaveBody(result.getStatusCode())
+                && !result.getHeaders().containsKey(HttpHeaderConstants.CONTENT_RANGE)) {
+
+            // caches must not serve a compressed response to clients
+            // that cannot handle it.
+            String vary = result.getHeaders().get(Result.VARY);
+
+            if (vary == null || !vary.toLowerCase(Locale.ENGLISH).contains("accept-encoding")) {
+                httpServletResponse.addHeader(Result.VARY, "Accept-Encoding");
+            }
+
+            String contentEncoding = responseCompression.selectEncoding(
+                    getAcceptEncoding(), result.getContentType());
+
+            // do not compress something that is already encoded. HEAD
+            // responses are compressed like GET responses - only the
+            // compressed bytes are counted for the Content-Length.
+            if (contentEncoding != null
+                    && !result.getHeaders().containsKey(Result.CONTENT_ENCODING)) {
+                responseStreamsServlet.enableCompression(
+                        responseCompression, contentEncoding);
+                compressed = true;
+            }
+
+        }
+
+        String contentLength = result.getHeaders().get(HttpHeaderConstants.CONTENT_LENGTH);
+
+        if (contentLength != null && !compressed) {
+            httpServletResponse.setHeader(HttpHeaderConstants.CONTENT_LENGTH, contentLength);
+        }
 
         return responseStreamsServlet;
 
     }
 
+    private boolean mayHaveBody(int statusCode) {
+        return statusCode >= 200
+                && statusCode != Result.SC_204_NO_CONTENT
+                && statusCode != Result.SC_304_NOT_MODIFIED;
+    }
+
+    /**
+     * Sends the response if it is still sitting in a buffer because the
+     * renderer did not close the streams. Called once rendering is done.
+     */
+    public void commitBufferedResponse() {
+
+        if (responseStreamsServlet != null) {
+            try {
+                responseStreamsServlet.commitBufferedResponse();
+            } catch (IOException e) {
+                logger.error("Error while sending buffered response", e);
+            }
+        }
+
+    }
+
     @Override
     public ResponseStreams finalizeHeadersWithoutFlashAndSessionCookie(Result result) {
         return finalizeHeaders(result, false);
@@ -520,6 +647,23 @@ public class ContextImpl implements Context.Impl {
             return Result.APPLICATON_JSON;
         }
 
+        if (contentType.indexOf(Result.APPLICATION_SMILE) != -1) {
+            return Result.APPLICATION_SMILE;
+        }
+
+        if (contentType.indexOf(Result.APPLICATION_CBOR) != -1) {
+            return Result.APPLICATION_CBOR;
+        }
+
+        if (contentType.indexOf(Result.APPLICATION_MSGPACK) != -1
+                || contentType.indexOf("application/x-msgpack") != -1) {
+            return Result.APPLICATION_MSGPACK;
+        }
+
+        if (contentType.indexOf(Result.APPLICATION_PROTOBUF) != -1) {
+            return Result.APPLICATION_PROTOBUF;
+        }
+
         if (contentType.indexOf("text/plain") != -1) {
             return Result.TEXT_PLAIN;
         }
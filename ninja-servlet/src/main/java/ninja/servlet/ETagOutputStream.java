@@ -0,0 +1,235 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ninja.servlet;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.servlet.http.HttpServletResponse;
+
+import ninja.Result;
+import ninja.utils.AutomaticETags;
+import ninja.utils.HttpHeaderConstants;
+import ninja.utils.HttpHeaderUtils;
+import ninja.utils.ResponseBufferPool;
+
+import com.google.common.hash.Hasher;
+
+/**
+ * Holds back the response and hashes it. On close the hash is set as ETag.
+ * If the ETag matches the If-None-Match header of the request a
+ * 304 Not Modified is sent - without the body.
+ *
+ * Responses larger than {@link AutomaticETags#getMaxSize()} are streamed
+ * without an ETag.
+ *
+ * The body is held back in buffers of the {@link ResponseBufferPool}. They
+ * are handed back as soon as the body has been written.
+ */
+class ETagOutputStream extends OutputStream {
+
+    private final HttpServletResponse httpServletResponse;
+
+    private final ResponseStreamsServlet responseStreamsServlet;
+
+    private final AutomaticETags automaticETags;
+
+    private final ResponseBufferPool responseBufferPool;
+
+    private final String ifNoneMatch;
+
+    private final String contentEncoding;
+
+    private final Hasher hasher;
+
+    private final List<byte[]> buffers = new ArrayList<>();
+
+    // bytes held back in all buffers
+    private int size;
+
+    // bytes used in the last buffer
+    private int position;
+
+    // set as soon as we gave up on the ETag and stream the response
+    private OutputStream outputStream;
+
+    private boolean closed;
+
+    /**
+     * @param httpServletResponse The response to set the ETag on.
+     * @param responseStreamsServlet Opens the stream the body is written to.
+     * @param automaticETags Settings and hashing.
+     * @param responseBufferPool Provides the buffers holding back the body.
+     * @param ifNoneMatch The If-None-Match header of the request. May be null.
+     * @param contentEncoding The content encoding of the response or null.
+     */
+    ETagOutputStream(HttpServletResponse httpServletResponse,
+                     ResponseStreamsServlet responseStreamsServlet,
+                     AutomaticETags automaticETags,
+                     ResponseBufferPool responseBufferPool,
+                     String ifNoneMatch,
+                     String contentEncoding) {
+        this.httpServletResponse = httpServletResponse;
+        this.responseStreamsServlet = responseStreamsServlet;
+        this.automaticETags = automaticETags;
+        this.responseBufferPool = responseBufferPool;
+        this.ifNoneMatch = ifNoneMatch;
+        this.contentEncoding = contentEncoding;
+        this.hasher = automaticETags.newHasher();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+
+        ensureOpen();
+
+        if (outputStream == null
+                && size + length <= automaticETags.getMaxSize()) {
+            holdBack(bytes, offset, length);
+            hasher.putBytes(bytes, offset, length);
+        } else {
+            switchToStreaming();
+            outputStream.write(bytes, offset, length);
+        }
+
+    }
+
+    @Override
+    public void flush() throws IOException {
+
+        if (outputStream != null) {
+            outputStream.flush();
+        }
+
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+
+        if (outputStream != null) {
+            outputStream.close();
+            return;
+        }
+
+        try {
+
+            String etag = automaticETags.toETag(hasher.hash(), contentEncoding);
+
+            httpServletResponse.setHeader(HttpHeaderConstants.ETAG, etag);
+
+            if (HttpHeaderUtils.ifNoneMatchMatches(ifNoneMatch, etag)) {
+
+                // the client already got it
+                httpServletResponse.setStatus(Result.SC_304_NOT_MODIFIED);
+
+            } else {
+
+                OutputStream outputStream = responseStreamsServlet.openOutputStream();
+                writeHeldBack(outputStream);
+                outputStream.close();
+
+            }
+
+        } finally {
+            releaseBuffers();
+        }
+
+    }
+
+    private void switchToStreaming() throws IOException {
+
+        if (outputStream != null) {
+            return;
+        }
+
+        try {
+            outputStream = responseStreamsServlet.openOutputStream();
+            writeHeldBack(outputStream);
+        } finally {
+            releaseBuffers();
+        }
+
+    }
+
+    private void holdBack(byte[] bytes, int offset, int length) {
+
+        while (length > 0) {
+
+            if (buffers.isEmpty()
+                    || position == buffers.get(buffers.size() - 1).length) {
+                buffers.add(responseBufferPool.acquire());
+                position = 0;
+            }
+
+            byte[] buffer = buffers.get(buffers.size() - 1);
+            int count = Math.min(length, buffer.length - position);
+
+            System.arraycopy(bytes, offset, buffer, position, count);
+
+            position += count;
+            size += count;
+            offset += count;
+            length -= count;
+
+        }
+
+    }
+
+    private void writeHeldBack(OutputStream outputStream) throws IOException {
+
+        int remaining = size;
+
+        for (byte[] buffer : buffers) {
+            int count = Math.min(remaining, buffer.length);
+            outputStream.write(buffer, 0, count);
+            remaining -= count;
+        }
+
+    }
+
+    private void releaseBuffers() {
+
+        for (byte[] buffer : buffers) {
+            responseBufferPool.release(buffer);
+        }
+
+        buffers.clear();
+        size = 0;
+        position = 0;
+
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Response stream already closed.");
+        }
+    }
+
+}
@@ -85,5 +85,10 @@ public class NinjaServletDispatcher extends HttpServlet {
         // Ninja handles all defined routes, filters and much more:
         ninja.onRouteRequest(context);
 
+        // Async requests are completed by their AsyncStrategy
+        if (!context.isAsync()) {
+            context.commitBufferedResponse();
+        }
+
     }
 }
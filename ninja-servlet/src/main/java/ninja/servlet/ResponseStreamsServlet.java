@@ -18,15 +18,36 @@ package ninja.servlet;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.Writer;
 
 import javax.servlet.http.HttpServletResponse;
 
+import ninja.utils.AutomaticETags;
+import ninja.utils.ResponseBufferPool;
+import ninja.utils.ResponseCompression;
 import ninja.utils.ResponseStreams;
 
 /**
  * Make sure to only write to either the OutputStream OR the Writer...
  *
+ * If initialized with a {@link ResponseBufferPool} the response is buffered
+ * until it exceeds the threshold of the pool. Small responses are therefore
+ * sent in one go with a Content-Length header.
+ *
+ * For HEAD requests ({@link #discardBody()}) nothing is sent at all. Only
+ * the Content-Length of the response is calculated - of the compressed
+ * response if compression is enabled. The headers are the ones of a GET.
+ *
+ * With
+ * {@link #enableAutomaticETag(AutomaticETags, String, ResponseBufferPool)}
+ * the response is hashed before anything else happens. The hash is sent as ETag (or a
+ * 304 Not Modified if the client already has that version).
+ *
+ * If compression is enabled via
+ * {@link #enableCompression(ResponseCompression, String)} the response is
+ * compressed before it is buffered (or sent).
+ *
  * @author rbauer
  *
  */
@@ -34,11 +55,86 @@ public class ResponseStreamsServlet implements ResponseStreams {
 
     private HttpServletResponse httpServletResponse;
 
+    private ResponseBufferPool responseBufferPool;
+
+    private ResponseCompression responseCompression;
+
+    private String contentEncoding;
+
+    private boolean discardBody;
+
+    private AutomaticETags automaticETags;
+
+    private String ifNoneMatch;
+
+    // holds back the body until its ETag is known
+    private ResponseBufferPool etagBufferPool;
+
+    // only used when buffering, compressing, hashing or discarding
+    private OutputStream outputStream;
+
+    private Writer writer;
+
     public void init(HttpServletResponse httpServletResponse) {
         this.httpServletResponse = httpServletResponse;
 
     }
 
+    /**
+     * Initializes the buffered mode of operation.
+     *
+     * @param httpServletResponse The response to write to.
+     * @param responseBufferPool The pool providing the buffers.
+     */
+    public void init(HttpServletResponse httpServletResponse,
+                     ResponseBufferPool responseBufferPool) {
+        this.httpServletResponse = httpServletResponse;
+        this.responseBufferPool = responseBufferPool;
+
+    }
+
+    /**
+     * Compresses everything written to the streams. Must be called before
+     * getOutputStream() or getWriter().
+     *
+     * @param responseCompression The service that compresses the response.
+     * @param contentEncoding The encoding to use (e.g. "gzip").
+     */
+    public void enableCompression(ResponseCompression responseCompression,
+                                  String contentEncoding) {
+        this.responseCompression = responseCompression;
+        this.contentEncoding = contentEncoding;
+
+    }
+
+    /**
+     * Discards everything written to the streams and sets the Content-Length
+     * of the response instead. Used for HEAD requests. Must be called before
+     * getOutputStream() or getWriter().
+     */
+    public void discardBody() {
+        this.discardBody = true;
+
+    }
+
+    /**
+     * Calculates an ETag from everything written to the streams. Must be
+     * called before getOutputStream() or getWriter().
+     *
+     * @param automaticETags Settings and hashing of ETags.
+     * @param ifNoneMatch The If-None-Match header of the request. May be null.
+     * @param responseBufferPool Provides the buffers holding back the body
+     *                           until the ETag is known.
+     */
+    public void enableAutomaticETag(AutomaticETags automaticETags,
+                                    String ifNoneMatch,
+                                    ResponseBufferPool responseBufferPool) {
+        this.automaticETags = automaticETags;
+        this.ifNoneMatch = ifNoneMatch;
+        this.etagBufferPool = responseBufferPool;
+
+    }
+
     /**
      * Get the output stream to write the response.
      *
@@ -47,7 +143,59 @@ public class ResponseStreamsServlet implements ResponseStreams {
      * @return The output stream
      */
     public OutputStream getOutputStream() throws IOException {
-        return httpServletResponse.getOutputStream();
+
+        if (!isWrapped()) {
+            return httpServletResponse.getOutputStream();
+        }
+
+        if (outputStream == null) {
+
+            if (automaticETags != null) {
+                // opens the other streams once the ETag is known
+                outputStream = new ETagOutputStream(
+                        httpServletResponse,
+                        this,
+                        automaticETags,
+                        etagBufferPool,
+                        ifNoneMatch,
+                        responseCompression != null ? contentEncoding : null);
+            } else {
+                outputStream = openOutputStream();
+            }
+
+        }
+
+        return outputStream;
+
+    }
+
+    /**
+     * Opens the (possibly discarding, buffered or compressing) stream that
+     * finally receives the body.
+     */
+    OutputStream openOutputStream() throws IOException {
+
+        OutputStream outputStream;
+
+        if (discardBody) {
+            outputStream = new ContentLengthOutputStream(httpServletResponse);
+        } else if (responseBufferPool == null) {
+            outputStream = httpServletResponse.getOutputStream();
+        } else {
+            outputStream = new BufferedResponseOutputStream(
+                    httpServletResponse, responseBufferPool);
+        }
+
+        if (responseCompression != null) {
+            outputStream = new CompressingResponseOutputStream(
+                    httpServletResponse,
+                    outputStream,
+                    responseCompression,
+                    contentEncoding);
+        }
+
+        return outputStream;
+
     }
 
     /**
@@ -58,7 +206,44 @@ public class ResponseStreamsServlet implements ResponseStreams {
      * @return The writer
      */
     public Writer getWriter() throws IOException {
-        return httpServletResponse.getWriter();
+
+        if (!isWrapped()) {
+            return httpServletResponse.getWriter();
+        }
+
+        if (writer == null) {
+            // charset has been set by ContextImpl.finalizeHeaders(...)
+            writer = new OutputStreamWriter(
+                    getOutputStream(),
+                    httpServletResponse.getCharacterEncoding());
+        }
+
+        return writer;
+
+    }
+
+    /**
+     * Sends a buffered (or compressed) response that has not been closed by
+     * its renderer. Does nothing if the response is neither buffered nor
+     * compressed or if it has already been sent.
+     *
+     * For HEAD requests the Content-Length is set.
+     */
+    public void commitBufferedResponse() throws IOException {
+
+        if (writer != null) {
+            writer.close();
+        } else if (outputStream != null) {
+            outputStream.close();
+        }
+
+    }
+
+    private boolean isWrapped() {
+        return discardBody
+                || automaticETags != null
+                || responseBufferPool != null
+                || responseCompression != null;
     }
 
 }
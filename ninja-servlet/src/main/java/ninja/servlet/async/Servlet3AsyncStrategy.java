@@ -20,6 +20,7 @@ import javax.servlet.http.HttpServletRequest;
 
 import ninja.Context;
 import ninja.Result;
+import ninja.servlet.ContextImpl;
 import ninja.utils.ResultHandler;
 
 /**
@@ -48,6 +49,11 @@ public class Servlet3AsyncStrategy implements AsyncStrategy {
     @Override
     public void returnResultAsync(Result result, Context context) {
         resultHandler.handleResult(result, context);
+
+        if (context instanceof ContextImpl) {
+            ((ContextImpl) context).commitBufferedResponse();
+        }
+
         request.getAsyncContext().complete();
     }
 }
@@ -21,15 +21,27 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
+import java.io.Writer;
 import java.util.Map;
+import java.util.TreeMap;
 
 import javax.servlet.ServletContext;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
@@ -43,8 +55,14 @@ import ninja.bodyparser.BodyParserEngine;
 import ninja.bodyparser.BodyParserEngineManager;
 import ninja.session.FlashScope;
 import ninja.session.Session;
+import ninja.utils.AutomaticETags;
 import ninja.utils.NinjaConstant;
+import ninja.utils.NinjaMode;
 import ninja.utils.NinjaProperties;
+import ninja.utils.NinjaPropertiesImpl;
+import ninja.utils.RequestDecompression;
+import ninja.utils.ResponseBufferPool;
+import ninja.utils.ResponseCompression;
 import ninja.utils.ResultHandler;
 import ninja.validation.Validation;
 
@@ -54,8 +72,11 @@ import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Matchers;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
 
+import com.google.common.base.Strings;
 import com.google.common.collect.Maps;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -94,6 +115,18 @@ public class ContextImplTest {
     @Mock
     private NinjaProperties ninjaProperties;
 
+    @Mock
+    private RequestDecompression requestDecompression;
+
+    @Mock
+    private ResponseBufferPool responseBufferPool;
+
+    @Mock
+    private ResponseCompression responseCompression;
+
+    @Mock
+    private AutomaticETags automaticETags;
+
     private ContextImpl context;
 
     @Before
@@ -105,9 +138,13 @@ public class ContextImplTest {
 
 
         context = new ContextImpl(
+                automaticETags,
                 bodyParserEngineManager, 
                 flashCookie, 
                 ninjaProperties,
+                requestDecompression,
+                responseBufferPool,
+                responseCompression,
                 resultHandler, 
                 sessionCookie,
                 validation);
@@ -463,6 +500,149 @@ public class ContextImplTest {
     }
 
 
+    @Test
+    public void testCompressibleResponseVariesOnAcceptEncodingUponFinalize() {
+
+        when(responseCompression.isCompressible(Result.TEXT_HTML)).thenReturn(true);
+
+        context.init(servletContext, httpServletRequest, httpServletResponse);
+
+        context.finalizeHeaders(Results.html());
+        context.finalizeHeaders(Results.html().addHeader(Result.VARY, "Accept-Encoding"));
+        context.finalizeHeaders(Results.json());
+
+        // only the first result gets the header from the context
+        verify(httpServletResponse, times(2)).addHeader(Result.VARY, "Accept-Encoding");
+
+    }
+
+    @Test
+    public void testExplicitContentLengthIsOnlySetForUncompressedResponses() {
+
+        when(responseCompression.isCompressible(Result.TEXT_HTML)).thenReturn(true);
+        when(responseCompression.selectEncoding(anyString(), Matchers.eq(Result.TEXT_HTML)))
+                .thenReturn("gzip");
+        when(httpServletRequest.getHeader("accept-encoding")).thenReturn("gzip");
+
+        context.init(servletContext, httpServletRequest, httpServletResponse);
+
+        context.finalizeHeaders(Results.html().addHeader("Content-Length", "1000"));
+        context.finalizeHeaders(Results.text().addHeader("Content-Length", "2000"));
+
+        verify(httpServletResponse, never()).setHeader("Content-Length", "1000");
+        verify(httpServletResponse, never()).addHeader("Content-Length", "1000");
+        verify(httpServletResponse).setHeader("Content-Length", "2000");
+
+    }
+
+    @Test
+    public void testHeadSendsTheHeadersOfGet() throws Exception {
+
+        Map<String, String> getHeaders = sendHtml("GET");
+        Map<String, String> headHeaders = sendHtml("HEAD");
+
+        assertEquals("gzip", getHeaders.get("Content-Encoding"));
+        // the length of the compressed body
+        assertTrue(Integer.parseInt(getHeaders.get("Content-Length")) < 1900);
+        assertEquals(getHeaders, headHeaders);
+
+    }
+
+    /**
+     * Renders a compressible page with real compression and buffering.
+     *
+     * @return The headers of the response.
+     */
+    private Map<String, String> sendHtml(String method) throws Exception {
+
+        NinjaPropertiesImpl ninjaProperties = new NinjaPropertiesImpl(NinjaMode.test);
+        ninjaProperties.setProperty(NinjaConstant.RESPONSE_COMPRESSION_ENABLED, "true");
+        ninjaProperties.setProperty(NinjaConstant.RESPONSE_COMPRESSION_MIN_SIZE_IN_BYTES, "8");
+        ninjaProperties.setProperty(NinjaConstant.RESPONSE_BUFFER_ENABLED, "true");
+
+        ContextImpl context = new ContextImpl(
+                automaticETags,
+                bodyParserEngineManager,
+                flashCookie,
+                ninjaProperties,
+                requestDecompression,
+                new ResponseBufferPool(ninjaProperties),
+                new ResponseCompression(ninjaProperties),
+                resultHandler,
+                sessionCookie,
+                validation);
+
+        HttpServletRequest httpServletRequest = mock(HttpServletRequest.class);
+        HttpServletResponse httpServletResponse = mock(HttpServletResponse.class);
+        final Map<String, String> headers = new TreeMap<>();
+
+        when(httpServletRequest.getContextPath()).thenReturn("");
+        when(httpServletRequest.getRequestURI()).thenReturn("/");
+        when(httpServletRequest.getMethod()).thenReturn(method);
+        when(httpServletRequest.getHeader("accept-encoding")).thenReturn("gzip");
+        when(httpServletResponse.getCharacterEncoding()).thenReturn(NinjaConstant.UTF_8);
+        when(httpServletResponse.getOutputStream()).thenReturn(new ServletOutputStream() {
+
+            @Override
+            public void write(int b) {}
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {}
+
+        });
+
+        Answer<Void> recordHeader = new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                headers.put(
+                        (String) invocation.getArguments()[0],
+                        String.valueOf(invocation.getArguments()[1]));
+                return null;
+            }
+        };
+
+        doAnswer(recordHeader).when(httpServletResponse).setHeader(anyString(), anyString());
+        doAnswer(recordHeader).when(httpServletResponse).addHeader(anyString(), anyString());
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                headers.put("Content-Length", String.valueOf(invocation.getArguments()[0]));
+                return null;
+            }
+        }).when(httpServletResponse).setContentLength(anyInt());
+
+        context.init(servletContext, httpServletRequest, httpServletResponse);
+
+        try (Writer writer = context.finalizeHeaders(Results.html()).getWriter()) {
+            writer.write(Strings.repeat("<p>compressible</p>", 100));
+        }
+
+        return headers;
+
+    }
+
+    @Test
+    public void testPartialContentIsNotCompressed() {
+
+        when(responseCompression.isCompressible(Result.TEXT_HTML)).thenReturn(true);
+
+        context.init(servletContext, httpServletRequest, httpServletResponse);
+
+        context.finalizeHeaders(Results
+                .html()
+                .status(Result.SC_206_PARTIAL_CONTENT)
+                .addHeader("Content-Range", "bytes 0-9/100"));
+
+        verify(responseCompression, never()).selectEncoding(anyString(), anyString());
+
+    }
+
+
     @Test
     public void testGetRequestPathWorksAsExpectedWithContext() {
 
@@ -552,6 +732,18 @@ public class ContextImplTest {
         when(httpServletRequest.getHeader("accept")).thenReturn("text/plain, application/json");
         context.init(servletContext, httpServletRequest, httpServletResponse);
         assertEquals(Result.APPLICATON_JSON, context.getAcceptContentType());
+
+        when(httpServletRequest.getHeader("accept")).thenReturn("application/x-jackson-smile, application/json;q=0.5");
+        context.init(servletContext, httpServletRequest, httpServletResponse);
+        assertEquals(Result.APPLICATON_JSON, context.getAcceptContentType());
+
+        when(httpServletRequest.getHeader("accept")).thenReturn("application/cbor");
+        context.init(servletContext, httpServletRequest, httpServletResponse);
+        assertEquals(Result.APPLICATION_CBOR, context.getAcceptContentType());
+
+        when(httpServletRequest.getHeader("accept")).thenReturn("application/x-msgpack");
+        context.init(servletContext, httpServletRequest, httpServletResponse);
+        assertEquals(Result.APPLICATION_MSGPACK, context.getAcceptContentType());
     }
 
     @Test
@@ -802,6 +994,45 @@ public class ContextImplTest {
 
     }
 
+    @Test
+    public void testGetInputStreamAndReaderDecompressRequestBody() throws Exception {
+
+        ServletInputStream servletInputStream = mock(ServletInputStream.class);
+
+        when(httpServletRequest.getHeader("Content-Encoding")).thenReturn("gzip");
+        when(httpServletRequest.getInputStream()).thenReturn(servletInputStream);
+        when(httpServletRequest.getCharacterEncoding()).thenReturn(NinjaConstant.UTF_8);
+        when(requestDecompression.isDecompressible("gzip")).thenReturn(true);
+        when(requestDecompression.decompress("gzip", servletInputStream))
+                .thenReturn(new ByteArrayInputStream("decompressed".getBytes("utf-8")));
+
+        context.init(servletContext, httpServletRequest, httpServletResponse);
+
+        assertEquals("decompressed", context.getReader().readLine());
+        verify(httpServletRequest, never()).getReader();
+
+    }
+
+    @Test
+    public void testDecompressingInputStreamIsCreatedOnce() throws Exception {
+
+        ServletInputStream servletInputStream = mock(ServletInputStream.class);
+
+        when(httpServletRequest.getHeader("Content-Encoding")).thenReturn("gzip");
+        when(httpServletRequest.getInputStream()).thenReturn(servletInputStream);
+        when(httpServletRequest.getCharacterEncoding()).thenReturn(NinjaConstant.UTF_8);
+        when(requestDecompression.isDecompressible("gzip")).thenReturn(true);
+        when(requestDecompression.decompress("gzip", servletInputStream))
+                .thenReturn(new ByteArrayInputStream("decompressed".getBytes("utf-8")));
+
+        context.init(servletContext, httpServletRequest, httpServletResponse);
+
+        assertSame(context.getInputStream(), context.getInputStream());
+        assertSame(context.getReader(), context.getReader());
+        verify(requestDecompression, times(1)).decompress("gzip", servletInputStream);
+
+    }
+
     /**
      * We get an conetnt type that does not match any registered parsers.
      * This must also return null safely.
@@ -0,0 +1,360 @@
+/**
+ * Copyright (C) 2012-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ninja.servlet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.zip.GZIPInputStream;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+
+import ninja.utils.AutomaticETags;
+import ninja.utils.NinjaConstant;
+import ninja.utils.NinjaMode;
+import ninja.utils.NinjaPropertiesImpl;
+import ninja.utils.ResponseBufferPool;
+import ninja.utils.ResponseCompression;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.google.common.io.ByteStreams;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ResponseStreamsServletTest {
+
+    @Mock
+    HttpServletResponse httpServletResponse;
+
+    ByteArrayOutputStream sentBytes;
+
+    ResponseBufferPool responseBufferPool;
+
+    ResponseStreamsServlet responseStreamsServlet;
+
+    @Before
+    public void setup() throws Exception {
+
+        NinjaPropertiesImpl ninjaProperties = new NinjaPropertiesImpl(NinjaMode.test);
+        ninjaProperties.setProperty(NinjaConstant.RESPONSE_BUFFER_THRESHOLD_IN_BYTES, "16");
+
+        responseBufferPool = new ResponseBufferPool(ninjaProperties);
+
+        sentBytes = new ByteArrayOutputStream();
+
+        when(httpServletResponse.getOutputStream())
+                .thenReturn(new CapturingServletOutputStream(sentBytes));
+        when(httpServletResponse.getCharacterEncoding()).thenReturn("utf-8");
+
+        responseStreamsServlet = new ResponseStreamsServlet();
+        responseStreamsServlet.init(httpServletResponse, responseBufferPool);
+
+    }
+
+    @Test
+    public void testSmallResponseIsSentWithContentLength() throws Exception {
+
+        try (Writer writer = responseStreamsServlet.getWriter()) {
+            writer.write("hello ");
+            writer.flush();
+            writer.write("world");
+        }
+
+        verify(httpServletResponse).setContentLength(11);
+        assertEquals("hello world", sentBytes.toString("utf-8"));
+        assertEquals(0, responseBufferPool.getThresholdExceededCount());
+
+    }
+
+    @Test
+    public void testLargeResponseIsStreamed() throws Exception {
+
+        try (OutputStream outputStream = responseStreamsServlet.getOutputStream()) {
+            outputStream.write("0123456789".getBytes("utf-8"));
+            outputStream.write("0123456789".getBytes("utf-8"));
+        }
+
+        verify(httpServletResponse, never()).setContentLength(anyInt());
+        assertEquals("01234567890123456789", sentBytes.toString("utf-8"));
+        assertEquals(1, responseBufferPool.getThresholdExceededCount());
+
+    }
+
+    @Test
+    public void testBuffersAreReused() throws Exception {
+
+        try (OutputStream outputStream = responseStreamsServlet.getOutputStream()) {
+            outputStream.write(1);
+        }
+
+        ResponseStreamsServlet second = new ResponseStreamsServlet();
+        second.init(httpServletResponse, responseBufferPool);
+
+        try (OutputStream outputStream = second.getOutputStream()) {
+            outputStream.write(2);
+        }
+
+        assertEquals(1, responseBufferPool.getMissCount());
+        assertEquals(1, responseBufferPool.getHitCount());
+
+    }
+
+    @Test
+    public void testUnclosedResponseIsCommitted() throws Exception {
+
+        responseStreamsServlet.getWriter().write("not closed");
+
+        responseStreamsServlet.commitBufferedResponse();
+
+        verify(httpServletResponse).setContentLength(10);
+        assertEquals("not closed", sentBytes.toString("utf-8"));
+
+    }
+
+    @Test
+    public void testResponseIsCompressedAndBuffered() throws Exception {
+
+        // gzip header and trailer alone do not fit into 16 bytes
+        NinjaPropertiesImpl ninjaProperties = new NinjaPropertiesImpl(NinjaMode.test);
+        ninjaProperties.setProperty(NinjaConstant.RESPONSE_BUFFER_THRESHOLD_IN_BYTES, "1024");
+
+        responseStreamsServlet = new ResponseStreamsServlet();
+        responseStreamsServlet.init(
+                httpServletResponse, new ResponseBufferPool(ninjaProperties));
+        responseStreamsServlet.enableCompression(
+                newResponseCompression(), ResponseCompression.GZIP);
+
+        try (Writer writer = responseStreamsServlet.getWriter()) {
+            writer.write("aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa");
+        }
+
+        byte [] compressed = sentBytes.toByteArray();
+
+        verify(httpServletResponse).setHeader("Content-Encoding", "gzip");
+        verify(httpServletResponse).setContentLength(compressed.length);
+
+        try (GZIPInputStream gzipInputStream
+                = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            assertEquals(
+                    "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa",
+                    new String(ByteStreams.toByteArray(gzipInputStream), "utf-8"));
+        }
+
+    }
+
+    @Test
+    public void testSmallResponseIsNotCompressed() throws Exception {
+
+        responseStreamsServlet.enableCompression(
+                newResponseCompression(), ResponseCompression.GZIP);
+
+        try (Writer writer = responseStreamsServlet.getWriter()) {
+            writer.write("tiny");
+        }
+
+        verify(httpServletResponse, never()).setHeader(eq("Content-Encoding"), anyString());
+        assertEquals("tiny", sentBytes.toString("utf-8"));
+
+    }
+
+    @Test
+    public void testBodyIsDiscardedForHead() throws Exception {
+
+        responseStreamsServlet = new ResponseStreamsServlet();
+        responseStreamsServlet.init(httpServletResponse);
+        responseStreamsServlet.discardBody();
+
+        try (Writer writer = responseStreamsServlet.getWriter()) {
+            writer.write("rendered but never sent");
+        }
+
+        verify(httpServletResponse).setHeader("Content-Length", "23");
+        verify(httpServletResponse, never()).getOutputStream();
+
+    }
+
+    @Test
+    public void testCompressedLengthIsCountedForHead() throws Exception {
+
+        ResponseCompression responseCompression = newResponseCompression();
+
+        responseStreamsServlet = new ResponseStreamsServlet();
+        responseStreamsServlet.init(httpServletResponse);
+        responseStreamsServlet.discardBody();
+        responseStreamsServlet.enableCompression(
+                responseCompression, ResponseCompression.GZIP);
+
+        try (Writer writer = responseStreamsServlet.getWriter()) {
+            writer.write("rendered but never sent");
+        }
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+
+        try (OutputStream outputStream = responseCompression.compress(
+                ResponseCompression.GZIP, compressed)) {
+            outputStream.write("rendered but never sent".getBytes("utf-8"));
+        }
+
+        verify(httpServletResponse).setHeader("Content-Encoding", "gzip");
+        verify(httpServletResponse).setHeader(
+                "Content-Length", String.valueOf(compressed.size()));
+        verify(httpServletResponse, never()).getOutputStream();
+
+    }
+
+    @Test
+    public void testAutomaticETagAndNotModified() throws Exception {
+
+        NinjaPropertiesImpl ninjaProperties = new NinjaPropertiesImpl(NinjaMode.test);
+        ninjaProperties.setProperty(NinjaConstant.RESPONSE_ETAG_ENABLED, "true");
+        AutomaticETags automaticETags = new AutomaticETags(ninjaProperties);
+
+        responseStreamsServlet.enableAutomaticETag(
+                automaticETags, null, responseBufferPool);
+
+        try (Writer writer = responseStreamsServlet.getWriter()) {
+            writer.write("versioned");
+        }
+
+        ArgumentCaptor<String> etag = ArgumentCaptor.forClass(String.class);
+        verify(httpServletResponse).setHeader(eq("ETag"), etag.capture());
+        assertTrue(etag.getValue().startsWith("W/\""));
+        assertEquals("versioned", sentBytes.toString("utf-8"));
+
+        // the same body again - but this time the client has it already
+        sentBytes.reset();
+
+        ResponseStreamsServlet second = new ResponseStreamsServlet();
+        second.init(httpServletResponse, responseBufferPool);
+        second.enableAutomaticETag(
+                automaticETags, etag.getValue(), responseBufferPool);
+
+        try (Writer writer = second.getWriter()) {
+            writer.write("versioned");
+        }
+
+        verify(httpServletResponse).setStatus(304);
+        assertEquals(0, sentBytes.size());
+
+    }
+
+    @Test
+    public void testStrongETagDependsOnContentEncoding() throws Exception {
+
+        NinjaPropertiesImpl ninjaProperties = new NinjaPropertiesImpl(NinjaMode.test);
+        ninjaProperties.setProperty(NinjaConstant.RESPONSE_ETAG_ENABLED, "true");
+        ninjaProperties.setProperty(NinjaConstant.RESPONSE_ETAG_WEAK, "false");
+        AutomaticETags automaticETags = new AutomaticETags(ninjaProperties);
+
+        // the body spans several buffers of 16 bytes
+        String body = "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa";
+
+        responseStreamsServlet.enableAutomaticETag(
+                automaticETags, null, responseBufferPool);
+        responseStreamsServlet.enableCompression(
+                newResponseCompression(), ResponseCompression.GZIP);
+
+        try (Writer writer = responseStreamsServlet.getWriter()) {
+            writer.write(body);
+        }
+
+        try (GZIPInputStream gzipInputStream = new GZIPInputStream(
+                new ByteArrayInputStream(sentBytes.toByteArray()))) {
+            assertEquals(
+                    body,
+                    new String(ByteStreams.toByteArray(gzipInputStream), "utf-8"));
+        }
+
+        // the same body without compression
+        ResponseStreamsServlet identity = new ResponseStreamsServlet();
+        identity.init(httpServletResponse, responseBufferPool);
+        identity.enableAutomaticETag(automaticETags, null, responseBufferPool);
+
+        try (Writer writer = identity.getWriter()) {
+            writer.write(body);
+        }
+
+        ArgumentCaptor<String> etags = ArgumentCaptor.forClass(String.class);
+        verify(httpServletResponse, times(2)).setHeader(eq("ETag"), etags.capture());
+
+        String gzipETag = etags.getAllValues().get(0);
+        String identityETag = etags.getAllValues().get(1);
+
+        assertTrue(gzipETag.endsWith("-gzip\""));
+        assertFalse(identityETag.startsWith("W/"));
+        assertFalse(gzipETag.equals(identityETag));
+
+        // the buffers holding back the first body were handed back
+        assertTrue(responseBufferPool.getHitCount() > 0);
+
+    }
+
+    private ResponseCompression newResponseCompression() {
+
+        NinjaPropertiesImpl ninjaProperties = new NinjaPropertiesImpl(NinjaMode.test);
+        ninjaProperties.setProperty(NinjaConstant.RESPONSE_COMPRESSION_ENABLED, "true");
+        ninjaProperties.setProperty(NinjaConstant.RESPONSE_COMPRESSION_MIN_SIZE_IN_BYTES, "8");
+
+        return new ResponseCompression(ninjaProperties);
+
+    }
+
+    private static class CapturingServletOutputStream extends ServletOutputStream {
+
+        private final OutputStream outputStream;
+
+        CapturingServletOutputStream(OutputStream outputStream) {
+            this.outputStream = outputStream;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            outputStream.write(b);
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+        }
+
+    }
+
+}